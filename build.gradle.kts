@@ -2,6 +2,7 @@ plugins {
     id("java")
     id("io.spring.dependency-management") version "1.1.3"
     id("org.springframework.boot") version "3.1.5"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.mandrin.rain"
@@ -25,6 +26,7 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("org.springframework.boot:spring-boot-starter-websocket")
     implementation("org.springframework.boot:spring-boot-starter-log4j2")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
 
     // Swagger/OpenAPI
     implementation("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.1.0")
@@ -36,6 +38,9 @@ dependencies {
 
     // CSV parsing
     implementation("org.apache.commons:commons-csv:1.10.0")
+
+    // In-memory caches (version managed by Spring Boot)
+    implementation("com.github.ben-manes.caffeine:caffeine")
     
     // Utility
     implementation("org.projectlombok:lombok")
@@ -54,10 +59,50 @@ dependencies {
     // Jackson for JSON logging
     implementation("com.fasterxml.jackson.core:jackson-databind")
 
+    // In-memory database for the order history benchmark
+    jmhRuntimeOnly("com.h2database:h2")
+    // Servlet mocks for the request-path benchmarks
+    jmhImplementation("org.springframework:spring-test")
+
     // DevTools for automatic restarts during development
     developmentOnly("org.springframework.boot:spring-boot-devtools")
 }
 
+// WebSocket load test in src/loadTest/java; run with ./gradlew loadTest (not part of build)
+sourceSets {
+    create("loadTest") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+val loadTestImplementation by configurations.getting {
+    extendsFrom(configurations.implementation.get())
+}
+val loadTestRuntimeOnly by configurations.getting {
+    extendsFrom(configurations.runtimeOnly.get())
+}
+
+dependencies {
+    loadTestImplementation("org.hdrhistogram:HdrHistogram:2.1.12")
+    "loadTestAnnotationProcessor"("org.projectlombok:lombok")
+}
+
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs the /ws/ticker fan-out load test and writes build/reports/loadtest/ticker-load.json"
+    group = "verification"
+    classpath = sourceSets["loadTest"].runtimeClasspath
+    mainClass.set("org.mandrin.rain.broker.loadtest.TickerLoadTest")
+    maxHeapSize = "2g"
+    // -Ploadtest.clients=2000 -Pticker.ws.batch.enabled=true etc. become system properties
+    systemProperties(project.properties
+        .filterKeys { it.startsWith("loadtest.") || it.startsWith("ticker.ws.") }
+        .mapValues { it.value.toString() })
+    if (!project.hasProperty("loadtest.report")) {
+        systemProperty("loadtest.report", layout.buildDirectory.file("reports/loadtest/ticker-load.json").get().asFile.path)
+    }
+}
+
 configurations.all {
     exclude(group = "org.springframework.boot", module = "spring-boot-starter-logging")
     exclude(group = "org.apache.logging.log4j", module = "log4j-to-slf4j")
@@ -69,6 +114,49 @@ tasks.test {
     jvmArgs("--add-opens=java.base/java.lang=ALL-UNNAMED")
 }
 
+// Microbenchmarks live in src/jmh/java; run with ./gradlew jmh
+val jmhTag = project.findProperty("jmhTag")?.toString() ?: version.toString()
+
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+    // One results file per version (or -PjmhTag=...) so runs can be compared with jmhCompare
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results-$jmhTag.json"))
+    includes.set(listOf(project.findProperty("jmhInclude")?.toString() ?: ".*"))
+    // GC profiler reports gc.alloc.rate.norm (bytes allocated per operation)
+    profilers.set(listOf(project.findProperty("jmhProfilers")?.toString() ?: "gc"))
+}
+
+// ./gradlew jmhCompare -PjmhBaseline=build/results/jmh/results-1.0.json [-PjmhTag=...]
+tasks.register("jmhCompare") {
+    description = "Compares JMH scores of the current tag against a baseline results file"
+    group = "verification"
+    doLast {
+        val baseline = file(project.findProperty("jmhBaseline")?.toString()
+            ?: throw GradleException("Set -PjmhBaseline=<results json>"))
+        val current = layout.buildDirectory.file("results/jmh/results-$jmhTag.json").get().asFile
+        fun scores(results: File): Map<String, Pair<Double, String>> =
+            (groovy.json.JsonSlurper().parse(results) as List<*>).associate { entry ->
+                val run = entry as Map<*, *>
+                val params = (run["params"] as Map<*, *>?)?.entries?.joinToString(",", "(", ")") { "${it.key}=${it.value}" } ?: ""
+                val metric = run["primaryMetric"] as Map<*, *>
+                "${run["benchmark"]}$params" to ((metric["score"] as Number).toDouble() to metric["scoreUnit"].toString())
+            }
+        val before = scores(baseline)
+        val after = scores(current)
+        println(String.format("%-100s %14s %14s %9s", "benchmark", baseline.name, current.name, "change"))
+        for ((name, score) in after.toSortedMap()) {
+            val old = before[name]
+            val change = if (old == null || old.first == 0.0) "new" else String.format("%+.1f%%", (score.first - old.first) / old.first * 100)
+            println(String.format("%-100s %14s %14s %9s  %s", name,
+                old?.let { String.format("%.3f", it.first) } ?: "-", String.format("%.3f", score.first), change, score.second))
+        }
+    }
+}
+
 tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
 }
@@ -0,0 +1,103 @@
+package org.mandrin.rain.broker.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpSession;
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.interceptor.AuthInterceptor;
+import org.mandrin.rain.broker.service.SessionValidationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link AuthInterceptor#preHandle} for an authenticated session on a plain route
+ * and on a critical route whose token was validated recently.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuthInterceptorBenchmark {
+
+    public static class Handlers {
+        public void listOrders() { }
+        public void placeOrder() { }
+    }
+
+    private AuthInterceptor interceptor;
+    private MockHttpServletRequest plainRequest;
+    private MockHttpServletRequest criticalRequest;
+    private MockHttpServletResponse response;
+    private HandlerMethod listOrders;
+    private HandlerMethod placeOrder;
+
+    @Setup
+    public void setUp() throws Exception {
+        interceptor = new AuthInterceptor();
+        set(interceptor, "sessionValidationService", new SessionValidationService(new SimpleMeterRegistry(), 1_000) {
+            @Override
+            public boolean isAccessTokenValid(HttpSession session) {
+                return true;
+            }
+        });
+        set(interceptor, "revalidateMillis", TimeUnit.HOURS.toMillis(1));
+
+        listOrders = new HandlerMethod(new Handlers(), Handlers.class.getMethod("listOrders"));
+        placeOrder = new HandlerMethod(new Handlers(), Handlers.class.getMethod("placeOrder"));
+        interceptor.buildRouteTable(new ContextRefreshedEvent(contextWithRoutes()));
+
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION, "token");
+        plainRequest = new MockHttpServletRequest("GET", "/api/orders");
+        plainRequest.setSession(session);
+        criticalRequest = new MockHttpServletRequest("POST", "/api/orders");
+        criticalRequest.setSession(session);
+        response = new MockHttpServletResponse();
+        // First critical call stores validated-until in the session
+        interceptor.preHandle(criticalRequest, response, placeOrder);
+    }
+
+    @Benchmark
+    public boolean authenticatedPlainRoute() throws Exception {
+        return interceptor.preHandle(plainRequest, response, listOrders);
+    }
+
+    @Benchmark
+    public boolean authenticatedCriticalRouteRecentlyValidated() throws Exception {
+        return interceptor.preHandle(criticalRequest, response, placeOrder);
+    }
+
+    private ApplicationContext contextWithRoutes() {
+        RequestMappingHandlerMapping mapping = new RequestMappingHandlerMapping();
+        mapping.registerMapping(RequestMappingInfo.paths("/api/orders").methods(RequestMethod.GET).build(),
+                listOrders.getBean(), listOrders.getMethod());
+        mapping.registerMapping(RequestMappingInfo.paths("/api/orders").methods(RequestMethod.POST).build(),
+                placeOrder.getBean(), placeOrder.getMethod());
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("requestMappingHandlerMapping", mapping);
+        context.refresh();
+        return context;
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        Field field = AuthInterceptor.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,43 @@
+package org.mandrin.rain.broker.benchmark;
+
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.service.InstrumentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing the instrument master CSV into entities, the CPU part of
+ * {@link InstrumentService#fetchAndSave}. The download and the per-row saves are not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class InstrumentCsvBenchmark {
+
+    // The NFO master alone runs to tens of thousands of rows
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private String csv;
+
+    @Setup
+    public void setUp() {
+        csv = SyntheticInstruments.csv(rows);
+    }
+
+    @Benchmark
+    public List<Instrument> parseInstruments() throws IOException {
+        return InstrumentService.parseInstruments(new StringReader(csv));
+    }
+}
@@ -0,0 +1,136 @@
+package org.mandrin.rain.broker.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mandrin.rain.broker.model.MarketTick;
+import org.mandrin.rain.broker.websocket.TickMessageWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building and serializing one /ws/ticker message: the former map-based mock tick
+ * and a {@link MarketTick} through a plain ObjectMapper, against a reused tick through the
+ * hand-rolled {@link TickMessageWriter}. Run with the GC profiler (the build default) and
+ * compare {@code gc.alloc.rate.norm}, the bytes allocated per tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MarketTickBenchmark {
+
+    private static final long TOKEN = 738561L;
+    private static final double TICK_SIZE = 0.05;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TickMessageWriter writer = new TickMessageWriter();
+    private final MarketTick tick = new MarketTick();
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final double open = 2900.0;
+    private double price = open;
+
+    private double nextPrice() {
+        price = Math.round((price + (random.nextBoolean() ? TICK_SIZE : -TICK_SIZE)) * 100.0) / 100.0;
+        return price;
+    }
+
+    /**
+     * Map-per-tick construction as MockTickerService did it before ticks were typed.
+     */
+    @Benchmark
+    public String mapTickWithDatabind() throws Exception {
+        double last = nextPrice();
+        List<Map<String, Object>> buy = new ArrayList<>();
+        List<Map<String, Object>> sell = new ArrayList<>();
+        for (int i = 1; i <= MarketTick.DEPTH_LEVELS; i++) {
+            buy.add(Map.of("price", Math.round((last - i * TICK_SIZE) * 100.0) / 100.0,
+                    "quantity", random.nextInt(100, 5000), "orders", random.nextInt(1, 20)));
+            sell.add(Map.of("price", Math.round((last + i * TICK_SIZE) * 100.0) / 100.0,
+                    "quantity", random.nextInt(100, 5000), "orders", random.nextInt(1, 20)));
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("instrument_token", TOKEN);
+        data.put("tradingsymbol", "RELIANCE");
+        data.put("exchange", "NSE");
+        data.put("last_price", last);
+        data.put("last_quantity", random.nextInt(1, 1000));
+        data.put("average_price", Math.round((last + open) / 2 * 100.0) / 100.0);
+        data.put("volume", random.nextInt(10000, 1000000));
+        data.put("buy_quantity", random.nextInt(1000, 50000));
+        data.put("sell_quantity", random.nextInt(1000, 50000));
+        data.put("ohlc", Map.of("open", open, "high", Math.max(open, last), "low", Math.min(open, last), "close", open));
+        data.put("net_change", Math.round((last - open) * 100.0) / 100.0);
+        data.put("net_change_percentage", Math.round((last - open) / open * 10000.0) / 100.0);
+        data.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        data.put("depth", Map.of("buy", buy, "sell", sell));
+        data.put("oi", 0);
+        data.put("mode", "full");
+        return objectMapper.writeValueAsString(Map.of("type", "ticker", "data", data));
+    }
+
+    /**
+     * The typed tick through ObjectMapper, the way ticker payloads were serialized before the streaming writer.
+     */
+    @Benchmark
+    public String tickWithObjectMapper() throws Exception {
+        fill();
+        return objectMapper.writeValueAsString(Map.of("type", "ticker", "data", tick));
+    }
+
+    /**
+     * Refill the reused tick and encode it into the thread's buffer; no message string.
+     */
+    @Benchmark
+    public int reusedTickEncode() {
+        fill();
+        return writer.encode(tick);
+    }
+
+    /**
+     * Refill the reused tick and produce the message string the WebSocket handler sends.
+     */
+    @Benchmark
+    public String reusedTickMessage() {
+        fill();
+        return writer.write(tick);
+    }
+
+    private void fill() {
+        double last = nextPrice();
+        tick.reset();
+        tick.setInstrumentToken(TOKEN);
+        tick.setTradingsymbol("RELIANCE");
+        tick.setExchange("NSE");
+        tick.setMode(MarketTick.MODE_FULL);
+        tick.setLastPrice(last);
+        tick.setLastQuantity(random.nextInt(1, 1000));
+        tick.setAveragePrice(Math.round((last + open) / 2 * 100.0) / 100.0);
+        tick.setVolumeTraded(random.nextInt(10000, 1000000));
+        tick.setBuyQuantity(random.nextInt(1000, 50000));
+        tick.setSellQuantity(random.nextInt(1000, 50000));
+        tick.setOpen(open);
+        tick.setHigh(Math.max(open, last));
+        tick.setLow(Math.min(open, last));
+        tick.setClose(open);
+        tick.setNetChange(Math.round((last - open) * 100.0) / 100.0);
+        tick.setChangePercent(Math.round((last - open) / open * 10000.0) / 100.0);
+        tick.setTimestamp(System.currentTimeMillis());
+        tick.setDepthLevels(MarketTick.DEPTH_LEVELS);
+        for (int i = 0; i < MarketTick.DEPTH_LEVELS; i++) {
+            double offset = (i + 1) * TICK_SIZE;
+            tick.setBid(i, Math.round((last - offset) * 100.0) / 100.0, random.nextInt(100, 5000), random.nextInt(1, 20));
+            tick.setAsk(i, Math.round((last + offset) * 100.0) / 100.0, random.nextInt(100, 5000), random.nextInt(1, 20));
+        }
+    }
+}
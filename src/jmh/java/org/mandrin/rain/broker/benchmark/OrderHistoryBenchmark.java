@@ -0,0 +1,189 @@
+package org.mandrin.rain.broker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order history page latency over a million trade_orders rows in H2, using the table and
+ * indexes from schema.sql and the SQL shape TradeOrderHistoryRepositoryImpl generates.
+ * The OFFSET variant shows what a deep page costs without keyset pagination.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderHistoryBenchmark {
+
+    private static final int PAGE = 50;
+    private static final int SYMBOLS = 200;
+    private static final String[] EXCHANGES = {"NSE", "BSE", "NFO"};
+    private static final String SELECT = "SELECT id, instrument_token, tradingsymbol, exchange, transaction_type, "
+            + "quantity, price, order_id, placed_at, status FROM trade_orders WHERE placed_at IS NOT NULL";
+    private static final String ORDER_BY = " ORDER BY placed_at DESC, id DESC";
+    private static final String AFTER = " AND (placed_at < ? OR (placed_at = ? AND id < ?))";
+
+    @Param({"1000000"})
+    int rows;
+
+    private Connection connection;
+    private PreparedStatement firstPage;
+    private PreparedStatement keysetPage;
+    private PreparedStatement offsetPage;
+    private PreparedStatement symbolPage;
+    private PreparedStatement dateRangePage;
+    private Timestamp deepPlacedAt;
+    private long deepId;
+    private int deepOffset;
+    private LocalDateTime base;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:order_history;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        createSchema();
+        load();
+
+        firstPage = connection.prepareStatement(SELECT + ORDER_BY + " LIMIT " + (PAGE + 1));
+        keysetPage = connection.prepareStatement(SELECT + AFTER + ORDER_BY + " LIMIT " + (PAGE + 1));
+        offsetPage = connection.prepareStatement(SELECT + ORDER_BY + " LIMIT " + (PAGE + 1) + " OFFSET ?");
+        symbolPage = connection.prepareStatement(SELECT + " AND tradingsymbol = ?" + ORDER_BY + " LIMIT " + (PAGE + 1));
+        dateRangePage = connection.prepareStatement(SELECT + " AND exchange = ? AND placed_at >= ? AND placed_at < ?"
+                + ORDER_BY + " LIMIT " + (PAGE + 1));
+
+        // Cursor 90% of the way through the history
+        deepOffset = rows / 10 * 9;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT placed_at, id FROM trade_orders" + ORDER_BY + " LIMIT 1 OFFSET ?")) {
+            ps.setInt(1, deepOffset);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                deepPlacedAt = rs.getTimestamp(1);
+                deepId = rs.getLong(2);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void firstPage(Blackhole bh) throws SQLException {
+        consume(firstPage, bh);
+    }
+
+    @Benchmark
+    public void deepPageKeyset(Blackhole bh) throws SQLException {
+        keysetPage.setTimestamp(1, deepPlacedAt);
+        keysetPage.setTimestamp(2, deepPlacedAt);
+        keysetPage.setLong(3, deepId);
+        consume(keysetPage, bh);
+    }
+
+    @Benchmark
+    public void deepPageOffset(Blackhole bh) throws SQLException {
+        offsetPage.setInt(1, deepOffset);
+        consume(offsetPage, bh);
+    }
+
+    @Benchmark
+    public void symbolFilteredPage(Blackhole bh) throws SQLException {
+        symbolPage.setString(1, "SYM42");
+        consume(symbolPage, bh);
+    }
+
+    @Benchmark
+    public void exchangeDateRangePage(Blackhole bh) throws SQLException {
+        dateRangePage.setString(1, "NFO");
+        dateRangePage.setTimestamp(2, Timestamp.valueOf(base.plusDays(100)));
+        dateRangePage.setTimestamp(3, Timestamp.valueOf(base.plusDays(107)));
+        consume(dateRangePage, bh);
+    }
+
+    private void consume(PreparedStatement ps, Blackhole bh) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getLong(1));
+                bh.consume(rs.getString(3));
+                bh.consume(rs.getTimestamp(9));
+            }
+        }
+    }
+
+    /**
+     * Run the CREATE statements from schema.sql; the ALTERs only matter for upgrading
+     * existing databases.
+     */
+    private void createSchema() throws IOException, SQLException {
+        String script;
+        try (InputStream in = getClass().getResourceAsStream("/schema.sql")) {
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement st = connection.createStatement()) {
+            for (String statement : script.split(";")) {
+                String sql = statement.replaceAll("(?m)^\\s*--.*$", "").trim();
+                if (sql.toUpperCase().startsWith("CREATE")) {
+                    st.execute(sql);
+                }
+            }
+        }
+    }
+
+    private void load() throws SQLException {
+        base = LocalDateTime.now().minusDays(365).withNano(0);
+        long spacingMillis = 365L * 24 * 3600 * 1000 / rows;
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO trade_orders (instrument_token, tradingsymbol, exchange, transaction_type, quantity, "
+                        + "price, order_id, placed_at, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                int symbol = i % SYMBOLS;
+                insert.setLong(1, 100_000L + symbol);
+                insert.setString(2, "SYM" + symbol);
+                insert.setString(3, EXCHANGES[i % EXCHANGES.length]);
+                insert.setString(4, i % 2 == 0 ? "BUY" : "SELL");
+                insert.setInt(5, 50);
+                insert.setDouble(6, 100 + (i % 1000) * 0.05);
+                insert.setString(7, String.valueOf(200_000_000L + i));
+                // Several orders share each timestamp, so the id tie-breaker is exercised
+                insert.setTimestamp(8, Timestamp.valueOf(base.plusNanos((i / 4) * 4 * spacingMillis * 1_000_000)));
+                insert.setString(9, "COMPLETE");
+                insert.addBatch();
+                if (i % 10_000 == 9_999) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+        try (Statement st = connection.createStatement()) {
+            st.execute("ANALYZE");
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.mandrin.rain.broker.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.model.TradeOrder;
+import org.mandrin.rain.broker.repository.InstrumentRepository;
+import org.mandrin.rain.broker.service.InstrumentCacheService;
+import org.mandrin.rain.broker.service.PreTradeValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the local pre-trade check for valid and rejected orders, looked up by
+ * instrument token and by exchange and trading symbol.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PreTradeValidatorBenchmark {
+
+    @Param({"100000"})
+    int instruments;
+
+    private PreTradeValidator validator;
+    private TradeOrder validByToken;
+    private TradeOrder validBySymbol;
+    private TradeOrder partialLot;
+    private TradeOrder offTick;
+
+    @Setup
+    public void setUp() {
+        List<Instrument> list = new ArrayList<>(instruments);
+        LocalDate expiry = LocalDate.now().plusDays(30);
+        for (int i = 1; i <= instruments; i++) {
+            Instrument instrument = new Instrument();
+            instrument.setInstrumentToken((long) i);
+            instrument.setTradingsymbol("SYM" + i);
+            instrument.setName("SYM" + i);
+            instrument.setExchange("NFO");
+            instrument.setInstrumentType(i % 2 == 0 ? "CE" : "PE");
+            instrument.setStrike(20000.0 + (i % 200) * 50);
+            instrument.setExpiry(expiry);
+            instrument.setLotSize(50);
+            instrument.setTickSize(0.05);
+            list.add(instrument);
+        }
+        InstrumentCacheService cache = new InstrumentCacheService(repositoryReturning(list));
+        cache.reload();
+        validator = new PreTradeValidator(cache, new SimpleMeterRegistry());
+
+        validByToken = order(instruments / 2L, null, 100, 125.35);
+        validBySymbol = order(null, "SYM" + instruments / 3, 150, 99.95);
+        partialLot = order(instruments / 4L, null, 75, 125.35);
+        offTick = order(instruments / 5L, null, 50, 125.33);
+    }
+
+    @Benchmark
+    public PreTradeValidator.RejectReason validByToken() {
+        return validator.validate(validByToken);
+    }
+
+    @Benchmark
+    public PreTradeValidator.RejectReason validBySymbol() {
+        return validator.validate(validBySymbol);
+    }
+
+    @Benchmark
+    public PreTradeValidator.RejectReason rejectPartialLot() {
+        return validator.validate(partialLot);
+    }
+
+    @Benchmark
+    public PreTradeValidator.RejectReason rejectOffTick() {
+        return validator.validate(offTick);
+    }
+
+    private static TradeOrder order(Long token, String symbol, int quantity, double price) {
+        TradeOrder order = new TradeOrder();
+        order.setInstrumentToken(token);
+        order.setTradingsymbol(symbol);
+        order.setExchange("NFO");
+        order.setQuantity(quantity);
+        order.setPrice(price);
+        return order;
+    }
+
+    /**
+     * Repository stand-in that only answers findAll, enough to load the instrument cache.
+     */
+    static InstrumentRepository repositoryReturning(List<Instrument> instruments) {
+        return (InstrumentRepository) Proxy.newProxyInstance(InstrumentRepository.class.getClassLoader(),
+                new Class<?>[]{InstrumentRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAll") && (args == null || args.length == 0)) {
+                        return instruments;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,105 @@
+package org.mandrin.rain.broker.benchmark;
+
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.repository.InstrumentRepository;
+import org.mandrin.rain.broker.service.InstrumentService;
+import org.mandrin.rain.broker.service.ReactiveInstrumentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the filtering in {@link ReactiveInstrumentService#getInstruments} and
+ * {@link ReactiveInstrumentService#getMetadata}, collected as the router handlers do.
+ * The repository is an in-memory stand-in that answers its derived and JPQL queries with
+ * list scans, so this measures the service's own work over a full instrument master
+ * (the expiry filter and the unfiltered metadata paths stream over findAll) plus Reactor
+ * overhead, not SQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReactiveInstrumentServiceBenchmark {
+
+    @Param({"10000", "100000"})
+    public int instruments;
+
+    private ReactiveInstrumentService service;
+    private String expiry;
+
+    @Setup
+    public void setUp() {
+        InstrumentRepository repository = repository(SyntheticInstruments.list(instruments));
+        service = new ReactiveInstrumentService(new InstrumentService(null, repository, null), repository);
+        expiry = SyntheticInstruments.FIRST_EXPIRY.plusWeeks(1).toString();
+    }
+
+    @Benchmark
+    public List<Instrument> instrumentsByExchange() {
+        return service.getInstruments("exchange", "NSE", null).collectList().block();
+    }
+
+    @Benchmark
+    public List<Instrument> instrumentsByUnderlyingAndExpiry() {
+        return service.getInstruments("underlying", "NIFTY", expiry).collectList().block();
+    }
+
+    @Benchmark
+    public List<Instrument> instrumentsByExpiry() {
+        return service.getInstruments("expiry", expiry, null).collectList().block();
+    }
+
+    @Benchmark
+    public List<String> metadataTypes() {
+        return service.getMetadata("types", null).collectList().block();
+    }
+
+    @Benchmark
+    public List<String> metadataExpiries() {
+        return service.getMetadata("expiries", null).collectList().block();
+    }
+
+    private static InstrumentRepository repository(List<Instrument> all) {
+        return (InstrumentRepository) Proxy.newProxyInstance(InstrumentRepository.class.getClassLoader(),
+                new Class<?>[]{InstrumentRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll" -> all;
+                    case "findByExchange" -> all.stream()
+                            .filter(i -> args[0].equals(i.getExchange()))
+                            .toList();
+                    case "findByUnderlyingAsset" -> all.stream()
+                            .filter(i -> i.getName().contains((String) args[0]) && i.getExpiry() != null)
+                            .toList();
+                    case "findByUnderlyingAndExpiry" -> all.stream()
+                            .filter(i -> i.getName().contains((String) args[0]) && args[1].equals(i.getExpiry()))
+                            .toList();
+                    case "findDistinctExchange" -> all.stream().map(Instrument::getExchange).distinct().toList();
+                    case "findDistinctInstrumentType" -> all.stream()
+                            .filter(i -> args[0].equals(i.getExchange()))
+                            .map(Instrument::getInstrumentType)
+                            .distinct()
+                            .toList();
+                    case "findDistinctExpiryByUnderlying" -> all.stream()
+                            .filter(i -> i.getName().contains((String) args[0]))
+                            .map(Instrument::getExpiry)
+                            .filter(Objects::nonNull)
+                            .distinct()
+                            .sorted()
+                            .toList();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryInstrumentRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
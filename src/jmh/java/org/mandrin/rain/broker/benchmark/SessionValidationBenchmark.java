@@ -0,0 +1,78 @@
+package org.mandrin.rain.broker.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mandrin.rain.broker.service.SessionValidationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.lang.reflect.Field;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link SessionValidationService#isAccessTokenValid(String)} when the token's
+ * validation is cached: one hot token, and a random pick among many cached tokens, single
+ * threaded and from several threads at once. Tokens are validated up front in mock mode,
+ * so no Kite call is made.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SessionValidationBenchmark {
+
+    private static final int TOKENS = 10_000;
+
+    private SessionValidationService service;
+    private String[] tokens;
+
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next() {
+            return random.nextInt(TOKENS);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        service = new SessionValidationService(new SimpleMeterRegistry(), TOKENS * 2L);
+        Field mockSession = SessionValidationService.class.getDeclaredField("mockSession");
+        mockSession.setAccessible(true);
+        mockSession.set(service, true);
+        tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = "access-token-" + i;
+            service.isAccessTokenValid(tokens[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public boolean cachedHotToken() {
+        return service.isAccessTokenValid(tokens[0]);
+    }
+
+    @Benchmark
+    public boolean cachedManyTokens(Picker picker) {
+        return service.isAccessTokenValid(tokens[picker.next()]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean cachedManyTokensContended(Picker picker) {
+        return service.isAccessTokenValid(tokens[picker.next()]);
+    }
+}
@@ -0,0 +1,85 @@
+package org.mandrin.rain.broker.benchmark;
+
+import org.mandrin.rain.broker.model.Instrument;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instrument master shaped like Kite's: a block of NSE equities followed by futures and
+ * options on a handful of underlyings across weekly expiries, as rows of the
+ * {@code /instruments} CSV or as entities.
+ */
+final class SyntheticInstruments {
+
+    static final String[] UNDERLYINGS = {"NIFTY", "BANKNIFTY", "FINNIFTY", "RELIANCE", "TCS", "INFY", "HDFCBANK", "SBIN"};
+    static final LocalDate FIRST_EXPIRY = LocalDate.of(2025, 1, 2);
+    static final int EXPIRIES = 8;
+
+    private static final String HEADER =
+            "instrument_token,exchange_token,tradingsymbol,name,last_price,expiry,strike,tick_size,lot_size,instrument_type,segment,exchange\n";
+    private static final int EQUITY_SHARE_PERCENT = 20;
+
+    private SyntheticInstruments() {
+    }
+
+    static List<Instrument> list(int count) {
+        List<Instrument> instruments = new ArrayList<>(count);
+        int equities = count * EQUITY_SHARE_PERCENT / 100;
+        for (int n = 0; n < count; n++) {
+            Instrument i = new Instrument();
+            i.setInstrumentToken(100_000L + n);
+            i.setExchangeToken((long) n);
+            i.setTickSize(0.05);
+            if (n < equities) {
+                i.setTradingsymbol("EQ" + n);
+                i.setName("EQUITY " + n);
+                i.setLastPrice(100.0 + n % 5000);
+                i.setStrike(0.0);
+                i.setLotSize(1);
+                i.setInstrumentType("EQ");
+                i.setSegment("NSE");
+                i.setExchange("NSE");
+            } else {
+                int d = n - equities;
+                String underlying = UNDERLYINGS[d % UNDERLYINGS.length];
+                LocalDate expiry = FIRST_EXPIRY.plusWeeks((d / UNDERLYINGS.length) % EXPIRIES);
+                int kind = (d / (UNDERLYINGS.length * EXPIRIES)) % 3;
+                double strike = kind == 0 ? 0.0 : 10_000 + 50.0 * (d / (UNDERLYINGS.length * EXPIRIES * 3));
+                String type = kind == 0 ? "FUT" : kind == 1 ? "CE" : "PE";
+                i.setTradingsymbol(underlying + expiry.getYear() % 100 + expiry.getDayOfYear()
+                        + (kind == 0 ? "FUT" : (long) strike + type) + d);
+                i.setName(underlying);
+                i.setLastPrice(kind == 0 ? 20_000.0 : 100.0);
+                i.setExpiry(expiry);
+                i.setStrike(strike);
+                i.setLotSize(50);
+                i.setInstrumentType(type);
+                i.setSegment(kind == 0 ? "NFO-FUT" : "NFO-OPT");
+                i.setExchange("NFO");
+            }
+            instruments.add(i);
+        }
+        return instruments;
+    }
+
+    static String csv(int count) {
+        StringBuilder csv = new StringBuilder(HEADER.length() + count * 96).append(HEADER);
+        for (Instrument i : list(count)) {
+            csv.append(i.getInstrumentToken()).append(',')
+                    .append(i.getExchangeToken()).append(',')
+                    .append(i.getTradingsymbol()).append(',')
+                    .append('"').append(i.getName()).append('"').append(',')
+                    .append(i.getLastPrice()).append(',')
+                    .append(i.getExpiry() == null ? "" : i.getExpiry().toString()).append(',')
+                    .append(i.getStrike()).append(',')
+                    .append(i.getTickSize()).append(',')
+                    .append(i.getLotSize()).append(',')
+                    .append(i.getInstrumentType()).append(',')
+                    .append(i.getSegment()).append(',')
+                    .append(i.getExchange()).append('\n');
+        }
+        return csv.toString();
+    }
+}
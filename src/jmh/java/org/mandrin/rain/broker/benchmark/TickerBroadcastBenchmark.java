@@ -0,0 +1,128 @@
+package org.mandrin.rain.broker.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mandrin.rain.broker.model.MarketTick;
+import org.mandrin.rain.broker.service.TickLatencyTracker;
+import org.mandrin.rain.broker.websocket.TickerWebSocketHandler;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of fanning a burst of ticks out to /ws/ticker clients, one frame per tick against
+ * batched frames. Clients are in-memory sessions that only count frames and payload bytes,
+ * so this measures encoding and dispatch; per-message compression happens in the container
+ * and is not visible here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TickerBroadcastBenchmark {
+
+    private static final int TICKS_PER_FLUSH = 100;
+
+    @Param({"10", "100"})
+    public int clients;
+
+    @Param({"false", "true"})
+    public boolean batched;
+
+    private TickerWebSocketHandler handler;
+    private final MarketTick tick = new MarketTick();
+
+    /**
+     * Frames and payload bytes delivered to all clients, reported per tick.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Delivered {
+        public long frames;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            frames = 0;
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp(Delivered delivered) throws Exception {
+        handler = new TickerWebSocketHandler(new TickLatencyTracker(new SimpleMeterRegistry(), true));
+        set("batchEnabled", batched);
+        set("batchMaxSize", Integer.MAX_VALUE);
+        // Only the benchmark's own flushes send frames
+        set("flushIntervalMs", 3_600_000L);
+        handler.init();
+        for (int i = 0; i < clients; i++) {
+            handler.afterConnectionEstablished(session("client-" + i, delivered));
+        }
+        delivered.clear();
+
+        tick.setTradingsymbol("RELIANCE");
+        tick.setExchange("NSE");
+        tick.setMode(MarketTick.MODE_FULL);
+        tick.setOpen(2900.0);
+        tick.setClose(2900.0);
+        tick.setDepthLevels(MarketTick.DEPTH_LEVELS);
+        for (int i = 0; i < MarketTick.DEPTH_LEVELS; i++) {
+            tick.setBid(i, 2899.95 - i * 0.05, 100 * (i + 1), i + 1);
+            tick.setAsk(i, 2900.05 + i * 0.05, 100 * (i + 1), i + 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS_PER_FLUSH)
+    public long broadcastBurst(Delivered delivered) {
+        for (int i = 0; i < TICKS_PER_FLUSH; i++) {
+            tick.setInstrumentToken(738561L + i);
+            tick.setLastPrice(2900.0 + i * 0.05);
+            tick.setTimestamp(System.currentTimeMillis());
+            handler.broadcastTick(tick);
+        }
+        handler.flushBatch();
+        return delivered.frames;
+    }
+
+    private void set(String field, Object value) throws Exception {
+        Field f = TickerWebSocketHandler.class.getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(handler, value);
+    }
+
+    private static WebSocketSession session(String id, Delivered delivered) {
+        return (WebSocketSession) Proxy.newProxyInstance(WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getId", "toString" -> id;
+                    case "isOpen" -> true;
+                    case "sendMessage" -> {
+                        delivered.frames++;
+                        delivered.bytes += ((WebSocketMessage<?>) args[0]).getPayloadLength();
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
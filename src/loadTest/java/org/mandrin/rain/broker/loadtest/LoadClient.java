@@ -0,0 +1,103 @@
+package org.mandrin.rain.broker.loadtest;
+
+import org.HdrHistogram.Recorder;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One /ws/ticker client. Accepts single-tick, {@code ticker_batch} and binary batch frames,
+ * and records each measured tick's latency in microseconds into the shared recorder.
+ *
+ * Ticks are found by scanning for the sequence field rather than parsing the JSON, so
+ * thousands of clients in the same JVM cost the server as little CPU as possible.
+ */
+final class LoadClient extends AbstractWebSocketHandler {
+
+    static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final String SEQUENCE_FIELD = "\"volumeTraded\":";
+
+    private final TickReplay replay;
+    private final Recorder latencies;
+
+    // Written only by the session's delivery thread
+    private volatile long frames;
+    private volatile long bytes;
+    private volatile long received;
+    private volatile CloseStatus closeStatus;
+
+    LoadClient(TickReplay replay, Recorder latencies) {
+        this.replay = replay;
+        this.latencies = latencies;
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        frames++;
+        bytes += message.getPayloadLength();
+        scan(message.getPayload());
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        frames++;
+        bytes += message.getPayloadLength();
+        ByteBuffer payload = message.getPayload();
+        while (payload.remaining() >= Integer.BYTES) {
+            byte[] record = new byte[payload.getInt()];
+            payload.get(record);
+            scan(new String(record, StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        closeStatus = status;
+    }
+
+    private void scan(String payload) {
+        int at = payload.indexOf(SEQUENCE_FIELD);
+        while (at >= 0) {
+            int i = at + SEQUENCE_FIELD.length();
+            long seq = 0;
+            char c;
+            while (i < payload.length() && (c = payload.charAt(i)) >= '0' && c <= '9') {
+                seq = seq * 10 + (c - '0');
+                i++;
+            }
+            onTick(seq);
+            at = payload.indexOf(SEQUENCE_FIELD, i);
+        }
+    }
+
+    private void onTick(long seq) {
+        if (!replay.isMeasured(seq)) {
+            return;
+        }
+        received++;
+        long micros = (System.nanoTime() - replay.intendedNanos(seq)) / 1_000;
+        latencies.recordValue(Math.max(0, Math.min(micros, MAX_LATENCY_MICROS)));
+    }
+
+    long frames() {
+        return frames;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    long received() {
+        return received;
+    }
+
+    boolean isClosed() {
+        return closeStatus != null;
+    }
+}
@@ -0,0 +1,87 @@
+package org.mandrin.rain.broker.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples process CPU and heap once a second during the measured window, and reports GC
+ * activity over it. The server and the load clients share the JVM, so figures cover both.
+ */
+final class ResourceSampler {
+
+    private final com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "loadtest-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private double cpuSum;
+    private double cpuMax;
+    private int cpuSamples;
+    private long heapMax;
+    private long gcCountStart;
+    private long gcTimeStart;
+    private long gcCount;
+    private long gcTimeMs;
+
+    void start() {
+        gcCountStart = gcCount();
+        gcTimeStart = gcTime();
+        scheduler.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+    }
+
+    void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        gcCount = gcCount() - gcCountStart;
+        gcTimeMs = gcTime() - gcTimeStart;
+    }
+
+    private synchronized void sample() {
+        double cpu = os.getProcessCpuLoad();
+        if (cpu >= 0) {
+            cpuSum += cpu;
+            cpuMax = Math.max(cpuMax, cpu);
+            cpuSamples++;
+        }
+        heapMax = Math.max(heapMax, memory.getHeapMemoryUsage().getUsed());
+    }
+
+    synchronized Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("availableProcessors", os.getAvailableProcessors());
+        // Fraction of all cores, 0..1
+        report.put("processCpuAvg", cpuSamples == 0 ? 0.0 : cpuSum / cpuSamples);
+        report.put("processCpuMax", cpuMax);
+        report.put("heapUsedMaxBytes", heapMax);
+        report.put("heapMaxBytes", memory.getHeapMemoryUsage().getMax());
+        report.put("gcCount", gcCount);
+        report.put("gcTimeMs", gcTimeMs);
+        return report;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
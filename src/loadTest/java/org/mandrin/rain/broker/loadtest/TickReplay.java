@@ -0,0 +1,107 @@
+package org.mandrin.rain.broker.loadtest;
+
+import org.mandrin.rain.broker.model.MarketTick;
+import org.mandrin.rain.broker.service.TickPipeline;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes ticks into the {@link TickPipeline} at a fixed rate, round-robin over a block of
+ * synthetic instrument tokens.
+ *
+ * Every tick carries its global sequence number in {@code volumeTraded} (cumulative volume,
+ * so still monotonic per instrument), which clients use to find the time the tick was due.
+ * Latency is measured from that intended time rather than the actual publish time, so a
+ * publisher held up by a slow fan-out shows up in the percentiles instead of hiding
+ * (coordinated omission).
+ */
+final class TickReplay implements Runnable {
+
+    static final long FIRST_TOKEN = 9_000_000L;
+
+    private final TickPipeline pipeline;
+    private final int instruments;
+    private final String[] symbols;
+    private final long periodNanos;
+    private final MarketTick tick = new MarketTick();
+
+    private volatile long startNanos;
+    private volatile long next;
+    private volatile long measureFrom = Long.MAX_VALUE;
+    private volatile long measureTo = Long.MAX_VALUE;
+    private volatile boolean running = true;
+
+    TickReplay(TickPipeline pipeline, int ticksPerSecond, int instruments) {
+        this.pipeline = pipeline;
+        this.instruments = instruments;
+        this.symbols = new String[instruments];
+        for (int i = 0; i < instruments; i++) {
+            symbols[i] = "LOAD" + i;
+        }
+        this.periodNanos = 1_000_000_000L / ticksPerSecond;
+    }
+
+    @Override
+    public void run() {
+        tick.setExchange("NSE");
+        tick.setMode(MarketTick.MODE_FULL);
+        tick.setDepthLevels(MarketTick.DEPTH_LEVELS);
+        startNanos = System.nanoTime();
+        while (running) {
+            long seq = next;
+            long due = intendedNanos(seq);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            fill(seq);
+            tick.markReceived();
+            pipeline.publish(tick);
+            next = seq + 1;
+        }
+    }
+
+    private void fill(long seq) {
+        int instrument = (int) (seq % instruments);
+        double price = 1000.0 + instrument + (seq % 200) * 0.05;
+        tick.setInstrumentToken(FIRST_TOKEN + instrument);
+        tick.setTradingsymbol(symbols[instrument]);
+        tick.setLastPrice(price);
+        tick.setVolumeTraded(seq);
+        tick.setTimestamp(System.currentTimeMillis());
+        for (int i = 0; i < MarketTick.DEPTH_LEVELS; i++) {
+            tick.setBid(i, price - (i + 1) * 0.05, 100L * (i + 1), i + 1);
+            tick.setAsk(i, price + (i + 1) * 0.05, 100L * (i + 1), i + 1);
+        }
+    }
+
+    long intendedNanos(long seq) {
+        return startNanos + seq * periodNanos;
+    }
+
+    /**
+     * Ticks from the next one on count towards the report.
+     */
+    void beginMeasurement() {
+        measureFrom = next;
+    }
+
+    /**
+     * Ticks from the next one on no longer count.
+     *
+     * @return number of ticks published in the measured window
+     */
+    long endMeasurement() {
+        measureTo = next;
+        return measureTo - measureFrom;
+    }
+
+    boolean isMeasured(long seq) {
+        return seq >= measureFrom && seq < measureTo;
+    }
+
+    void stop() {
+        running = false;
+    }
+}
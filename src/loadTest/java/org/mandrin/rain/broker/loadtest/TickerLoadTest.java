@@ -0,0 +1,218 @@
+package org.mandrin.rain.broker.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.mandrin.rain.broker.BrokerApplication;
+import org.mandrin.rain.broker.service.TickPipeline;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Load test for the /ws/ticker fan-out. Starts the application in-process on a random port
+ * with an in-memory database, connects {@code loadtest.clients} WebSocket clients, replays
+ * ticks through the {@link TickPipeline} at {@code loadtest.ticks-per-second} and writes a
+ * JSON report of latency percentiles, throughput, dropped ticks and process CPU and heap.
+ *
+ * Run with {@code ./gradlew loadTest -Ploadtest.clients=2000}; any {@code ticker.ws.*}
+ * property passed the same way configures the server, e.g. {@code -Pticker.ws.batch.enabled=true}.
+ */
+@Slf4j
+public final class TickerLoadTest {
+
+    private static final int MAX_MESSAGE_BYTES = 4 * 1024 * 1024;
+    private static final int CONNECT_BATCH = 200;
+    private static final long DRAIN_TIMEOUT_MS = 10_000;
+
+    private TickerLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("loadtest.clients", 1000);
+        int ticksPerSecond = Integer.getInteger("loadtest.ticks-per-second", 1000);
+        int instruments = Integer.getInteger("loadtest.instruments", 200);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup-seconds", 5);
+        int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 30);
+        boolean compression = Boolean.parseBoolean(System.getProperty("loadtest.compression", "false"));
+        Path reportPath = Path.of(System.getProperty("loadtest.report", "build/reports/loadtest/ticker-load.json"));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BrokerApplication.class)
+                .run(serverArgs(args));
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            TickPipeline pipeline = context.getBean(TickPipeline.class);
+
+            Recorder latencies = new Recorder(LoadClient.MAX_LATENCY_MICROS, 3);
+            TickReplay replay = new TickReplay(pipeline, ticksPerSecond, instruments);
+            List<LoadClient> loadClients = new ArrayList<>(clients);
+            List<WebSocketSession> sessions = connect(URI.create("ws://localhost:" + port + "/ws/ticker"),
+                    clients, compression, replay, latencies, loadClients);
+            log.info("Connected {} clients to port {}", sessions.size(), port);
+
+            Thread publisher = new Thread(replay, "loadtest-replay");
+            publisher.start();
+            TimeUnit.SECONDS.sleep(warmupSeconds);
+
+            ResourceSampler resources = new ResourceSampler();
+            long framesBefore = sum(loadClients, LoadClient::frames);
+            long bytesBefore = sum(loadClients, LoadClient::bytes);
+            latencies.reset();
+            replay.beginMeasurement();
+            resources.start();
+            long started = System.nanoTime();
+            TimeUnit.SECONDS.sleep(durationSeconds);
+            long published = replay.endMeasurement();
+            double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+            resources.stop();
+            replay.stop();
+            publisher.join();
+
+            long expected = published * sessions.size();
+            long received = awaitDrain(loadClients, expected);
+            Histogram histogram = latencies.getIntervalHistogram();
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("timestamp", Instant.now().toString());
+            report.put("config", Map.of(
+                    "clients", clients,
+                    "connectedClients", sessions.size(),
+                    "ticksPerSecond", ticksPerSecond,
+                    "instruments", instruments,
+                    "warmupSeconds", warmupSeconds,
+                    "durationSeconds", durationSeconds,
+                    "clientCompression", compression,
+                    "batchEnabled", context.getEnvironment().getProperty("ticker.ws.batch.enabled", "false"),
+                    "batchFormat", context.getEnvironment().getProperty("ticker.ws.batch.format", "json")));
+            report.put("throughput", Map.of(
+                    "publishedTicks", published,
+                    "publishedTicksPerSecond", published / elapsedSeconds,
+                    "deliveredTicksPerSecond", received / elapsedSeconds,
+                    "framesPerSecond", (sum(loadClients, LoadClient::frames) - framesBefore) / elapsedSeconds,
+                    "bytesPerSecond", (sum(loadClients, LoadClient::bytes) - bytesBefore) / elapsedSeconds));
+            report.put("delivery", Map.of(
+                    "expectedTicks", expected,
+                    "receivedTicks", received,
+                    "droppedTicks", expected - received,
+                    "disconnectedClients", loadClients.stream().filter(LoadClient::isClosed).count()));
+            report.put("latencyMicros", latencyReport(histogram));
+            report.put("resources", resources.report());
+
+            Files.createDirectories(reportPath.toAbsolutePath().getParent());
+            ObjectMapper objectMapper = new ObjectMapper();
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportPath.toFile(), report);
+            log.info("Ticker load test: {} ticks/s to {} clients, p50={}us p99={}us p99.9={}us max={}us, dropped {} of {}; report {}",
+                    Math.round(published / elapsedSeconds), sessions.size(),
+                    histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+                    histogram.getValueAtPercentile(99.9), histogram.getMaxValue(),
+                    expected - received, expected, reportPath.toAbsolutePath());
+
+            for (WebSocketSession session : sessions) {
+                session.close();
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Self-contained server settings; command line arguments take precedence over the
+     * environment placeholders in application.properties.
+     */
+    private static String[] serverArgs(String[] args) {
+        List<String> all = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--kite.api_key=loadtest",
+                "--kite.api_secret=loadtest",
+                "--kite.user_id=loadtest",
+                "--logging.level.org.mandrin.rain.broker=WARN"));
+        all.addAll(List.of(args));
+        return all.toArray(String[]::new);
+    }
+
+    private static List<WebSocketSession> connect(URI uri, int clients, boolean compression, TickReplay replay,
+                                                  Recorder latencies, List<LoadClient> loadClients) throws Exception {
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        container.setDefaultMaxTextMessageBufferSize(MAX_MESSAGE_BYTES);
+        container.setDefaultMaxBinaryMessageBufferSize(MAX_MESSAGE_BYTES);
+        StandardWebSocketClient client = new StandardWebSocketClient(container);
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        if (compression) {
+            headers.setSecWebSocketExtensions(List.of(new WebSocketExtension("permessage-deflate")));
+        }
+
+        List<WebSocketSession> sessions = new ArrayList<>(clients);
+        for (int from = 0; from < clients; from += CONNECT_BATCH) {
+            List<CompletableFuture<WebSocketSession>> pending = new ArrayList<>();
+            for (int i = from; i < Math.min(clients, from + CONNECT_BATCH); i++) {
+                LoadClient loadClient = new LoadClient(replay, latencies);
+                loadClients.add(loadClient);
+                pending.add(client.execute(loadClient, headers, uri));
+            }
+            for (CompletableFuture<WebSocketSession> future : pending) {
+                try {
+                    sessions.add(future.get(30, TimeUnit.SECONDS));
+                } catch (Exception e) {
+                    log.warn("Client failed to connect: {}", e.getMessage());
+                }
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Wait until every measured tick has arrived or delivery stops making progress.
+     */
+    private static long awaitDrain(List<LoadClient> loadClients, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        long received = sum(loadClients, LoadClient::received);
+        while (received < expected && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(200);
+            received = sum(loadClients, LoadClient::received);
+        }
+        return received;
+    }
+
+    private static Map<String, Object> latencyReport(Histogram histogram) {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("count", histogram.getTotalCount());
+        latency.put("mean", histogram.getMean());
+        latency.put("p50", histogram.getValueAtPercentile(50));
+        latency.put("p90", histogram.getValueAtPercentile(90));
+        latency.put("p99", histogram.getValueAtPercentile(99));
+        latency.put("p99_9", histogram.getValueAtPercentile(99.9));
+        latency.put("p99_99", histogram.getValueAtPercentile(99.99));
+        latency.put("max", histogram.getMaxValue());
+        return latency;
+    }
+
+    private static long sum(List<LoadClient> loadClients, ToLongFunction<LoadClient> counter) {
+        return loadClients.stream().mapToLong(counter).sum();
+    }
+}
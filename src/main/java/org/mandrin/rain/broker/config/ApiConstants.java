@@ -17,6 +17,7 @@ public final class ApiConstants {
     public static final String HOLDINGS_URL = "https://api.kite.trade/portfolio/holdings";
     public static final String POSITIONS_URL = "https://api.kite.trade/portfolio/positions";
     public static final String ORDER_URL = "https://api.kite.trade/orders/regular";
+    public static final String ORDERS_URL = "https://api.kite.trade/orders";
     public static final String INSTRUMENTS_PATH = "/instruments/";
     
     // Kite API Headers
@@ -48,6 +49,7 @@ public final class ApiConstants {
     public static final String API_INSTRUMENTS_PATH = "/api/instruments";
     public static final String API_PORTFOLIO_PATH = "/api/portfolio";
     public static final String API_TICKER_PATH = "/api/ticker";
+    public static final String API_DIAGNOSTICS_PATH = "/api/diagnostics";
     
     // Session API Paths
     public static final String API_SESSION_TOKEN_PATH = "/api/session/kite-access-token";
@@ -87,6 +89,16 @@ public final class ApiConstants {
     public static final String INSTRUMENT_TYPE_PE = "PE";
     public static final String INSTRUMENT_TYPE_FUT = "FUT";
     
+    // Local Order Statuses (broker statuses such as OPEN or COMPLETE are stored as received)
+    public static final String ORDER_STATUS_ACCEPTED = "ACCEPTED";
+    public static final String ORDER_STATUS_PLACED = "PLACED";
+    public static final String ORDER_STATUS_FAILED = "FAILED";
+    public static final String ORDER_STATUS_REJECTED = "REJECTED";
+    // Terminal statuses reported by Kite order updates
+    public static final String ORDER_STATUS_COMPLETE = "COMPLETE";
+    public static final String ORDER_STATUS_CANCELLED = "CANCELLED";
+    public static final String API_ORDER_POSTBACK_PATH = "/api/orders/postback";
+    
     // Segments
     public static final String SEGMENT_EQ = "EQ";
     public static final String SEGMENT_NFO = "NFO";
@@ -94,6 +106,7 @@ public final class ApiConstants {
     // Exchanges
     public static final String EXCHANGE_NSE = "NSE";
     public static final String EXCHANGE_BSE = "BSE";
+    public static final String EXCHANGE_NFO = "NFO";
     
     // ========================================================================
     // SESSION CONSTANTS
@@ -102,6 +115,7 @@ public final class ApiConstants {
     public static final String KITE_ACCESS_TOKEN_SESSION = "kite_access_token";
     public static final String SESSION_ATTR_USER_ID = "user_id";
     public static final String SESSION_ATTR_API_KEY = "api_key";
+    public static final String SESSION_ATTR_TOKEN_VALIDATED_UNTIL = "token_validated_until";
     
     // ========================================================================
     // RESPONSE CONSTANTS
@@ -199,6 +213,10 @@ public final class ApiConstants {
     public static final String WS_MESSAGE_TYPE = "type";
     public static final String WS_MESSAGE_CONNECTION = "connection";
     public static final String WS_MESSAGE_TICKER = "ticker";
+    public static final String WS_MESSAGE_TICKER_BATCH = "ticker_batch";
+    public static final String WS_MESSAGE_LATENCY_ECHO = "latency_echo";
+    public static final String WS_MESSAGE_ORDER = "order";
+    public static final String WS_MESSAGE_PORTFOLIO = "portfolio";
     public static final String WS_MESSAGE_DATA = "data";
     
     // ========================================================================
@@ -3,14 +3,15 @@ package org.mandrin.rain.broker.config;
 import org.mandrin.rain.broker.handler.InstrumentHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.reactive.function.server.RouterFunction;
-import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.ServerResponse;
 
-import static org.springframework.web.reactive.function.server.RouterFunctions.route;
-import static org.springframework.web.reactive.function.server.RequestPredicates.*;
+import static org.springframework.web.servlet.function.RouterFunctions.route;
 
 /**
- * Reactive router configuration for consolidated instrument API endpoints
+ * Router configuration for consolidated instrument API endpoints. The routes are WebMvc.fn
+ * functions, so the servlet app maps them alongside the annotated controllers and the
+ * /api/** auth interceptor applies to them as well.
  * 
  * Consolidates multiple endpoints into fewer, more flexible routes:
  * 
@@ -28,6 +29,8 @@ import static org.springframework.web.reactive.function.server.RequestPredicates
  * NEW APPROACH (3 main endpoints):
  * - GET /api/v2/instruments/{filterType}[/{filterValue}[/{subFilter}]]
  * - GET /api/v2/instruments/metadata/{type}[?filter=value]
+ * - GET /api/v2/instruments/option-chain/{exchange}/{underlying}/{expiry}
+ * - GET /api/v2/instruments/catalog/{exchange}
  * - POST /api/v2/instruments/refresh[/{exchange}]
  */
 @Configuration
@@ -43,6 +46,14 @@ public class InstrumentRouterConfig {
             .GET("/api/v2/instruments/underlying/{underlying}/expiry/{expiry}", handler::getInstrumentsByUnderlyingAndExpiry)
             .GET("/api/v2/instruments/expiry/{expiry}", handler::getInstrumentsByExpiry)
             
+            // Strike-sorted CE/PE token pairs served from the in-memory instrument cache
+            .GET("/api/v2/instruments/option-chain/{exchange}/{underlying}/{expiry}", handler::getOptionChain)
+            .GET("/api/v2/instruments/option-chain/{underlying}/{expiry}", handler::getOptionChain)
+            
+            // Compressed columnar catalog snapshot, cacheable by ETag until the next refresh
+            .GET("/api/v2/instruments/catalog/{exchange}", handler::getCatalog)
+            .GET("/api/v2/instruments/catalog/{exchange}/stats", handler::getCatalogStats)
+            
             // Metadata endpoints (consolidated)
             .GET("/api/v2/instruments/metadata/exchanges", handler::getExchanges)
             .GET("/api/v2/instruments/metadata/types", handler::getInstrumentTypes)
@@ -66,8 +77,8 @@ public class InstrumentRouterConfig {
             .GET("/api/instruments/expiry-dates", handler::getExpiriesByUnderlyingLegacy)
             .GET("/api/instruments/by-underlying", handler::getInstrumentsByUnderlyingLegacy)
             .GET("/api/instruments/by-underlying-expiry", handler::getInstrumentsByUnderlyingAndExpiryLegacy)
-            .POST("/api/instruments/{exchange}", handler::loadInstrumentsByExchangeLegacy)
             .POST("/api/instruments/refresh", handler::refreshAllInstruments)
+            .POST("/api/instruments/{exchange}", handler::loadInstrumentsByExchangeLegacy)
             
             .build();
     }
@@ -16,25 +16,8 @@ public class SessionConfig {
     @Autowired
     private SessionValidationService sessionValidationService;
 
-    /**
-     * Scheduled task to clean up expired validation cache entries
-     * Runs every 30 minutes
-     */
-    @Scheduled(fixedRate = 30 * 60 * 1000) // 30 minutes
-    public void cleanupExpiredCache() {
-        try {
-            int sizeBefore = sessionValidationService.getCacheSize();
-            sessionValidationService.clearExpiredCache();
-            int sizeAfter = sessionValidationService.getCacheSize();
-            
-            if (sizeBefore > sizeAfter) {
-                log.info("Cleaned up {} expired validation cache entries (before: {}, after: {})", 
-                         sizeBefore - sizeAfter, sizeBefore, sizeAfter);
-            }
-        } catch (Exception e) {
-            log.error("Error during scheduled cache cleanup: {}", e.getMessage());
-        }
-    }
+    // Expired validation cache entries are evicted incrementally by the cache itself,
+    // so there is no periodic cleanup task here
 
     /**
      * Scheduled task to log session health metrics
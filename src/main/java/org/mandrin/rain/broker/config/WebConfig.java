@@ -17,6 +17,7 @@ public class WebConfig implements WebMvcConfigurer {
                 .addPathPatterns("/", "/home", "/api/**")
                 .excludePathPatterns("/login", "/kite/callback", "/logout", 
                                    "/api/session/kite-access-token", "/api/session/status", "/api/session/validate",
+                                   ApiConstants.API_ORDER_POSTBACK_PATH,
                                    "/swagger-ui/**", "/v3/api-docs/**", 
                                    "/actuator/**", "/h2-console/**", "/js/**", "/css/**", "/images/**");
     }
@@ -2,10 +2,20 @@ package org.mandrin.rain.broker.config;
 
 import org.mandrin.rain.broker.websocket.TickerWebSocketHandler;
 import org.mandrin.rain.broker.websocket.InstrumentWebSocketHandler;
+import org.mandrin.rain.broker.websocket.OrderWebSocketHandler;
+import org.mandrin.rain.broker.websocket.PortfolioWebSocketHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
+
+import java.util.List;
 
 /**
  * Unified WebSocket configuration for all WebSocket endpoints
@@ -13,24 +23,41 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
  * All endpoints use traditional Spring WebSocket for consistency and compatibility:
  * - /ws/ticker - Market ticker data streaming using TickerWebSocketHandler
  * - /ws/instruments - Real-time instrument data streaming using InstrumentWebSocketHandler
+ * - /ws/orders - Order status updates using OrderWebSocketHandler
+ * - /ws/portfolio - Live portfolio P&L using PortfolioWebSocketHandler
  * 
  * Benefits of this approach:
  * 1. Single configuration for all WebSocket endpoints
  * 2. Consistent behavior across all endpoints
  * 3. Better compatibility and easier debugging
  * 4. No mixing of reactive and traditional WebSocket frameworks
+ *
+ * /ws/ticker accepts the permessage-deflate extension when the client offers it, unless
+ * {@code ticker.ws.compression.enabled=false}.
  */
 @Configuration
 @EnableWebSocket
+@Slf4j
 public class WebSocketConfiguration implements WebSocketConfigurer {
 
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
     private final TickerWebSocketHandler tickerWebSocketHandler;
     private final InstrumentWebSocketHandler instrumentWebSocketHandler;
+    private final OrderWebSocketHandler orderWebSocketHandler;
+    private final PortfolioWebSocketHandler portfolioWebSocketHandler;
+
+    @Value("${ticker.ws.compression.enabled:true}")
+    private boolean tickerCompression = true;
 
     public WebSocketConfiguration(TickerWebSocketHandler tickerWebSocketHandler, 
-                                  InstrumentWebSocketHandler instrumentWebSocketHandler) {
+                                  InstrumentWebSocketHandler instrumentWebSocketHandler,
+                                  OrderWebSocketHandler orderWebSocketHandler,
+                                  PortfolioWebSocketHandler portfolioWebSocketHandler) {
         this.tickerWebSocketHandler = tickerWebSocketHandler;
         this.instrumentWebSocketHandler = instrumentWebSocketHandler;
+        this.orderWebSocketHandler = orderWebSocketHandler;
+        this.portfolioWebSocketHandler = portfolioWebSocketHandler;
     }
 
     /**
@@ -40,10 +67,46 @@ public class WebSocketConfiguration implements WebSocketConfigurer {
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         // Market ticker data streaming
         registry.addHandler(tickerWebSocketHandler, "/ws/ticker")
+                .setHandshakeHandler(new TickerHandshakeHandler(tickerCompression))
                 .setAllowedOrigins("*");
                 
         // Instrument data streaming  
         registry.addHandler(instrumentWebSocketHandler, "/ws/instruments")
                 .setAllowedOrigins("*");
+                
+        // Order status updates, only for orders placed with the access token of the HTTP session
+        registry.addHandler(orderWebSocketHandler, "/ws/orders")
+                .addInterceptors(new HttpSessionHandshakeInterceptor(List.of(ApiConstants.KITE_ACCESS_TOKEN_SESSION)))
+                .setAllowedOrigins("*");
+                
+        // Live portfolio P&L, keyed by the access token of the HTTP session
+        registry.addHandler(portfolioWebSocketHandler, "/ws/portfolio")
+                .addInterceptors(new HttpSessionHandshakeInterceptor(List.of(ApiConstants.KITE_ACCESS_TOKEN_SESSION)))
+                .setAllowedOrigins("*");
+    }
+
+    /**
+     * Negotiates extensions as usual, optionally refusing per-message compression.
+     */
+    static class TickerHandshakeHandler extends DefaultHandshakeHandler {
+        private final boolean compression;
+
+        TickerHandshakeHandler(boolean compression) {
+            this.compression = compression;
+        }
+
+        @Override
+        protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                     List<WebSocketExtension> requested,
+                                                                     List<WebSocketExtension> supported) {
+            List<WebSocketExtension> accepted = super.filterRequestedExtensions(request, requested, supported);
+            if (compression) {
+                if (log.isDebugEnabled() && accepted.stream().anyMatch(e -> PERMESSAGE_DEFLATE.equals(e.getName()))) {
+                    log.debug("Ticker client negotiated {}", PERMESSAGE_DEFLATE);
+                }
+                return accepted;
+            }
+            return accepted.stream().filter(e -> !PERMESSAGE_DEFLATE.equals(e.getName())).toList();
+        }
     }
-}
\ No newline at end of file
+}
@@ -40,6 +40,8 @@ public class ConfigController {
         Map<String, String> wsEndpoints = new HashMap<>();
         wsEndpoints.put("ticker", "/ws/ticker");
         wsEndpoints.put("instruments", "/ws/instruments");
+        wsEndpoints.put("orders", "/ws/orders");
+        wsEndpoints.put("portfolio", "/ws/portfolio");
         websocket.put("endpoints", wsEndpoints);
         config.put("websocket", websocket);
         
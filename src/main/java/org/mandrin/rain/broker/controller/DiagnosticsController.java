@@ -0,0 +1,82 @@
+package org.mandrin.rain.broker.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local summary of the latency timers, for spotting p99 regressions without a Prometheus
+ * server: inbound routes, outbound Kite calls through WebClient and the Kite SDK, and the
+ * tick pipeline stages. Each row is one tag combination, slowest tail first.
+ *
+ * Percentiles are the windowed ones published with each timer (a couple of minutes by
+ * default), so they reflect recent traffic; count and mean cover the whole uptime.
+ */
+@RestController
+@RequestMapping(ApiConstants.API_DIAGNOSTICS_PATH)
+@RequiredArgsConstructor
+public class DiagnosticsController {
+
+    private final MeterRegistry meterRegistry;
+
+    public record TimerSummary(Map<String, String> tags, long count, double meanMs, double maxMs,
+                               Map<String, Double> percentilesMs) {
+        /** The highest published percentile, or the max when none are published. */
+        double tailMs() {
+            double tail = maxMs;
+            for (Double value : percentilesMs.values()) {
+                tail = value;
+            }
+            return tail;
+        }
+    }
+
+    @GetMapping("/latency")
+    public Map<String, List<TimerSummary>> latency() {
+        Map<String, List<TimerSummary>> summary = new LinkedHashMap<>();
+        summary.put("inbound", summarize("http.server.requests"));
+        summary.put("outbound", summarize("http.client.requests"));
+        summary.put("kiteSdk", summarize("kite.sdk.requests"));
+        summary.put("ticker", summarize("ticker.latency"));
+        return summary;
+    }
+
+    private List<TimerSummary> summarize(String name) {
+        return meterRegistry.find(name).timers().stream()
+                .filter(timer -> timer.count() > 0)
+                .map(DiagnosticsController::summarize)
+                .sorted(Comparator.comparingDouble(TimerSummary::tailMs).reversed())
+                .toList();
+    }
+
+    private static TimerSummary summarize(Timer timer) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (Tag tag : timer.getId().getTags()) {
+            tags.put(tag.getKey(), tag.getValue());
+        }
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            percentiles.put(percentileKey(value.percentile()), value.value(TimeUnit.MILLISECONDS));
+        }
+        return new TimerSummary(tags, timer.count(), timer.mean(TimeUnit.MILLISECONDS),
+                timer.max(TimeUnit.MILLISECONDS), percentiles);
+    }
+
+    // 0.5 -> p50, 0.999 -> p99.9
+    static String percentileKey(double percentile) {
+        return "p" + BigDecimal.valueOf(percentile).movePointRight(2).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,58 @@
+package org.mandrin.rain.broker.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.mandrin.rain.broker.mock.SyntheticMarketGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Controls the synthetic market generator in mock mode, for stress-testing the tick
+ * fan-out locally.
+ */
+@RestController
+@RequestMapping("/api/mock/load")
+@ConditionalOnProperty(name = "kite.dev.mock_session", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class MockLoadController {
+
+    private static final int MAX_TICKS_PER_SECOND = 1_000_000;
+
+    private final SyntheticMarketGenerator generator;
+
+    @PostMapping("/start")
+    public ResponseEntity<Map<String, Object>> start(@RequestParam(defaultValue = "10000") int ticksPerSecond,
+                                                     @RequestParam(defaultValue = "1") int threads) {
+        if (ticksPerSecond <= 0 || ticksPerSecond > MAX_TICKS_PER_SECOND || threads <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("message",
+                    "ticksPerSecond must be 1.." + MAX_TICKS_PER_SECOND + " and threads positive"));
+        }
+        log.info("Starting synthetic market at {} ticks/s on {} threads", ticksPerSecond, threads);
+        generator.start(ticksPerSecond, threads);
+        return ResponseEntity.ok(status());
+    }
+
+    @PostMapping("/stop")
+    public Map<String, Object> stop() {
+        generator.stop();
+        return status();
+    }
+
+    @GetMapping
+    public Map<String, Object> status() {
+        return Map.of(
+            "running", generator.isRunning(),
+            "instruments", generator.getInstrumentCount(),
+            "generated", generator.getGeneratedCount(),
+            "achievedTicksPerSecond", Math.round(generator.getAchievedRate())
+        );
+    }
+}
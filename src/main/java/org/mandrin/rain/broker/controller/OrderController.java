@@ -1,14 +1,22 @@
 package org.mandrin.rain.broker.controller;
 
 import jakarta.servlet.http.HttpSession;
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.BasketOrderResult;
+import org.mandrin.rain.broker.model.OrderHistoryPage;
 import org.mandrin.rain.broker.model.TradeOrder;
 import org.mandrin.rain.broker.service.OrderService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -20,8 +28,56 @@ public class OrderController {
     @PostMapping
     public ResponseEntity<?> place(@RequestBody TradeOrder req, HttpSession session) {
         log.info("/orders POST received for {}", req.getTradingsymbol());
-        TradeOrder saved = orderService.placeOrder(session, req);
-        return ResponseEntity.ok(saved);
+        TradeOrder accepted = orderService.submitOrder(session, req);
+        if (ApiConstants.ORDER_STATUS_REJECTED.equals(accepted.getStatus())) {
+            return ResponseEntity.unprocessableEntity().body(accepted);
+        }
+        return ResponseEntity.accepted().body(accepted);
+    }
+
+    @PostMapping("/basket")
+    public Mono<ResponseEntity<BasketOrderResult>> placeBasket(@RequestBody List<TradeOrder> legs, HttpSession session) {
+        log.info("/orders/basket POST received with {} legs", legs.size());
+        if (legs.isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return orderService.placeBasket(session, legs).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Kite order postback. Authenticated by the payload checksum rather than the session,
+     * so the path is excluded from the auth interceptor.
+     */
+    @PostMapping("/postback")
+    public ResponseEntity<?> postback(@RequestBody Map<String, Object> payload) {
+        log.debug("/orders/postback received for order {}", payload.get("order_id"));
+        if (!orderService.handlePostback(payload)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of(ApiConstants.RESPONSE_KEY_ERROR, "Invalid checksum"));
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/history")
+    public ResponseEntity<?> history(@RequestParam(required = false) String symbol,
+                                     @RequestParam(required = false) String exchange,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                     @RequestParam(required = false) String cursor,
+                                     @RequestParam(required = false) Integer limit) {
+        try {
+            OrderHistoryPage page = orderService.getHistory(symbol, exchange, from, to, cursor, limit);
+            log.debug("/orders/history returned {} entries", page.getOrders().size());
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(ApiConstants.RESPONSE_KEY_ERROR, e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{orderId}")
+    public ResponseEntity<TradeOrder> get(@PathVariable String orderId) {
+        TradeOrder order = orderService.getOrder(orderId);
+        return order != null ? ResponseEntity.ok(order) : ResponseEntity.notFound().build();
     }
 
     @GetMapping
@@ -73,14 +73,14 @@ public class TickerController {
     }
 
     /**
-     * Disconnect the active WebSocket connection.
+     * Disconnect the current user's ticker connection.
      *
      * @return status message
      */
     @PostMapping("/disconnect")
-    public String disconnect() {
+    public String disconnect(HttpSession session) {
         log.info("/ticker/disconnect invoked");
-        tickerService.disconnect();
+        tickerService.disconnect(session);
         return "disconnected";
     }
 }
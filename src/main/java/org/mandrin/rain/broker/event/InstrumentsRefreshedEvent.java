@@ -0,0 +1,12 @@
+package org.mandrin.rain.broker.event;
+
+/**
+ * Published by {@link org.mandrin.rain.broker.service.InstrumentService} after a fresh
+ * instrument dump for an exchange has been persisted. Listeners that keep in-memory
+ * views of the instrument master use it to rebuild their state.
+ *
+ * @param exchange exchange that was refreshed
+ * @param count    number of instruments saved or updated
+ */
+public record InstrumentsRefreshedEvent(String exchange, int count) {
+}
@@ -7,21 +7,30 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.mandrin.rain.broker.config.ApiConstants;
-import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.service.InstrumentCacheService;
+import org.mandrin.rain.broker.service.InstrumentCatalogService;
 import org.mandrin.rain.broker.service.ReactiveInstrumentService;
 import org.mandrin.rain.broker.service.InstrumentService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.server.ServerRequest;
-import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 
 /**
- * Reactive handler for consolidated instrument API operations
+ * Handler for consolidated instrument API operations, routed through WebMvc.fn so the
+ * servlet app serves them. Results from {@link ReactiveInstrumentService} are collected
+ * and written as async responses.
  */
 @Component
 @RequiredArgsConstructor
@@ -31,186 +40,234 @@ public class InstrumentHandler {
     
     private final ReactiveInstrumentService reactiveInstrumentService;
     private final InstrumentService instrumentService;
+    private final InstrumentCacheService instrumentCacheService;
+    private final InstrumentCatalogService instrumentCatalogService;
     
     // ================== V2 API ENDPOINTS (NEW CONSOLIDATED APPROACH) ==================
     
-    public Mono<ServerResponse> getAllInstruments(ServerRequest request) {
+    public ServerResponse getAllInstruments(ServerRequest request) {
         log.debug("Getting all instruments");
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getInstruments("all", "", ""), Instrument.class);
+        return list(reactiveInstrumentService.getInstruments("all", "", ""));
     }
     
-    public Mono<ServerResponse> getInstrumentsByExchange(ServerRequest request) {
+    public ServerResponse getInstrumentsByExchange(ServerRequest request) {
         String exchange = request.pathVariable("exchange");
         log.debug("Getting instruments for exchange: {}", exchange);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getInstruments("exchange", exchange, ""), Instrument.class);
+        return list(reactiveInstrumentService.getInstruments("exchange", exchange, ""));
     }
     
-    public Mono<ServerResponse> getInstrumentsByUnderlying(ServerRequest request) {
+    public ServerResponse getInstrumentsByUnderlying(ServerRequest request) {
         String underlying = request.pathVariable("underlying");
         log.debug("Getting instruments for underlying: {}", underlying);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getInstruments("underlying", underlying, ""), Instrument.class);
+        return list(reactiveInstrumentService.getInstruments("underlying", underlying, ""));
     }
     
-    public Mono<ServerResponse> getInstrumentsByUnderlyingAndExpiry(ServerRequest request) {
+    public ServerResponse getInstrumentsByUnderlyingAndExpiry(ServerRequest request) {
         String underlying = request.pathVariable("underlying");
         String expiry = request.pathVariable("expiry");
         log.debug("Getting instruments for underlying: {} expiry: {}", underlying, expiry);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getInstruments("underlying", underlying, expiry), Instrument.class);
+        return list(reactiveInstrumentService.getInstruments("underlying", underlying, expiry));
     }
     
-    public Mono<ServerResponse> getInstrumentsByExpiry(ServerRequest request) {
+    public ServerResponse getInstrumentsByExpiry(ServerRequest request) {
         String expiry = request.pathVariable("expiry");
         log.debug("Getting instruments for expiry: {}", expiry);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getInstruments("expiry", expiry, ""), Instrument.class);
+        return list(reactiveInstrumentService.getInstruments("expiry", expiry, ""));
+    }
+    
+    /**
+     * Option chain for one listing; routes without an {@code exchange} variable read NFO.
+     */
+    public ServerResponse getOptionChain(ServerRequest request) {
+        String exchange = request.pathVariables().getOrDefault("exchange", ApiConstants.EXCHANGE_NFO);
+        String underlying = request.pathVariable("underlying");
+        String expiry = request.pathVariable("expiry");
+        log.debug("Getting option chain for {} underlying: {} expiry: {}", exchange, underlying, expiry);
+        LocalDate expiryDate;
+        try {
+            expiryDate = LocalDate.parse(expiry);
+        } catch (DateTimeParseException e) {
+            return ServerResponse.badRequest().body(Map.of("error", "Invalid expiry date: " + expiry));
+        }
+        return instrumentCacheService.getOptionChain(exchange, underlying, expiryDate)
+                .map(chain -> ServerResponse.ok().body(chain))
+                .orElseGet(() -> ServerResponse.notFound().build());
+    }
+    
+    /**
+     * Serves the pre-built, gzip-compressed columnar catalog for an exchange. Clients that
+     * send the current ETag in If-None-Match get a 304 without a body; unknown exchanges get a 404.
+     */
+    public ServerResponse getCatalog(ServerRequest request) {
+        String exchange = request.pathVariable("exchange");
+        log.debug("Getting instrument catalog for exchange: {}", exchange);
+        return instrumentCatalogService.getSnapshot(exchange)
+                .map(snapshot -> catalogResponse(request, snapshot))
+                .orElseGet(() -> ServerResponse.notFound().build());
+    }
+    
+    private ServerResponse catalogResponse(ServerRequest request, InstrumentCatalogService.CatalogSnapshot snapshot) {
+        CacheControl cacheControl = CacheControl.noCache().cachePublic();
+        
+        boolean notModified = request.headers().header(HttpHeaders.IF_NONE_MATCH).stream()
+                .anyMatch(value -> value.contains(snapshot.etag()));
+        if (notModified) {
+            return ServerResponse.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        
+        boolean acceptsGzip = request.headers().header(HttpHeaders.ACCEPT_ENCODING).stream()
+                .anyMatch(value -> value.contains("gzip"));
+        ServerResponse.BodyBuilder builder = ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(snapshot.etag())
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzipBytes());
+        }
+        return builder.body(snapshot.uncompressed());
+    }
+    
+    public ServerResponse getCatalogStats(ServerRequest request) {
+        String exchange = request.pathVariable("exchange");
+        return instrumentCatalogService.getSnapshot(exchange)
+                .map(snapshot -> ServerResponse.ok().body(snapshot.stats()))
+                .orElseGet(() -> ServerResponse.notFound().build());
     }
     
     // ================== METADATA ENDPOINTS ==================
     
-    public Mono<ServerResponse> getExchanges(ServerRequest request) {
+    public ServerResponse getExchanges(ServerRequest request) {
         log.debug("Getting exchanges");
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getMetadata("exchanges", ""), String.class);
+        return list(reactiveInstrumentService.getMetadata("exchanges", ""));
     }
     
-    public Mono<ServerResponse> getInstrumentTypes(ServerRequest request) {
+    public ServerResponse getInstrumentTypes(ServerRequest request) {
         log.debug("Getting all instrument types");
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getMetadata("types", ""), String.class);
+        return list(reactiveInstrumentService.getMetadata("types", ""));
     }
     
-    public Mono<ServerResponse> getInstrumentTypesByExchange(ServerRequest request) {
+    public ServerResponse getInstrumentTypesByExchange(ServerRequest request) {
         String exchange = request.pathVariable("exchange");
         log.debug("Getting instrument types for exchange: {}", exchange);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getMetadata("types", exchange), String.class);
+        return list(reactiveInstrumentService.getMetadata("types", exchange));
     }
     
-    public Mono<ServerResponse> getUnderlyingAssets(ServerRequest request) {
+    public ServerResponse getUnderlyingAssets(ServerRequest request) {
         log.debug("Getting underlying assets");
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getMetadata("underlyings", ""), String.class);
+        return list(reactiveInstrumentService.getMetadata("underlyings", ""));
     }
     
-    public Mono<ServerResponse> getAllExpiries(ServerRequest request) {
+    public ServerResponse getAllExpiries(ServerRequest request) {
         log.debug("Getting all expiry dates");
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getMetadata("expiries", ""), String.class);
+        return list(reactiveInstrumentService.getMetadata("expiries", ""));
     }
     
-    public Mono<ServerResponse> getExpiriesByUnderlying(ServerRequest request) {
+    public ServerResponse getExpiriesByUnderlying(ServerRequest request) {
         String underlying = request.pathVariable("underlying");
         log.debug("Getting expiry dates for underlying: {}", underlying);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getMetadata("expiries", underlying), String.class);
+        return list(reactiveInstrumentService.getMetadata("expiries", underlying));
     }
     
-    public Mono<ServerResponse> getInstrumentNames(ServerRequest request) {
+    public ServerResponse getInstrumentNames(ServerRequest request) {
         String exchange = request.pathVariable("exchange");
         String type = request.pathVariable("type");
         log.debug("Getting instrument names for {} {}", exchange, type);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getInstrumentNames(exchange, type), Map.class);
+        return list(reactiveInstrumentService.getInstrumentNames(exchange, type));
     }
     
     // ================== REFRESH ENDPOINTS ==================
     
-    public Mono<ServerResponse> refreshAllInstruments(ServerRequest request) {
+    public ServerResponse refreshAllInstruments(ServerRequest request) {
         log.info("Refreshing all instruments");
-        return reactiveInstrumentService.refreshInstruments("")
-                .flatMap(result -> ServerResponse.ok().bodyValue(result))
+        return ServerResponse.async(reactiveInstrumentService.refreshInstruments("")
+                .map(result -> ServerResponse.ok().body(result))
                 .onErrorResume(error -> {
                     log.error("Failed to refresh instruments: {}", error.getMessage());
-                    return ServerResponse.badRequest()
-                            .bodyValue(Map.of("error", "Failed to refresh instruments: " + error.getMessage()));
-                });
+                    return Mono.just(ServerResponse.badRequest()
+                            .body(Map.of("error", "Failed to refresh instruments: " + error.getMessage())));
+                }));
     }
     
-    public Mono<ServerResponse> refreshInstrumentsByExchange(ServerRequest request) {
+    public ServerResponse refreshInstrumentsByExchange(ServerRequest request) {
         String exchange = request.pathVariable("exchange");
         log.info("Refreshing instruments for exchange: {}", exchange);
-        return reactiveInstrumentService.refreshInstruments(exchange)
-                .flatMap(result -> ServerResponse.ok().bodyValue(result))
+        return ServerResponse.async(reactiveInstrumentService.refreshInstruments(exchange)
+                .map(result -> ServerResponse.ok().body(result))
                 .onErrorResume(error -> {
                     log.error("Failed to refresh instruments for {}: {}", exchange, error.getMessage());
-                    return ServerResponse.badRequest()
-                            .bodyValue(Map.of("error", "Failed to refresh instruments for " + exchange + ": " + error.getMessage()));
-                });
+                    return Mono.just(ServerResponse.badRequest()
+                            .body(Map.of("error", "Failed to refresh instruments for " + exchange + ": " + error.getMessage())));
+                }));
     }
     
     // ================== LEGACY COMPATIBILITY ENDPOINTS ==================
     
-    public Mono<ServerResponse> getInstrumentTypesLegacy(ServerRequest request) {
+    public ServerResponse getInstrumentTypesLegacy(ServerRequest request) {
         String exchange = request.queryParam("exchange").orElse("");
         if (exchange.isEmpty()) {
-            return ServerResponse.badRequest().bodyValue(Map.of("error", "exchange parameter is required"));
+            return ServerResponse.badRequest().body(Map.of("error", "exchange parameter is required"));
         }
         
         log.debug("Getting instrument types for exchange: {} (legacy)", exchange);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getMetadata("types", exchange), String.class);
+        return list(reactiveInstrumentService.getMetadata("types", exchange));
     }
     
-    public Mono<ServerResponse> getInstrumentNamesLegacy(ServerRequest request) {
+    public ServerResponse getInstrumentNamesLegacy(ServerRequest request) {
         String exchange = request.queryParam("exchange").orElse("");
         String type = request.queryParam("type").orElse("");
         
         if (exchange.isEmpty() || type.isEmpty()) {
             return ServerResponse.badRequest()
-                    .bodyValue(Map.of("error", "exchange and type parameters are required"));
+                    .body(Map.of("error", "exchange and type parameters are required"));
         }
         
         log.debug("Getting instrument names for {} {} (legacy)", exchange, type);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getInstrumentNames(exchange, type), Map.class);
+        return list(reactiveInstrumentService.getInstrumentNames(exchange, type));
     }
     
-    public Mono<ServerResponse> getExpiriesByUnderlyingLegacy(ServerRequest request) {
+    public ServerResponse getExpiriesByUnderlyingLegacy(ServerRequest request) {
         String underlying = request.queryParam("underlying").orElse("");
         if (underlying.isEmpty()) {
-            return ServerResponse.badRequest().bodyValue(Map.of("error", "underlying parameter is required"));
+            return ServerResponse.badRequest().body(Map.of("error", "underlying parameter is required"));
         }
         
         log.debug("Getting expiry dates for underlying: {} (legacy)", underlying);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getMetadata("expiries", underlying)
-                        .map(LocalDate::parse), LocalDate.class);
+        return list(reactiveInstrumentService.getMetadata("expiries", underlying)
+                        .map(LocalDate::parse));
     }
     
-    public Mono<ServerResponse> getInstrumentsByUnderlyingLegacy(ServerRequest request) {
+    public ServerResponse getInstrumentsByUnderlyingLegacy(ServerRequest request) {
         String underlying = request.queryParam("underlying").orElse("");
         if (underlying.isEmpty()) {
-            return ServerResponse.badRequest().bodyValue(Map.of("error", "underlying parameter is required"));
+            return ServerResponse.badRequest().body(Map.of("error", "underlying parameter is required"));
         }
         
         log.debug("Getting instruments for underlying: {} (legacy)", underlying);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getInstruments("underlying", underlying, ""), Instrument.class);
+        return list(reactiveInstrumentService.getInstruments("underlying", underlying, ""));
     }
     
-    public Mono<ServerResponse> getInstrumentsByUnderlyingAndExpiryLegacy(ServerRequest request) {
+    public ServerResponse getInstrumentsByUnderlyingAndExpiryLegacy(ServerRequest request) {
         String underlying = request.queryParam("underlying").orElse("");
         String expiry = request.queryParam("expiry").orElse("");
         
         if (underlying.isEmpty() || expiry.isEmpty()) {
             return ServerResponse.badRequest()
-                    .bodyValue(Map.of("error", "underlying and expiry parameters are required"));
+                    .body(Map.of("error", "underlying and expiry parameters are required"));
         }
         
         log.debug("Getting instruments for underlying: {} expiry: {} (legacy)", underlying, expiry);
-        return ServerResponse.ok()
-                .body(reactiveInstrumentService.getInstruments("underlying", underlying, expiry), Instrument.class);
+        return list(reactiveInstrumentService.getInstruments("underlying", underlying, expiry));
     }
     
-    public Mono<ServerResponse> loadInstrumentsByExchangeLegacy(ServerRequest request) {
+    public ServerResponse loadInstrumentsByExchangeLegacy(ServerRequest request) {
         String exchange = request.pathVariable("exchange");
         log.info("Loading instruments for {} (legacy)", exchange);
         
-        return Mono.fromCallable(() -> {
+        return ServerResponse.async(Mono.fromCallable(() -> {
             try {
                 var instruments = instrumentService.fetchAndSave(exchange);
                 return Map.of(ApiConstants.RESPONSE_KEY_SAVED, instruments.size());
@@ -218,11 +275,15 @@ public class InstrumentHandler {
                 throw new RuntimeException("Failed to load instruments for " + exchange, e);
             }
         })
-        .flatMap(result -> ServerResponse.ok().bodyValue(result))
+        .map(result -> ServerResponse.ok().body(result))
         .onErrorResume(error -> {
             log.error("Failed to load instruments for {}: {}", exchange, error.getMessage());
-            return ServerResponse.badRequest()
-                    .bodyValue(Map.of("error", "Failed to load instruments for " + exchange + ": " + error.getMessage()));
-        });
+            return Mono.just(ServerResponse.badRequest()
+                    .body(Map.of("error", "Failed to load instruments for " + exchange + ": " + error.getMessage())));
+        }));
+    }
+    
+    private static ServerResponse list(Flux<?> values) {
+        return ServerResponse.async(values.collectList().map(list -> ServerResponse.ok().body(list)));
     }
-}
\ No newline at end of file
+}
@@ -9,36 +9,111 @@ import org.mandrin.rain.broker.service.KiteAuthService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Gatekeeper for pages and /api endpoints.
+ *
+ * Whether a request is a critical operation, which needs the access token revalidated
+ * with Kite, is decided once at startup for every handler method from its request
+ * mappings; per request it is a map lookup on the resolved handler. A successful
+ * revalidation is remembered in the session for {@code auth.token-revalidate-ms}, so
+ * repeated critical calls from one session do not go back to the validation service.
+ */
 @Component
 public class AuthInterceptor implements HandlerInterceptor {
     private static final Logger logger = LogManager.getLogger(AuthInterceptor.class);
-    
+
+    /** Path prefixes and HTTP methods that need token revalidation. */
+    private static final List<CriticalRoute> CRITICAL_ROUTES = List.of(
+            new CriticalRoute("/api/orders", RequestMethod.POST),
+            new CriticalRoute("/api/ticker/subscribe", RequestMethod.POST),
+            new CriticalRoute("/api/portfolio", RequestMethod.GET));
+
     @Autowired
     private SessionValidationService sessionValidationService;
     
     @Autowired
     private KiteAuthService kiteAuthService;
+
+    @Value("${auth.token-revalidate-ms:60000}")
+    private long revalidateMillis = 60_000;
+
+    // handler method -> bit mask of the HTTP methods (by RequestMethod ordinal) that are critical on it
+    private volatile Map<Method, Integer> criticalMethodsByHandler = Map.of();
+
+    /**
+     * Classify every mapped handler method. Runs again on each refresh, so the table
+     * always matches the mappings that are live.
+     */
+    @EventListener
+    public void buildRouteTable(ContextRefreshedEvent event) {
+        Map<Method, Integer> table = new HashMap<>();
+        for (RequestMappingHandlerMapping mapping
+                : event.getApplicationContext().getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : mapping.getHandlerMethods().entrySet()) {
+                int mask = criticalMask(entry.getKey());
+                if (mask != 0) {
+                    table.merge(entry.getValue().getMethod(), mask, (a, b) -> a | b);
+                }
+            }
+        }
+        criticalMethodsByHandler = table;
+        logger.info("[AuthInterceptor] Route table built: {} handler methods need token revalidation", table.size());
+    }
+
+    private static int criticalMask(RequestMappingInfo info) {
+        Set<RequestMethod> methods = info.getMethodsCondition().getMethods();
+        int mask = 0;
+        for (String pattern : info.getPatternValues()) {
+            for (CriticalRoute route : CRITICAL_ROUTES) {
+                // An unrestricted mapping accepts every method, the critical one included
+                if (pattern.startsWith(route.prefix()) && (methods.isEmpty() || methods.contains(route.method()))) {
+                    mask |= bit(route.method());
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static int bit(RequestMethod method) {
+        return 1 << method.ordinal();
+    }
     
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         HttpSession session = request.getSession(false);
-        String uri = request.getRequestURI();
-        String method = request.getMethod();
         
-        logger.debug("[AuthInterceptor] {} {} | Session: {}", method, uri, session != null ? "exists" : "null");
+        if (logger.isDebugEnabled()) {
+            logger.debug("[AuthInterceptor] {} {} | Session: {}", request.getMethod(), request.getRequestURI(),
+                    session != null ? "exists" : "null");
+        }
         
         // Check for valid session and access token
         boolean isAuthenticated = false;
         if (session != null) {
             Object token = session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION);
-            isAuthenticated = token != null && !token.toString().trim().isEmpty();
-            logger.debug("[AuthInterceptor] Access token present: {}", isAuthenticated);
+            isAuthenticated = token != null && !token.toString().isBlank();
         }
         
         if (!isAuthenticated) {
+            String uri = request.getRequestURI();
+            String method = request.getMethod();
+
             // Development mode: Auto-create session if configured
             if (kiteAuthService.shouldAutoCreateSession()) {
                 logger.info("[AuthInterceptor] Development mode: Auto-creating session for {} {}", method, uri);
@@ -67,11 +142,15 @@ public class AuthInterceptor implements HandlerInterceptor {
         }
         
         // Additional token validation for critical operations
-        if (session != null && isCriticalOperation(uri, method)) {
-            logger.debug("[AuthInterceptor] Performing token validation for critical operation: {} {}", method, uri);
+        if (isCriticalOperation(request, handler) && !isRecentlyValidated(session)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("[AuthInterceptor] Performing token validation for critical operation: {} {}",
+                        request.getMethod(), request.getRequestURI());
+            }
             
             if (!sessionValidationService.isAccessTokenValid(session)) {
-                logger.error("[AuthInterceptor] Token validation failed for critical operation: {} {}", method, uri);
+                String uri = request.getRequestURI();
+                logger.error("[AuthInterceptor] Token validation failed for critical operation: {} {}", request.getMethod(), uri);
                 
                 // Invalidate the session since token is invalid
                 sessionValidationService.invalidateSession(session);
@@ -86,18 +165,48 @@ public class AuthInterceptor implements HandlerInterceptor {
                     return false;
                 }
             }
+            session.setAttribute(ApiConstants.SESSION_ATTR_TOKEN_VALIDATED_UNTIL,
+                    System.currentTimeMillis() + revalidateMillis);
         }
         
-        logger.debug("[AuthInterceptor] Authentication successful for {} {}", method, uri);
+        if (logger.isDebugEnabled()) {
+            logger.debug("[AuthInterceptor] Authentication successful for {} {}", request.getMethod(), request.getRequestURI());
+        }
         return true;
     }
+
+    /**
+     * Wall-clock rather than nanoTime, because sessions can outlive or move between JVMs.
+     */
+    private static boolean isRecentlyValidated(HttpSession session) {
+        Object until = session.getAttribute(ApiConstants.SESSION_ATTR_TOKEN_VALIDATED_UNTIL);
+        return until instanceof Long millis && System.currentTimeMillis() < millis;
+    }
     
     /**
-     * Determines if the operation requires additional token validation
+     * Determines if the operation requires additional token validation. Handler methods
+     * are looked up in the route table; anything else (static resources, requests seen
+     * before the table is built) falls back to matching the URI.
      */
-    private boolean isCriticalOperation(String uri, String method) {
-        return (uri.startsWith("/api/orders") && "POST".equals(method)) ||
-               (uri.startsWith("/api/ticker/subscribe") && "POST".equals(method)) ||
-               (uri.startsWith("/api/portfolio") && "GET".equals(method));
+    private boolean isCriticalOperation(HttpServletRequest request, Object handler) {
+        String methodName = request.getMethod();
+        RequestMethod method = methodName != null ? RequestMethod.resolve(methodName) : null;
+        if (method == null) {
+            return false;
+        }
+        if (handler instanceof HandlerMethod handlerMethod && !criticalMethodsByHandler.isEmpty()) {
+            Integer mask = criticalMethodsByHandler.get(handlerMethod.getMethod());
+            return mask != null && (mask & bit(method)) != 0;
+        }
+        String uri = request.getRequestURI();
+        for (CriticalRoute route : CRITICAL_ROUTES) {
+            if (route.method() == method && uri.startsWith(route.prefix())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record CriticalRoute(String prefix, RequestMethod method) {
     }
 }
@@ -0,0 +1,279 @@
+package org.mandrin.rain.broker.mock;
+
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.service.InstrumentCacheService;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Correlated, regime-switching price model for mock market data.
+ *
+ * Each underlying follows a geometric Brownian motion whose shocks mix a market-wide
+ * factor ({@link #MARKET_CORRELATION}) with an idiosyncratic one, and whose volatility
+ * switches between a calm and a volatile regime. Spot instruments trade at their
+ * underlying, futures at the cost-of-carry forward, and options at their Black-Scholes
+ * value for the regime volatility, using strike and expiry from the instrument master.
+ * Derivatives therefore move with their underlying instead of on their own.
+ *
+ * {@link #step} is the only writer and is synchronized; prices can be read from any thread.
+ * Randomness comes from per-thread {@link SplittableRandom} streams split off one seeded root.
+ */
+public class MarketSimulator {
+
+    static final double MARKET_CORRELATION = 0.6;
+    static final double RISK_FREE_RATE = 0.07;
+    static final double CALM_VOLATILITY = 0.15;
+    static final double STRESSED_VOLATILITY = 0.40;
+    // Regime switch probabilities per step
+    private static final double CALM_TO_STRESSED = 0.002;
+    private static final double STRESSED_TO_CALM = 0.02;
+    // 252 sessions of 6h15m
+    private static final double TRADING_SECONDS_PER_YEAR = 252 * 6.25 * 3600;
+    private static final double MINUTES_PER_YEAR = 365 * 24 * 60;
+    private static final ZoneId EXCHANGE_ZONE = ZoneId.of("Asia/Kolkata");
+    private static final LocalTime EXPIRY_TIME = LocalTime.of(15, 30);
+    private static final double DEFAULT_SPOT = 100.0;
+
+    private final Map<String, Underlying> underlyings;
+    private final Map<Long, Contract> contracts;
+    private final List<Underlying> underlyingList;
+    private final SplittableRandom root;
+    private final ThreadLocal<SplittableRandom> randoms;
+    private final Clock clock;
+
+    public MarketSimulator(Collection<Instrument> instruments, long seed, Clock clock) {
+        this.clock = clock;
+        this.root = new SplittableRandom(seed);
+        this.randoms = ThreadLocal.withInitial(this::splitRoot);
+
+        Map<String, Underlying> byKey = new HashMap<>();
+        Map<String, Underlying> aliases = new HashMap<>();
+        Map<Long, Contract> byToken = new HashMap<>();
+
+        // Spot instruments first, so derivatives can attach to them
+        for (Instrument instrument : instruments) {
+            if (isDerivative(instrument) || instrument.getTradingsymbol() == null) {
+                continue;
+            }
+            String key = normalize(instrument.getTradingsymbol());
+            Underlying underlying = byKey.computeIfAbsent(key, k -> new Underlying(price(instrument)));
+            // Index derivatives are named after the leading word ("NIFTY 50" -> "NIFTY")
+            aliases.putIfAbsent(InstrumentCacheService.underlyingOf(instrument), underlying);
+            byToken.put(instrument.getInstrumentToken(), new Contract(underlying, Kind.SPOT, 0, null, tickSize(instrument)));
+        }
+        aliases.putAll(byKey);
+
+        Map<String, List<Instrument>> orphans = new HashMap<>();
+        for (Instrument instrument : instruments) {
+            if (!isDerivative(instrument)) {
+                continue;
+            }
+            String key = InstrumentCacheService.underlyingOf(instrument);
+            if (!aliases.containsKey(key)) {
+                orphans.computeIfAbsent(key, k -> new ArrayList<>()).add(instrument);
+            }
+        }
+        // Underlyings known only through their derivatives get a spot estimated from them
+        orphans.forEach((key, derivatives) -> {
+            Underlying underlying = new Underlying(estimateSpot(derivatives));
+            byKey.put(key, underlying);
+            aliases.put(key, underlying);
+        });
+
+        for (Instrument instrument : instruments) {
+            if (!isDerivative(instrument)) {
+                continue;
+            }
+            Underlying underlying = aliases.get(InstrumentCacheService.underlyingOf(instrument));
+            Kind kind = switch (instrument.getInstrumentType()) {
+                case ApiConstants.INSTRUMENT_TYPE_CE -> Kind.CALL;
+                case ApiConstants.INSTRUMENT_TYPE_PE -> Kind.PUT;
+                default -> Kind.FUTURE;
+            };
+            double strike = instrument.getStrike() != null ? instrument.getStrike() : 0;
+            byToken.put(instrument.getInstrumentToken(),
+                    new Contract(underlying, kind, strike, instrument.getExpiry(), tickSize(instrument)));
+        }
+
+        this.underlyings = Collections.unmodifiableMap(byKey);
+        this.underlyingList = List.copyOf(byKey.values());
+        this.contracts = Collections.unmodifiableMap(byToken);
+    }
+
+    /**
+     * Advance every underlying by {@code dtSeconds} of trading time. All underlyings share
+     * one draw of the market factor per step, which is what correlates them.
+     */
+    public synchronized void step(double dtSeconds) {
+        if (dtSeconds <= 0) {
+            return;
+        }
+        SplittableRandom random = random();
+        double dt = dtSeconds / TRADING_SECONDS_PER_YEAR;
+        double sqrtDt = Math.sqrt(dt);
+        double market = random.nextGaussian();
+        double idiosyncraticWeight = Math.sqrt(1 - MARKET_CORRELATION * MARKET_CORRELATION);
+        for (Underlying underlying : underlyingList) {
+            double switchProbability = underlying.stressed ? STRESSED_TO_CALM : CALM_TO_STRESSED;
+            if (random.nextDouble() < switchProbability) {
+                underlying.stressed = !underlying.stressed;
+            }
+            double sigma = underlying.volatility();
+            double shock = MARKET_CORRELATION * market + idiosyncraticWeight * random.nextGaussian();
+            underlying.spot *= Math.exp(-0.5 * sigma * sigma * dt + sigma * sqrtDt * shock);
+        }
+    }
+
+    /**
+     * Current price of an instrument, rounded to its tick size, or NaN if unknown.
+     */
+    public double price(long instrumentToken) {
+        Contract contract = contracts.get(instrumentToken);
+        if (contract == null) {
+            return Double.NaN;
+        }
+        double spot = contract.underlying.spot;
+        double raw = switch (contract.kind) {
+            case SPOT -> spot;
+            case FUTURE -> spot * Math.exp(RISK_FREE_RATE * yearsToExpiry(contract.expiry));
+            case CALL, PUT -> blackScholes(contract.kind == Kind.CALL, spot, contract.strike,
+                    yearsToExpiry(contract.expiry), contract.underlying.volatility());
+        };
+        double tick = contract.tickSize;
+        return Math.max(tick, Math.round(raw / tick) * tick);
+    }
+
+    public boolean contains(long instrumentToken) {
+        return contracts.containsKey(instrumentToken);
+    }
+
+    public double spot(String underlying) {
+        Underlying u = underlyings.get(normalize(underlying));
+        return u == null ? Double.NaN : u.spot;
+    }
+
+    public boolean isStressed(String underlying) {
+        Underlying u = underlyings.get(normalize(underlying));
+        return u != null && u.stressed;
+    }
+
+    /**
+     * Random stream owned by the calling thread.
+     */
+    public SplittableRandom random() {
+        return randoms.get();
+    }
+
+    private synchronized SplittableRandom splitRoot() {
+        return root.split();
+    }
+
+    double yearsToExpiry(LocalDate expiry) {
+        if (expiry == null) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now(clock.withZone(EXCHANGE_ZONE));
+        long minutes = Duration.between(now, expiry.atTime(EXPIRY_TIME)).toMinutes();
+        // Keep a minute of time value on expiry day so prices stay continuous until the close
+        return Math.max(minutes, 1) / MINUTES_PER_YEAR;
+    }
+
+    static double blackScholes(boolean call, double spot, double strike, double years, double sigma) {
+        if (strike <= 0) {
+            return spot;
+        }
+        double sqrtT = Math.sqrt(years);
+        double d1 = (Math.log(spot / strike) + (RISK_FREE_RATE + 0.5 * sigma * sigma) * years) / (sigma * sqrtT);
+        double d2 = d1 - sigma * sqrtT;
+        double discountedStrike = strike * Math.exp(-RISK_FREE_RATE * years);
+        return call
+                ? spot * normalCdf(d1) - discountedStrike * normalCdf(d2)
+                : discountedStrike * normalCdf(-d2) - spot * normalCdf(-d1);
+    }
+
+    /**
+     * Standard normal CDF via the Abramowitz-Stegun 7.1.26 erf approximation (error < 1.5e-7).
+     */
+    static double normalCdf(double x) {
+        double z = Math.abs(x) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * z);
+        double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+                + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-z * z);
+        return x >= 0 ? 0.5 * (1 + erf) : 0.5 * (1 - erf);
+    }
+
+    private static boolean isDerivative(Instrument instrument) {
+        String type = instrument.getInstrumentType();
+        return ApiConstants.INSTRUMENT_TYPE_CE.equals(type)
+                || ApiConstants.INSTRUMENT_TYPE_PE.equals(type)
+                || ApiConstants.INSTRUMENT_TYPE_FUT.equals(type);
+    }
+
+    /**
+     * Spot for an underlying seen only through derivatives: a future's price if there is
+     * one, otherwise the middle listed strike.
+     */
+    private static double estimateSpot(List<Instrument> derivatives) {
+        List<Double> strikes = new ArrayList<>();
+        for (Instrument instrument : derivatives) {
+            if (ApiConstants.INSTRUMENT_TYPE_FUT.equals(instrument.getInstrumentType())
+                    && instrument.getLastPrice() != null && instrument.getLastPrice() > 0) {
+                return instrument.getLastPrice();
+            }
+            if (instrument.getStrike() != null && instrument.getStrike() > 0) {
+                strikes.add(instrument.getStrike());
+            }
+        }
+        if (strikes.isEmpty()) {
+            return DEFAULT_SPOT;
+        }
+        Collections.sort(strikes);
+        return strikes.get(strikes.size() / 2);
+    }
+
+    private static double price(Instrument instrument) {
+        return instrument.getLastPrice() != null && instrument.getLastPrice() > 0 ? instrument.getLastPrice() : DEFAULT_SPOT;
+    }
+
+    private static double tickSize(Instrument instrument) {
+        return instrument.getTickSize() != null && instrument.getTickSize() > 0
+                ? instrument.getTickSize() : ApiConstants.DEFAULT_TICK_SIZE;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private enum Kind { SPOT, FUTURE, CALL, PUT }
+
+    private static final class Underlying {
+        volatile double spot;
+        volatile boolean stressed;
+
+        Underlying(double spot) {
+            this.spot = spot;
+        }
+
+        double volatility() {
+            return stressed ? STRESSED_VOLATILITY : CALM_VOLATILITY;
+        }
+    }
+
+    private record Contract(Underlying underlying, Kind kind, double strike, LocalDate expiry,
+                            double tickSize) {
+    }
+}
@@ -1,279 +1,188 @@
 package org.mandrin.rain.broker.mock;
 
 import lombok.extern.slf4j.Slf4j;
+import org.mandrin.rain.broker.config.ApiConstants;
 import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.model.MarketTick;
 import org.mandrin.rain.broker.repository.InstrumentRepository;
 import org.mandrin.rain.broker.repository.SubscriptionRepository;
-import org.mandrin.rain.broker.websocket.TickerWebSocketHandler;
+import org.mandrin.rain.broker.service.TickPipeline;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.Clock;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Mock ticker service that generates realistic price updates for subscribed instruments
  * when mock_session=true. This replaces the real KiteTicker WebSocket connection
  * with simulated market data that follows realistic price movement patterns.
+ *
+ * Prices come from a {@link MarketSimulator}, so underlyings move together and futures
+ * and options stay consistent with the underlying they are quoted on. Ticks are written
+ * into a reused {@link MarketTick} per generating thread rather than built as maps.
  */
 @Service
 @ConditionalOnProperty(name = "kite.dev.mock_session", havingValue = "true")
 @EnableAsync
 @Slf4j
 public class MockTickerService {
-    
-    private final TickerWebSocketHandler webSocketHandler;
+
+    private final TickPipeline tickPipeline;
     private final InstrumentRepository instrumentRepository;
     private final SubscriptionRepository subscriptionRepository;
-    
-    // Track current prices and price history for each instrument
-    private final Map<Long, Double> currentPrices = new ConcurrentHashMap<>();
-    private final Map<Long, Double> openPrices = new ConcurrentHashMap<>();
-    private final Map<Long, Double> dayHighPrices = new ConcurrentHashMap<>();
-    private final Map<Long, Double> dayLowPrices = new ConcurrentHashMap<>();
-    private final Map<Long, Long> lastTickTime = new ConcurrentHashMap<>();
-    
-    // Price movement parameters for realistic simulation
-    private final Random random = new Random();
+
+    // Day state for each instrument the simulator can price
+    private Map<Long, InstrumentState> states = Map.of();
+    private MarketSimulator simulator;
+    private long lastStepNanos = System.nanoTime();
     private boolean marketOpen = true;
-    
-    public MockTickerService(TickerWebSocketHandler webSocketHandler, 
+
+    // One tick per generating thread, refilled for every instrument
+    private final ThreadLocal<MarketTick> scratchTick = ThreadLocal.withInitial(MarketTick::new);
+
+    // Simulated trading seconds per wall-clock second, so moves are visible at 2 s tick intervals
+    @Value("${mock.market.time-acceleration:60}")
+    private double timeAcceleration = 60;
+
+    public MockTickerService(TickPipeline tickPipeline,
                            InstrumentRepository instrumentRepository,
                            SubscriptionRepository subscriptionRepository) {
-        this.webSocketHandler = webSocketHandler;
+        this.tickPipeline = tickPipeline;
         this.instrumentRepository = instrumentRepository;
         this.subscriptionRepository = subscriptionRepository;
-        
+
         log.info("MockTickerService initialized - will generate realistic price updates");
         initializePrices();
     }
-    
+
     /**
      * Initialize current prices from database
      */
     private void initializePrices() {
-        List<Instrument> instruments = instrumentRepository.findAll();
-        for (Instrument instrument : instruments) {
-            if (instrument.getLastPrice() != null && instrument.getLastPrice() > 0) {
-                Long token = instrument.getInstrumentToken();
-                Double price = instrument.getLastPrice();
-                
-                currentPrices.put(token, price);
-                openPrices.put(token, price);
-                dayHighPrices.put(token, price);
-                dayLowPrices.put(token, price);
-                lastTickTime.put(token, System.currentTimeMillis());
+        List<Instrument> all = instrumentRepository.findAll();
+        simulator = new MarketSimulator(all, System.nanoTime(), Clock.systemDefaultZone());
+        Map<Long, InstrumentState> byToken = new ConcurrentHashMap<>(all.size() * 2);
+        for (Instrument instrument : all) {
+            double price = simulator.price(instrument.getInstrumentToken());
+            if (!Double.isNaN(price)) {
+                byToken.put(instrument.getInstrumentToken(), new InstrumentState(instrument, price));
             }
         }
-        log.info("Initialized prices for {} instruments", currentPrices.size());
+        states = byToken;
+        log.info("Initialized prices for {} instruments", states.size());
     }
-    
+
     /**
      * Generate realistic price ticks every 1-3 seconds for subscribed instruments
      */
     @Scheduled(fixedDelay = 2000, initialDelay = 5000)
     @Async
     public void generateMockTicks() {
-        if (!marketOpen || webSocketHandler.getActiveSessionCount() == 0) {
+        if (!marketOpen || !tickPipeline.hasConsumers()) {
             return;
         }
-        
-        // Get currently subscribed instruments
-        Set<Long> subscribedTokens = new HashSet<>();
-        subscriptionRepository.findAll().forEach(sub -> 
+
+        // Get currently subscribed instruments, plus tokens wanted by server-side listeners
+        Set<Long> subscribedTokens = new HashSet<>(tickPipeline.getListenerTokens());
+        subscriptionRepository.findAll().forEach(sub ->
             subscribedTokens.add(sub.getInstrumentToken()));
-        
+
         if (subscribedTokens.isEmpty()) {
             return;
         }
-        
-        // Generate ticks for random subset of subscribed instruments
-        int tickCount = Math.min(subscribedTokens.size(), random.nextInt(5) + 1);
+
+        // Move the whole market forward once, then quote a random subset of it
+        long now = System.nanoTime();
+        simulator.step((now - lastStepNanos) / 1e9 * timeAcceleration);
+        lastStepNanos = now;
+
+        SplittableRandom random = simulator.random();
+        MarketTick tick = scratchTick.get();
         List<Long> tokensToTick = new ArrayList<>(subscribedTokens);
-        Collections.shuffle(tokensToTick);
-        
-        for (int i = 0; i < tickCount && i < tokensToTick.size(); i++) {
-            Long token = tokensToTick.get(i);
-            generateTickForInstrument(token);
+        int tickCount = Math.min(tokensToTick.size(), random.nextInt(5) + 1);
+        // Partial Fisher-Yates: only the first tickCount positions need to be random
+        for (int i = 0; i < tickCount; i++) {
+            Collections.swap(tokensToTick, i, i + random.nextInt(tokensToTick.size() - i));
+            InstrumentState state = states.get(tokensToTick.get(i));
+            if (state != null) {
+                generateTick(state, tick, random);
+            }
         }
     }
-    
+
     /**
      * Generate a realistic tick for a specific instrument
      */
-    private void generateTickForInstrument(Long instrumentToken) {
-        if (!currentPrices.containsKey(instrumentToken)) {
-            return;
-        }
-        
-        Optional<Instrument> instrumentOpt = instrumentRepository.findById(instrumentToken);
-        if (instrumentOpt.isEmpty()) {
-            return;
-        }
-        
-        Instrument instrument = instrumentOpt.get();
-        Double currentPrice = currentPrices.get(instrumentToken);
-        Double openPrice = openPrices.get(instrumentToken);
-        
-        // Generate realistic price movement based on instrument type
-        Double newPrice = generateRealisticPrice(currentPrice, instrument);
-        
+    private void generateTick(InstrumentState state, MarketTick tick, SplittableRandom random) {
+        double previousPrice = state.lastPrice;
+        double newPrice = simulator.price(state.instrument.getInstrumentToken());
+
         // Update price tracking
-        currentPrices.put(instrumentToken, newPrice);
-        dayHighPrices.put(instrumentToken, Math.max(dayHighPrices.get(instrumentToken), newPrice));
-        dayLowPrices.put(instrumentToken, Math.min(dayLowPrices.get(instrumentToken), newPrice));
-        lastTickTime.put(instrumentToken, System.currentTimeMillis());
-        
-        // Generate market depth (buy/sell orders)
-        Map<String, Object> depth = generateMarketDepth(newPrice, instrument.getTickSize());
-        
-        // Create realistic tick data structure similar to KiteTicker
-        Map<String, Object> tick = createTickData(instrument, newPrice, openPrice, depth);
-        
-        log.debug("Generated tick for {}: {} (change: {:.2f})", 
-                 instrument.getTradingsymbol(), newPrice, newPrice - currentPrice);
-        
-        // Broadcast to WebSocket clients
-        webSocketHandler.broadcastTickerData(tick);
-    }
-    
-    /**
-     * Generate realistic price movement based on instrument characteristics
-     */
-    private Double generateRealisticPrice(Double currentPrice, Instrument instrument) {
-        String instrumentType = instrument.getInstrumentType();
-        Double tickSize = instrument.getTickSize();
-        
-        // Different volatility for different instrument types
-        double volatilityFactor;
-        double maxMovement;
-        
-        switch (instrumentType) {
-            case "EQ": // Equity
-                volatilityFactor = 0.002; // 0.2% typical movement
-                maxMovement = 0.05; // Max 5% in one tick
-                break;
-            case "CE", "PE": // Options
-                volatilityFactor = 0.05; // 5% typical movement (high volatility)
-                maxMovement = 0.20; // Max 20% in one tick
-                break;
-            case "FUT": // Futures
-                volatilityFactor = 0.003; // 0.3% typical movement
-                maxMovement = 0.08; // Max 8% in one tick
-                break;
-            default:
-                volatilityFactor = 0.002;
-                maxMovement = 0.05;
-        }
-        
-        // Generate price change with realistic distribution (mostly small moves)
-        double changePercent;
-        if (random.nextDouble() < 0.7) {
-            // 70% small movements (within 1 standard deviation)
-            changePercent = random.nextGaussian() * volatilityFactor;
-        } else if (random.nextDouble() < 0.9) {
-            // 20% medium movements (1-2 standard deviations)
-            changePercent = random.nextGaussian() * volatilityFactor * 2;
-        } else {
-            // 10% large movements (up to max)
-            changePercent = (random.nextDouble() - 0.5) * 2 * maxMovement;
-        }
-        
-        // Apply the change
-        double newPrice = currentPrice * (1 + changePercent);
-        
-        // Ensure minimum price movement is tick size
-        if (Math.abs(newPrice - currentPrice) < tickSize) {
-            newPrice = currentPrice + (random.nextBoolean() ? tickSize : -tickSize);
+        state.lastPrice = newPrice;
+        state.high = Math.max(state.high, newPrice);
+        state.low = Math.min(state.low, newPrice);
+        state.volume += random.nextInt(1, 1000);
+
+        fillTick(tick, state, random);
+        tick.markReceived();
+
+        if (log.isDebugEnabled()) {
+            log.debug("Generated tick for {}: {} (change: {})",
+                     state.instrument.getTradingsymbol(), newPrice, newPrice - previousPrice);
         }
-        
-        // Round to tick size
-        newPrice = Math.round(newPrice / tickSize) * tickSize;
-        
-        // Ensure price stays positive and within reasonable bounds
-        newPrice = Math.max(newPrice, tickSize);
-        newPrice = Math.min(newPrice, currentPrice * 1.5); // Cap at 50% increase
-        
-        return newPrice;
+
+        // Broadcast to WebSocket clients and server-side listeners
+        tickPipeline.publish(tick);
     }
-    
+
     /**
-     * Generate realistic market depth (order book)
+     * Fill the reusable tick, including five levels of market depth (order book)
      */
-    private Map<String, Object> generateMarketDepth(Double currentPrice, Double tickSize) {
-        List<Map<String, Object>> buyOrders = new ArrayList<>();
-        List<Map<String, Object>> sellOrders = new ArrayList<>();
-        
-        // Generate 5 levels each side
-        for (int i = 1; i <= 5; i++) {
-            // Buy orders (below current price)
-            double buyPrice = currentPrice - (i * tickSize);
-            buyOrders.add(Map.of(
-                "price", Math.round(buyPrice * 100.0) / 100.0,
-                "quantity", ThreadLocalRandom.current().nextInt(100, 5000),
-                "orders", ThreadLocalRandom.current().nextInt(1, 20)
-            ));
-            
-            // Sell orders (above current price)
-            double sellPrice = currentPrice + (i * tickSize);
-            sellOrders.add(Map.of(
-                "price", Math.round(sellPrice * 100.0) / 100.0,
-                "quantity", ThreadLocalRandom.current().nextInt(100, 5000),
-                "orders", ThreadLocalRandom.current().nextInt(1, 20)
-            ));
+    static void fillTick(MarketTick tick, InstrumentState state, SplittableRandom random) {
+        Instrument instrument = state.instrument;
+        double price = state.lastPrice;
+        double change = price - state.open;
+
+        tick.reset();
+        tick.setInstrumentToken(instrument.getInstrumentToken());
+        tick.setTradingsymbol(instrument.getTradingsymbol());
+        tick.setExchange(instrument.getExchange());
+        tick.setMode(MarketTick.MODE_FULL);
+        tick.setLastPrice(round2(price));
+        tick.setLastQuantity(random.nextInt(1, 1000));
+        tick.setAveragePrice(round2((price + state.open) / 2));
+        tick.setVolumeTraded(state.volume);
+        tick.setBuyQuantity(random.nextInt(1000, 50000));
+        tick.setSellQuantity(random.nextInt(1000, 50000));
+        tick.setOpen(round2(state.open));
+        tick.setHigh(round2(state.high));
+        tick.setLow(round2(state.low));
+        tick.setClose(round2(state.open)); // Previous day close
+        tick.setNetChange(round2(change));
+        tick.setChangePercent(round2(change / state.open * 100));
+        tick.setOi(ApiConstants.INSTRUMENT_TYPE_FUT.equals(instrument.getInstrumentType())
+                ? random.nextInt(10000, 1000000) : 0);
+        tick.setTimestamp(System.currentTimeMillis());
+
+        // Buy orders below the last price, sell orders above it
+        tick.setDepthLevels(MarketTick.DEPTH_LEVELS);
+        for (int i = 0; i < MarketTick.DEPTH_LEVELS; i++) {
+            double offset = (i + 1) * state.tickSize;
+            tick.setBid(i, round2(price - offset), random.nextInt(100, 5000), random.nextInt(1, 20));
+            tick.setAsk(i, round2(price + offset), random.nextInt(100, 5000), random.nextInt(1, 20));
         }
-        
-        return Map.of(
-            "buy", buyOrders,
-            "sell", sellOrders
-        );
     }
-    
-    /**
-     * Create tick data structure compatible with frontend expectations
-     */
-    private Map<String, Object> createTickData(Instrument instrument, Double newPrice, 
-                                              Double openPrice, Map<String, Object> depth) {
-        Long token = instrument.getInstrumentToken();
-        Double high = dayHighPrices.get(token);
-        Double low = dayLowPrices.get(token);
-        Double change = newPrice - openPrice;
-        Double changePercent = (change / openPrice) * 100;
-        
-        Map<String, Object> tickData = new HashMap<>();
-        tickData.put("instrument_token", token);
-        tickData.put("exchange_token", instrument.getExchangeToken());
-        tickData.put("tradingsymbol", instrument.getTradingsymbol());
-        tickData.put("exchange", instrument.getExchange());
-        tickData.put("last_price", Math.round(newPrice * 100.0) / 100.0);
-        tickData.put("last_quantity", ThreadLocalRandom.current().nextInt(1, 1000));
-        tickData.put("average_price", Math.round((newPrice + openPrice) / 2 * 100.0) / 100.0);
-        tickData.put("volume", ThreadLocalRandom.current().nextInt(10000, 1000000));
-        tickData.put("buy_quantity", ThreadLocalRandom.current().nextInt(1000, 50000));
-        tickData.put("sell_quantity", ThreadLocalRandom.current().nextInt(1000, 50000));
-        tickData.put("ohlc", Map.of(
-            "open", Math.round(openPrice * 100.0) / 100.0,
-            "high", Math.round(high * 100.0) / 100.0,
-            "low", Math.round(low * 100.0) / 100.0,
-            "close", Math.round(openPrice * 100.0) / 100.0 // Previous day close
-        ));
-        tickData.put("net_change", Math.round(change * 100.0) / 100.0);
-        tickData.put("net_change_percentage", Math.round(changePercent * 100.0) / 100.0);
-        tickData.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        tickData.put("depth", depth);
-        tickData.put("oi", instrument.getInstrumentType().equals("FUT") ? 
-                  ThreadLocalRandom.current().nextInt(10000, 1000000) : 0);
-        tickData.put("mode", "full");
-        
-        return tickData;
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
     }
-    
+
     /**
      * Market hours simulation (9:15 AM to 3:30 PM on weekdays)
      */
@@ -281,22 +190,22 @@ public class MockTickerService {
     public void openMarket() {
         marketOpen = true;
         log.info("Mock market opened - ticker generation started");
-        
+
         // Reset day prices
-        for (Long token : currentPrices.keySet()) {
-            Double currentPrice = currentPrices.get(token);
-            openPrices.put(token, currentPrice);
-            dayHighPrices.put(token, currentPrice);
-            dayLowPrices.put(token, currentPrice);
+        for (InstrumentState state : states.values()) {
+            state.open = state.lastPrice;
+            state.high = state.lastPrice;
+            state.low = state.lastPrice;
+            state.volume = 0;
         }
     }
-    
-    @Scheduled(cron = "0 30 15 * * MON-FRI") // 3:30 PM weekdays  
+
+    @Scheduled(cron = "0 30 15 * * MON-FRI") // 3:30 PM weekdays
     public void closeMarket() {
         marketOpen = false;
         log.info("Mock market closed - ticker generation stopped");
     }
-    
+
     /**
      * For development - force market open state
      */
@@ -304,18 +213,42 @@ public class MockTickerService {
         marketOpen = true;
         log.info("Mock market forced open for development");
     }
-    
+
     /**
      * Get current market status
      */
     public boolean isMarketOpen() {
         return marketOpen;
     }
-    
+
     /**
      * Get current price for an instrument
      */
     public Double getCurrentPrice(Long instrumentToken) {
-        return currentPrices.get(instrumentToken);
+        InstrumentState state = states.get(instrumentToken);
+        return state == null ? null : state.lastPrice;
+    }
+
+    /**
+     * Day state of one instrument, updated in place on every tick
+     */
+    static final class InstrumentState {
+        final Instrument instrument;
+        final double tickSize;
+        volatile double lastPrice;
+        double open;
+        double high;
+        double low;
+        long volume;
+
+        InstrumentState(Instrument instrument, double price) {
+            this.instrument = instrument;
+            this.tickSize = instrument.getTickSize() != null && instrument.getTickSize() > 0
+                    ? instrument.getTickSize() : ApiConstants.DEFAULT_TICK_SIZE;
+            this.lastPrice = price;
+            this.open = price;
+            this.high = price;
+            this.low = price;
+        }
     }
-}
\ No newline at end of file
+}
@@ -68,10 +68,10 @@ public class MockWebClientConfig {
 
     @Bean
     @Primary
-    public WebClient mockWebClient() {
+    public WebClient mockWebClient(WebClient.Builder builder) {
         log.info("Creating mock WebClient for Kite API interceptor");
         
-        return WebClient.builder()
+        return builder
                 .filter(this::mockKiteApiCalls)
                 .build();
     }
@@ -0,0 +1,282 @@
+package org.mandrin.rain.broker.mock;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.model.MarketTick;
+import org.mandrin.rain.broker.model.Subscription;
+import org.mandrin.rain.broker.repository.InstrumentRepository;
+import org.mandrin.rain.broker.repository.SubscriptionRepository;
+import org.mandrin.rain.broker.service.TickPipeline;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load-test tick source for mock mode.
+ *
+ * Instrument metadata for the subscribed tokens, topped up from the instrument master to
+ * {@code mock.load.instruments}, is copied once into primitive arrays. Worker threads then
+ * random-walk prices and publish ticks into the {@link TickPipeline} at an aggregate
+ * {@code mock.load.ticks-per-second}, without touching the database per tick. Each worker
+ * owns a disjoint slice of the arrays and one reused {@link MarketTick}, so no state is
+ * shared between them.
+ *
+ * Achieved rate is logged and published as {@code mock.load.ticks.rate}, next to the
+ * {@code mock.load.ticks.generated} counter.
+ */
+@Service
+@ConditionalOnProperty(name = "kite.dev.mock_session", havingValue = "true")
+@Slf4j
+public class SyntheticMarketGenerator {
+
+    // Upper bound on ticks emitted per pacing step, so stop() is noticed promptly
+    private static final int MAX_BATCH = 1_024;
+    private static final long IDLE_PARK_NANOS = 100_000;
+    private static final long ERROR_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final TickPipeline tickPipeline;
+    private final InstrumentRepository instrumentRepository;
+    private final SubscriptionRepository subscriptionRepository;
+
+    @Value("${mock.load.enabled:false}")
+    private boolean enabledOnStartup;
+
+    @Value("${mock.load.ticks-per-second:10000}")
+    private int defaultTicksPerSecond;
+
+    @Value("${mock.load.instruments:5000}")
+    private int maxInstruments;
+
+    @Value("${mock.load.threads:1}")
+    private int defaultThreads;
+
+    // Universe, indexed by position; each worker writes only its own slice
+    private long[] tokens = new long[0];
+    private double[] prices = new double[0];
+    private double[] openPrices = new double[0];
+    private double[] tickSizes = new double[0];
+    private long[] volumes = new long[0];
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+    private volatile int targetRate;
+
+    private final LongAdder generated = new LongAdder();
+    private long lastReportCount;
+    private long lastReportNanos = System.nanoTime();
+    private volatile double achievedRate;
+
+    public SyntheticMarketGenerator(TickPipeline tickPipeline,
+                                    InstrumentRepository instrumentRepository,
+                                    SubscriptionRepository subscriptionRepository,
+                                    MeterRegistry meterRegistry) {
+        this.tickPipeline = tickPipeline;
+        this.instrumentRepository = instrumentRepository;
+        this.subscriptionRepository = subscriptionRepository;
+
+        FunctionCounter.builder("mock.load.ticks.generated", generated, LongAdder::sum)
+                .description("Synthetic ticks published by the load generator")
+                .register(meterRegistry);
+        Gauge.builder("mock.load.ticks.rate", this, SyntheticMarketGenerator::getAchievedRate)
+                .description("Synthetic ticks per second over the last report interval")
+                .register(meterRegistry);
+        Gauge.builder("mock.load.ticks.target", this, g -> g.running ? g.targetRate : 0)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startIfEnabled() {
+        if (enabledOnStartup) {
+            start(defaultTicksPerSecond, defaultThreads);
+        }
+    }
+
+    /**
+     * Load the instrument universe and start generating at the given aggregate rate.
+     * A running generator is stopped first.
+     */
+    public synchronized void start(int ticksPerSecond, int threads) {
+        stop();
+        load();
+        if (tokens.length == 0) {
+            log.warn("Synthetic market generator has no instruments with prices, not starting");
+            return;
+        }
+
+        int workerCount = Math.max(1, Math.min(threads, tokens.length));
+        targetRate = ticksPerSecond;
+        running = true;
+        for (int w = 0; w < workerCount; w++) {
+            int from = (int) ((long) tokens.length * w / workerCount);
+            int to = (int) ((long) tokens.length * (w + 1) / workerCount);
+            double rate = (double) ticksPerSecond / workerCount;
+            Thread worker = new Thread(() -> run(from, to, rate), "synthetic-market-" + w);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        log.info("Synthetic market generator started: {} ticks/s over {} instruments on {} threads",
+                ticksPerSecond, tokens.length, workerCount);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.clear();
+        log.info("Synthetic market generator stopped after {} ticks", generated.sum());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public double getAchievedRate() {
+        return achievedRate;
+    }
+
+    public long getGeneratedCount() {
+        return generated.sum();
+    }
+
+    public int getInstrumentCount() {
+        return tokens.length;
+    }
+
+    @Scheduled(fixedRate = 5_000)
+    public void reportRate() {
+        long now = System.nanoTime();
+        long count = generated.sum();
+        achievedRate = (count - lastReportCount) * 1e9 / Math.max(1, now - lastReportNanos);
+        lastReportCount = count;
+        lastReportNanos = now;
+        if (running) {
+            log.info("Synthetic market: {} ticks/s achieved of {} target", Math.round(achievedRate), targetRate);
+        }
+    }
+
+    /**
+     * Copy subscribed instruments, then others with a last price, into the arrays. The
+     * only database reads of a run happen here.
+     */
+    private void load() {
+        Map<Long, Instrument> universe = new LinkedHashMap<>();
+        List<Long> subscribed = new ArrayList<>();
+        for (Subscription subscription : subscriptionRepository.findAll()) {
+            subscribed.add(subscription.getInstrumentToken());
+        }
+        for (Instrument instrument : instrumentRepository.findAllById(subscribed)) {
+            universe.put(instrument.getInstrumentToken(), instrument);
+        }
+        if (universe.size() < maxInstruments) {
+            for (Instrument instrument : instrumentRepository.findAll()) {
+                if (universe.size() >= maxInstruments) {
+                    break;
+                }
+                if (instrument.getLastPrice() != null && instrument.getLastPrice() > 0) {
+                    universe.putIfAbsent(instrument.getInstrumentToken(), instrument);
+                }
+            }
+        }
+
+        int n = universe.size();
+        tokens = new long[n];
+        prices = new double[n];
+        openPrices = new double[n];
+        tickSizes = new double[n];
+        volumes = new long[n];
+        int i = 0;
+        for (Instrument instrument : universe.values()) {
+            double price = instrument.getLastPrice() != null && instrument.getLastPrice() > 0 ? instrument.getLastPrice() : 100.0;
+            tokens[i] = instrument.getInstrumentToken();
+            prices[i] = price;
+            openPrices[i] = price;
+            tickSizes[i] = instrument.getTickSize() != null && instrument.getTickSize() > 0 ? instrument.getTickSize() : 0.05;
+            i++;
+        }
+    }
+
+    /**
+     * Emit ticks for indices [from, to) at {@code rate} per second. The number of ticks due
+     * is derived from elapsed time; if publishing falls more than a second behind, the
+     * backlog is dropped rather than burst, and the shortfall shows in the achieved rate.
+     * A failing publish is logged, at most once a second, and the worker carries on.
+     */
+    private void run(int from, int to, double rate) {
+        SplittableRandom random = new SplittableRandom();
+        MarketTick tick = new MarketTick();
+        int span = to - from;
+        long start = System.nanoTime();
+        long sent = 0;
+        long lastErrorLogNanos = start - ERROR_LOG_INTERVAL_NANOS;
+        while (running) {
+            long due = (long) ((System.nanoTime() - start) * rate / 1e9);
+            if (due - sent > rate) {
+                sent = due;
+            }
+            if (due <= sent) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            int batch = (int) Math.min(due - sent, MAX_BATCH);
+            int emitted = 0;
+            try {
+                for (; emitted < batch; emitted++) {
+                    emit(from + random.nextInt(span), random, tick);
+                }
+            } catch (RuntimeException e) {
+                long now = System.nanoTime();
+                if (now - lastErrorLogNanos >= ERROR_LOG_INTERVAL_NANOS) {
+                    lastErrorLogNanos = now;
+                    log.error("Synthetic market worker failed to publish a tick, continuing", e);
+                }
+            }
+            sent += batch;
+            generated.add(emitted);
+        }
+    }
+
+    private void emit(int i, SplittableRandom random, MarketTick tick) {
+        double tickSize = tickSizes[i];
+        double price = prices[i] * (1 + random.nextGaussian() * 0.0005);
+        price = Math.max(tickSize, Math.round(price / tickSize) * tickSize);
+        prices[i] = price;
+        volumes[i] += 1 + random.nextInt(100);
+
+        tick.reset();
+        tick.setInstrumentToken(tokens[i]);
+        tick.setLastPrice(price);
+        tick.setVolumeTraded(volumes[i]);
+        tick.setOpen(openPrices[i]);
+        tick.setClose(openPrices[i]);
+        tick.setNetChange(price - openPrices[i]);
+        tick.setTimestamp(System.currentTimeMillis());
+        tick.markReceived();
+        tickPipeline.publish(tick);
+    }
+}
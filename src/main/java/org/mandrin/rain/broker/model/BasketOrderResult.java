@@ -0,0 +1,38 @@
+package org.mandrin.rain.broker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of a basket submission, one {@link Leg} per submitted order in request order.
+ */
+@Getter
+@AllArgsConstructor
+public class BasketOrderResult {
+    private final int legs;
+    private final int placed;
+    private final int failed;
+    private final int rejected;
+    private final long totalMillis;
+    private final List<Leg> results;
+
+    /**
+     * @param queueMillis  time the leg waited for an order rate limit token, or {@code null}
+     *                     if it was never sent to the broker
+     * @param brokerMillis time spent in the broker call, or {@code null} if it was never sent
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Leg {
+        private final int index;
+        private final String tradingsymbol;
+        private final String clientOrderId;
+        private final String orderId;
+        private final String status;
+        private final String message;
+        private final Double queueMillis;
+        private final Double brokerMillis;
+    }
+}
@@ -0,0 +1,62 @@
+package org.mandrin.rain.broker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A holding or net position whose P&L follows the last traded price.
+ *
+ * Seeded from the broker's portfolio response and then moved forward tick by tick:
+ * a price change of {@code d} changes P&L by {@code quantity * multiplier * d}, which keeps
+ * realised P&L from the seed without needing the buy and sell values behind it.
+ */
+@Getter
+@AllArgsConstructor
+public class LivePosition {
+    public static final String SOURCE_HOLDINGS = "holdings";
+    public static final String SOURCE_POSITIONS = "positions";
+
+    /** Stable row key for clients: source, token and product. */
+    private final String key;
+    private final String source;
+    private final long instrumentToken;
+    private final String tradingsymbol;
+    private final String exchange;
+    private final String product;
+    private final int quantity;
+    private final double multiplier;
+    private final double averagePrice;
+    private final double closePrice;
+    private double lastPrice;
+    private double pnl;
+    private double dayChange;
+
+    /**
+     * Move the position to a new last price. Prices of zero or below are not quotes and are
+     * ignored. A position seeded without a last price has no base to move from, so its P&L
+     * is computed from the average price instead.
+     *
+     * @return false if the price was ignored or did not change
+     */
+    public boolean applyPrice(double price) {
+        if (price <= 0 || price == lastPrice) {
+            return false;
+        }
+        double exposure = quantity * multiplier;
+        if (lastPrice <= 0) {
+            pnl = exposure * (price - averagePrice);
+        } else {
+            pnl += exposure * (price - lastPrice);
+        }
+        if (closePrice > 0) {
+            dayChange = exposure * (price - closePrice);
+        }
+        lastPrice = price;
+        return true;
+    }
+
+    public LivePosition copy() {
+        return new LivePosition(key, source, instrumentToken, tradingsymbol, exchange, product, quantity,
+                multiplier, averagePrice, closePrice, lastPrice, pnl, dayChange);
+    }
+}
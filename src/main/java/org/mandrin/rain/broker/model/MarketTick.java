@@ -0,0 +1,103 @@
+package org.mandrin.rain.broker.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Market tick as it travels through the tick pipeline.
+ *
+ * Fields are primitives and market depth is held in fixed-size parallel arrays, so a
+ * producer can keep one instance and refill it for every tick instead of building maps.
+ * Instances are mutable and reused: consumers must copy anything they keep beyond the
+ * call that handed them the tick.
+ */
+@Getter
+@Setter
+public class MarketTick {
+    public static final int DEPTH_LEVELS = 5;
+    public static final String MODE_FULL = "full";
+
+    private long instrumentToken;
+    private String tradingsymbol;
+    private String exchange;
+    private String mode;
+    private double lastPrice;
+    private long lastQuantity;
+    private double averagePrice;
+    private long volumeTraded;
+    private long buyQuantity;
+    private long sellQuantity;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private double netChange;
+    private double changePercent;
+    private long oi;
+    /** Epoch milliseconds. */
+    private long timestamp;
+
+    /** Epoch milliseconds when the feed received the tick; sent to clients for latency echoes. */
+    private long receivedAt;
+    /** System.nanoTime() when the feed received the tick. */
+    private long receivedNanos;
+    /** System.nanoTime() when the tick entered the pipeline. */
+    private long publishedNanos;
+
+    /** Number of populated depth levels on each side, at most {@link #DEPTH_LEVELS}. */
+    private int depthLevels;
+    private final double[] bidPrices = new double[DEPTH_LEVELS];
+    private final long[] bidQuantities = new long[DEPTH_LEVELS];
+    private final int[] bidOrders = new int[DEPTH_LEVELS];
+    private final double[] askPrices = new double[DEPTH_LEVELS];
+    private final long[] askQuantities = new long[DEPTH_LEVELS];
+    private final int[] askOrders = new int[DEPTH_LEVELS];
+
+    public void setBid(int level, double price, long quantity, int orders) {
+        bidPrices[level] = price;
+        bidQuantities[level] = quantity;
+        bidOrders[level] = orders;
+    }
+
+    public void setAsk(int level, double price, long quantity, int orders) {
+        askPrices[level] = price;
+        askQuantities[level] = quantity;
+        askOrders[level] = orders;
+    }
+
+    /**
+     * Stamp the tick as received by a feed now.
+     */
+    public void markReceived() {
+        receivedAt = System.currentTimeMillis();
+        receivedNanos = System.nanoTime();
+    }
+
+    /**
+     * Clear every field so the instance can be refilled for another instrument.
+     */
+    public void reset() {
+        instrumentToken = 0;
+        tradingsymbol = null;
+        exchange = null;
+        mode = null;
+        lastPrice = 0;
+        lastQuantity = 0;
+        averagePrice = 0;
+        volumeTraded = 0;
+        buyQuantity = 0;
+        sellQuantity = 0;
+        open = 0;
+        high = 0;
+        low = 0;
+        close = 0;
+        netChange = 0;
+        changePercent = 0;
+        oi = 0;
+        timestamp = 0;
+        receivedAt = 0;
+        receivedNanos = 0;
+        publishedNanos = 0;
+        depthLevels = 0;
+    }
+}
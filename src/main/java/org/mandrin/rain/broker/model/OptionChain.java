@@ -0,0 +1,30 @@
+package org.mandrin.rain.broker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Pre-grouped option chain for one underlying and expiry.
+ *
+ * Strikes are sorted ascending and the token arrays are aligned with them, so
+ * {@code ceTokens[i]} and {@code peTokens[i]} are the call and put at {@code strikes[i]}.
+ * A token of {@code 0} means the exchange does not list that leg for the strike.
+ */
+@Getter
+@AllArgsConstructor
+public class OptionChain {
+    private final String underlying;
+    private final LocalDate expiry;
+    private final String exchange;
+    private final int lotSize;
+    private final double tickSize;
+    private final double[] strikes;
+    private final long[] ceTokens;
+    private final long[] peTokens;
+
+    public int size() {
+        return strikes.length;
+    }
+}
@@ -0,0 +1,18 @@
+package org.mandrin.rain.broker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of order history, newest first. Pass {@code nextCursor} back as the
+ * {@code cursor} parameter to fetch the following page; it is {@code null} on the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderHistoryPage {
+    private final List<TradeOrder> orders;
+    private final int limit;
+    private final String nextCursor;
+}
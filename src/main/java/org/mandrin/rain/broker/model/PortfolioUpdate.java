@@ -0,0 +1,21 @@
+package org.mandrin.rain.broker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Message pushed on /ws/portfolio. A snapshot carries every position; an incremental
+ * update carries only positions whose price moved since the previous push. Totals are
+ * always for the whole portfolio.
+ */
+@Getter
+@AllArgsConstructor
+public class PortfolioUpdate {
+    private final boolean snapshot;
+    private final List<LivePosition> positions;
+    private final double totalPnl;
+    private final double totalDayChange;
+    private final long timestamp;
+}
@@ -4,12 +4,23 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 @Entity
-@Table(name = "trade_orders")
+@Table(name = "trade_orders", indexes = {
+        // Keyset pagination of order history, optionally filtered by symbol or exchange
+        @Index(name = "idx_trade_orders_placed_at_id", columnList = "placed_at DESC, id DESC"),
+        @Index(name = "idx_trade_orders_symbol_placed_at_id", columnList = "tradingsymbol, placed_at DESC, id DESC"),
+        @Index(name = "idx_trade_orders_exchange_placed_at_id", columnList = "exchange, placed_at DESC, id DESC")
+})
 @Data
 @NoArgsConstructor
 public class TradeOrder {
+    // Length of trade_orders.status_message
+    public static final int STATUS_MESSAGE_LENGTH = 255;
+    // placedAt and updatedAt are exchange wall-clock times, whatever the JVM's default zone
+    public static final ZoneId PLACED_AT_ZONE = ZoneId.of("Asia/Kolkata");
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -21,4 +32,31 @@ public class TradeOrder {
     private Double price;
     private String orderId;
     private LocalDateTime placedAt;
+    // Local handle returned to the client before the broker has assigned an orderId
+    private String clientOrderId;
+    private String status;
+    @Column(length = STATUS_MESSAGE_LENGTH)
+    private String statusMessage;
+    // Execution progress reported by broker order updates
+    private Integer filledQuantity;
+    private Double averagePrice;
+    private LocalDateTime updatedAt;
+    // Exit orders are released ahead of entries by the order scheduler
+    @Transient
+    private boolean exitOrder;
+
+    // Broker and exception text can run long; cut it to fit the column rather than fail the write
+    public void setStatusMessage(String statusMessage) {
+        this.statusMessage = statusMessage != null && statusMessage.length() > STATUS_MESSAGE_LENGTH
+                ? statusMessage.substring(0, STATUS_MESSAGE_LENGTH)
+                : statusMessage;
+    }
+
+    // placed_at is the partition key of trade_orders on PostgreSQL, so it must never be null
+    @PrePersist
+    void defaultPlacedAt() {
+        if (placedAt == null) {
+            placedAt = LocalDateTime.now(PLACED_AT_ZONE);
+        }
+    }
 }
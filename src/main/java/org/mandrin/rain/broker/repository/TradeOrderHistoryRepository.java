@@ -0,0 +1,24 @@
+package org.mandrin.rain.broker.repository;
+
+import org.mandrin.rain.broker.model.TradeOrder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keyset-paginated order history, ordered by {@code placedAt DESC, id DESC}.
+ */
+public interface TradeOrderHistoryRepository {
+
+    /**
+     * @param tradingsymbol  optional exact symbol filter
+     * @param exchange       optional exchange filter
+     * @param from           optional inclusive lower bound on placedAt
+     * @param to             optional exclusive upper bound on placedAt
+     * @param afterPlacedAt  placedAt of the last row of the previous page, or {@code null} for the first page
+     * @param afterId        id of the last row of the previous page
+     * @param limit          maximum rows to return
+     */
+    List<TradeOrder> findHistory(String tradingsymbol, String exchange, LocalDateTime from, LocalDateTime to,
+                                 LocalDateTime afterPlacedAt, Long afterId, int limit);
+}
@@ -0,0 +1,58 @@
+package org.mandrin.rain.broker.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.mandrin.rain.broker.model.TradeOrder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the history query with only the predicates that are set, so each filter
+ * combination gets a plan that can use the matching (filter, placed_at, id) index
+ * instead of a generic "param IS NULL OR ..." plan.
+ */
+class TradeOrderHistoryRepositoryImpl implements TradeOrderHistoryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TradeOrder> findHistory(String tradingsymbol, String exchange, LocalDateTime from, LocalDateTime to,
+                                        LocalDateTime afterPlacedAt, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TradeOrder> query = cb.createQuery(TradeOrder.class);
+        Root<TradeOrder> order = query.from(TradeOrder.class);
+
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.isNotNull(order.get("placedAt")));
+        if (tradingsymbol != null) {
+            where.add(cb.equal(order.get("tradingsymbol"), tradingsymbol));
+        }
+        if (exchange != null) {
+            where.add(cb.equal(order.get("exchange"), exchange));
+        }
+        if (from != null) {
+            where.add(cb.greaterThanOrEqualTo(order.get("placedAt"), from));
+        }
+        if (to != null) {
+            where.add(cb.lessThan(order.get("placedAt"), to));
+        }
+        if (afterPlacedAt != null && afterId != null) {
+            // (placed_at, id) < (afterPlacedAt, afterId)
+            where.add(cb.or(
+                    cb.lessThan(order.get("placedAt"), afterPlacedAt),
+                    cb.and(cb.equal(order.get("placedAt"), afterPlacedAt), cb.lessThan(order.get("id"), afterId))));
+        }
+
+        query.select(order)
+                .where(where.toArray(new Predicate[0]))
+                .orderBy(cb.desc(order.get("placedAt")), cb.desc(order.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -3,5 +3,10 @@ package org.mandrin.rain.broker.repository;
 import org.mandrin.rain.broker.model.TradeOrder;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface TradeOrderRepository extends JpaRepository<TradeOrder, Long> {
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TradeOrderRepository extends JpaRepository<TradeOrder, Long>, TradeOrderHistoryRepository {
+
+    List<TradeOrder> findByPlacedAtGreaterThanEqual(LocalDateTime since);
 }
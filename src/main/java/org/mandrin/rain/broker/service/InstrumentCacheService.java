@@ -0,0 +1,270 @@
+package org.mandrin.rain.broker.service;
+
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.event.InstrumentsRefreshedEvent;
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.model.OptionChain;
+import org.mandrin.rain.broker.repository.InstrumentRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory view of the instrument master.
+ *
+ * Keeps an immutable snapshot indexed by instrument token together with an option chain
+ * index keyed by exchange, underlying and expiry; the same contract name can be listed on
+ * several exchanges (NFO and BFO, CDS and BCD), each with its own tokens. The snapshot is built once on startup and rebuilt
+ * after every instrument refresh, so hot paths can look instruments up without a database
+ * round trip.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InstrumentCacheService {
+
+    private final InstrumentRepository repository;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private final AtomicLong version = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    /**
+     * Rebuilds the snapshot before any other refresh listener runs, so listeners that
+     * read from this cache observe the new data.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onInstrumentsRefreshed(InstrumentsRefreshedEvent event) {
+        log.debug("Instrument refresh for {} ({} instruments), rebuilding cache", event.exchange(), event.count());
+        reload();
+    }
+
+    /**
+     * Reload every instrument from the repository and swap in a new snapshot.
+     * On failure the previous snapshot is kept.
+     */
+    public synchronized void reload() {
+        long start = System.nanoTime();
+        List<Instrument> instruments;
+        try {
+            instruments = repository.findAll();
+        } catch (Exception e) {
+            log.error("Failed to load instruments into cache: {}", e.getMessage());
+            return;
+        }
+        snapshot = Snapshot.build(instruments);
+        version.incrementAndGet();
+        log.info("Instrument cache loaded {} instruments and {} option chains in {} ms",
+                snapshot.byToken.size(), snapshot.chainCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Monotonic counter bumped on every successful reload. Derived views compare it to
+     * decide whether they need rebuilding.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public Instrument getInstrument(long instrumentToken) {
+        return snapshot.byToken.get(instrumentToken);
+    }
+
+    /**
+     * Look an instrument up by exchange and trading symbol, case-insensitively.
+     */
+    public Instrument getInstrument(String exchange, String tradingsymbol) {
+        return snapshot.bySymbol.get(symbolKey(exchange, tradingsymbol));
+    }
+
+    public Collection<Instrument> getAll() {
+        return snapshot.byToken.values();
+    }
+
+    public int size() {
+        return snapshot.byToken.size();
+    }
+
+    /**
+     * Whether any cached instrument trades on the exchange, compared case-insensitively.
+     */
+    public boolean hasExchange(String exchange) {
+        return snapshot.exchanges.contains(normalize(exchange));
+    }
+
+    /**
+     * In-memory equivalent of {@link ReactiveInstrumentService#getInstruments}, using the same
+     * filter types: "exchange", "underlying" (optionally narrowed by an expiry sub-filter),
+     * "expiry" and "all".
+     */
+    public List<Instrument> filter(String filterType, String filterValue, String subFilter) {
+        Collection<Instrument> all = snapshot.byToken.values();
+        String type = filterType == null ? "all" : filterType.toLowerCase(Locale.ROOT);
+        switch (type) {
+            case "exchange":
+                return all.stream().filter(i -> filterValue.equalsIgnoreCase(i.getExchange())).toList();
+            case "underlying": {
+                String underlying = normalize(filterValue);
+                LocalDate expiry = subFilter != null && !subFilter.isEmpty() ? LocalDate.parse(subFilter) : null;
+                return all.stream()
+                        .filter(i -> i.getExpiry() != null && i.getName() != null
+                                && i.getName().toUpperCase(Locale.ROOT).contains(underlying))
+                        .filter(i -> expiry == null || expiry.equals(i.getExpiry()))
+                        .toList();
+            }
+            case "expiry": {
+                LocalDate expiry = LocalDate.parse(filterValue);
+                return all.stream().filter(i -> expiry.equals(i.getExpiry())).toList();
+            }
+            case "all":
+            default:
+                return List.copyOf(all);
+        }
+    }
+
+    public Optional<OptionChain> getOptionChain(String exchange, String underlying, LocalDate expiry) {
+        NavigableMap<LocalDate, OptionChain> byExpiry = snapshot.chains.get(symbolKey(exchange, underlying));
+        return byExpiry == null ? Optional.empty() : Optional.ofNullable(byExpiry.get(expiry));
+    }
+
+    public List<LocalDate> getOptionExpiries(String exchange, String underlying) {
+        NavigableMap<LocalDate, OptionChain> byExpiry = snapshot.chains.get(symbolKey(exchange, underlying));
+        return byExpiry == null ? List.of() : List.copyOf(byExpiry.keySet());
+    }
+
+    /**
+     * Underlying symbol of a derivative, taken from the leading word of its name the same
+     * way {@link InstrumentRepository#findDistinctUnderlyingAssets()} derives it.
+     */
+    public static String underlyingOf(Instrument instrument) {
+        String name = instrument.getName() != null && !instrument.getName().isBlank()
+                ? instrument.getName().trim() : instrument.getTradingsymbol();
+        if (name == null) {
+            return "";
+        }
+        int space = name.indexOf(' ');
+        return normalize(space > 0 ? name.substring(0, space) : name);
+    }
+
+    private static String symbolKey(String exchange, String tradingsymbol) {
+        return normalize(exchange) + ":" + normalize(tradingsymbol);
+    }
+
+    private static String normalize(String underlying) {
+        return underlying == null ? "" : underlying.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), Map.of(), 0, Set.of());
+
+        final Map<Long, Instrument> byToken;
+        final Map<String, Instrument> bySymbol;
+        final Map<String, NavigableMap<LocalDate, OptionChain>> chains;
+        final int chainCount;
+        final Set<String> exchanges;
+
+        private Snapshot(Map<Long, Instrument> byToken,
+                         Map<String, Instrument> bySymbol,
+                         Map<String, NavigableMap<LocalDate, OptionChain>> chains,
+                         int chainCount,
+                         Set<String> exchanges) {
+            this.byToken = byToken;
+            this.bySymbol = bySymbol;
+            this.chains = chains;
+            this.chainCount = chainCount;
+            this.exchanges = exchanges;
+        }
+
+        static Snapshot build(List<Instrument> instruments) {
+            Map<Long, Instrument> byToken = new HashMap<>(instruments.size() * 2);
+            Map<String, Instrument> bySymbol = new HashMap<>(instruments.size() * 2);
+            Set<String> exchanges = new HashSet<>();
+            // exchange:underlying -> expiry -> strike -> {ce, pe}
+            Map<String, Map<LocalDate, TreeMap<Double, Instrument[]>>> legs = new HashMap<>();
+
+            for (Instrument instrument : instruments) {
+                byToken.put(instrument.getInstrumentToken(), instrument);
+                if (instrument.getExchange() != null) {
+                    exchanges.add(normalize(instrument.getExchange()));
+                }
+                if (instrument.getTradingsymbol() != null) {
+                    bySymbol.put(symbolKey(instrument.getExchange(), instrument.getTradingsymbol()), instrument);
+                }
+
+                String type = instrument.getInstrumentType();
+                boolean call = ApiConstants.INSTRUMENT_TYPE_CE.equals(type);
+                if ((!call && !ApiConstants.INSTRUMENT_TYPE_PE.equals(type))
+                        || instrument.getExpiry() == null || instrument.getStrike() == null) {
+                    continue;
+                }
+                Instrument[] pair = legs
+                        .computeIfAbsent(symbolKey(instrument.getExchange(), underlyingOf(instrument)), k -> new HashMap<>())
+                        .computeIfAbsent(instrument.getExpiry(), k -> new TreeMap<>())
+                        .computeIfAbsent(instrument.getStrike(), k -> new Instrument[2]);
+                pair[call ? 0 : 1] = instrument;
+            }
+
+            Map<String, NavigableMap<LocalDate, OptionChain>> chains = new HashMap<>();
+            int chainCount = 0;
+            for (var listing : legs.entrySet()) {
+                NavigableMap<LocalDate, OptionChain> byExpiry = new TreeMap<>();
+                for (var expiry : listing.getValue().entrySet()) {
+                    byExpiry.put(expiry.getKey(), toChain(expiry.getKey(), expiry.getValue()));
+                    chainCount++;
+                }
+                chains.put(listing.getKey(), Collections.unmodifiableNavigableMap(byExpiry));
+            }
+            return new Snapshot(Collections.unmodifiableMap(byToken), Collections.unmodifiableMap(bySymbol),
+                    Collections.unmodifiableMap(chains), chainCount, Set.copyOf(exchanges));
+        }
+
+        private static OptionChain toChain(LocalDate expiry, TreeMap<Double, Instrument[]> byStrike) {
+            int n = byStrike.size();
+            double[] strikes = new double[n];
+            long[] ceTokens = new long[n];
+            long[] peTokens = new long[n];
+            Instrument sample = null;
+            int i = 0;
+            for (var entry : byStrike.entrySet()) {
+                Instrument[] pair = entry.getValue();
+                strikes[i] = entry.getKey();
+                if (pair[0] != null) {
+                    ceTokens[i] = pair[0].getInstrumentToken();
+                    sample = pair[0];
+                }
+                if (pair[1] != null) {
+                    peTokens[i] = pair[1].getInstrumentToken();
+                    sample = sample != null ? sample : pair[1];
+                }
+                i++;
+            }
+            int lotSize = sample.getLotSize() != null ? sample.getLotSize() : ApiConstants.DEFAULT_LOT_SIZE;
+            double tickSize = sample.getTickSize() != null ? sample.getTickSize() : ApiConstants.DEFAULT_TICK_SIZE;
+            return new OptionChain(underlyingOf(sample), expiry, sample.getExchange(), lotSize, tickSize, strikes, ceTokens, peTokens);
+        }
+    }
+}
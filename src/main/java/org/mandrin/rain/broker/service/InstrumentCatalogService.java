@@ -0,0 +1,206 @@
+package org.mandrin.rain.broker.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.Instrument;
+import org.springframework.stereotype.Service;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds compact, gzip-compressed instrument catalog snapshots per exchange.
+ *
+ * A snapshot is a column-oriented JSON document ({@code columns} plus one array per column)
+ * rather than a list of entity objects, so field names are written once instead of once per
+ * instrument. Snapshots are generated lazily from {@link InstrumentCacheService} the first
+ * time they are requested after a refresh, then served as pre-compressed bytes with a
+ * content-hash ETag until the next refresh. The document carries no cache version, so a
+ * refresh that leaves an exchange's instruments unchanged keeps its ETag.
+ *
+ * Only exchanges present in the cache get a snapshot; snapshots of an older cache version
+ * are dropped when the first snapshot of a new version is built.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InstrumentCatalogService {
+
+    static final List<String> COLUMNS = List.of(
+            "instrumentToken", "exchangeToken", "tradingsymbol", "name", "lastPrice", "expiry",
+            "strike", "tickSize", "lotSize", "instrumentType", "segment");
+
+    private final InstrumentCacheService instrumentCacheService;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, CatalogSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Pre-built catalog for one exchange.
+     *
+     * @param columnarJson     uncompressed columnar JSON, for clients that do not accept gzip
+     * @param gzipBytes        gzip-compressed columnar JSON
+     * @param entityJsonBytes  size of the same instruments serialized as entity JSON, for comparison
+     * @param buildNanos       time spent generating the snapshot
+     */
+    public record CatalogSnapshot(String exchange, long version, String etag, int count, byte[] columnarJson,
+                                  byte[] gzipBytes, long entityJsonBytes, long buildNanos, Instant generatedAt) {
+
+        public byte[] uncompressed() {
+            return columnarJson;
+        }
+
+        public Map<String, Object> stats() {
+            return Map.of(
+                    "exchange", exchange,
+                    "version", version,
+                    "etag", etag,
+                    "count", count,
+                    "entityJsonBytes", entityJsonBytes,
+                    "columnarBytes", columnarJson.length,
+                    "gzipBytes", gzipBytes.length,
+                    "buildMillis", buildNanos / 1_000_000.0,
+                    "generatedAt", generatedAt.toString());
+        }
+    }
+
+    /**
+     * Returns the catalog snapshot for the exchange, rebuilding it if the instrument cache
+     * has been reloaded since it was generated, or empty when no cached instrument trades
+     * on that exchange.
+     */
+    public Optional<CatalogSnapshot> getSnapshot(String exchange) {
+        if (exchange == null || !instrumentCacheService.hasExchange(exchange)) {
+            return Optional.empty();
+        }
+        String key = exchange.trim().toUpperCase(Locale.ROOT);
+        long version = instrumentCacheService.getVersion();
+        CatalogSnapshot current = snapshots.get(key);
+        if (current != null && current.version() == version) {
+            return Optional.of(current);
+        }
+        CatalogSnapshot snapshot = snapshots.compute(key, (k, existing) ->
+                existing != null && existing.version() == version ? existing : build(k, version));
+        snapshots.values().removeIf(other -> other.version() < snapshot.version());
+        return Optional.of(snapshot);
+    }
+
+    private CatalogSnapshot build(String exchange, long version) {
+        long start = System.nanoTime();
+        List<Instrument> instruments = instrumentCacheService.getAll().stream()
+                .filter(i -> exchange.equalsIgnoreCase(i.getExchange()))
+                .sorted(Comparator.comparing(Instrument::getInstrumentToken))
+                .toList();
+        try {
+            byte[] columnar = writeColumnar(exchange, instruments);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, columnar.length / 4));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(columnar);
+            }
+            long entityJsonBytes = objectMapper.writeValueAsBytes(instruments).length;
+            long buildNanos = System.nanoTime() - start;
+            CatalogSnapshot snapshot = new CatalogSnapshot(exchange, version, etag(columnar), instruments.size(),
+                    columnar, compressed.toByteArray(), entityJsonBytes, buildNanos, Instant.now());
+            log.info("Built instrument catalog for {} v{}: {} instruments, entity JSON {} bytes, columnar {} bytes, gzip {} bytes in {} ms",
+                    exchange, version, instruments.size(), entityJsonBytes, columnar.length,
+                    snapshot.gzipBytes().length, buildNanos / 1_000_000);
+            return snapshot;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to build instrument catalog for " + exchange, e);
+        }
+    }
+
+    private byte[] writeColumnar(String exchange, List<Instrument> instruments) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(instruments.size() * 64 + 256);
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeStringField("exchange", exchange);
+            gen.writeNumberField("count", instruments.size());
+            gen.writeArrayFieldStart("columns");
+            for (String column : COLUMNS) {
+                gen.writeString(column);
+            }
+            gen.writeEndArray();
+
+            gen.writeArrayFieldStart("data");
+            gen.writeStartArray();
+            for (Instrument i : instruments) writeNumber(gen, i.getInstrumentToken());
+            gen.writeEndArray();
+            gen.writeStartArray();
+            for (Instrument i : instruments) writeNumber(gen, i.getExchangeToken());
+            gen.writeEndArray();
+            gen.writeStartArray();
+            for (Instrument i : instruments) gen.writeString(i.getTradingsymbol());
+            gen.writeEndArray();
+            gen.writeStartArray();
+            for (Instrument i : instruments) gen.writeString(i.getName());
+            gen.writeEndArray();
+            gen.writeStartArray();
+            for (Instrument i : instruments) writeNumber(gen, i.getLastPrice());
+            gen.writeEndArray();
+            gen.writeStartArray();
+            for (Instrument i : instruments) gen.writeString(i.getExpiry() != null ? i.getExpiry().toString() : null);
+            gen.writeEndArray();
+            gen.writeStartArray();
+            for (Instrument i : instruments) writeNumber(gen, i.getStrike());
+            gen.writeEndArray();
+            gen.writeStartArray();
+            for (Instrument i : instruments) writeNumber(gen, i.getTickSize());
+            gen.writeEndArray();
+            gen.writeStartArray();
+            for (Instrument i : instruments) writeNumber(gen, i.getLotSize() != null ? i.getLotSize().longValue() : null);
+            gen.writeEndArray();
+            gen.writeStartArray();
+            for (Instrument i : instruments) gen.writeString(i.getInstrumentType());
+            gen.writeEndArray();
+            gen.writeStartArray();
+            for (Instrument i : instruments) gen.writeString(i.getSegment());
+            gen.writeEndArray();
+            gen.writeEndArray();
+
+            gen.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeNumber(JsonGenerator gen, Long value) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    private static void writeNumber(JsonGenerator gen, Double value) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    private static String etag(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance(ApiConstants.HASH_ALGORITHM_SHA256).digest(content);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -3,9 +3,11 @@ package org.mandrin.rain.broker.service;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
 import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.event.InstrumentsRefreshedEvent;
 import org.mandrin.rain.broker.model.Instrument;
 import org.mandrin.rain.broker.repository.InstrumentRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
@@ -28,15 +30,16 @@ public class InstrumentService {
 
     private final WebClient webClient;
     private final InstrumentRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<Instrument> fetchAndSave(String exchange) throws IOException {
         log.info("Fetching fresh instruments for exchange {} from Kite API", exchange);
         
-        String url = baseUrl + ApiConstants.INSTRUMENTS_PATH + exchange;
         String body;
         try {
+            // Templated so outbound metrics carry one uri tag for every exchange
             body = webClient.get()
-                    .uri(url)
+                    .uri(baseUrl + ApiConstants.INSTRUMENTS_PATH + "{exchange}", exchange)
                     .retrieve()
                     .bodyToMono(String.class)
                     .block();
@@ -48,38 +51,9 @@ public class InstrumentService {
             return existing;
         }
         
-        Reader in = new StringReader(body);
-        Iterable<CSVRecord> records = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(in);
-        List<Instrument> newInstruments = new ArrayList<>();
+        List<Instrument> newInstruments = parseInstruments(new StringReader(body));
         int duplicateCount = 0;
         
-        for (CSVRecord r : records) {
-            try {
-                Instrument i = new Instrument();
-                i.setInstrumentToken(Long.parseLong(r.get(ApiConstants.CSV_INSTRUMENT_TOKEN)));
-                i.setExchangeToken(Long.parseLong(r.get(ApiConstants.CSV_EXCHANGE_TOKEN)));
-                i.setTradingsymbol(r.get(ApiConstants.CSV_TRADING_SYMBOL));
-                i.setName(r.get(ApiConstants.CSV_NAME));
-                String price = r.get(ApiConstants.CSV_LAST_PRICE);
-                i.setLastPrice(price.isEmpty() ? 0.0 : Double.parseDouble(price));
-                String exp = r.get(ApiConstants.CSV_EXPIRY);
-                if (exp != null && !exp.isEmpty()) {
-                    i.setExpiry(LocalDate.parse(exp));
-                }
-                String strike = r.get(ApiConstants.CSV_STRIKE);
-                i.setStrike(strike.isEmpty() ? 0.0 : Double.parseDouble(strike));
-                i.setTickSize(Double.parseDouble(r.get(ApiConstants.CSV_TICK_SIZE)));
-                i.setLotSize(Integer.parseInt(r.get(ApiConstants.CSV_LOT_SIZE)));
-                i.setInstrumentType(r.get(ApiConstants.CSV_INSTRUMENT_TYPE));
-                i.setSegment(r.get(ApiConstants.CSV_SEGMENT));
-                i.setExchange(r.get(ApiConstants.CSV_EXCHANGE));
-                newInstruments.add(i);
-            } catch (Exception e) {
-                log.warn("Failed to parse instrument record: {}", e.getMessage());
-                // Continue processing other records
-            }
-        }
-        
         // Save instruments, handling duplicates
         List<Instrument> savedInstruments = new ArrayList<>();
         for (Instrument instrument : newInstruments) {
@@ -106,9 +80,45 @@ public class InstrumentService {
         
         log.info("Processed {} instruments for exchange {}: {} new/updated, {} duplicates skipped", 
                 newInstruments.size(), exchange, savedInstruments.size(), duplicateCount);
+        eventPublisher.publishEvent(new InstrumentsRefreshedEvent(exchange, savedInstruments.size()));
         return savedInstruments;
     }
 
+    /**
+     * Parse the Kite instrument master CSV. Records that fail to parse are logged and skipped.
+     */
+    public static List<Instrument> parseInstruments(Reader in) throws IOException {
+        Iterable<CSVRecord> records = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(in);
+        List<Instrument> instruments = new ArrayList<>();
+        for (CSVRecord r : records) {
+            try {
+                Instrument i = new Instrument();
+                i.setInstrumentToken(Long.parseLong(r.get(ApiConstants.CSV_INSTRUMENT_TOKEN)));
+                i.setExchangeToken(Long.parseLong(r.get(ApiConstants.CSV_EXCHANGE_TOKEN)));
+                i.setTradingsymbol(r.get(ApiConstants.CSV_TRADING_SYMBOL));
+                i.setName(r.get(ApiConstants.CSV_NAME));
+                String price = r.get(ApiConstants.CSV_LAST_PRICE);
+                i.setLastPrice(price.isEmpty() ? 0.0 : Double.parseDouble(price));
+                String exp = r.get(ApiConstants.CSV_EXPIRY);
+                if (exp != null && !exp.isEmpty()) {
+                    i.setExpiry(LocalDate.parse(exp));
+                }
+                String strike = r.get(ApiConstants.CSV_STRIKE);
+                i.setStrike(strike.isEmpty() ? 0.0 : Double.parseDouble(strike));
+                i.setTickSize(Double.parseDouble(r.get(ApiConstants.CSV_TICK_SIZE)));
+                i.setLotSize(Integer.parseInt(r.get(ApiConstants.CSV_LOT_SIZE)));
+                i.setInstrumentType(r.get(ApiConstants.CSV_INSTRUMENT_TYPE));
+                i.setSegment(r.get(ApiConstants.CSV_SEGMENT));
+                i.setExchange(r.get(ApiConstants.CSV_EXCHANGE));
+                instruments.add(i);
+            } catch (Exception e) {
+                log.warn("Failed to parse instrument record: {}", e.getMessage());
+                // Continue processing other records
+            }
+        }
+        return instruments;
+    }
+
     public List<String> listExchanges() {
         List<String> list = repository.findDistinctExchange();
         log.debug("listExchanges -> {}", list);
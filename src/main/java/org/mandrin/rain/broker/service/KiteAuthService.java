@@ -1,8 +1,11 @@
 package org.mandrin.rain.broker.service;
 
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.http.Outcome;
 import org.springframework.stereotype.Service;
 import com.zerodhatech.kiteconnect.KiteConnect;
 import org.mandrin.rain.broker.config.ApiConstants;
@@ -34,9 +37,11 @@ public class KiteAuthService {
     private boolean mockSession;
 
     private final Environment environment;
+    private final MeterRegistry meterRegistry;
 
-    public KiteAuthService(Environment environment) {
+    public KiteAuthService(Environment environment, MeterRegistry meterRegistry) {
         this.environment = environment;
+        this.meterRegistry = meterRegistry;
     }
 
     @PostConstruct
@@ -82,7 +87,19 @@ public class KiteAuthService {
         String checksum = sha256(apiKey + requestToken + apiSecret);
         KiteConnect kiteConnect = new KiteConnect(apiKey);
         kiteConnect.setUserId(userId);
-        String accessToken = kiteConnect.generateSession(requestToken, apiSecret).accessToken;
+        // The SDK call bypasses WebClient, so it is timed here as kite.sdk.requests
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Outcome outcome = Outcome.UNKNOWN;
+        String accessToken;
+        try {
+            accessToken = kiteConnect.generateSession(requestToken, apiSecret).accessToken;
+            outcome = Outcome.SUCCESS;
+        } catch (KiteException e) {
+            outcome = Outcome.forStatus(e.code);
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("kite.sdk.requests", "call", "generateSession", "outcome", outcome.name()));
+        }
         session.setAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION, accessToken);
         return accessToken;
     }
@@ -1,21 +1,28 @@
 package org.mandrin.rain.broker.service;
 
+import com.zerodhatech.models.Depth;
+import com.zerodhatech.models.Tick;
 import com.zerodhatech.ticker.KiteTicker;
+import jakarta.annotation.PreDestroy;
 import jakarta.servlet.http.HttpSession;
 import org.mandrin.rain.broker.config.ApiConstants;
-import org.mandrin.rain.broker.websocket.TickerWebSocketHandler;
+import org.mandrin.rain.broker.model.MarketTick;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Service responsible for managing the life cycle of a Kite Connect WebSocket
- * (KiteTicker) connection. It uses the {@code kite_access_token} stored in the
- * HTTP session to authenticate the connection and provides helper methods to
- * subscribe to instrument tokens.
+ * Service responsible for managing the life cycle of Kite Connect WebSocket
+ * (KiteTicker) connections. Each connection is authenticated with, and owned by, one
+ * access token: subscriptions made on behalf of an account always go to that account's
+ * connection, so one user's logout or expired token never drops another user's feed.
+ * An instrument subscribed by several accounts arrives once per connection.
  */
 @Service
 @Slf4j
@@ -24,21 +31,23 @@ public class KiteTickerService {
     @Value("${kite.api_key}")
     private String apiKey;
 
-    private final TickerWebSocketHandler webSocketHandler;
-    private KiteTicker kiteTicker;
+    private final TickPipeline tickPipeline;
+    // access token -> its ticker connection
+    private final Map<String, KiteTicker> tickers = new ConcurrentHashMap<>();
 
-    public KiteTickerService(TickerWebSocketHandler webSocketHandler) {
-        this.webSocketHandler = webSocketHandler;
+    public KiteTickerService(TickPipeline tickPipeline) {
+        this.tickPipeline = tickPipeline;
     }
 
     /**
-     * Lazily create and connect a {@link KiteTicker} instance if one does not
-     * already exist or if the previous connection is closed.
+     * Lazily create and connect the {@link KiteTicker} of an access token if it does
+     * not already exist or if its previous connection is closed.
      *
      * @param accessToken session specific access token
-     * @return active {@link KiteTicker}
+     * @return active {@link KiteTicker} authenticated with that token
      */
     private synchronized KiteTicker getOrCreateTicker(String accessToken) {
+        KiteTicker kiteTicker = tickers.get(accessToken);
         if (kiteTicker == null || !kiteTicker.isConnectionOpen()) {
             log.info("Creating new KiteTicker with API key: {}...", apiKey.substring(0, Math.min(6, apiKey.length())));
             kiteTicker = new KiteTicker(apiKey, accessToken);
@@ -46,11 +55,19 @@ public class KiteTickerService {
             kiteTicker.setOnDisconnectedListener(() -> log.info("KiteTicker disconnected"));
             // Note: KiteTicker error listener interface is not easily accessible, 
             // so we handle errors in the try-catch block below
+            // Ticks arrive on the ticker's reader thread; one MarketTick is refilled for each
+            MarketTick marketTick = new MarketTick();
             kiteTicker.setOnTickerArrivalListener(ticks -> {
-                for (var tick : ticks) {
+                // Every tick in the packet arrived together
+                long receivedAt = System.currentTimeMillis();
+                long receivedNanos = System.nanoTime();
+                for (Tick tick : ticks) {
                     log.debug("Tick received: {}", tick);
-                    // Broadcast tick data to frontend WebSocket clients
-                    webSocketHandler.broadcastTickerData(tick);
+                    toMarketTick(tick, marketTick);
+                    marketTick.setReceivedAt(receivedAt);
+                    marketTick.setReceivedNanos(receivedNanos);
+                    // Relay to frontend WebSocket clients and server-side listeners
+                    tickPipeline.publish(marketTick);
                 }
             });
             
@@ -61,6 +78,7 @@ public class KiteTickerService {
                 log.error("Failed to connect KiteTicker: {}", e.getMessage());
                 throw new RuntimeException("Unable to connect to Kite WebSocket. Please check your authentication and try again.", e);
             }
+            tickers.put(accessToken, kiteTicker);
         }
         return kiteTicker;
     }
@@ -73,7 +91,7 @@ public class KiteTickerService {
      * @throws IllegalStateException if the token is missing
      */
     public KiteTicker connect(HttpSession session) {
-        String token = (String) session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION);
+        String token = accessToken(session);
         if (token == null || token.isEmpty()) {
             log.error("No access token found in session. User may not be authenticated with Kite Connect.");
             throw new IllegalStateException("Access token not found in session. Please login to Kite Connect first.");
@@ -91,7 +109,21 @@ public class KiteTickerService {
      * @param tokens  list of instrument tokens
      */
     public void subscribe(HttpSession session, List<Long> tokens) {
-        connect(session);
+        subscribeTokens(connect(session), tokens);
+    }
+
+    /**
+     * Subscribe on behalf of a server-side consumer that holds an access token but no
+     * HTTP session, such as the live portfolio.
+     *
+     * @param accessToken Kite access token
+     * @param tokens      list of instrument tokens
+     */
+    public void subscribe(String accessToken, List<Long> tokens) {
+        subscribeTokens(getOrCreateTicker(accessToken), tokens);
+    }
+
+    private synchronized void subscribeTokens(KiteTicker kiteTicker, List<Long> tokens) {
         ArrayList<Long> list = new ArrayList<>(tokens);
         log.info("Subscribing to {} instruments", list.size());
         kiteTicker.subscribe(list);
@@ -99,12 +131,69 @@ public class KiteTickerService {
     }
 
     /**
-     * Disconnect the active WebSocket connection if one exists.
+     * Copy a Kite tick into the pipeline's tick model. Kite reports {@code change} as a
+     * percentage of the previous close; the absolute change is derived from the close.
+     */
+    static void toMarketTick(Tick source, MarketTick target) {
+        target.reset();
+        target.setInstrumentToken(source.getInstrumentToken());
+        target.setMode(source.getMode());
+        target.setLastPrice(source.getLastTradedPrice());
+        target.setLastQuantity((long) source.getLastTradedQuantity());
+        target.setAveragePrice(source.getAverageTradePrice());
+        target.setVolumeTraded(source.getVolumeTradedToday());
+        target.setBuyQuantity((long) source.getTotalBuyQuantity());
+        target.setSellQuantity((long) source.getTotalSellQuantity());
+        target.setOpen(source.getOpenPrice());
+        target.setHigh(source.getHighPrice());
+        target.setLow(source.getLowPrice());
+        target.setClose(source.getClosePrice());
+        target.setNetChange(source.getClosePrice() > 0 ? source.getLastTradedPrice() - source.getClosePrice() : 0);
+        target.setChangePercent(source.getChange());
+        target.setOi((long) source.getOi());
+        Date timestamp = source.getTickTimestamp() != null ? source.getTickTimestamp() : source.getLastTradedTime();
+        target.setTimestamp(timestamp != null ? timestamp.getTime() : System.currentTimeMillis());
+
+        Map<String, ArrayList<Depth>> depth = source.getMarketDepth();
+        if (depth != null) {
+            List<Depth> buy = depth.get("buy");
+            List<Depth> sell = depth.get("sell");
+            int levels = Math.min(MarketTick.DEPTH_LEVELS,
+                    Math.min(buy != null ? buy.size() : 0, sell != null ? sell.size() : 0));
+            for (int i = 0; i < levels; i++) {
+                Depth bid = buy.get(i);
+                Depth ask = sell.get(i);
+                target.setBid(i, bid.getPrice(), bid.getQuantity(), bid.getOrders());
+                target.setAsk(i, ask.getPrice(), ask.getQuantity(), ask.getOrders());
+            }
+            target.setDepthLevels(levels);
+        }
+    }
+
+    /**
+     * Disconnect the ticker of the session's access token, if it has one. Other accounts'
+     * connections are left alone.
      */
-    public void disconnect() {
+    public void disconnect(HttpSession session) {
+        String token = accessToken(session);
+        KiteTicker kiteTicker = token != null ? tickers.remove(token) : null;
         if (kiteTicker != null) {
             log.info("Disconnecting ticker");
             kiteTicker.disconnect();
         }
     }
+
+    @PreDestroy
+    public synchronized void disconnectAll() {
+        tickers.values().forEach(KiteTicker::disconnect);
+        tickers.clear();
+    }
+
+    int getConnectionCount() {
+        return tickers.size();
+    }
+
+    private static String accessToken(HttpSession session) {
+        return (String) session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION);
+    }
 }
@@ -0,0 +1,252 @@
+package org.mandrin.rain.broker.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.mandrin.rain.broker.model.LivePosition;
+import org.mandrin.rain.broker.model.MarketTick;
+import org.mandrin.rain.broker.model.PortfolioUpdate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Portfolio P&L driven by the tick stream.
+ *
+ * Holdings and net positions are fetched once per access token when the first client
+ * attaches. From then on each tick for a held instrument moves the affected positions and
+ * the portfolio totals by the price delta, so P&L stays current without re-reading the
+ * broker's portfolio API. Changed positions are collected until {@link #drainChanges}
+ * hands them to the WebSocket layer.
+ */
+@Service
+@Slf4j
+public class LivePortfolioService implements TickListener {
+
+    @Value("${kite.dev.mock_session:false}")
+    private boolean mockSession;
+
+    private final PortfolioService portfolioService;
+    private final KiteTickerService kiteTickerService;
+    private final TickPipeline tickPipeline;
+
+    private final Map<String, Mono<PortfolioBook>> loads = new ConcurrentHashMap<>();
+    private final Map<String, PortfolioBook> books = new ConcurrentHashMap<>();
+
+    public LivePortfolioService(PortfolioService portfolioService,
+                                KiteTickerService kiteTickerService,
+                                TickPipeline tickPipeline) {
+        this.portfolioService = portfolioService;
+        this.kiteTickerService = kiteTickerService;
+        this.tickPipeline = tickPipeline;
+    }
+
+    @PostConstruct
+    public void start() {
+        tickPipeline.addListener(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        tickPipeline.removeListener(this);
+    }
+
+    /**
+     * Load the portfolio for an access token if it is not loaded yet and return a full
+     * snapshot of it. Concurrent callers for the same token share one load.
+     */
+    public Mono<PortfolioUpdate> attach(String accessToken) {
+        return loads.computeIfAbsent(accessToken, this::load).map(PortfolioBook::snapshot);
+    }
+
+    /**
+     * Forget the portfolio for an access token, once its last client has gone.
+     */
+    public void detach(String accessToken) {
+        loads.remove(accessToken);
+        if (books.remove(accessToken) != null) {
+            log.info("Live portfolio released ({} remaining)", books.size());
+        }
+    }
+
+    /**
+     * Positions changed since the previous call, or null when nothing moved.
+     */
+    public PortfolioUpdate drainChanges(String accessToken) {
+        PortfolioBook book = books.get(accessToken);
+        return book == null ? null : book.drain();
+    }
+
+    @Override
+    public void onTick(MarketTick tick) {
+        for (PortfolioBook book : books.values()) {
+            book.applyTick(tick.getInstrumentToken(), tick.getLastPrice());
+        }
+    }
+
+    @Override
+    public Set<Long> getInstrumentTokens() {
+        if (books.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> tokens = new HashSet<>();
+        for (PortfolioBook book : books.values()) {
+            tokens.addAll(book.tokens());
+        }
+        return tokens;
+    }
+
+    public int getBookCount() {
+        return books.size();
+    }
+
+    private Mono<PortfolioBook> load(String accessToken) {
+        return Mono.zip(portfolioService.getHoldings(accessToken), portfolioService.getPositions(accessToken))
+                .map(t -> PortfolioBook.from(t.getT1(), t.getT2()))
+                .doOnNext(book -> {
+                    // A client may have detached while the load was in flight
+                    if (!loads.containsKey(accessToken)) {
+                        return;
+                    }
+                    books.put(accessToken, book);
+                    log.info("Live portfolio loaded with {} positions over {} instruments",
+                            book.positions.size(), book.tokens().size());
+                    subscribeTicks(accessToken, book);
+                })
+                .doOnError(e -> {
+                    loads.remove(accessToken);
+                    log.error("Failed to load live portfolio: {}", e.getMessage());
+                })
+                .cache();
+    }
+
+    private void subscribeTicks(String accessToken, PortfolioBook book) {
+        // The mock ticker picks the tokens up from getInstrumentTokens()
+        if (mockSession || book.tokens().isEmpty()) {
+            return;
+        }
+        try {
+            kiteTickerService.subscribe(accessToken, new ArrayList<>(book.tokens()));
+        } catch (Exception e) {
+            log.warn("Could not subscribe portfolio instruments to the ticker: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Positions of one account plus running totals. All access is synchronized on the
+     * book: ticks arrive on the ticker thread, drains on the push scheduler.
+     */
+    static final class PortfolioBook {
+        private final List<LivePosition> positions;
+        private final Map<Long, List<LivePosition>> byToken;
+        private final Set<LivePosition> dirty = new LinkedHashSet<>();
+        private double totalPnl;
+        private double totalDayChange;
+
+        PortfolioBook(List<LivePosition> positions) {
+            this.positions = positions;
+            Map<Long, List<LivePosition>> index = new HashMap<>();
+            for (LivePosition position : positions) {
+                index.computeIfAbsent(position.getInstrumentToken(), k -> new ArrayList<>(2)).add(position);
+                totalPnl += position.getPnl();
+                totalDayChange += position.getDayChange();
+            }
+            this.byToken = index;
+        }
+
+        @SuppressWarnings("unchecked")
+        static PortfolioBook from(Map<String, Object> holdings, Map<String, Object> positions) {
+            List<LivePosition> all = new ArrayList<>();
+            Object holdingData = holdings == null ? null : holdings.get("data");
+            if (holdingData instanceof List<?> list) {
+                for (Object row : list) {
+                    all.add(toPosition(LivePosition.SOURCE_HOLDINGS, (Map<String, Object>) row));
+                }
+            }
+            Object positionData = positions == null ? null : positions.get("data");
+            if (positionData instanceof Map<?, ?> map && map.get("net") instanceof List<?> net) {
+                for (Object row : net) {
+                    all.add(toPosition(LivePosition.SOURCE_POSITIONS, (Map<String, Object>) row));
+                }
+            }
+            return new PortfolioBook(all);
+        }
+
+        static LivePosition toPosition(String source, Map<String, Object> row) {
+            long token = (long) number(row, "instrument_token", 0);
+            String product = (String) row.get("product");
+            int quantity = (int) number(row, "quantity", 0);
+            if (LivePosition.SOURCE_HOLDINGS.equals(source)) {
+                // Holdings bought yesterday sit in t1_quantity until settlement
+                quantity += (int) number(row, "t1_quantity", 0);
+            }
+            double multiplier = number(row, "multiplier", 1);
+            double averagePrice = number(row, "average_price", 0);
+            double closePrice = number(row, "close_price", 0);
+            double lastPrice = number(row, "last_price", 0);
+            double exposure = quantity * multiplier;
+            double pnl = row.get("pnl") instanceof Number n ? n.doubleValue() : exposure * (lastPrice - averagePrice);
+            double dayChange = closePrice > 0 ? exposure * (lastPrice - closePrice) : 0;
+            return new LivePosition(source + ":" + token + ":" + product, source, token,
+                    (String) row.get("tradingsymbol"), (String) row.get("exchange"), product,
+                    quantity, multiplier, averagePrice, closePrice, lastPrice, pnl, dayChange);
+        }
+
+        private static double number(Map<String, Object> row, String key, double fallback) {
+            return row.get(key) instanceof Number n ? n.doubleValue() : fallback;
+        }
+
+        Set<Long> tokens() {
+            return byToken.keySet();
+        }
+
+        synchronized void applyTick(long instrumentToken, double lastPrice) {
+            List<LivePosition> affected = byToken.get(instrumentToken);
+            if (affected == null) {
+                return;
+            }
+            for (LivePosition position : affected) {
+                double pnlBefore = position.getPnl();
+                double dayChangeBefore = position.getDayChange();
+                if (position.applyPrice(lastPrice)) {
+                    totalPnl += position.getPnl() - pnlBefore;
+                    totalDayChange += position.getDayChange() - dayChangeBefore;
+                    dirty.add(position);
+                }
+            }
+        }
+
+        synchronized PortfolioUpdate snapshot() {
+            // Pending changes are left for the next drain, other clients of this book still need them
+            return update(true, positions);
+        }
+
+        synchronized PortfolioUpdate drain() {
+            if (dirty.isEmpty()) {
+                return null;
+            }
+            PortfolioUpdate update = update(false, dirty);
+            dirty.clear();
+            return update;
+        }
+
+        private PortfolioUpdate update(boolean snapshot, Iterable<LivePosition> source) {
+            List<LivePosition> copies = new ArrayList<>();
+            for (LivePosition position : source) {
+                copies.add(position.copy());
+            }
+            return new PortfolioUpdate(snapshot, Collections.unmodifiableList(copies),
+                    totalPnl, totalDayChange, System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package org.mandrin.rain.broker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Paces broker order calls to stay inside the Kite order rate limits.
+ *
+ * Calls are queued and released by a single dispatcher thread once both the caller's
+ * token bucket and the application-wide bucket have a token. Exit orders are released
+ * ahead of entries; within a priority class orders keep their arrival order. A caller
+ * whose bucket is empty does not hold back other callers.
+ *
+ * The dispatcher sleeps exactly until the next token is due, and is woken early when an
+ * order arrives, so an exit order goes out as soon as its buckets allow.
+ */
+@Service
+@Slf4j
+public class OrderScheduler {
+
+    private static final long IDLE_BUCKET_EVICT_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final TokenBucket globalBucket;
+    private final double userRatePerSecond;
+    private final int burst;
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    // Guarded by lock; iterated in priority then arrival order without being reshuffled
+    private final NavigableSet<Pending<?>> queue = new TreeSet<>(
+            Comparator.<Pending<?>>comparingInt(p -> p.exit ? 0 : 1).thenComparingLong(p -> p.sequence));
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private long sequence;
+
+    private final Timer exitQueueTimer;
+    private final Timer entryQueueTimer;
+    private final Counter dispatched;
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public OrderScheduler(MeterRegistry meterRegistry,
+                          @Value("${kite.orders.rate-per-second:10}") double userRatePerSecond,
+                          @Value("${kite.orders.global-rate-per-second:10}") double globalRatePerSecond,
+                          @Value("${kite.orders.burst:1}") int burst) {
+        this.userRatePerSecond = userRatePerSecond;
+        this.burst = Math.max(1, burst);
+        this.globalBucket = new TokenBucket(globalRatePerSecond, this.burst);
+        this.exitQueueTimer = Timer.builder("orders.scheduler.queue.time")
+                .description("Time an order waits for a rate limit token")
+                .tag("priority", "exit")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.entryQueueTimer = Timer.builder("orders.scheduler.queue.time")
+                .description("Time an order waits for a rate limit token")
+                .tag("priority", "entry")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.dispatched = Counter.builder("orders.scheduler.dispatched")
+                .description("Orders released to the broker")
+                .register(meterRegistry);
+        Gauge.builder("orders.scheduler.queue.size", this, OrderScheduler::getQueueSize)
+                .description("Orders waiting for a rate limit token")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "order-scheduler");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        log.info("Order scheduler started: {}/s per user, {}/s global, burst {}",
+                userRatePerSecond, globalBucket.ratePerSecond, burst);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        lock.lock();
+        try {
+            for (Pending<?> pending : queue) {
+                pending.sink.error(new IllegalStateException("Order scheduler stopped"));
+            }
+            queue.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a broker call behind the rate limits.
+     *
+     * @param userKey identifies the per-user bucket (the Kite access token)
+     * @param exit    exit orders are released before entries
+     * @param call    the broker call, invoked once a token is available
+     * @return a Mono that completes with the broker call's result; the call is only
+     *         queued when the Mono is subscribed
+     */
+    public <T> Mono<T> schedule(String userKey, boolean exit, Supplier<Mono<T>> call) {
+        return Mono.create(sink -> {
+            lock.lock();
+            try {
+                Pending<T> pending = new Pending<>(userKey, exit, ++sequence, System.nanoTime(), call, sink);
+                sink.onCancel(() -> remove(pending));
+                queue.add(pending);
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Pending<?> pending) {
+        lock.lock();
+        try {
+            queue.remove(pending);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                long now;
+                Pending<?> chosen;
+                lock.lock();
+                try {
+                    now = System.nanoTime();
+                    chosen = nextReady(now);
+                    if (chosen == null) {
+                        long wait = nanosUntilNextToken(now);
+                        if (wait == Long.MAX_VALUE) {
+                            changed.await();
+                        } else {
+                            changed.awaitNanos(wait);
+                        }
+                        continue;
+                    }
+                    globalBucket.consume(now);
+                    userBucket(chosen.userKey).consume(now);
+                } finally {
+                    lock.unlock();
+                }
+                dispatch(chosen, now);
+                evictIdleBuckets(now);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Order scheduler dispatch error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the highest priority order whose user has a token, if the global
+     * bucket has one too. Called with the lock held.
+     */
+    private Pending<?> nextReady(long now) {
+        if (queue.isEmpty() || globalBucket.nanosUntilAvailable(now) > 0) {
+            return null;
+        }
+        for (Iterator<Pending<?>> it = queue.iterator(); it.hasNext(); ) {
+            Pending<?> candidate = it.next();
+            if (userBucket(candidate.userKey).nanosUntilAvailable(now) == 0) {
+                it.remove();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * How long until some queued order could be released, or {@code Long.MAX_VALUE} when
+     * the queue is empty. Called with the lock held.
+     */
+    private long nanosUntilNextToken(long now) {
+        long userWait = Long.MAX_VALUE;
+        for (Pending<?> pending : queue) {
+            userWait = Math.min(userWait, userBucket(pending.userKey).nanosUntilAvailable(now));
+        }
+        if (userWait == Long.MAX_VALUE) {
+            return userWait;
+        }
+        return Math.max(1, Math.max(userWait, globalBucket.nanosUntilAvailable(now)));
+    }
+
+    private <T> void dispatch(Pending<T> pending, long now) {
+        (pending.exit ? exitQueueTimer : entryQueueTimer).record(now - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+        dispatched.increment();
+        try {
+            pending.call.get().subscribe(pending.sink::success, pending.sink::error, pending.sink::success);
+        } catch (Exception e) {
+            pending.sink.error(e);
+        }
+    }
+
+    private TokenBucket userBucket(String userKey) {
+        return userBuckets.computeIfAbsent(userKey, k -> new TokenBucket(userRatePerSecond, burst));
+    }
+
+    private void evictIdleBuckets(long now) {
+        if (userBuckets.size() > 64) {
+            userBuckets.values().removeIf(b -> now - b.lastRefill > IDLE_BUCKET_EVICT_NANOS);
+        }
+    }
+
+    private static final class Pending<T> {
+        final String userKey;
+        final boolean exit;
+        final long sequence;
+        final long enqueuedAt;
+        final Supplier<Mono<T>> call;
+        final MonoSink<T> sink;
+
+        Pending(String userKey, boolean exit, long sequence, long enqueuedAt, Supplier<Mono<T>> call, MonoSink<T> sink) {
+            this.userKey = userKey;
+            this.exit = exit;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+            this.call = call;
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * Token bucket refilled continuously at {@code ratePerSecond}, holding at most
+     * {@code capacity} tokens. Only touched by the dispatcher thread.
+     */
+    static final class TokenBucket {
+        final double ratePerSecond;
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double ratePerSecond, int capacity) {
+            this.ratePerSecond = ratePerSecond;
+            this.capacity = capacity;
+            this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        long nanosUntilAvailable(long now) {
+            refill(now);
+            return tokens >= 1.0 ? 0 : (long) Math.ceil((1.0 - tokens) / tokensPerNano);
+        }
+
+        void consume(long now) {
+            refill(now);
+            tokens -= 1.0;
+        }
+
+        private void refill(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+                lastRefill = now;
+            }
+        }
+    }
+}
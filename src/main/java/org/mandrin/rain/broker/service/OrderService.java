@@ -2,9 +2,11 @@ package org.mandrin.rain.broker.service;
 
 import jakarta.servlet.http.HttpSession;
 import org.mandrin.rain.broker.config.ApiConstants;
-import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.BasketOrderResult;
+import org.mandrin.rain.broker.model.OrderHistoryPage;
 import org.mandrin.rain.broker.model.TradeOrder;
 import org.mandrin.rain.broker.repository.TradeOrderRepository;
+import org.mandrin.rain.broker.websocket.OrderWebSocketHandler;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -13,33 +15,215 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OrderService {
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
+
     @Value("${kite.api_key}")
     private String apiKey;
 
     private final WebClient webClient;
     private final TradeOrderRepository repository;
+    private final OrderWriteBehindService writeBehindService;
+    private final OrderWebSocketHandler orderWebSocketHandler;
+    private final OrderScheduler orderScheduler;
+    private final PreTradeValidator preTradeValidator;
+    private final OrderStateStore orderStateStore;
 
     /**
      * Place an order using Kite Connect and persist the details.
      */
     public TradeOrder placeOrder(HttpSession session, TradeOrder req) {
         log.info("Placing order for {} qty {}", req.getTradingsymbol(), req.getQuantity());
-        String accessToken = (String) session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION);
-        if (accessToken == null) {
-            throw new IllegalStateException(ApiConstants.NOT_AUTHENTICATED_MSG);
+        String accessToken = requireAccessToken(session);
+        if (reject(req)) {
+            return repository.save(req);
+        }
+        String orderId = schedule(req, accessToken).block();
+        req.setOrderId(orderId);
+        req.setStatus(ApiConstants.ORDER_STATUS_PLACED);
+        req.setPlacedAt(LocalDateTime.now(TradeOrder.PLACED_AT_ZONE));
+        TradeOrder saved = repository.save(req);
+        orderStateStore.track(saved, accessToken);
+        log.info("Order saved with id {} and orderId {}", saved.getId(), saved.getOrderId());
+        return saved;
+    }
+
+    /**
+     * Accept an order and return immediately with a client order reference.
+     *
+     * The broker call runs on the WebClient's event loop; its outcome is written by
+     * {@link OrderWriteBehindService} and pushed to /ws/orders subscribers.
+     */
+    public TradeOrder submitOrder(HttpSession session, TradeOrder req) {
+        String accessToken = requireAccessToken(session);
+        req.setClientOrderId(UUID.randomUUID().toString());
+        req.setPlacedAt(LocalDateTime.now(TradeOrder.PLACED_AT_ZONE));
+        if (reject(req)) {
+            orderStateStore.track(req, accessToken);
+            writeBehindService.enqueue(req);
+            orderWebSocketHandler.broadcastOrderUpdate(accessToken, req);
+            return req;
+        }
+        req.setStatus(ApiConstants.ORDER_STATUS_ACCEPTED);
+        orderStateStore.track(req, accessToken);
+        log.info("Accepted order {} for {} qty {}", req.getClientOrderId(), req.getTradingsymbol(), req.getQuantity());
+        orderWebSocketHandler.broadcastOrderUpdate(accessToken, req);
+
+        schedule(req, accessToken)
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(
+                        orderId -> complete(req, accessToken, orderId, ApiConstants.ORDER_STATUS_PLACED, null),
+                        error -> complete(req, accessToken, null, ApiConstants.ORDER_STATUS_FAILED, error.getMessage()),
+                        () -> {
+                            if (ApiConstants.ORDER_STATUS_ACCEPTED.equals(req.getStatus())) {
+                                complete(req, accessToken, null, ApiConstants.ORDER_STATUS_FAILED, "Empty broker response");
+                            }
+                        });
+        return req;
+    }
+
+    /**
+     * Place every leg of a basket and report per-leg outcomes.
+     *
+     * Legs failing {@link PreTradeValidator} are rejected locally. The rest are handed to
+     * {@link OrderScheduler} together, so they go out concurrently at the highest rate the
+     * order limits allow, exit legs first. Once every broker call has completed, all legs
+     * are queued for write-behind persistence, so a database problem can never turn orders
+     * already live at the broker into a failed request.
+     */
+    public Mono<BasketOrderResult> placeBasket(HttpSession session, List<TradeOrder> legs) {
+        String accessToken = requireAccessToken(session);
+        long start = System.nanoTime();
+        LocalDateTime placedAt = LocalDateTime.now(TradeOrder.PLACED_AT_ZONE);
+        List<Mono<BasketOrderResult.Leg>> calls = new ArrayList<>(legs.size());
+        for (int i = 0; i < legs.size(); i++) {
+            TradeOrder leg = legs.get(i);
+            int index = i;
+            leg.setClientOrderId(UUID.randomUUID().toString());
+            leg.setPlacedAt(placedAt);
+
+            if (reject(leg)) {
+                calls.add(Mono.just(legResult(index, leg, start, 0)));
+                continue;
+            }
+
+            leg.setStatus(ApiConstants.ORDER_STATUS_ACCEPTED);
+            long[] dispatchedAt = new long[1];
+            calls.add(orderScheduler.schedule(accessToken, leg.isExitOrder(), () -> {
+                        dispatchedAt[0] = System.nanoTime();
+                        return sendToBroker(leg, accessToken);
+                    })
+                    .map(orderId -> {
+                        leg.setOrderId(orderId);
+                        leg.setStatus(ApiConstants.ORDER_STATUS_PLACED);
+                        return leg;
+                    })
+                    .switchIfEmpty(Mono.fromSupplier(() -> markFailed(leg, "Empty broker response")))
+                    .onErrorResume(e -> Mono.just(markFailed(leg, e.getMessage())))
+                    .map(done -> legResult(index, done, start, dispatchedAt[0])));
+        }
+
+        return Flux.mergeSequential(calls)
+                .collectList()
+                .publishOn(Schedulers.boundedElastic())
+                .map(results -> {
+                    legs.forEach(leg -> orderStateStore.track(leg, accessToken));
+                    legs.forEach(writeBehindService::enqueue);
+                    legs.forEach(leg -> orderWebSocketHandler.broadcastOrderUpdate(accessToken, leg));
+                    BasketOrderResult result = new BasketOrderResult(legs.size(),
+                            count(results, ApiConstants.ORDER_STATUS_PLACED),
+                            count(results, ApiConstants.ORDER_STATUS_FAILED),
+                            count(results, ApiConstants.ORDER_STATUS_REJECTED),
+                            (System.nanoTime() - start) / 1_000_000, results);
+                    log.info("Basket of {} legs: {} placed, {} failed, {} rejected in {} ms", result.getLegs(),
+                            result.getPlaced(), result.getFailed(), result.getRejected(), result.getTotalMillis());
+                    return result;
+                });
+    }
+
+    /**
+     * Run the local pre-trade checks, marking the order REJECTED if any fails.
+     */
+    private boolean reject(TradeOrder order) {
+        PreTradeValidator.RejectReason reason = preTradeValidator.validate(order);
+        if (reason == null) {
+            return false;
         }
-        String url = ApiConstants.ORDER_URL;
+        order.setStatus(ApiConstants.ORDER_STATUS_REJECTED);
+        order.setStatusMessage(reason.getMessage());
+        if (order.getPlacedAt() == null) {
+            order.setPlacedAt(LocalDateTime.now(TradeOrder.PLACED_AT_ZONE));
+        }
+        log.info("Order for {} rejected before submission: {}", order.getTradingsymbol(), reason);
+        return true;
+    }
+
+    private TradeOrder markFailed(TradeOrder order, String message) {
+        order.setStatus(ApiConstants.ORDER_STATUS_FAILED);
+        order.setStatusMessage(message);
+        return order;
+    }
+
+    /**
+     * @param dispatchedAt System.nanoTime() when the leg was handed to the broker call, or 0
+     *                     if it never was; timings are then left out
+     */
+    private static BasketOrderResult.Leg legResult(int index, TradeOrder leg, long start, long dispatchedAt) {
+        Double queueMillis = null;
+        Double brokerMillis = null;
+        if (dispatchedAt != 0) {
+            queueMillis = (dispatchedAt - start) / 1_000_000.0;
+            brokerMillis = (System.nanoTime() - dispatchedAt) / 1_000_000.0;
+        }
+        return new BasketOrderResult.Leg(index, leg.getTradingsymbol(), leg.getClientOrderId(), leg.getOrderId(),
+                leg.getStatus(), leg.getStatusMessage(), queueMillis, brokerMillis);
+    }
+
+    private static int count(List<BasketOrderResult.Leg> results, String status) {
+        return (int) results.stream().filter(r -> status.equals(r.getStatus())).count();
+    }
+
+    private Mono<String> schedule(TradeOrder req, String accessToken) {
+        return orderScheduler.schedule(accessToken, req.isExitOrder(), () -> sendToBroker(req, accessToken));
+    }
+
+    private void complete(TradeOrder order, String accessToken, String orderId, String status, String message) {
+        order.setOrderId(orderId);
+        order.setStatus(status);
+        order.setStatusMessage(message);
+        orderStateStore.track(order, accessToken);
+        if (ApiConstants.ORDER_STATUS_FAILED.equals(status)) {
+            log.warn("Order {} failed: {}", order.getClientOrderId(), message);
+        } else {
+            log.info("Order {} placed with orderId {}", order.getClientOrderId(), orderId);
+        }
+        writeBehindService.enqueue(order);
+        orderWebSocketHandler.broadcastOrderUpdate(accessToken, order);
+    }
+
+    /**
+     * Non-blocking Kite order placement call, emitting the broker order id.
+     */
+    Mono<String> sendToBroker(TradeOrder req, String accessToken) {
         HttpHeaders headers = new HttpHeaders();
         headers.set(ApiConstants.KITE_VERSION_HEADER, ApiConstants.KITE_VERSION);
         headers.set(ApiConstants.AUTH_HEADER,
@@ -55,29 +239,93 @@ public class OrderService {
         body.add("order_type", ApiConstants.ORDER_TYPE_MARKET);
         body.add("product", ApiConstants.PRODUCT_MIS);
 
-        Mono<Map> mono = webClient.post()
-                .uri(url)
+        return webClient.post()
+                .uri(ApiConstants.ORDER_URL)
                 .headers(h -> {
                     h.addAll(headers);
                     h.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
                 })
                 .body(BodyInserters.fromFormData(body))
                 .retrieve()
-                .bodyToMono(Map.class);
-        Map resp = mono.block();
-        if (resp != null && resp.containsKey("data")) {
-            Object data = ((Map) resp.get("data")).get("order_id");
-            req.setOrderId(data != null ? data.toString() : null);
+                .bodyToMono(Map.class)
+                .flatMap(resp -> {
+                    Object data = resp.get("data");
+                    Object orderId = data instanceof Map ? ((Map<?, ?>) data).get("order_id") : null;
+                    return Mono.justOrEmpty(orderId != null ? orderId.toString() : null);
+                });
+    }
+
+    private String requireAccessToken(HttpSession session) {
+        String accessToken = (String) session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION);
+        if (accessToken == null) {
+            throw new IllegalStateException(ApiConstants.NOT_AUTHENTICATED_MSG);
         }
-        req.setPlacedAt(LocalDateTime.now());
-        TradeOrder saved = repository.save(req);
-        log.info("Order saved with id {} and orderId {}", saved.getId(), saved.getOrderId());
-        return saved;
+        return accessToken;
     }
 
-    public java.util.List<TradeOrder> listOrders() {
-        java.util.List<TradeOrder> list = repository.findAll();
+    /**
+     * Today's orders from the in-memory order book, most recent first.
+     */
+    public List<TradeOrder> listOrders() {
+        List<TradeOrder> list = orderStateStore.list();
         log.debug("listOrders -> {}", list.size());
         return list;
     }
+
+    /**
+     * Page through persisted order history, newest first, using keyset pagination on
+     * (placedAt, id) so deep pages cost the same as the first one.
+     *
+     * @param from   inclusive first day, or {@code null}
+     * @param to     inclusive last day, or {@code null}
+     * @param cursor {@code nextCursor} from the previous page, or {@code null} for the first page
+     * @throws IllegalArgumentException if the cursor cannot be decoded
+     */
+    public OrderHistoryPage getHistory(String tradingsymbol, String exchange, LocalDate from, LocalDate to,
+                                       String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_HISTORY_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+        LocalDateTime afterPlacedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                afterPlacedAt = LocalDateTime.parse(parts[0]);
+                afterId = Long.valueOf(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<TradeOrder> rows = repository.findHistory(blankToNull(tradingsymbol), blankToNull(exchange),
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                afterPlacedAt, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            TradeOrder last = rows.get(pageSize - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getPlacedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        log.debug("getHistory symbol={} exchange={} from={} to={} -> {} rows", tradingsymbol, exchange, from, to, rows.size());
+        return new OrderHistoryPage(rows, pageSize, nextCursor);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    public TradeOrder getOrder(String orderId) {
+        return orderStateStore.get(orderId);
+    }
+
+    /**
+     * Apply a Kite order postback.
+     *
+     * @return {@code false} if the postback checksum is invalid
+     */
+    public boolean handlePostback(Map<String, Object> payload) {
+        return orderStateStore.applyPostback(payload);
+    }
 }
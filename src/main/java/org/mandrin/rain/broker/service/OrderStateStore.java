@@ -0,0 +1,356 @@
+package org.mandrin.rain.broker.service;
+
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.TradeOrder;
+import org.mandrin.rain.broker.repository.TradeOrderRepository;
+import org.mandrin.rain.broker.websocket.OrderWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory order book for the current trading day.
+ *
+ * Orders are keyed by broker orderId once Kite assigns one (and by clientOrderId until
+ * then). Broker order updates, whether from postbacks or from {@link OrderStatusPoller},
+ * are applied here, queued for write-behind persistence and pushed to /ws/orders, so
+ * order status reads never touch the database. Updates are pushed only to the clients of
+ * the access token that placed the order.
+ *
+ * An update for an order the store does not know yet is kept in memory only: usually the
+ * postback has beaten the broker response, and {@link #track} adopts it moments later so
+ * a single row is written. Orders still unclaimed after {@link #UNCLAIMED_GRACE_NANOS}
+ * were placed elsewhere, e.g. from Kite web, and are persisted from then on.
+ */
+@Service
+@Slf4j
+public class OrderStateStore {
+
+    private static final ZoneId EXCHANGE_ZONE = TradeOrder.PLACED_AT_ZONE;
+    private static final Set<String> TERMINAL_STATUSES = Set.of(
+            ApiConstants.ORDER_STATUS_COMPLETE, ApiConstants.ORDER_STATUS_CANCELLED,
+            ApiConstants.ORDER_STATUS_REJECTED, ApiConstants.ORDER_STATUS_FAILED);
+    private static final long UNCLAIMED_GRACE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    @Value("${kite.api_secret}")
+    private String apiSecret;
+
+    private final TradeOrderRepository repository;
+    private final OrderWriteBehindService writeBehindService;
+    private final OrderWebSocketHandler orderWebSocketHandler;
+
+    private final Map<String, TradeOrder> byOrderId = new ConcurrentHashMap<>();
+    private final Map<String, TradeOrder> byClientOrderId = new ConcurrentHashMap<>();
+    // Access token that placed each open order, used by the status poller
+    private final Map<String, String> openOrderTokens = new ConcurrentHashMap<>();
+    // Access token that placed each order, by clientOrderId, for scoping /ws/orders pushes
+    private final Map<String, String> ownerTokens = new ConcurrentHashMap<>();
+    // Orders first seen in an update, by orderId, with the System.nanoTime() they arrived at
+    private final Map<String, Long> unclaimedSince = new ConcurrentHashMap<>();
+
+    private final Clock clock;
+
+    @Autowired
+    public OrderStateStore(TradeOrderRepository repository,
+                           OrderWriteBehindService writeBehindService,
+                           OrderWebSocketHandler orderWebSocketHandler) {
+        this(repository, writeBehindService, orderWebSocketHandler, Clock.systemUTC());
+    }
+
+    /**
+     * @param clock stamps orders first seen in updates and decides where the trading day starts;
+     *              its zone does not matter, times are taken in the exchange's zone
+     */
+    public OrderStateStore(TradeOrderRepository repository,
+                           OrderWriteBehindService writeBehindService,
+                           OrderWebSocketHandler orderWebSocketHandler,
+                           Clock clock) {
+        this.repository = repository;
+        this.writeBehindService = writeBehindService;
+        this.orderWebSocketHandler = orderWebSocketHandler;
+        this.clock = clock.withZone(EXCHANGE_ZONE);
+    }
+
+    /**
+     * Load the current day's orders so status queries after a restart still see them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadToday() {
+        try {
+            List<TradeOrder> today = repository.findByPlacedAtGreaterThanEqual(startOfDay());
+            today.forEach(this::index);
+            log.info("Order state store loaded {} orders for today", today.size());
+        } catch (Exception e) {
+            log.error("Failed to load today's orders: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Start tracking an order placed by this application.
+     */
+    public void track(TradeOrder order, String accessToken) {
+        TradeOrder early = order.getOrderId() != null ? byOrderId.get(order.getOrderId()) : null;
+        if (early != null && early != order) {
+            // A postback beat the broker response; carry its progress over to the tracked order.
+            // The placeholder is normally unpersisted; if it was already written, reuse its row
+            boolean unclaimed = unclaimedSince.remove(order.getOrderId()) != null;
+            byClientOrderId.remove(early.getClientOrderId());
+            synchronized (early) {
+                if (!unclaimed && order.getId() == null) {
+                    order.setId(early.getId());
+                }
+                order.setStatus(early.getStatus());
+                order.setStatusMessage(early.getStatusMessage());
+                order.setFilledQuantity(early.getFilledQuantity());
+                order.setAveragePrice(early.getAveragePrice());
+                order.setUpdatedAt(early.getUpdatedAt());
+            }
+        }
+        index(order);
+        if (accessToken != null) {
+            ownerTokens.put(order.getClientOrderId(), accessToken);
+        }
+        if (order.getOrderId() != null && accessToken != null && !isTerminal(order.getStatus())) {
+            openOrderTokens.put(order.getOrderId(), accessToken);
+        }
+    }
+
+    public TradeOrder get(String orderId) {
+        TradeOrder order = byOrderId.get(orderId);
+        return order != null ? order : byClientOrderId.get(orderId);
+    }
+
+    /**
+     * All orders known for the day, most recent first.
+     */
+    public List<TradeOrder> list() {
+        return byClientOrderId.values().stream()
+                .sorted(Comparator.comparing(TradeOrder::getPlacedAt,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
+                .toList();
+    }
+
+    public Map<String, String> getOpenOrderTokens() {
+        return Map.copyOf(openOrderTokens);
+    }
+
+    /**
+     * The access token that placed an order, or {@code null} if it was placed outside this
+     * application.
+     */
+    public String ownerOf(TradeOrder order) {
+        return order.getClientOrderId() != null ? ownerTokens.get(order.getClientOrderId()) : null;
+    }
+
+    public int size() {
+        return byClientOrderId.size();
+    }
+
+    /**
+     * Verify and apply a Kite order postback.
+     *
+     * @return {@code false} if the checksum does not match, in which case nothing is applied
+     */
+    public boolean applyPostback(Map<String, Object> payload) {
+        String orderId = string(payload.get("order_id"));
+        String timestamp = string(payload.get("order_timestamp"));
+        String checksum = string(payload.get("checksum"));
+        if (orderId == null || checksum == null || !checksum.equalsIgnoreCase(checksum(orderId, timestamp))) {
+            log.warn("Rejected order postback with invalid checksum for order {}", orderId);
+            return false;
+        }
+        applyUpdate(payload);
+        return true;
+    }
+
+    /**
+     * Apply one Kite order update, in the shape used by both postbacks and the orders API.
+     * Updates that would move a terminal order back to an open status are ignored, since
+     * Kite does not guarantee delivery order.
+     *
+     * @return the updated order, or {@code null} if the update was ignored
+     */
+    public TradeOrder applyUpdate(Map<String, Object> update) {
+        String orderId = string(update.get("order_id"));
+        String status = string(update.get("status"));
+        if (orderId == null || status == null) {
+            return null;
+        }
+
+        TradeOrder order = byOrderId.get(orderId);
+        if (order == null) {
+            // Either the broker response is still on its way or the order was placed elsewhere
+            order = fromUpdate(orderId, update);
+            unclaimedSince.put(orderId, System.nanoTime());
+            index(order);
+        }
+
+        synchronized (order) {
+            if (isTerminal(order.getStatus()) && !isTerminal(status)) {
+                return null;
+            }
+            Integer filled = integer(update.get("filled_quantity"));
+            if (status.equals(order.getStatus())
+                    && (filled == null || filled.equals(order.getFilledQuantity()))) {
+                return null;
+            }
+            order.setStatus(status);
+            if (filled != null) {
+                order.setFilledQuantity(filled);
+            }
+            Double average = decimal(update.get("average_price"));
+            if (average != null) {
+                order.setAveragePrice(average);
+            }
+            String message = string(update.get("status_message"));
+            if (message != null) {
+                order.setStatusMessage(message);
+            }
+            order.setUpdatedAt(LocalDateTime.now(clock));
+        }
+
+        if (isTerminal(status)) {
+            openOrderTokens.remove(orderId);
+        }
+        log.debug("Order {} -> {} (filled {})", orderId, status, order.getFilledQuantity());
+        if (!unclaimedSince.containsKey(orderId)) {
+            writeBehindService.enqueue(order);
+        }
+        orderWebSocketHandler.broadcastOrderUpdate(ownerOf(order), order);
+        return order;
+    }
+
+    /**
+     * Start persisting orders that no placement from this application has claimed.
+     */
+    @Scheduled(fixedDelay = 5_000)
+    public void persistUnclaimed() {
+        persistUnclaimed(System.nanoTime());
+    }
+
+    void persistUnclaimed(long nowNanos) {
+        unclaimedSince.forEach((orderId, since) -> {
+            if (nowNanos - since >= UNCLAIMED_GRACE_NANOS && unclaimedSince.remove(orderId, since)) {
+                TradeOrder order = byOrderId.get(orderId);
+                if (order != null) {
+                    log.debug("Order {} was placed outside this application, persisting it", orderId);
+                    writeBehindService.enqueue(order);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop orders from previous days once the trading day rolls over. Day orders that never
+     * reached a terminal status have expired at the broker by then, so they are evicted as
+     * well, keeping their last known state in the database; orders placed elsewhere that
+     * were never persisted are written first.
+     */
+    @Scheduled(cron = "0 0 6 * * *", zone = "Asia/Kolkata")
+    public void evictPreviousDays() {
+        LocalDateTime start = startOfDay();
+        List<TradeOrder> evicted = byClientOrderId.values().stream()
+                .filter(o -> o.getPlacedAt() != null && o.getPlacedAt().isBefore(start))
+                .toList();
+        int open = 0;
+        for (TradeOrder order : evicted) {
+            byClientOrderId.remove(order.getClientOrderId(), order);
+            ownerTokens.remove(order.getClientOrderId());
+            if (order.getOrderId() != null) {
+                byOrderId.remove(order.getOrderId(), order);
+                openOrderTokens.remove(order.getOrderId());
+                if (unclaimedSince.remove(order.getOrderId()) != null) {
+                    writeBehindService.enqueue(order);
+                }
+            }
+            if (!isTerminal(order.getStatus())) {
+                open++;
+            }
+        }
+        log.info("Evicted {} orders from previous days, {} of them never reached a terminal status",
+                evicted.size(), open);
+    }
+
+    static boolean isTerminal(String status) {
+        return status != null && TERMINAL_STATUSES.contains(status);
+    }
+
+    private void index(TradeOrder order) {
+        if (order.getClientOrderId() == null) {
+            order.setClientOrderId(order.getOrderId() != null ? order.getOrderId() : String.valueOf(order.getId()));
+        }
+        byClientOrderId.put(order.getClientOrderId(), order);
+        if (order.getOrderId() != null) {
+            byOrderId.put(order.getOrderId(), order);
+        }
+    }
+
+    private TradeOrder fromUpdate(String orderId, Map<String, Object> update) {
+        TradeOrder order = new TradeOrder();
+        order.setOrderId(orderId);
+        order.setClientOrderId(orderId);
+        order.setTradingsymbol(string(update.get("tradingsymbol")));
+        order.setExchange(string(update.get("exchange")));
+        order.setTransactionType(string(update.get("transaction_type")));
+        order.setQuantity(integer(update.get("quantity")));
+        order.setPrice(decimal(update.get("price")));
+        Object token = update.get("instrument_token");
+        if (token instanceof Number number) {
+            order.setInstrumentToken(number.longValue());
+        }
+        order.setPlacedAt(LocalDateTime.now(clock));
+        return order;
+    }
+
+    String checksum(String orderId, String orderTimestamp) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(ApiConstants.HASH_ALGORITHM_SHA256);
+            byte[] hash = digest.digest((orderId + (orderTimestamp != null ? orderTimestamp : "") + apiSecret)
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private LocalDateTime startOfDay() {
+        return LocalDate.now(clock).atStartOfDay();
+    }
+
+    private static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static Integer integer(Object value) {
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        return value != null ? Integer.valueOf(value.toString()) : null;
+    }
+
+    private static Double decimal(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        return value != null ? Double.valueOf(value.toString()) : null;
+    }
+}
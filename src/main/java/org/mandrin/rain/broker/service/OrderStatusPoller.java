@@ -0,0 +1,86 @@
+package org.mandrin.rain.broker.service;
+
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fallback for deployments that cannot receive Kite postbacks: polls the orders API for
+ * users with open orders and feeds the results into {@link OrderStateStore}.
+ * Disabled unless {@code orders.status.polling-enabled=true}.
+ */
+@Service
+@Slf4j
+public class OrderStatusPoller {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+    @Value("${kite.api_key}")
+    private String apiKey;
+
+    @Value("${orders.status.polling-enabled:false}")
+    private boolean enabled;
+
+    private final WebClient webClient;
+    private final OrderStateStore orderStateStore;
+
+    public OrderStatusPoller(WebClient webClient, OrderStateStore orderStateStore) {
+        this.webClient = webClient;
+        this.orderStateStore = orderStateStore;
+    }
+
+    @Scheduled(fixedDelayString = "${orders.status.poll-interval-ms:3000}")
+    public void scheduledPoll() {
+        if (enabled) {
+            poll();
+        }
+    }
+
+    /**
+     * Fetch the order book once per access token that still has open orders.
+     *
+     * @return number of order updates that changed local state
+     */
+    public int poll() {
+        Set<String> tokens = new HashSet<>(orderStateStore.getOpenOrderTokens().values());
+        int changed = 0;
+        for (String accessToken : tokens) {
+            try {
+                Map<?, ?> resp = webClient.get()
+                        .uri(ApiConstants.ORDERS_URL)
+                        .header(ApiConstants.KITE_VERSION_HEADER, ApiConstants.KITE_VERSION)
+                        .header(ApiConstants.AUTH_HEADER, String.format(ApiConstants.AUTH_TOKEN_FORMAT, apiKey, accessToken))
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .block(REQUEST_TIMEOUT);
+                if (resp == null || !(resp.get("data") instanceof List<?> orders)) {
+                    continue;
+                }
+                for (Object order : orders) {
+                    if (order instanceof Map<?, ?> update) {
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> typed = (Map<String, Object>) update;
+                        if (orderStateStore.applyUpdate(typed) != null) {
+                            changed++;
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Order status poll failed: {}", e.getMessage());
+            }
+        }
+        if (changed > 0) {
+            log.debug("Order status poll applied {} updates", changed);
+        }
+        return changed;
+    }
+}
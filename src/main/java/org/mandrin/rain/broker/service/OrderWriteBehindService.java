@@ -0,0 +1,137 @@
+package org.mandrin.rain.broker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.mandrin.rain.broker.model.TradeOrder;
+import org.mandrin.rain.broker.repository.TradeOrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Write-behind stage for {@link TradeOrder} rows.
+ *
+ * Order state changes are queued in memory and flushed to the database in batches on a
+ * fixed delay, so JPA writes never sit on the order submission path. An order queued
+ * several times between flushes is written once with its latest state.
+ *
+ * When a batch fails, its rows are retried one by one so a single bad row cannot hold
+ * back the rest. A row that fails {@code orders.write-behind.max-attempts} flushes in a
+ * row is dead-lettered: logged in full, counted in {@code orders.write-behind.dead-lettered}
+ * and dropped from the queue.
+ */
+@Service
+@Slf4j
+public class OrderWriteBehindService {
+
+    private final TradeOrderRepository repository;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Counter deadLettered;
+    private final ConcurrentLinkedQueue<TradeOrder> pending = new ConcurrentLinkedQueue<>();
+    // Failed writes per order since its last successful one; only touched inside flush()
+    private final Map<TradeOrder, Integer> failedAttempts = new IdentityHashMap<>();
+
+    public OrderWriteBehindService(TradeOrderRepository repository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${orders.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${orders.write-behind.max-attempts:5}") int maxAttempts) {
+        this.repository = repository;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.deadLettered = Counter.builder("orders.write-behind.dead-lettered")
+                .description("Order rows dropped after repeated write failures")
+                .register(meterRegistry);
+    }
+
+    public void enqueue(TradeOrder order) {
+        pending.offer(order);
+    }
+
+    /**
+     * Drain the queue in batches of {@code orders.write-behind.batch-size}.
+     *
+     * @return number of distinct orders written
+     */
+    @Scheduled(fixedDelayString = "${orders.write-behind.flush-interval-ms:200}")
+    public synchronized int flush() {
+        int written = 0;
+        List<TradeOrder> retry = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            Set<TradeOrder> unique = Collections.newSetFromMap(new IdentityHashMap<>());
+            TradeOrder order;
+            while (unique.size() < batchSize && (order = pending.poll()) != null) {
+                unique.add(order);
+            }
+            if (unique.isEmpty()) {
+                break;
+            }
+            List<TradeOrder> batch = new ArrayList<>(unique);
+            List<TradeOrder> inserts = batch.stream().filter(o -> o.getId() == null).toList();
+            try {
+                repository.saveAll(batch);
+                written += batch.size();
+                batch.forEach(failedAttempts::remove);
+            } catch (Exception e) {
+                log.warn("Failed to persist {} orders as a batch, retrying one by one: {}", batch.size(), e.getMessage());
+                // The rolled back inserts may have been handed ids that were never committed
+                inserts.forEach(o -> o.setId(null));
+                written += saveIndividually(batch, retry);
+            }
+        }
+        // Retried on the next flush, not this one
+        pending.addAll(retry);
+        if (written > 0) {
+            log.debug("Write-behind flushed {} orders", written);
+        }
+        return written;
+    }
+
+    private int saveIndividually(List<TradeOrder> batch, List<TradeOrder> retry) {
+        int written = 0;
+        for (TradeOrder order : batch) {
+            boolean insert = order.getId() == null;
+            try {
+                repository.save(order);
+                failedAttempts.remove(order);
+                written++;
+            } catch (Exception e) {
+                if (insert) {
+                    order.setId(null);
+                }
+                int attempts = failedAttempts.merge(order, 1, Integer::sum);
+                if (attempts >= maxAttempts) {
+                    failedAttempts.remove(order);
+                    deadLettered.increment();
+                    log.error("Dead-lettering order {} after {} failed writes: {} ({})",
+                            order.getClientOrderId(), attempts, e.getMessage(), order);
+                } else {
+                    log.warn("Failed to persist order {} (attempt {} of {}): {}",
+                            order.getClientOrderId(), attempts, maxAttempts, e.getMessage());
+                    retry.add(order);
+                }
+            }
+        }
+        return written;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        int written = flush();
+        log.info("Flushed {} pending orders on shutdown ({} left unwritten)", written, pending.size());
+    }
+}
@@ -0,0 +1,243 @@
+package org.mandrin.rain.broker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fetches holdings and positions from the Kite portfolio API, or canned data when
+ * {@code kite.dev.mock_session} is enabled. Responses are returned as the broker's raw
+ * envelope ({@code status}/{@code data}).
+ *
+ * Broker responses are cached per access token for {@code portfolio.cache.ttl-ms}.
+ * Concurrent misses for the same token share a single upstream call, and for a further
+ * {@code portfolio.cache.stale-ms} an expired response is still served while one
+ * background call refreshes it.
+ */
+@Service
+@Slf4j
+public class PortfolioService {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+    static final String KIND_HOLDINGS = "holdings";
+    static final String KIND_POSITIONS = "positions";
+
+    @Value("${kite.api_key}")
+    private String apiKey;
+
+    @Value("${kite.dev.mock_session:false}")
+    private boolean mockSession;
+
+    private final WebClient webClient;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Map<String, Counter> upstreamCalls = new HashMap<>();
+
+    public PortfolioService(WebClient webClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${portfolio.cache.ttl-ms:2000}") long ttlMillis,
+                            @Value("${portfolio.cache.stale-ms:30000}") long staleMillis) {
+        this.webClient = webClient;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMillis);
+        this.hits = requests(meterRegistry, "hit");
+        this.staleHits = requests(meterRegistry, "stale");
+        this.misses = requests(meterRegistry, "miss");
+        this.coalesced = requests(meterRegistry, "coalesced");
+        for (String kind : List.of(KIND_HOLDINGS, KIND_POSITIONS)) {
+            upstreamCalls.put(kind, Counter.builder("portfolio.cache.upstream.calls")
+                    .description("Portfolio calls that reached the broker")
+                    .tag("kind", kind)
+                    .register(meterRegistry));
+        }
+        Gauge.builder("portfolio.cache.hit.ratio", this, PortfolioService::hitRatio)
+                .description("Share of portfolio reads served from cache, fresh or stale")
+                .register(meterRegistry);
+        Gauge.builder("portfolio.cache.size", cache, Map::size).register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("portfolio.cache.requests")
+                .description("Portfolio reads by cache outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public Mono<Map<String, Object>> getHoldings(String accessToken) {
+        if (mockSession) {
+            log.info("Returning mock portfolio holdings for development");
+            return Mono.just(mockHoldings());
+        }
+        return cached(KIND_HOLDINGS, ApiConstants.HOLDINGS_URL, accessToken);
+    }
+
+    public Mono<Map<String, Object>> getPositions(String accessToken) {
+        if (mockSession) {
+            log.info("Returning mock portfolio positions for development");
+            return Mono.just(mockPositions());
+        }
+        return cached(KIND_POSITIONS, ApiConstants.POSITIONS_URL, accessToken);
+    }
+
+    /**
+     * Drop entries too old to be served even as stale, e.g. those of logged out sessions.
+     */
+    @Scheduled(fixedDelayString = "${portfolio.cache.evict-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        cache.values().removeIf(entry -> entry.inFlight.get() == null
+                && (entry.value == null || now - entry.loadedAtNanos > ttlNanos + staleNanos));
+    }
+
+    double hitRatio() {
+        double served = hits.count() + staleHits.count();
+        double total = served + misses.count() + coalesced.count();
+        return total == 0 ? 0 : served / total;
+    }
+
+    private Mono<Map<String, Object>> cached(String kind, String url, String accessToken) {
+        CacheEntry entry = cache.computeIfAbsent(kind + ":" + accessToken, k -> new CacheEntry());
+        Map<String, Object> value = entry.value;
+        long age = System.nanoTime() - entry.loadedAtNanos;
+        if (value != null && age < ttlNanos) {
+            hits.increment();
+            return Mono.just(value);
+        }
+        if (value != null && age < ttlNanos + staleNanos) {
+            staleHits.increment();
+            refresh(entry, kind, url, accessToken, false).subscribe(
+                    fresh -> { },
+                    e -> log.warn("Background {} refresh failed, serving stale data: {}", kind, e.getMessage()));
+            return Mono.just(value);
+        }
+        return refresh(entry, kind, url, accessToken, true);
+    }
+
+    /**
+     * Join the call in flight for this entry or start one. A foreground caller that installs
+     * the call counts as a miss and one that joins it as coalesced; background refreshes
+     * were already counted as stale hits.
+     */
+    private Mono<Map<String, Object>> refresh(CacheEntry entry, String kind, String url, String accessToken,
+                                              boolean foreground) {
+        while (true) {
+            Mono<Map<String, Object>> current = entry.inFlight.get();
+            if (current != null) {
+                if (foreground) {
+                    coalesced.increment();
+                }
+                return current;
+            }
+            AtomicReference<Mono<Map<String, Object>>> self = new AtomicReference<>();
+            Mono<Map<String, Object>> call = Mono.defer(() -> {
+                        upstreamCalls.get(kind).increment();
+                        return fetch(url, accessToken);
+                    })
+                    .doOnNext(fresh -> {
+                        entry.value = fresh;
+                        entry.loadedAtNanos = System.nanoTime();
+                    })
+                    .doFinally(signal -> entry.inFlight.compareAndSet(self.get(), null))
+                    .cache();
+            self.set(call);
+            if (entry.inFlight.compareAndSet(null, call)) {
+                if (foreground) {
+                    misses.increment();
+                }
+                return call;
+            }
+        }
+    }
+
+    private static final class CacheEntry {
+        volatile Map<String, Object> value;
+        volatile long loadedAtNanos;
+        final AtomicReference<Mono<Map<String, Object>>> inFlight = new AtomicReference<>();
+    }
+
+    private Mono<Map<String, Object>> fetch(String url, String accessToken) {
+        return webClient.get()
+                .uri(url)
+                .header(ApiConstants.KITE_VERSION_HEADER, ApiConstants.KITE_VERSION)
+                .header(ApiConstants.AUTH_HEADER, String.format(ApiConstants.AUTH_TOKEN_FORMAT, apiKey, accessToken))
+                .retrieve()
+                .bodyToMono(RESPONSE_TYPE);
+    }
+
+    private static Map<String, Object> mockHoldings() {
+        return Map.of(
+            "status", "success",
+            "data", List.of(
+                Map.of(
+                    "instrument_token", 256265,
+                    "exchange", "NSE",
+                    "tradingsymbol", "RELIANCE",
+                    "product", "CNC",
+                    "quantity", 10,
+                    "average_price", 2450.50,
+                    "last_price", 2475.30,
+                    "pnl", 248.0,
+                    "close_price", 2460.75
+                ),
+                Map.of(
+                    "instrument_token", 408065,
+                    "exchange", "NSE",
+                    "tradingsymbol", "INFY",
+                    "product", "CNC",
+                    "quantity", 25,
+                    "average_price", 1520.25,
+                    "last_price", 1535.80,
+                    "pnl", 388.75,
+                    "close_price", 1528.90
+                )
+            )
+        );
+    }
+
+    private static Map<String, Object> mockPositions() {
+        var netPosition = new HashMap<String, Object>();
+        netPosition.put("instrument_token", 256265);
+        netPosition.put("exchange", "NSE");
+        netPosition.put("tradingsymbol", "RELIANCE");
+        netPosition.put("product", "MIS");
+        netPosition.put("quantity", 5);
+        netPosition.put("average_price", 2470.50);
+        netPosition.put("last_price", 2475.30);
+        netPosition.put("pnl", 24.0);
+        netPosition.put("m2m", 24.0);
+        netPosition.put("unrealised", 24.0);
+        netPosition.put("realised", 0.0);
+
+        var dayPosition = new HashMap<>(netPosition);
+
+        return Map.of(
+            "status", "success",
+            "data", Map.of(
+                "net", List.of(netPosition),
+                "day", List.of(dayPosition)
+            )
+        );
+    }
+}
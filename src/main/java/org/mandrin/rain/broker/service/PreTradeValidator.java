@@ -0,0 +1,142 @@
+package org.mandrin.rain.broker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.model.TradeOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Local pre-trade checks against the cached instrument master, so orders the broker
+ * would reject for lot size, tick size or expiry never leave the process.
+ *
+ * Checks only read the in-memory instrument snapshot. Each rejection increments
+ * {@code orders.pretrade.rejected} tagged with its reason. Until the snapshot holds any
+ * instruments only the quantity is checked, and the order is counted in
+ * {@code orders.pretrade.unchecked} and left for the broker to judge.
+ */
+@Service
+public class PreTradeValidator {
+
+    // Prices are doubles, so tick alignment is checked with a tolerance
+    private static final double TICK_EPSILON = 1e-6;
+    private static final ZoneId EXCHANGE_ZONE = ZoneId.of("Asia/Kolkata");
+
+    private final InstrumentCacheService instrumentCacheService;
+    private final Counter checked;
+    private final Counter unchecked;
+    private final Map<RejectReason, Counter> rejected = new EnumMap<>(RejectReason.class);
+    private final Clock clock;
+
+    @Autowired
+    public PreTradeValidator(InstrumentCacheService instrumentCacheService, MeterRegistry meterRegistry) {
+        this(instrumentCacheService, meterRegistry, Clock.system(EXCHANGE_ZONE));
+    }
+
+    /**
+     * @param clock decides which contracts have expired; its zone should be the exchange's
+     */
+    public PreTradeValidator(InstrumentCacheService instrumentCacheService, MeterRegistry meterRegistry, Clock clock) {
+        this.instrumentCacheService = instrumentCacheService;
+        this.clock = clock;
+        this.checked = Counter.builder("orders.pretrade.checked")
+                .description("Orders run through pre-trade validation")
+                .register(meterRegistry);
+        this.unchecked = Counter.builder("orders.pretrade.unchecked")
+                .description("Orders passed without instrument checks because the instrument cache was empty")
+                .register(meterRegistry);
+        for (RejectReason reason : RejectReason.values()) {
+            rejected.put(reason, Counter.builder("orders.pretrade.rejected")
+                    .description("Orders rejected by pre-trade validation")
+                    .tag("reason", reason.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    public enum RejectReason {
+        UNKNOWN_INSTRUMENT("Instrument not found in instrument master"),
+        INVALID_QUANTITY("Quantity must be positive"),
+        LOT_SIZE("Quantity is not a multiple of the lot size"),
+        TICK_SIZE("Price is not a multiple of the tick size"),
+        EXPIRED("Instrument has expired");
+
+        private final String message;
+
+        RejectReason(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * @return the first failed check, or {@code null} if the order passes
+     */
+    public RejectReason validate(TradeOrder order) {
+        checked.increment();
+        RejectReason reason = check(order);
+        if (reason != null) {
+            rejected.get(reason).increment();
+        }
+        return reason;
+    }
+
+    private RejectReason check(TradeOrder order) {
+        Integer quantity = order.getQuantity();
+        if (quantity == null || quantity <= 0) {
+            return RejectReason.INVALID_QUANTITY;
+        }
+        if (instrumentCacheService.size() == 0) {
+            // Not loaded yet, or the load failed: nothing to check against
+            unchecked.increment();
+            return null;
+        }
+        Instrument instrument = resolve(order);
+        if (instrument == null) {
+            return RejectReason.UNKNOWN_INSTRUMENT;
+        }
+        Integer lotSize = instrument.getLotSize();
+        if (lotSize != null && lotSize > 1 && quantity % lotSize != 0) {
+            return RejectReason.LOT_SIZE;
+        }
+        Double price = order.getPrice();
+        Double tickSize = instrument.getTickSize();
+        if (price != null && tickSize != null && tickSize > 0) {
+            double ticks = price / tickSize;
+            if (Math.abs(ticks - Math.rint(ticks)) > TICK_EPSILON) {
+                return RejectReason.TICK_SIZE;
+            }
+        }
+        // Contracts remain tradable through their expiry day
+        LocalDate expiry = instrument.getExpiry();
+        if (expiry != null && expiry.isBefore(LocalDate.now(clock))) {
+            return RejectReason.EXPIRED;
+        }
+        return null;
+    }
+
+    /**
+     * Find the order's instrument by token, falling back to exchange and trading symbol.
+     */
+    Instrument resolve(TradeOrder order) {
+        if (order.getInstrumentToken() != null) {
+            Instrument byToken = instrumentCacheService.getInstrument(order.getInstrumentToken());
+            if (byToken != null) {
+                return byToken;
+            }
+        }
+        if (order.getTradingsymbol() == null || order.getExchange() == null) {
+            return null;
+        }
+        return instrumentCacheService.getInstrument(order.getExchange(), order.getTradingsymbol());
+    }
+}
@@ -1,18 +1,48 @@
 package org.mandrin.rain.broker.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
 import com.zerodhatech.kiteconnect.KiteConnect;
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
 import org.mandrin.rain.broker.config.ApiConstants;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.http.Outcome;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Validates Kite access tokens and caches the outcome per token.
+ *
+ * Validation is single-flight: when several requests find the same token missing or
+ * expired, one of them calls Kite and the rest wait for its result. Valid entries close
+ * to expiry are refreshed in the background while the cached result is still served,
+ * so steady traffic never waits on a profile call after the first one.
+ *
+ * The cache is bounded by {@code session.validation.cache.max-size} with Caffeine's
+ * W-TinyLFU eviction. Each entry expires five minutes after its validation, measured on
+ * the same monotonic clock as {@link TokenValidationResult#checkedAtNanos}, and expired
+ * entries are removed incrementally by Caffeine's timer wheel rather than by a full scan.
+ * Hits, misses, evictions and size are published as {@code cache.*} meters tagged
+ * {@code cache=session.validation}. Each profile call to Kite is timed as
+ * {@code kite.sdk.requests} tagged {@code call=getProfile} and its outcome.
+ */
 @Service
 @Slf4j
 public class SessionValidationService {
@@ -23,26 +53,91 @@ public class SessionValidationService {
     @Value("${kite.dev.mock_session:false}")
     private boolean mockSession;
 
+    private final MeterRegistry meterRegistry;
+
     // Cache validation results to avoid excessive API calls
-    private final Map<String, TokenValidationResult> validationCache = new ConcurrentHashMap<>();
+    private final Cache<String, TokenValidationResult> validationCache;
     private static final long CACHE_VALIDITY_MINUTES = 5;
+    private static final long CACHE_VALIDITY_NANOS = TimeUnit.MINUTES.toNanos(CACHE_VALIDITY_MINUTES);
+    // Valid entries older than this are revalidated in the background
+    private static final long REFRESH_AHEAD_NANOS = TimeUnit.MINUTES.toNanos(CACHE_VALIDITY_MINUTES - 1);
+
+    // Validations in progress, one per token
+    private final Map<String, CompletableFuture<TokenValidationResult>> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> refreshQueued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "session-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public static class TokenValidationResult {
         public final boolean isValid;
-        public final LocalDateTime checkedAt;
+        /** {@link System#nanoTime()} at validation, cheaper to compare than a wall-clock timestamp */
+        public final long checkedAtNanos;
         public final String error;
 
         public TokenValidationResult(boolean isValid, String error) {
+            this(isValid, error, System.nanoTime());
+        }
+
+        TokenValidationResult(boolean isValid, String error, long checkedAtNanos) {
             this.isValid = isValid;
-            this.checkedAt = LocalDateTime.now();
+            this.checkedAtNanos = checkedAtNanos;
             this.error = error;
         }
 
         public boolean isCacheExpired() {
-            return checkedAt.plusMinutes(CACHE_VALIDITY_MINUTES).isBefore(LocalDateTime.now());
+            return isCacheExpired(System.nanoTime());
+        }
+
+        boolean isCacheExpired(long nowNanos) {
+            return nowNanos - checkedAtNanos > CACHE_VALIDITY_NANOS;
+        }
+
+        boolean isDueForRefresh(long nowNanos) {
+            return isValid && nowNanos - checkedAtNanos > REFRESH_AHEAD_NANOS;
         }
     }
 
+    public SessionValidationService(MeterRegistry meterRegistry,
+                                    @Value("${session.validation.cache.max-size:10000}") long maxCacheSize) {
+        this.meterRegistry = meterRegistry;
+        this.validationCache = Caffeine.newBuilder()
+                .maximumSize(maxCacheSize)
+                .expireAfter(new ValidityExpiry())
+                .scheduler(Scheduler.systemScheduler())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, validationCache, "session.validation");
+    }
+
+    /**
+     * Expire each entry {@link #CACHE_VALIDITY_MINUTES} after it was validated, whenever it
+     * was written. Caffeine's ticker and {@code checkedAtNanos} both read System.nanoTime().
+     */
+    private static final class ValidityExpiry implements Expiry<String, TokenValidationResult> {
+        @Override
+        public long expireAfterCreate(String key, TokenValidationResult value, long currentTime) {
+            return CACHE_VALIDITY_NANOS - (currentTime - value.checkedAtNanos);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TokenValidationResult value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, TokenValidationResult value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
     /**
      * Validates if the access token in the session is still valid with Kite Connect
      */
@@ -68,30 +163,76 @@ public class SessionValidationService {
         }
 
         // Check cache first
-        TokenValidationResult cached = validationCache.get(accessToken);
-        if (cached != null && !cached.isCacheExpired()) {
-            log.debug("Using cached validation result for token: valid={}", cached.isValid);
+        long now = System.nanoTime();
+        TokenValidationResult cached = validationCache.getIfPresent(accessToken);
+        if (cached != null && !cached.isCacheExpired(now)) {
+            if (cached.isDueForRefresh(now) && refreshQueued.add(accessToken)) {
+                refreshAhead(accessToken);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Using cached validation result for token: valid={}", cached.isValid);
+            }
             return cached.isValid;
         }
 
-        // Perform actual validation
-        TokenValidationResult result = validateWithKiteAPI(accessToken);
-        validationCache.put(accessToken, result);
-
-        log.debug("Token validation result: valid={}, error={}", result.isValid, result.error);
+        // Perform actual validation, or wait for the one already running for this token
+        TokenValidationResult result = validateOnce(accessToken);
+        if (log.isDebugEnabled()) {
+            log.debug("Token validation result: valid={}, error={}", result.isValid, result.error);
+        }
         return result.isValid;
     }
 
+    /**
+     * Validate the token unless a validation for it is already running, in which case its
+     * result is awaited instead. The caller that wins the race does the call on its own
+     * thread and publishes the result to the cache before releasing the waiters.
+     */
+    private TokenValidationResult validateOnce(String accessToken) {
+        CompletableFuture<TokenValidationResult> mine = new CompletableFuture<>();
+        CompletableFuture<TokenValidationResult> running = inFlight.putIfAbsent(accessToken, mine);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            TokenValidationResult result = validateWithKiteAPI(accessToken);
+            validationCache.put(accessToken, result);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(accessToken, mine);
+        }
+    }
+
+    private void refreshAhead(String accessToken) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    validateOnce(accessToken);
+                } finally {
+                    refreshQueued.remove(accessToken);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshQueued.remove(accessToken);
+        }
+    }
+
     /**
      * Validates token by making a lightweight API call to Kite Connect or mock validation
      */
-    private TokenValidationResult validateWithKiteAPI(String accessToken) {
+    TokenValidationResult validateWithKiteAPI(String accessToken) {
         // In mock mode, always return valid for development testing
         if (mockSession) {
             log.debug("Mock mode enabled - skipping actual Kite API validation");
             return new TokenValidationResult(true, "Mock validation (development mode)");
         }
         
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Outcome outcome = Outcome.UNKNOWN;
         try {
             KiteConnect kiteConnect = new KiteConnect(apiKey);
             kiteConnect.setAccessToken(accessToken);
@@ -99,10 +240,12 @@ public class SessionValidationService {
             // Make a lightweight API call to check token validity
             // Using profile endpoint as it's a simple GET request
             kiteConnect.getProfile();
+            outcome = Outcome.SUCCESS;
             
             return new TokenValidationResult(true, null);
             
         } catch (KiteException e) {
+            outcome = Outcome.forStatus(e.code);
             String errorMessage = e.getMessage();
             log.error("KiteException details:");
             log.error("  - Message: {}", errorMessage);
@@ -136,6 +279,8 @@ public class SessionValidationService {
         } catch (Exception e) {
             log.error("Unexpected error during token validation: {}", e.getMessage());
             return new TokenValidationResult(false, "Validation error: " + e.getMessage());
+        } finally {
+            sample.stop(meterRegistry.timer("kite.sdk.requests", "call", "getProfile", "outcome", outcome.name()));
         }
     }
 
@@ -149,7 +294,7 @@ public class SessionValidationService {
 
         String accessToken = (String) session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION);
         if (accessToken != null) {
-            validationCache.remove(accessToken);
+            validationCache.invalidate(accessToken);
         }
 
         try {
@@ -161,10 +306,11 @@ public class SessionValidationService {
     }
 
     /**
-     * Clears expired entries from validation cache
+     * Runs pending cache maintenance. Expiry is already incremental, so this only flushes
+     * removals Caffeine has not yet processed.
      */
     public void clearExpiredCache() {
-        validationCache.entrySet().removeIf(entry -> entry.getValue().isCacheExpired());
+        validationCache.cleanUp();
         log.debug("Cleared expired validation cache entries");
     }
 
@@ -172,6 +318,6 @@ public class SessionValidationService {
      * Gets the validation cache size (for monitoring)
      */
     public int getCacheSize() {
-        return validationCache.size();
+        return (int) validationCache.estimatedSize();
     }
 }
\ No newline at end of file
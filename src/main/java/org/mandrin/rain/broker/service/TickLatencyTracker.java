@@ -0,0 +1,88 @@
+package org.mandrin.rain.broker.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage latency of market ticks on their way from the exchange to the browser, as
+ * {@code ticker.latency} timers tagged with the stage. Percentiles are published with each
+ * timer, so they show under /actuator/metrics/ticker.latency.percentile.
+ *
+ * Feeds stamp every tick with its receipt time; the pipeline and /ws/ticker handler record
+ * the stages that follow. The exchange stage compares the exchange timestamp with our wall
+ * clock and is only as accurate as the two clocks agree; the others use System.nanoTime().
+ */
+@Component
+public class TickLatencyTracker {
+
+    public enum Stage {
+        /** Exchange timestamp to feed receipt. */
+        EXCHANGE_TO_RECEIVE("exchange_to_receive"),
+        /** Feed receipt to pipeline publish, including conversion to MarketTick. */
+        RECEIVE_TO_PUBLISH("receive_to_publish"),
+        /** Encoding one tick for /ws/ticker. */
+        SERIALIZE("serialize"),
+        /** Writing one frame to every connected session. */
+        SOCKET_WRITE("socket_write"),
+        /** Feed receipt until the frame carrying the tick was written to every session. */
+        RECEIVE_TO_WRITE("receive_to_write"),
+        /** Feed receipt until a browser's echo of the rendered tick arrived back. */
+        RECEIVE_TO_BROWSER_ECHO("receive_to_browser_echo"),
+        /** Browser time from message arrival to the next painted frame, as reported by the echo. */
+        BROWSER_RENDER("browser_render");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final boolean enabled;
+
+    public TickLatencyTracker(MeterRegistry meterRegistry,
+                              @Value("${ticker.latency.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("ticker.latency")
+                    .description("Market tick latency by pipeline stage")
+                    .tag("stage", stage.getTag())
+                    .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                    .register(meterRegistry));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(Stage stage, long nanos) {
+        if (enabled && nanos >= 0) {
+            timers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Record the time since {@code startNanos}, a System.nanoTime() reading.
+     */
+    public void recordSince(Stage stage, long startNanos) {
+        if (enabled && startNanos != 0) {
+            record(stage, System.nanoTime() - startNanos);
+        }
+    }
+
+    Timer timer(Stage stage) {
+        return timers.get(stage);
+    }
+}
@@ -0,0 +1,25 @@
+package org.mandrin.rain.broker.service;
+
+import org.mandrin.rain.broker.model.MarketTick;
+
+import java.util.Set;
+
+/**
+ * Server-side consumer of market ticks, registered with {@link TickPipeline}.
+ *
+ * Listeners are called on the thread that delivered the tick (the KiteTicker reader or the
+ * mock generator), so implementations must be quick and must not block. The tick instance
+ * is reused by its producer, so copy any field that has to outlive the call.
+ */
+public interface TickListener {
+
+    void onTick(MarketTick tick);
+
+    /**
+     * Instrument tokens this listener currently needs ticks for. The mock ticker uses it to
+     * generate prices for tokens nobody subscribed to through the UI.
+     */
+    default Set<Long> getInstrumentTokens() {
+        return Set.of();
+    }
+}
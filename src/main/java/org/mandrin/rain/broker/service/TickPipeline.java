@@ -0,0 +1,95 @@
+package org.mandrin.rain.broker.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.mandrin.rain.broker.model.MarketTick;
+import org.mandrin.rain.broker.service.TickLatencyTracker.Stage;
+import org.mandrin.rain.broker.websocket.TickerWebSocketHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single entry point for market ticks, whether they come from KiteTicker or the mock
+ * generator. Every feed converts its ticks to {@link MarketTick}; each tick is relayed to
+ * /ws/ticker clients and then handed to the registered {@link TickListener}s, so server-side
+ * consumers see exactly the stream the UI sees.
+ *
+ * Ticks are stamped on entry, and the exchange and receipt stages of
+ * {@link TickLatencyTracker} are recorded here.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TickPipeline {
+
+    private final TickerWebSocketHandler webSocketHandler;
+    private final TickLatencyTracker latency;
+    private final List<TickListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(TickListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(TickListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Publish one tick. Producers may refill the same instance once this returns,
+     * so nothing downstream keeps a reference to it.
+     */
+    public void publish(MarketTick tick) {
+        tick.setPublishedNanos(System.nanoTime());
+        if (latency.isEnabled() && tick.getReceivedNanos() != 0) {
+            latency.record(Stage.RECEIVE_TO_PUBLISH, tick.getPublishedNanos() - tick.getReceivedNanos());
+            if (tick.getTimestamp() > 0) {
+                latency.record(Stage.EXCHANGE_TO_RECEIVE,
+                        TimeUnit.MILLISECONDS.toNanos(tick.getReceivedAt() - tick.getTimestamp()));
+            }
+        }
+        try {
+            webSocketHandler.broadcastTick(tick);
+        } catch (Exception e) {
+            log.error("Broadcasting tick for token {} failed: {}", tick.getInstrumentToken(), e.getMessage());
+        }
+        for (TickListener listener : listeners) {
+            try {
+                listener.onTick(tick);
+            } catch (Exception e) {
+                log.error("Tick listener {} failed for token {}: {}",
+                        listener.getClass().getSimpleName(), tick.getInstrumentToken(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Union of the tokens wanted by server-side listeners.
+     */
+    public Set<Long> getListenerTokens() {
+        Set<Long> tokens = new HashSet<>();
+        for (TickListener listener : listeners) {
+            tokens.addAll(listener.getInstrumentTokens());
+        }
+        return tokens;
+    }
+
+    /**
+     * Whether anyone is consuming ticks, either a /ws/ticker client or a listener with tokens.
+     */
+    public boolean hasConsumers() {
+        if (webSocketHandler.getActiveSessionCount() > 0) {
+            return true;
+        }
+        for (TickListener listener : listeners) {
+            if (!listener.getInstrumentTokens().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
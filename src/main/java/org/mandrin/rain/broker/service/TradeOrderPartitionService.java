@@ -0,0 +1,204 @@
+package org.mandrin.rain.broker.service;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Maintains the monthly partitions of trade_orders on PostgreSQL.
+ *
+ * Creates partitions {@code orders.partitioning.months-ahead} months in advance so rows
+ * never land in the default partition, and archives partitions older than
+ * {@code orders.archive.retention-months}: each one is exported to a gzip CSV file under
+ * {@code orders.archive.dir}, row counts are checked, then the partition is detached and
+ * dropped. Does nothing unless {@code orders.partitioning.enabled=true} and trade_orders
+ * has been converted with db/postgresql/trade_orders_partitioning.sql.
+ */
+@Service
+@Slf4j
+public class TradeOrderPartitionService {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("trade_orders_p(\\d{4})_(\\d{2})");
+    private static final ZoneId EXCHANGE_ZONE = ZoneId.of("Asia/Kolkata");
+    private static final int EXPORT_FETCH_SIZE = 5_000;
+
+    @Value("${orders.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${orders.partitioning.months-ahead:2}")
+    private int monthsAhead;
+
+    @Value("${orders.archive.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${orders.archive.dir:./archive/trade_orders}")
+    private String archiveDir;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    public TradeOrderPartitionService(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${orders.partitioning.cron:0 30 1 * * *}", zone = "Asia/Kolkata")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!isPartitioned()) {
+                log.warn("orders.partitioning.enabled is set but trade_orders is not a partitioned PostgreSQL table; "
+                        + "run db/postgresql/trade_orders_partitioning.sql first");
+                return;
+            }
+            ensurePartitions(YearMonth.now(EXCHANGE_ZONE));
+            archiveExpired(YearMonth.now(EXCHANGE_ZONE));
+        } catch (Exception e) {
+            log.error("trade_orders partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Create the partitions for the current month and the configured months ahead.
+     */
+    public List<String> ensurePartitions(YearMonth current) {
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i <= monthsAhead; i++) {
+            LocalDate monthStart = current.plusMonths(i).atDay(1);
+            created.add(jdbcTemplate.queryForObject("SELECT ensure_trade_orders_partition(?)", String.class, monthStart));
+        }
+        log.debug("Ensured trade_orders partitions {}", created);
+        return created;
+    }
+
+    /**
+     * Export and drop every monthly partition that ended more than the retention period ago.
+     *
+     * @return the archive files written
+     */
+    public List<Path> archiveExpired(YearMonth current) throws IOException, SQLException {
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        List<Path> archived = new ArrayList<>();
+        for (String partition : listPartitions()) {
+            YearMonth month = monthOf(partition);
+            if (month != null && month.isBefore(oldestKept)) {
+                archived.add(archive(partition, month));
+            }
+        }
+        return archived;
+    }
+
+    List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent "
+                        + "WHERE p.relname = 'trade_orders' ORDER BY c.relname", String.class);
+    }
+
+    static YearMonth monthOf(String partition) {
+        Matcher m = PARTITION_NAME.matcher(partition);
+        return m.matches() ? YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))) : null;
+    }
+
+    private Path archive(String partition, YearMonth month) throws IOException, SQLException {
+        Path dir = Paths.get(archiveDir);
+        Files.createDirectories(dir);
+        Path target = dir.resolve(String.format("trade_orders_%d_%02d.csv.gz", month.getYear(), month.getMonthValue()));
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+
+        long expected = jdbcTemplate.queryForObject("SELECT count(*) FROM " + partition, Long.class);
+        long written = export(partition, tmp);
+        if (written != expected) {
+            Files.deleteIfExists(tmp);
+            throw new IllegalStateException(String.format(
+                    "Archive of %s wrote %d rows but partition holds %d; partition kept", partition, written, expected));
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        jdbcTemplate.execute("ALTER TABLE trade_orders DETACH PARTITION " + partition);
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        log.info("Archived trade_orders partition {} ({} rows) to {}", partition, written, target);
+        return target;
+    }
+
+    /**
+     * Stream the partition into a gzip CSV file. PostgreSQL only uses a cursor for
+     * fetch-size reads inside a transaction, hence autocommit off.
+     */
+    private long export(String partition, Path file) throws IOException, SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM " + partition + " ORDER BY placed_at, id")) {
+                ps.setFetchSize(EXPORT_FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery();
+                     Writer out = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8);
+                     CSVPrinter csv = new CSVPrinter(out, CSVFormat.DEFAULT.builder().setHeader(rs).build())) {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    int columns = meta.getColumnCount();
+                    long rows = 0;
+                    while (rs.next()) {
+                        for (int i = 1; i <= columns; i++) {
+                            csv.print(rs.getObject(i));
+                        }
+                        csv.println();
+                        rows++;
+                    }
+                    return rows;
+                }
+            } finally {
+                conn.commit();
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private boolean isPartitioned() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(product)) {
+            return false;
+        }
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid "
+                        + "WHERE c.relname = 'trade_orders'", Integer.class);
+        return count != null && count > 0;
+    }
+}
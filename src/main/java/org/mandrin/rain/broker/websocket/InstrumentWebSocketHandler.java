@@ -1,61 +1,125 @@
 package org.mandrin.rain.broker.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.mandrin.rain.broker.event.InstrumentsRefreshedEvent;
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.service.InstrumentCacheService;
 import org.mandrin.rain.broker.service.ReactiveInstrumentService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Traditional WebSocket handler for real-time instrument data updates
- * 
+ *
  * Supports:
- * - Real-time instrument filtering updates
+ * - Filtered subscriptions ("exchange", "underlying", "expiry", "all") served from the
+ *   in-memory instrument cache. The initial result set is streamed in chunks, after which
+ *   the client receives add/update/remove deltas whenever an instrument refresh changes it
  * - Live metadata updates (exchanges, types, underlyings)
- * - Subscription-based data streaming
+ *
+ * Clients subscribed to the same filter share one result set, and each delta is encoded
+ * once for all of them. A result set is dropped when its last subscriber leaves.
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class InstrumentWebSocketHandler extends TextWebSocketHandler {
-    
+
+    private static final int SEND_TIME_LIMIT_MS = 10_000;
+    private static final int SEND_BUFFER_LIMIT_BYTES = 4 * 1024 * 1024;
+
     private final ReactiveInstrumentService reactiveInstrumentService;
+    private final InstrumentCacheService instrumentCacheService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
     private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // subscription key -> result set shared by every session subscribed to that filter
+    private final Map<String, FilterResult> results = new ConcurrentHashMap<>();
+    // session id -> subscription keys
+    private final Map<String, Set<String>> subscriptions = new ConcurrentHashMap<>();
+
+    public InstrumentWebSocketHandler(ReactiveInstrumentService reactiveInstrumentService,
+                                      InstrumentCacheService instrumentCacheService,
+                                      ObjectMapper objectMapper,
+                                      @Value("${instruments.websocket.chunk-size:500}") int chunkSize) {
+        this.reactiveInstrumentService = reactiveInstrumentService;
+        this.instrumentCacheService = instrumentCacheService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Result set of one filter, remembered so refreshes can be sent as deltas. The result set
+     * and subscriber list are read and replaced only while holding the monitor, so a client
+     * subscribing during a refresh gets either the old set and the delta, or the new set.
+     */
+    private static final class FilterResult {
+        final String key;
+        final String filterType;
+        final String filterValue;
+        final String subFilter;
+        final Set<String> sessionIds = new HashSet<>();
+        Map<Long, Instrument> current;
+        boolean closed;
+
+        FilterResult(String key, String filterType, String filterValue, String subFilter) {
+            this.key = key;
+            this.filterType = filterType;
+            this.filterValue = filterValue;
+            this.subFilter = subFilter;
+        }
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.put(session.getId(), session);
+        // Subscription streams and refresh deltas may be sent from different threads
+        WebSocketSession concurrentSession =
+                new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT_BYTES);
+        sessions.put(session.getId(), concurrentSession);
+        subscriptions.put(session.getId(), ConcurrentHashMap.newKeySet());
         log.info("Instrument WebSocket connection established: {}", session.getId());
-        
+
         // Send welcome message
-        sendMessage(session, Map.of(
-            "type", "connection", 
+        sendMessage(concurrentSession, Map.of(
+            "type", "connection",
             "status", "connected",
             "endpoint", "instruments"
         ));
     }
 
     @Override
-    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+    protected void handleTextMessage(WebSocketSession rawSession, TextMessage message) throws Exception {
+        WebSocketSession session = sessions.getOrDefault(rawSession.getId(), rawSession);
         try {
             String payload = message.getPayload();
             log.debug("Received message from {}: {}", session.getId(), payload);
-            
+
             Map<String, Object> request = objectMapper.readValue(payload, Map.class);
             String action = (String) request.get("action");
-            
+
             switch (action) {
                 case "subscribe":
                     handleSubscribe(session, request);
                     break;
+                case "unsubscribe":
+                    handleUnsubscribe(session, request);
+                    break;
                 case "getMetadata":
                     handleGetMetadata(session, request);
                     break;
@@ -72,25 +136,86 @@ public class InstrumentWebSocketHandler extends TextWebSocketHandler {
     }
 
     private void handleSubscribe(WebSocketSession session, Map<String, Object> request) throws Exception {
-        String filterType = (String) request.get("filterType");
-        String filterValue = (String) request.get("filterValue");
-        
-        log.info("Subscription request from {}: {} = {}", session.getId(), filterType, filterValue);
-        
-        // For now, send a mock response
+        String filterType = (String) request.getOrDefault("filterType", "all");
+        String filterValue = (String) request.getOrDefault("filterValue", "");
+        String subFilter = (String) request.getOrDefault("subFilter", "");
+        String key = subscriptionKey(filterType, filterValue, subFilter);
+
+        log.info("Subscription request from {}: {} = {} ({})", session.getId(), filterType, filterValue, subFilter);
+
+        List<Instrument> matches;
+        while (true) {
+            FilterResult result = results.computeIfAbsent(key,
+                    k -> new FilterResult(k, filterType, filterValue, subFilter));
+            synchronized (result) {
+                if (result.closed) {
+                    // Its last subscriber left meanwhile; take the replacement
+                    continue;
+                }
+                if (result.current == null) {
+                    result.current = index(instrumentCacheService.filter(filterType, filterValue, subFilter));
+                }
+                result.sessionIds.add(session.getId());
+                matches = List.copyOf(result.current.values());
+                streamSnapshot(session, key, matches);
+            }
+            break;
+        }
+        subscriptions.computeIfAbsent(session.getId(), id -> ConcurrentHashMap.newKeySet()).add(key);
+
         sendMessage(session, Map.of(
             "type", "subscriptionConfirmed",
+            "subscriptionId", key,
             "filterType", filterType,
             "filterValue", filterValue,
-            "count", 0 // Mock count
+            "count", matches.size()
         ));
     }
 
+    // Stream the initial result set in chunks so large filters don't produce one huge frame
+    private void streamSnapshot(WebSocketSession session, String key, List<Instrument> matches) throws Exception {
+        int chunks = Math.max(1, (matches.size() + chunkSize - 1) / chunkSize);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = chunk * chunkSize;
+            int to = Math.min(matches.size(), from + chunkSize);
+            Map<String, Object> message = new LinkedHashMap<>();
+            message.put("type", "instrumentSnapshot");
+            message.put("subscriptionId", key);
+            message.put("chunk", chunk);
+            message.put("chunks", chunks);
+            message.put("data", matches.subList(from, to));
+            sendMessage(session, message);
+        }
+    }
+
+    private static Map<Long, Instrument> index(List<Instrument> instruments) {
+        Map<Long, Instrument> byToken = new LinkedHashMap<>(instruments.size() * 2);
+        for (Instrument instrument : instruments) {
+            byToken.put(instrument.getInstrumentToken(), instrument);
+        }
+        return byToken;
+    }
+
+    private void handleUnsubscribe(WebSocketSession session, Map<String, Object> request) throws Exception {
+        String key = (String) request.get("subscriptionId");
+        if (key == null) {
+            key = subscriptionKey((String) request.getOrDefault("filterType", "all"),
+                    (String) request.getOrDefault("filterValue", ""),
+                    (String) request.getOrDefault("subFilter", ""));
+        }
+        Set<String> sessionSubscriptions = subscriptions.get(session.getId());
+        boolean removed = sessionSubscriptions != null && sessionSubscriptions.remove(key);
+        if (removed) {
+            leave(session.getId(), key);
+        }
+        sendMessage(session, Map.of("type", "unsubscribed", "subscriptionId", key, "removed", removed));
+    }
+
     private void handleGetMetadata(WebSocketSession session, Map<String, Object> request) throws Exception {
         String metadataType = (String) request.get("metadataType");
-        
+
         log.info("Metadata request from {}: {}", session.getId(), metadataType);
-        
+
         // Use reactive service to get metadata
         switch (metadataType) {
             case "exchanges":
@@ -115,7 +240,7 @@ public class InstrumentWebSocketHandler extends TextWebSocketHandler {
                         try {
                             sendMessage(session, Map.of(
                                 "type", "metadata",
-                                "metadataType", "underlyings", 
+                                "metadataType", "underlyings",
                                 "data", underlyings
                             ));
                         } catch (Exception e) {
@@ -128,9 +253,108 @@ public class InstrumentWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    private void leave(String sessionId, String key) {
+        FilterResult result = results.get(key);
+        if (result == null) {
+            return;
+        }
+        synchronized (result) {
+            result.sessionIds.remove(sessionId);
+            if (result.sessionIds.isEmpty() && !result.closed) {
+                result.closed = true;
+                results.remove(key, result);
+            }
+        }
+    }
+
+    /**
+     * Runs after {@link InstrumentCacheService} has rebuilt its snapshot and pushes the
+     * difference between each filter's previous and new result set to its subscribers.
+     */
+    @EventListener
+    public void onInstrumentsRefreshed(InstrumentsRefreshedEvent event) {
+        for (FilterResult result : results.values()) {
+            try {
+                pushDelta(result);
+            } catch (Exception e) {
+                log.error("Error sending instrument delta for {}: {}", result.key, e.getMessage());
+            }
+        }
+    }
+
+    private void pushDelta(FilterResult result) throws Exception {
+        synchronized (result) {
+            if (result.closed || result.current == null) {
+                return;
+            }
+            Map<Long, Instrument> previous = result.current;
+            Map<Long, Instrument> next = index(instrumentCacheService.filter(
+                    result.filterType, result.filterValue, result.subFilter));
+            result.current = next;
+            String delta = delta(result.key, previous, next);
+            if (delta == null) {
+                return;
+            }
+            TextMessage message = new TextMessage(delta);
+            for (String sessionId : result.sessionIds) {
+                WebSocketSession session = sessions.get(sessionId);
+                if (session == null || !session.isOpen()) {
+                    continue;
+                }
+                try {
+                    session.sendMessage(message);
+                } catch (Exception e) {
+                    log.error("Error sending instrument delta to {}: {}", sessionId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * The JSON delta between two result sets, or null when nothing changed.
+     */
+    private String delta(String key, Map<Long, Instrument> previous, Map<Long, Instrument> next) throws Exception {
+        List<Instrument> added = new ArrayList<>();
+        List<Instrument> updated = new ArrayList<>();
+
+        for (Instrument instrument : next.values()) {
+            Long token = instrument.getInstrumentToken();
+            Instrument before = previous.get(token);
+            if (before == null) {
+                added.add(instrument);
+            } else if (!Objects.equals(before, instrument)) {
+                updated.add(instrument);
+            }
+        }
+        List<Long> removed = new ArrayList<>();
+        for (Long token : previous.keySet()) {
+            if (!next.containsKey(token)) {
+                removed.add(token);
+            }
+        }
+        if (added.isEmpty() && updated.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+        log.debug("Instrument delta for {}: +{} ~{} -{}", key, added.size(), updated.size(), removed.size());
+
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "instrumentDelta");
+        message.put("subscriptionId", key);
+        message.put("added", added);
+        message.put("updated", updated);
+        message.put("removed", removed);
+        message.put("count", next.size());
+        return objectMapper.writeValueAsString(message);
+    }
+
+    private static String subscriptionKey(String filterType, String filterValue, String subFilter) {
+        return filterType + ":" + (filterValue == null ? "" : filterValue) + ":" + (subFilter == null ? "" : subFilter);
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         sessions.remove(session.getId());
+        release(session.getId());
         log.info("Instrument WebSocket connection closed: {} ({})", session.getId(), status);
     }
 
@@ -138,13 +362,25 @@ public class InstrumentWebSocketHandler extends TextWebSocketHandler {
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         log.error("Instrument WebSocket transport error for {}: {}", session.getId(), exception.getMessage());
         sessions.remove(session.getId());
+        release(session.getId());
+    }
+
+    private void release(String sessionId) {
+        Set<String> keys = subscriptions.remove(sessionId);
+        if (keys != null) {
+            keys.forEach(key -> leave(sessionId, key));
+        }
+    }
+
+    int getFilterResultCount() {
+        return results.size();
     }
 
     private void sendMessage(WebSocketSession session, Map<String, Object> message) throws Exception {
         if (session.isOpen()) {
             String json = objectMapper.writeValueAsString(message);
             session.sendMessage(new TextMessage(json));
-            log.debug("Sent message to {}: {}", session.getId(), json);
+            log.debug("Sent message to {}: {} bytes", session.getId(), json.length());
         }
     }
 
@@ -159,12 +395,12 @@ public class InstrumentWebSocketHandler extends TextWebSocketHandler {
             log.error("Error serializing broadcast message: {}", e.getMessage());
             return;
         }
-        
+
         sessions.values().removeIf(session -> {
             if (!session.isOpen()) {
                 return true; // Remove closed sessions
             }
-            
+
             try {
                 session.sendMessage(new TextMessage(json));
                 return false; // Keep open sessions
@@ -174,4 +410,4 @@ public class InstrumentWebSocketHandler extends TextWebSocketHandler {
             }
         });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,174 @@
+package org.mandrin.rain.broker.websocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal append-only JSON writer over a growable byte array, for messages whose shape is
+ * known up front. Callers write structure and pre-encoded field names with {@link #raw};
+ * this class only formats values.
+ *
+ * Doubles with at most four decimals and a magnitude below 1e11, which covers prices,
+ * changes and percentages, are formatted from a scaled long without creating a String.
+ * They read back to the same double as {@link Double#toString}; other values fall back
+ * to it. Strings are escaped to ASCII.
+ */
+final class JsonByteWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final long DECIMAL_SCALE = 10_000L;
+    private static final double FAST_DOUBLE_LIMIT = 1e11;
+
+    private byte[] bytes;
+    private int count;
+    private final byte[] digits = new byte[20];
+
+    JsonByteWriter(int initialCapacity) {
+        bytes = new byte[initialCapacity];
+    }
+
+    static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    void reset() {
+        count = 0;
+    }
+
+    int size() {
+        return count;
+    }
+
+    byte[] array() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, count, StandardCharsets.US_ASCII);
+    }
+
+    JsonByteWriter raw(byte[] value) {
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, bytes, count, value.length);
+        count += value.length;
+        return this;
+    }
+
+    JsonByteWriter raw(char c) {
+        ensureCapacity(1);
+        bytes[count++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Skip four bytes for a big-endian length filled in later with {@link #putInt}.
+     *
+     * @return position of the reserved bytes
+     */
+    int reserveInt() {
+        ensureCapacity(4);
+        int position = count;
+        count += 4;
+        return position;
+    }
+
+    void putInt(int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position + 1] = (byte) (value >>> 16);
+        bytes[position + 2] = (byte) (value >>> 8);
+        bytes[position + 3] = (byte) value;
+    }
+
+    JsonByteWriter number(long value) {
+        if (value == Long.MIN_VALUE) {
+            return asciiString(Long.toString(value));
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            bytes[count++] = '-';
+            value = -value;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (n > 0) {
+            bytes[count++] = digits[--n];
+        }
+        return this;
+    }
+
+    JsonByteWriter number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // Same as Jackson's default, which quotes non-finite numbers
+            raw('"');
+            asciiString(Double.toString(value));
+            return raw('"');
+        }
+        long scaled = Math.round(value * DECIMAL_SCALE);
+        if (Math.abs(value) >= FAST_DOUBLE_LIMIT || scaled / (double) DECIMAL_SCALE != value) {
+            return asciiString(Double.toString(value));
+        }
+        if (scaled < 0) {
+            raw('-');
+            scaled = -scaled;
+        }
+        number(scaled / DECIMAL_SCALE);
+        raw('.');
+        long fraction = scaled % DECIMAL_SCALE;
+        if (fraction == 0) {
+            return raw('0');
+        }
+        ensureCapacity(4);
+        long unit = DECIMAL_SCALE / 10;
+        while (fraction != 0) {
+            bytes[count++] = (byte) ('0' + fraction / unit);
+            fraction %= unit;
+            unit /= 10;
+        }
+        return this;
+    }
+
+    JsonByteWriter string(String value) {
+        ensureCapacity(value.length() + 2);
+        bytes[count++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x7f && c != '"' && c != '\\') {
+                ensureCapacity(1);
+                bytes[count++] = (byte) c;
+            } else if (c == '"' || c == '\\') {
+                ensureCapacity(2);
+                bytes[count++] = '\\';
+                bytes[count++] = (byte) c;
+            } else {
+                ensureCapacity(6);
+                bytes[count++] = '\\';
+                bytes[count++] = 'u';
+                bytes[count++] = HEX[(c >> 12) & 0xf];
+                bytes[count++] = HEX[(c >> 8) & 0xf];
+                bytes[count++] = HEX[(c >> 4) & 0xf];
+                bytes[count++] = HEX[c & 0xf];
+            }
+        }
+        ensureCapacity(1);
+        bytes[count++] = '"';
+        return this;
+    }
+
+    private JsonByteWriter asciiString(String value) {
+        ensureCapacity(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            bytes[count++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (count + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(count + extra, bytes.length * 2));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.mandrin.rain.broker.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.TradeOrder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes order status changes to connected clients on /ws/orders, so the UI can follow
+ * an accepted order through to its broker status without polling.
+ *
+ * Sessions are grouped by the access token copied from the HTTP session during the
+ * handshake, and each order is sent only to the sessions of the token that placed it.
+ * Connections without a token are closed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderWebSocketHandler extends TextWebSocketHandler {
+
+    private static final int SEND_TIME_LIMIT_MS = 5_000;
+    private static final int SEND_BUFFER_LIMIT_BYTES = 512 * 1024;
+
+    private final ObjectMapper objectMapper;
+    // access token -> session id -> session
+    private final Map<String, Map<String, WebSocketSession>> sessionsByToken = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String accessToken = accessToken(session);
+        if (accessToken == null) {
+            log.warn("Order WebSocket {} rejected: no access token in session", session.getId());
+            session.close(CloseStatus.POLICY_VIOLATION.withReason(ApiConstants.NOT_AUTHENTICATED_MSG));
+            return;
+        }
+
+        // Order updates arrive from broker callback threads, so sends must be serialized
+        WebSocketSession concurrentSession =
+                new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT_BYTES);
+        sessionsByToken.computeIfAbsent(accessToken, k -> new ConcurrentHashMap<>())
+                .put(session.getId(), concurrentSession);
+        log.info("Order WebSocket connection established: {}", session.getId());
+        concurrentSession.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
+            ApiConstants.WS_MESSAGE_TYPE, ApiConstants.WS_MESSAGE_CONNECTION,
+            ApiConstants.RESPONSE_KEY_STATUS, ApiConstants.STATUS_CONNECTED,
+            "endpoint", "orders"
+        ))));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        release(session);
+        log.info("Order WebSocket connection closed: {} ({})", session.getId(), status);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+        log.error("Order WebSocket transport error for {}: {}", session.getId(), exception.getMessage());
+        release(session);
+    }
+
+    /**
+     * Send the current state of an order to the clients of the access token that placed it.
+     * Orders without a known owner, e.g. placed from Kite web, are not pushed.
+     */
+    public void broadcastOrderUpdate(String accessToken, TradeOrder order) {
+        Map<String, WebSocketSession> sessions = accessToken != null ? sessionsByToken.get(accessToken) : null;
+        if (sessions == null || sessions.isEmpty()) {
+            return;
+        }
+
+        String message;
+        try {
+            message = objectMapper.writeValueAsString(Map.of(
+                ApiConstants.WS_MESSAGE_TYPE, ApiConstants.WS_MESSAGE_ORDER,
+                ApiConstants.WS_MESSAGE_DATA, order
+            ));
+        } catch (Exception e) {
+            log.error("Error serializing order update for {}: {}", order.getClientOrderId(), e.getMessage());
+            return;
+        }
+
+        sessions.values().removeIf(session -> {
+            if (!session.isOpen()) {
+                return true;
+            }
+            try {
+                session.sendMessage(new TextMessage(message));
+                return false;
+            } catch (Exception e) {
+                log.error("Error sending order update to session {}: {}", session.getId(), e.getMessage());
+                return true;
+            }
+        });
+    }
+
+    public int getActiveSessionCount() {
+        return sessionsByToken.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private void release(WebSocketSession session) {
+        String accessToken = accessToken(session);
+        if (accessToken != null) {
+            sessionsByToken.computeIfPresent(accessToken, (k, sessions) -> {
+                sessions.remove(session.getId());
+                return sessions.isEmpty() ? null : sessions;
+            });
+        }
+    }
+
+    private static String accessToken(WebSocketSession session) {
+        return (String) session.getAttributes().get(ApiConstants.KITE_ACCESS_TOKEN_SESSION);
+    }
+}
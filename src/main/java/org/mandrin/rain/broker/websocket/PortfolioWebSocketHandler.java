@@ -0,0 +1,148 @@
+package org.mandrin.rain.broker.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.PortfolioUpdate;
+import org.mandrin.rain.broker.service.LivePortfolioService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams live portfolio P&L on /ws/portfolio.
+ *
+ * A client receives a full snapshot once its portfolio is loaded and then, every push
+ * interval, only the positions that moved. Sessions are grouped by access token, copied
+ * from the HTTP session during the handshake, so each account's book is drained once per
+ * interval however many tabs are open.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PortfolioWebSocketHandler extends TextWebSocketHandler {
+
+    private static final int SEND_TIME_LIMIT_MS = 5_000;
+    private static final int SEND_BUFFER_LIMIT_BYTES = 512 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final LivePortfolioService livePortfolioService;
+
+    // access token -> session id -> session
+    private final Map<String, Map<String, WebSocketSession>> sessionsByToken = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String accessToken = accessToken(session);
+        if (accessToken == null) {
+            log.warn("Portfolio WebSocket {} rejected: no access token in session", session.getId());
+            session.close(CloseStatus.POLICY_VIOLATION.withReason(ApiConstants.NOT_AUTHENTICATED_MSG));
+            return;
+        }
+
+        // Snapshots arrive on a reactor thread while pushes run on the scheduler
+        WebSocketSession concurrentSession =
+                new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT_BYTES);
+        sessionsByToken.computeIfAbsent(accessToken, k -> new ConcurrentHashMap<>())
+                .put(session.getId(), concurrentSession);
+        log.info("Portfolio WebSocket connection established: {}", session.getId());
+
+        livePortfolioService.attach(accessToken).subscribe(
+                snapshot -> send(concurrentSession, toMessage(snapshot)),
+                error -> send(concurrentSession, errorMessage("Failed to load portfolio: " + error.getMessage())));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        release(session);
+        log.info("Portfolio WebSocket connection closed: {} ({})", session.getId(), status);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+        log.error("Portfolio WebSocket transport error for {}: {}", session.getId(), exception.getMessage());
+        release(session);
+    }
+
+    /**
+     * Push positions that moved since the previous run to every client of their account.
+     */
+    @Scheduled(fixedDelayString = "${portfolio.live.push-interval-ms:500}")
+    public void pushUpdates() {
+        sessionsByToken.forEach((accessToken, sessions) -> {
+            PortfolioUpdate update = livePortfolioService.drainChanges(accessToken);
+            if (update == null) {
+                return;
+            }
+            String message = toMessage(update);
+            if (message == null) {
+                return;
+            }
+            sessions.values().forEach(session -> send(session, message));
+        });
+    }
+
+    public int getActiveSessionCount() {
+        return sessionsByToken.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private void release(WebSocketSession session) {
+        String accessToken = accessToken(session);
+        if (accessToken == null) {
+            return;
+        }
+        Map<String, WebSocketSession> remaining = sessionsByToken.computeIfPresent(accessToken, (k, sessions) -> {
+            sessions.remove(session.getId());
+            return sessions.isEmpty() ? null : sessions;
+        });
+        if (remaining == null) {
+            livePortfolioService.detach(accessToken);
+        }
+    }
+
+    private static String accessToken(WebSocketSession session) {
+        return (String) session.getAttributes().get(ApiConstants.KITE_ACCESS_TOKEN_SESSION);
+    }
+
+    private String toMessage(PortfolioUpdate update) {
+        try {
+            return objectMapper.writeValueAsString(Map.of(
+                ApiConstants.WS_MESSAGE_TYPE, ApiConstants.WS_MESSAGE_PORTFOLIO,
+                ApiConstants.WS_MESSAGE_DATA, update
+            ));
+        } catch (Exception e) {
+            log.error("Error serializing portfolio update: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String errorMessage(String message) {
+        try {
+            return objectMapper.writeValueAsString(Map.of(
+                ApiConstants.WS_MESSAGE_TYPE, ApiConstants.STATUS_ERROR,
+                ApiConstants.RESPONSE_KEY_MESSAGE, message
+            ));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void send(WebSocketSession session, String message) {
+        if (message == null || !session.isOpen()) {
+            return;
+        }
+        try {
+            session.sendMessage(new TextMessage(message));
+        } catch (Exception e) {
+            log.error("Error sending portfolio update to session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
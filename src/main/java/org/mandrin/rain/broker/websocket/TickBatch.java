@@ -0,0 +1,95 @@
+package org.mandrin.rain.broker.websocket;
+
+import org.mandrin.rain.broker.model.MarketTick;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.mandrin.rain.broker.websocket.JsonByteWriter.ascii;
+
+/**
+ * Ticks accumulated for the next /ws/ticker frame.
+ *
+ * In {@link Format#JSON} the frame is a text message
+ * {@code {"type":"ticker_batch","data":[tick, ...]}}. In {@link Format#BINARY} it is a binary
+ * message of length-prefixed records: a four-byte big-endian length followed by that many
+ * bytes of one tick's JSON {@code data} object. Either way each tick is encoded once, as it
+ * is added, by the same writer that produces single-tick messages.
+ */
+final class TickBatch {
+
+    enum Format {
+        JSON, BINARY;
+
+        static Format parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * A drained frame and the receipt time of the oldest tick in it.
+     */
+    record Frame(WebSocketMessage<?> message, long oldestReceivedNanos) {
+    }
+
+    private static final byte[] JSON_START = ascii("{\"type\":\"ticker_batch\",\"data\":[");
+    private static final byte[] JSON_END = ascii("]}");
+    private static final int INITIAL_BUFFER = 16 * 1024;
+
+    private final Format format;
+    private final JsonByteWriter buffer = new JsonByteWriter(INITIAL_BUFFER);
+    private int size;
+    private long oldestReceivedNanos;
+
+    TickBatch(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Append a tick.
+     *
+     * @return number of ticks now waiting
+     */
+    synchronized int add(MarketTick tick) {
+        if (size == 0) {
+            oldestReceivedNanos = tick.getReceivedNanos();
+        }
+        if (format == Format.JSON) {
+            if (size == 0) {
+                buffer.raw(JSON_START);
+            } else {
+                buffer.raw(',');
+            }
+            TickMessageWriter.writeData(buffer, tick);
+        } else {
+            int lengthAt = buffer.reserveInt();
+            int start = buffer.size();
+            TickMessageWriter.writeData(buffer, tick);
+            buffer.putInt(lengthAt, buffer.size() - start);
+        }
+        return ++size;
+    }
+
+    /**
+     * Frame carrying every tick added since the previous drain, or null if there are none.
+     */
+    synchronized Frame drain() {
+        if (size == 0) {
+            return null;
+        }
+        WebSocketMessage<?> message;
+        if (format == Format.JSON) {
+            buffer.raw(JSON_END);
+            message = new TextMessage(buffer.toString());
+        } else {
+            message = new BinaryMessage(Arrays.copyOf(buffer.array(), buffer.size()));
+        }
+        Frame frame = new Frame(message, oldestReceivedNanos);
+        buffer.reset();
+        size = 0;
+        return frame;
+    }
+}
@@ -0,0 +1,125 @@
+package org.mandrin.rain.broker.websocket;
+
+import org.mandrin.rain.broker.model.MarketTick;
+
+import static org.mandrin.rain.broker.websocket.JsonByteWriter.ascii;
+
+/**
+ * Serializes {@link MarketTick}s into /ws/ticker messages ({@code {"type":"ticker","data":{...}}}).
+ *
+ * The layout is fixed, so the writer appends pre-encoded field names and structural bytes
+ * straight into a per-thread byte buffer and only formats values; there is no reflection,
+ * generator state or intermediate String per field. Field names and nesting are the ones
+ * ticker.js reads.
+ */
+public class TickMessageWriter {
+
+    private static final byte[] MESSAGE_START = ascii("{\"type\":\"ticker\",\"data\":");
+    private static final byte[] INSTRUMENT_TOKEN = ascii("{\"instrumentToken\":");
+    private static final byte[] TRADINGSYMBOL = ascii(",\"tradingsymbol\":");
+    private static final byte[] EXCHANGE = ascii(",\"exchange\":");
+    private static final byte[] MODE = ascii(",\"mode\":");
+    private static final byte[] LAST_PRICE = ascii(",\"lastPrice\":");
+    private static final byte[] LAST_QUANTITY = ascii(",\"lastQuantity\":");
+    private static final byte[] AVERAGE_PRICE = ascii(",\"averagePrice\":");
+    private static final byte[] VOLUME_TRADED = ascii(",\"volumeTraded\":");
+    private static final byte[] BUY_QUANTITY = ascii(",\"buyQuantity\":");
+    private static final byte[] SELL_QUANTITY = ascii(",\"sellQuantity\":");
+    private static final byte[] OHLC_OPEN = ascii(",\"ohlc\":{\"open\":");
+    private static final byte[] HIGH = ascii(",\"high\":");
+    private static final byte[] LOW = ascii(",\"low\":");
+    private static final byte[] CLOSE = ascii(",\"close\":");
+    private static final byte[] NET_CHANGE = ascii("},\"netChange\":");
+    private static final byte[] CHANGE_PERCENT = ascii(",\"changePercent\":");
+    private static final byte[] OI = ascii(",\"oi\":");
+    private static final byte[] TIMESTAMP = ascii(",\"timestamp\":");
+    private static final byte[] RECEIVED_AT = ascii(",\"receivedAt\":");
+    private static final byte[] DEPTH_BUY = ascii(",\"depth\":{\"buy\":[");
+    private static final byte[] DEPTH_SELL = ascii("],\"sell\":[");
+    private static final byte[] DEPTH_END = ascii("]}");
+    private static final byte[] LEVEL_PRICE = ascii("{\"price\":");
+    private static final byte[] LEVEL_QUANTITY = ascii(",\"quantity\":");
+    private static final byte[] LEVEL_ORDERS = ascii(",\"orders\":");
+
+    private static final int INITIAL_BUFFER = 1024;
+
+    private final ThreadLocal<JsonByteWriter> buffers = ThreadLocal.withInitial(() -> new JsonByteWriter(INITIAL_BUFFER));
+
+    /**
+     * Encode a tick as a complete /ws/ticker message.
+     */
+    public String write(MarketTick tick) {
+        return encodeInto(tick).toString();
+    }
+
+    /**
+     * Encode a tick into the calling thread's buffer and return its length in bytes.
+     * The bytes stay valid until the same thread encodes again.
+     */
+    public int encode(MarketTick tick) {
+        return encodeInto(tick).size();
+    }
+
+    private JsonByteWriter encodeInto(MarketTick tick) {
+        JsonByteWriter out = buffers.get();
+        out.reset();
+        out.raw(MESSAGE_START);
+        writeData(out, tick);
+        out.raw('}');
+        return out;
+    }
+
+    /**
+     * Append the tick's {@code data} object.
+     */
+    static void writeData(JsonByteWriter out, MarketTick tick) {
+        out.raw(INSTRUMENT_TOKEN).number(tick.getInstrumentToken());
+        if (tick.getTradingsymbol() != null) {
+            out.raw(TRADINGSYMBOL).string(tick.getTradingsymbol());
+        }
+        if (tick.getExchange() != null) {
+            out.raw(EXCHANGE).string(tick.getExchange());
+        }
+        if (tick.getMode() != null) {
+            out.raw(MODE).string(tick.getMode());
+        }
+        out.raw(LAST_PRICE).number(tick.getLastPrice());
+        out.raw(LAST_QUANTITY).number(tick.getLastQuantity());
+        out.raw(AVERAGE_PRICE).number(tick.getAveragePrice());
+        out.raw(VOLUME_TRADED).number(tick.getVolumeTraded());
+        out.raw(BUY_QUANTITY).number(tick.getBuyQuantity());
+        out.raw(SELL_QUANTITY).number(tick.getSellQuantity());
+        out.raw(OHLC_OPEN).number(tick.getOpen());
+        out.raw(HIGH).number(tick.getHigh());
+        out.raw(LOW).number(tick.getLow());
+        out.raw(CLOSE).number(tick.getClose());
+        out.raw(NET_CHANGE).number(tick.getNetChange());
+        out.raw(CHANGE_PERCENT).number(tick.getChangePercent());
+        out.raw(OI).number(tick.getOi());
+        out.raw(TIMESTAMP).number(tick.getTimestamp());
+        if (tick.getReceivedAt() > 0) {
+            out.raw(RECEIVED_AT).number(tick.getReceivedAt());
+        }
+        int levels = tick.getDepthLevels();
+        if (levels > 0) {
+            out.raw(DEPTH_BUY);
+            writeSide(out, levels, tick.getBidPrices(), tick.getBidQuantities(), tick.getBidOrders());
+            out.raw(DEPTH_SELL);
+            writeSide(out, levels, tick.getAskPrices(), tick.getAskQuantities(), tick.getAskOrders());
+            out.raw(DEPTH_END);
+        }
+        out.raw('}');
+    }
+
+    private static void writeSide(JsonByteWriter out, int levels, double[] prices, long[] quantities, int[] orders) {
+        for (int i = 0; i < levels; i++) {
+            if (i > 0) {
+                out.raw(',');
+            }
+            out.raw(LEVEL_PRICE).number(prices[i]);
+            out.raw(LEVEL_QUANTITY).number(quantities[i]);
+            out.raw(LEVEL_ORDERS).number(orders[i]);
+            out.raw('}');
+        }
+    }
+}
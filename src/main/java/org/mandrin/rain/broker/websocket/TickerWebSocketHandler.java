@@ -1,31 +1,116 @@
 package org.mandrin.rain.broker.websocket;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.MarketTick;
+import org.mandrin.rain.broker.service.TickLatencyTracker;
+import org.mandrin.rain.broker.service.TickLatencyTracker.Stage;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.io.IOException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.Map;
 
+/**
+ * Fans market ticks out to /ws/ticker clients.
+ *
+ * By default every tick is its own text frame. With {@code ticker.ws.batch.enabled} ticks
+ * are collected into one frame per {@code ticker.ws.batch.flush-interval-ms}, or sooner once
+ * {@code ticker.ws.batch.max-size} are waiting, trading a few milliseconds of latency for
+ * far fewer frames per client. See {@link TickBatch} for the JSON and binary layouts. The
+ * flush runs on its own thread rather than the shared Spring scheduler, so a slow status
+ * poll or write-behind flush cannot hold ticks back.
+ *
+ * Serialization and socket write times are recorded by {@link TickLatencyTracker}. With
+ * {@code ticker.latency.echo.enabled} the welcome message asks browsers to echo an occasional
+ * rendered tick back, which closes the loop from feed receipt to the screen.
+ *
+ * Ticks are published from several threads at once (the Kite reader, synthetic generator
+ * workers, the batch flusher), so every session is wrapped in a
+ * {@link ConcurrentWebSocketSessionDecorator}; a client that cannot keep up within the
+ * send limits is closed instead of stalling the publishers.
+ */
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class TickerWebSocketHandler extends TextWebSocketHandler {
 
+    // Echoes claiming more than this are ignored
+    private static final long MAX_ECHO_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int SEND_TIME_LIMIT_MS = 5_000;
+    private static final int SEND_BUFFER_LIMIT_BYTES = 512 * 1024;
+
     private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TickMessageWriter tickWriter = new TickMessageWriter();
+    private final TickLatencyTracker latency;
+
+    @Value("${ticker.ws.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${ticker.ws.batch.max-size:200}")
+    private int batchMaxSize = 200;
+
+    @Value("${ticker.ws.batch.flush-interval-ms:50}")
+    private long flushIntervalMs = 50;
+
+    @Value("${ticker.ws.batch.format:json}")
+    private String batchFormat = "json";
+
+    @Value("${ticker.latency.echo.enabled:false}")
+    private boolean latencyEcho;
+
+    // Null unless batching is enabled
+    private TickBatch batch;
+    private ScheduledExecutorService flusher;
+    // Serializes draining and sending so batches reach clients in order
+    private final Object flushLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        if (batchEnabled) {
+            batch = new TickBatch(TickBatch.Format.parse(batchFormat));
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ticker-batch-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::scheduledFlush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            log.info("Ticker frames batched as {} with up to {} ticks per frame, flushed every {} ms",
+                    batchFormat, batchMaxSize, flushIntervalMs);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.put(session.getId(), session);
+        WebSocketSession concurrentSession =
+                new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT_BYTES);
+        sessions.put(session.getId(), concurrentSession);
         log.info("WebSocket connection established: {}", session.getId());
         
         // Send welcome message
-        sendMessage(session, Map.of("type", "connection", "status", "connected"));
+        sendMessage(concurrentSession, Map.of("type", "connection", "status", "connected", "latencyEcho", latencyEcho));
     }
 
     @Override
@@ -37,7 +122,32 @@ public class TickerWebSocketHandler extends TextWebSocketHandler {
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         log.debug("Received message from {}: {}", session.getId(), message.getPayload());
-        // Handle incoming messages from frontend if needed
+        if (latencyEcho && message.getPayload().contains(ApiConstants.WS_MESSAGE_LATENCY_ECHO)) {
+            recordEcho(session, message.getPayload());
+        }
+    }
+
+    /**
+     * A browser's echo of a rendered tick: {@code {"type":"latency_echo","receivedAt":..,"renderMs":..}},
+     * where receivedAt is the tick's own field and renderMs the browser's arrival-to-paint time.
+     */
+    private void recordEcho(WebSocketSession session, String payload) {
+        try {
+            JsonNode echo = objectMapper.readTree(payload);
+            if (!ApiConstants.WS_MESSAGE_LATENCY_ECHO.equals(echo.path(ApiConstants.WS_MESSAGE_TYPE).asText())) {
+                return;
+            }
+            long sinceReceipt = System.currentTimeMillis() - echo.path("receivedAt").asLong(0);
+            if (sinceReceipt <= MAX_ECHO_MILLIS) {
+                latency.record(Stage.RECEIVE_TO_BROWSER_ECHO, TimeUnit.MILLISECONDS.toNanos(sinceReceipt));
+            }
+            double renderMs = echo.path("renderMs").asDouble(-1);
+            if (renderMs >= 0 && renderMs <= MAX_ECHO_MILLIS) {
+                latency.record(Stage.BROWSER_RENDER, (long) (renderMs * 1_000_000));
+            }
+        } catch (Exception e) {
+            log.debug("Ignoring malformed latency echo from {}: {}", session.getId(), e.getMessage());
+        }
     }
 
     @Override
@@ -46,35 +156,37 @@ public class TickerWebSocketHandler extends TextWebSocketHandler {
         sessions.remove(session.getId());
     }
 
-    public void broadcastTickerData(Object tickerData) {
+    /**
+     * Broadcast a typed tick. The message is encoded once by the streaming writer and the
+     * same frame is sent to every session; the tick is not retained. When batching, the
+     * encoded tick waits for the next flush instead.
+     */
+    public void broadcastTick(MarketTick tick) {
         if (sessions.isEmpty()) {
             return;
         }
+        long start = System.nanoTime();
+        if (batch != null) {
+            int pending = batch.add(tick);
+            latency.record(Stage.SERIALIZE, System.nanoTime() - start);
+            if (pending >= batchMaxSize) {
+                flushBatch();
+            }
+            return;
+        }
 
         String message;
         try {
-            message = objectMapper.writeValueAsString(Map.of(
-                "type", "ticker",
-                "data", tickerData
-            ));
+            message = tickWriter.write(tick);
         } catch (Exception e) {
-            log.error("Error serializing ticker data", e);
+            log.error("Error serializing tick for {}", tick.getInstrumentToken(), e);
             return;
         }
-
-        sessions.values().removeIf(session -> {
-            try {
-                if (session.isOpen()) {
-                    session.sendMessage(new TextMessage(message));
-                    return false;
-                } else {
-                    return true;
-                }
-            } catch (IOException e) {
-                log.error("Error sending message to session {}: {}", session.getId(), e.getMessage());
-                return true;
-            }
-        });
+        long encoded = System.nanoTime();
+        latency.record(Stage.SERIALIZE, encoded - start);
+        broadcast(message);
+        latency.record(Stage.SOCKET_WRITE, System.nanoTime() - encoded);
+        latency.recordSince(Stage.RECEIVE_TO_WRITE, tick.getReceivedNanos());
     }
 
     private void sendMessage(WebSocketSession session, Object data) {
@@ -90,16 +202,49 @@ public class TickerWebSocketHandler extends TextWebSocketHandler {
         return sessions.size();
     }
 
+    /**
+     * Send the ticks waiting in the batch as one frame. Receive-to-write latency is taken
+     * from the oldest tick in the frame.
+     */
+    public void flushBatch() {
+        if (batch == null) {
+            return;
+        }
+        synchronized (flushLock) {
+            TickBatch.Frame frame = batch.drain();
+            if (frame != null) {
+                long start = System.nanoTime();
+                send(frame.message());
+                latency.record(Stage.SOCKET_WRITE, System.nanoTime() - start);
+                latency.recordSince(Stage.RECEIVE_TO_WRITE, frame.oldestReceivedNanos());
+            }
+        }
+    }
+
+    // An exception would cancel the periodic flush, so it is logged and the next flush goes ahead
+    private void scheduledFlush() {
+        try {
+            flushBatch();
+        } catch (RuntimeException e) {
+            log.error("Error flushing ticker batch", e);
+        }
+    }
+
     public void broadcast(String message) {
+        send(new TextMessage(message));
+    }
+
+    private void send(WebSocketMessage<?> frame) {
         sessions.values().removeIf(session -> {
             try {
                 if (session.isOpen()) {
-                    session.sendMessage(new TextMessage(message));
+                    session.sendMessage(frame);
                     return false;
                 } else {
                     return true;
                 }
-            } catch (IOException e) {
+            } catch (Exception e) {
+                // IOException, or the decorator's SessionLimitExceededException for a slow client
                 log.error("Error broadcasting message to session {}: {}", session.getId(), e.getMessage());
                 return true;
             }
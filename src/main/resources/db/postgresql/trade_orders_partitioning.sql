@@ -0,0 +1,79 @@
+-- =============================================================================
+-- Convert trade_orders into a table range-partitioned by month on placed_at.
+--
+-- PostgreSQL 12+. Run once, in a maintenance window, against the production
+-- database. The JPA mapping does not change: Hibernate still sees a table called
+-- trade_orders with the same columns and an id generated by the same sequence.
+-- New monthly partitions are created ahead of time and old ones archived by
+-- TradeOrderPartitionService (orders.partitioning.enabled=true).
+-- =============================================================================
+
+BEGIN;
+
+ALTER TABLE trade_orders RENAME TO trade_orders_unpartitioned;
+ALTER INDEX IF EXISTS trade_orders_pkey RENAME TO trade_orders_unpartitioned_pkey;
+ALTER INDEX IF EXISTS idx_trade_orders_placed_at_id RENAME TO idx_trade_orders_unpartitioned_placed_at_id;
+ALTER INDEX IF EXISTS idx_trade_orders_symbol_placed_at_id RENAME TO idx_trade_orders_unpartitioned_symbol_placed_at_id;
+ALTER INDEX IF EXISTS idx_trade_orders_exchange_placed_at_id RENAME TO idx_trade_orders_unpartitioned_exchange_placed_at_id;
+
+-- The partition key has to be part of the primary key. The default partition only
+-- catches rows outside every monthly range and should stay empty.
+CREATE TABLE trade_orders (
+    id BIGINT NOT NULL DEFAULT nextval('trade_orders_id_seq'),
+    instrument_token BIGINT,
+    tradingsymbol VARCHAR(50),
+    exchange VARCHAR(20),
+    transaction_type VARCHAR(10),
+    quantity INTEGER,
+    price DOUBLE PRECISION,
+    order_id VARCHAR(50),
+    placed_at TIMESTAMP NOT NULL DEFAULT now(),
+    client_order_id VARCHAR(36),
+    status VARCHAR(20),
+    status_message VARCHAR(255),
+    filled_quantity INTEGER,
+    average_price DOUBLE PRECISION,
+    updated_at TIMESTAMP,
+    PRIMARY KEY (id, placed_at)
+) PARTITION BY RANGE (placed_at);
+
+ALTER SEQUENCE trade_orders_id_seq OWNED BY trade_orders.id;
+
+CREATE INDEX idx_trade_orders_placed_at_id ON trade_orders (placed_at DESC, id DESC);
+CREATE INDEX idx_trade_orders_symbol_placed_at_id ON trade_orders (tradingsymbol, placed_at DESC, id DESC);
+CREATE INDEX idx_trade_orders_exchange_placed_at_id ON trade_orders (exchange, placed_at DESC, id DESC);
+
+CREATE TABLE trade_orders_default PARTITION OF trade_orders DEFAULT;
+
+-- One partition per calendar month; safe to call repeatedly
+CREATE OR REPLACE FUNCTION ensure_trade_orders_partition(month_start DATE) RETURNS TEXT AS $$
+DECLARE
+    from_date DATE := date_trunc('month', month_start)::DATE;
+    partition_name TEXT := 'trade_orders_p' || to_char(from_date, 'YYYY_MM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF trade_orders FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, from_date, (from_date + INTERVAL '1 month')::DATE);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions covering existing rows plus the next two months
+SELECT ensure_trade_orders_partition(m::DATE)
+FROM generate_series(
+         date_trunc('month', COALESCE((SELECT min(placed_at) FROM trade_orders_unpartitioned), now())),
+         date_trunc('month', now()) + INTERVAL '2 months',
+         INTERVAL '1 month') AS m;
+
+INSERT INTO trade_orders (id, instrument_token, tradingsymbol, exchange, transaction_type, quantity, price,
+                          order_id, placed_at, client_order_id, status, status_message, filled_quantity,
+                          average_price, updated_at)
+SELECT id, instrument_token, tradingsymbol, exchange, transaction_type, quantity, price,
+       order_id, COALESCE(placed_at, now()), client_order_id, status, status_message, filled_quantity,
+       average_price, updated_at
+FROM trade_orders_unpartitioned;
+
+DROP TABLE trade_orders_unpartitioned;
+
+COMMIT;
+
+ANALYZE trade_orders;
@@ -25,9 +25,20 @@ CREATE TABLE IF NOT EXISTS trade_orders (
     quantity INTEGER,
     price DOUBLE PRECISION,
     order_id VARCHAR(50),
-    placed_at TIMESTAMP
+    placed_at TIMESTAMP,
+    client_order_id VARCHAR(36),
+    status VARCHAR(20),
+    status_message VARCHAR(255),
+    filled_quantity INTEGER,
+    average_price DOUBLE PRECISION,
+    updated_at TIMESTAMP
 );
 
+-- Keyset pagination of order history: ORDER BY placed_at DESC, id DESC with optional filters
+CREATE INDEX IF NOT EXISTS idx_trade_orders_placed_at_id ON trade_orders (placed_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_trade_orders_symbol_placed_at_id ON trade_orders (tradingsymbol, placed_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_trade_orders_exchange_placed_at_id ON trade_orders (exchange, placed_at DESC, id DESC);
+
 CREATE TABLE IF NOT EXISTS subscriptions (
     id BIGSERIAL PRIMARY KEY,
     instrument_token BIGINT UNIQUE,
@@ -38,3 +49,11 @@ CREATE TABLE IF NOT EXISTS subscriptions (
 -- Ensure id columns are BIGINT for JPA/Hibernate compatibility
 ALTER TABLE trade_orders ALTER COLUMN id TYPE bigint;
 ALTER TABLE subscriptions ALTER COLUMN id TYPE bigint;
+
+-- Columns added after the initial release, for databases created by an older schema
+ALTER TABLE trade_orders ADD COLUMN IF NOT EXISTS client_order_id VARCHAR(36);
+ALTER TABLE trade_orders ADD COLUMN IF NOT EXISTS status VARCHAR(20);
+ALTER TABLE trade_orders ADD COLUMN IF NOT EXISTS status_message VARCHAR(255);
+ALTER TABLE trade_orders ADD COLUMN IF NOT EXISTS filled_quantity INTEGER;
+ALTER TABLE trade_orders ADD COLUMN IF NOT EXISTS average_price DOUBLE PRECISION;
+ALTER TABLE trade_orders ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
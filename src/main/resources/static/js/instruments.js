@@ -65,42 +65,43 @@ function setupInstrumentFiltering() {
 function loadAllInstruments() {
     console.info('Loading all available instruments...');
     
-    // Load instruments from all exchanges with multiple types
+    // One cached, compressed catalog per exchange replaces the per-type name lookups
     const exchanges = getConfig('exchanges.defaults', ['NSE', 'BSE']);
     const types = getConfig('instruments.defaultTypes', ['Options']); // Now defaults to Options only
-    
-    const promises = [];
-    
-    exchanges.forEach(exchange => {
-        types.forEach(type => {
-            promises.push(
-                fetch(`/api/instruments/names?exchange=${exchange}&type=${type}`)
-                    .then(r => r.ok ? r.json() : [])
-                    .catch(err => {
-                        console.warn(`Failed to load ${type} instruments from ${exchange}:`, err);
-                        return [];
-                    })
-            );
-        });
-    });
+    const wantsType = type => types.includes(type) ||
+        (types.includes('Options') && (type === 'CE' || type === 'PE'));
+    
+    const promises = exchanges.map(exchange =>
+        fetch(`/api/v2/instruments/catalog/${exchange}`)
+            .then(r => r.ok ? r.json() : null)
+            .catch(err => {
+                console.warn(`Failed to load instrument catalog for ${exchange}:`, err);
+                return null;
+            })
+    );
     
     Promise.all(promises)
-        .then(results => {
+        .then(catalogs => {
             // Combine all instruments
             allInstruments = [];
-            results.forEach((instrumentList) => {
-                instrumentList.forEach(item => {
-                    const instrumentName = item.name || item.tradingsymbol;
-                    // Add type information to the instrument for better identification
+            catalogs.filter(catalog => catalog && catalog.count > 0).forEach(catalog => {
+                const column = name => catalog.data[catalog.columns.indexOf(name)];
+                const tokens = column('instrumentToken');
+                const names = column('name');
+                const symbols = column('tradingsymbol');
+                const instrumentTypes = column('instrumentType');
+                
+                for (let i = 0; i < catalog.count; i++) {
+                    if (!wantsType(instrumentTypes[i])) continue;
+                    const instrumentName = names[i] || symbols[i];
                     allInstruments.push({
                         name: instrumentName,
-                        instrumentToken: item.instrumentToken,
-                        exchange: item.exchange || 'NSE', // Default to NSE if not specified
-                        type: item.instrumentType || 'Unknown'
+                        instrumentToken: tokens[i],
+                        exchange: catalog.exchange,
+                        type: instrumentTypes[i] || 'Unknown'
                     });
-                    // Also update the token map
-                    nameTokenMap[instrumentName] = item.instrumentToken;
-                });
+                    nameTokenMap[instrumentName] = tokens[i];
+                }
             });
             
             console.info(`Loaded ${allInstruments.length} total instruments`);
@@ -275,7 +276,7 @@ function refreshInstruments() {
             }, 5000);
         }
         
-        // Reload all data
+        // Reload all data; a filtered selection is kept current by instrument deltas
         loadTypes();
         loadUnderlyingAssets();
         loadAllInstruments();
@@ -384,51 +385,135 @@ function loadExpiryDates() {
         });
 }
 
+// Filtered lists come from /ws/instruments: a chunked snapshot, then deltas after each refresh
+let instrumentSocket = null;
+let filteredSubscription = null; // { id, request, byToken }
+
+function connectInstrumentSocket() {
+    if (instrumentSocket && instrumentSocket.readyState <= WebSocket.OPEN) return;
+    
+    const wsUrl = getWebSocketUrl('instruments');
+    instrumentSocket = new WebSocket(wsUrl);
+    console.log('Connecting to instrument WebSocket:', wsUrl);
+    instrumentSocket.onopen = () => {
+        console.info('Instrument WebSocket opened');
+        if (filteredSubscription) {
+            instrumentSocket.send(JSON.stringify(filteredSubscription.request));
+        }
+    };
+    instrumentSocket.onmessage = handleInstrumentMessage;
+    instrumentSocket.onclose = () => {
+        console.warn('Instrument WebSocket closed');
+        instrumentSocket = null;
+        // Resubscribe once the server is back; the snapshot replaces whatever was missed
+        if (filteredSubscription) {
+            setTimeout(connectInstrumentSocket, 2000);
+        }
+    };
+}
+
+function handleInstrumentMessage(event) {
+    const message = JSON.parse(event.data);
+    const subscription = filteredSubscription;
+    if (!subscription || message.subscriptionId !== subscription.id) return;
+    
+    if (message.type === 'instrumentSnapshot') {
+        if (message.chunk === 0) {
+            subscription.byToken = new Map();
+        }
+        message.data.forEach(instrument => subscription.byToken.set(instrument.instrumentToken, instrument));
+        if (message.chunk === message.chunks - 1) {
+            renderFilteredInstruments(Array.from(subscription.byToken.values()));
+        }
+    } else if (message.type === 'instrumentDelta') {
+        message.removed.forEach(token => subscription.byToken.delete(token));
+        [...message.added, ...message.updated]
+            .forEach(instrument => subscription.byToken.set(instrument.instrumentToken, instrument));
+        console.debug(`Instrument delta: +${message.added.length} ~${message.updated.length} -${message.removed.length}`);
+        renderFilteredInstruments(Array.from(subscription.byToken.values()));
+    }
+}
+
+function subscribeFilteredInstruments(underlying, expiry) {
+    const request = { action: 'subscribe', filterType: 'underlying', filterValue: underlying, subFilter: expiry || '' };
+    const id = `${request.filterType}:${request.filterValue}:${request.subFilter}`;
+    if (filteredSubscription && filteredSubscription.id === id) return;
+    
+    unsubscribeFilteredInstruments();
+    filteredSubscription = { id, request, byToken: new Map() };
+    if (instrumentSocket && instrumentSocket.readyState === WebSocket.OPEN) {
+        instrumentSocket.send(JSON.stringify(request));
+    } else {
+        // Serve this selection over REST; the socket subscribes as soon as it opens
+        loadFilteredInstrumentsOnce(underlying, expiry, id);
+        connectInstrumentSocket();
+    }
+}
+
+function unsubscribeFilteredInstruments() {
+    if (!filteredSubscription) return;
+    if (instrumentSocket && instrumentSocket.readyState === WebSocket.OPEN) {
+        instrumentSocket.send(JSON.stringify({ action: 'unsubscribe', subscriptionId: filteredSubscription.id }));
+    }
+    filteredSubscription = null;
+}
+
 function loadFilteredInstruments() {
     const underlying = document.getElementById('underlying-select').value;
     const expiry = document.getElementById('expiry-select').value;
     
     if (!underlying) {
         // No underlying selected, load all instruments
+        unsubscribeFilteredInstruments();
         loadAllInstruments();
         return;
     }
     
+    console.info('Loading filtered instruments for', underlying, expiry ? `expiry ${expiry}` : '');
+    subscribeFilteredInstruments(underlying, expiry);
+}
+
+function loadFilteredInstrumentsOnce(underlying, expiry, subscriptionId) {
     let url = `/api/instruments/by-underlying?underlying=${encodeURIComponent(underlying)}`;
     if (expiry) {
         url = `/api/instruments/by-underlying-expiry?underlying=${encodeURIComponent(underlying)}&expiry=${expiry}`;
     }
     
-    console.info('Loading filtered instruments for', underlying, expiry ? `expiry ${expiry}` : '');
-    
     fetch(url)
         .then(r => r.json())
         .then(list => {
             console.debug('Loaded filtered instruments:', list.length, 'items');
-            
-            // Update the datalist with filtered instruments
-            const datalist = document.getElementById('name-list');
-            if (!datalist) return;
-            
-            datalist.innerHTML = '';
-            
-            list.slice(0, getConfig('data.filteredResultsLimit', 50)).forEach(instrument => { // Limit results
-                const option = document.createElement('option');
-                option.value = instrument.name || instrument.tradingsymbol;
-                option.textContent = `${instrument.name || instrument.tradingsymbol} (${instrument.instrumentType || 'Unknown'})`;
-                datalist.appendChild(option);
-                
-                // Update token map
-                nameTokenMap[instrument.name || instrument.tradingsymbol] = instrument.instrumentToken;
-            });
-            
-            console.info(`Populated ${Math.min(50, list.length)} filtered instruments in search dropdown`);
+            // Skip if the selection changed or the socket snapshot already arrived
+            const current = filteredSubscription;
+            if (!current || current.id !== subscriptionId || current.byToken.size > 0) return;
+            renderFilteredInstruments(list);
         })
         .catch(err => {
             console.error('Failed to load filtered instruments:', err);
         });
 }
 
+function renderFilteredInstruments(list) {
+    // Update the datalist with filtered instruments
+    const datalist = document.getElementById('name-list');
+    if (!datalist) return;
+    
+    datalist.innerHTML = '';
+    
+    const limited = list.slice(0, getConfig('data.filteredResultsLimit', 50)); // Limit results
+    limited.forEach(instrument => {
+        const option = document.createElement('option');
+        option.value = instrument.name || instrument.tradingsymbol;
+        option.textContent = `${instrument.name || instrument.tradingsymbol} (${instrument.instrumentType || 'Unknown'})`;
+        datalist.appendChild(option);
+        
+        // Update token map
+        nameTokenMap[instrument.name || instrument.tradingsymbol] = instrument.instrumentToken;
+    });
+    
+    console.info(`Populated ${limited.length} filtered instruments in search dropdown`);
+}
+
 function initializeExchangeDropdown() {
     const exchangeSelect = document.getElementById('exchange-select');
     if (!exchangeSelect) return;
@@ -2,6 +2,10 @@
 // Handles order placement using the values from the subscription dropdowns
 // and quantity/price fields
 
+// Updates that arrived over /ws/orders before the POST response named their order, by clientOrderId
+const earlyOrderUpdates = new Map();
+const MAX_EARLY_ORDER_UPDATES = 50;
+
 function buildOrderPayload() {
     const name = document.getElementById('order-name').value;
     const token = window.nameTokenMap ? window.nameTokenMap[name] : undefined;
@@ -77,16 +81,36 @@ function submitOrder() {
             credentials: 'include',
             body: JSON.stringify(payload)
         })
-        .then(res => res.json())
-        .then(data => {
-            console.debug('Order response', data);
+        .then(res => res.json()
+            .catch(() => ({}))
+            .then(data => ({ status: res.status, ok: res.ok, data })))
+        .then(({ status, ok, data }) => {
+            console.debug('Order response', status, data);
+            if (status === 422) {
+                // Rejected by the pre-trade checks before reaching the broker
+                document.getElementById('order-result').innerHTML = `
+                    <div style="background:#f8d7da;color:#721c24;padding:8px;border-radius:4px;">
+                        ❌ Order rejected: ${data.statusMessage || 'Failed pre-trade checks'}
+                    </div>
+                `;
+                return;
+            }
+            if (!ok) {
+                throw new Error(data.error || data.message || `HTTP ${status}`);
+            }
+            // The order is accepted immediately; the broker outcome arrives over /ws/orders
+            window.pendingOrderId = data.clientOrderId;
             document.getElementById('order-result').innerHTML = `
-                <div style="background:#d4edda;color:#155724;padding:8px;border-radius:4px;">
-                    ✅ Order placed successfully: ${data.orderId}
+                <div style="background:#fff3cd;color:#856404;padding:8px;border-radius:4px;">
+                    ⏳ Order accepted: ${data.clientOrderId}
                 </div>
             `;
-            // Refresh orders list
-            loadOrders();
+            // A fast broker failure can be pushed before this response arrives
+            const early = earlyOrderUpdates.get(data.clientOrderId);
+            if (early) {
+                earlyOrderUpdates.delete(data.clientOrderId);
+                showOrderUpdate(early);
+            }
         })
         .catch(err => {
             console.error('Order failed', err);
@@ -111,16 +135,17 @@ function loadOrders() {
         .then(data => {
             console.debug('Orders loaded', data);
             if (Array.isArray(data) && data.length > 0) {
-                let html = '<table style="width:100%;margin-top:16px;"><tr><th>Order ID</th><th>Symbol</th><th>Type</th><th>Qty</th><th>Price</th><th>Status</th><th>Time</th></tr>';
+                let html = '<table style="width:100%;margin-top:16px;"><tr><th>Order ID</th><th>Symbol</th><th>Type</th><th>Qty</th><th>Filled</th><th>Price</th><th>Status</th><th>Time</th></tr>';
                 data.forEach(order => {
                     html += `<tr>
                         <td>${order.orderId || 'N/A'}</td>
                         <td>${order.tradingsymbol || 'N/A'}</td>
                         <td>${order.transactionType || 'N/A'}</td>
                         <td>${order.quantity || 'N/A'}</td>
-                        <td>${order.price || 'Market'}</td>
+                        <td>${order.filledQuantity != null ? order.filledQuantity : '-'}</td>
+                        <td>${order.averagePrice || order.price || 'Market'}</td>
                         <td>${order.status || 'PENDING'}</td>
-                        <td>${order.timestamp ? new Date(order.timestamp).toLocaleString() : 'N/A'}</td>
+                        <td>${order.placedAt ? new Date(order.placedAt).toLocaleString() : 'N/A'}</td>
                     </tr>`;
                 });
                 html += '</table>';
@@ -135,6 +160,44 @@ function loadOrders() {
         });
 }
 
+function showOrderUpdate(order) {
+    if (!order || order.status === 'ACCEPTED') {
+        return;
+    }
+    if (order.clientOrderId !== window.pendingOrderId) {
+        earlyOrderUpdates.set(order.clientOrderId, order);
+        if (earlyOrderUpdates.size > MAX_EARLY_ORDER_UPDATES) {
+            earlyOrderUpdates.delete(earlyOrderUpdates.keys().next().value);
+        }
+        return;
+    }
+    const failed = order.status === 'FAILED' || order.status === 'REJECTED';
+    document.getElementById('order-result').innerHTML = failed ? `
+        <div style="background:#f8d7da;color:#721c24;padding:8px;border-radius:4px;">
+            ❌ Order failed: ${order.statusMessage || 'Rejected by broker'}
+        </div>
+    ` : `
+        <div style="background:#d4edda;color:#155724;padding:8px;border-radius:4px;">
+            ✅ Order placed successfully: ${order.orderId}
+        </div>
+    `;
+}
+
+function connectOrderSocket() {
+    const protocol = location.protocol === 'https:' ? 'wss' : 'ws';
+    const socket = new WebSocket(`${protocol}://${location.host}/ws/orders`);
+    socket.onmessage = event => {
+        const msg = JSON.parse(event.data);
+        if (msg.type === 'order') {
+            console.debug('Order update', msg.data);
+            showOrderUpdate(msg.data);
+            // Status reads come from the server's in-memory order book, so refreshing is cheap
+            loadOrders();
+        }
+    };
+    socket.onclose = () => setTimeout(connectOrderSocket, 5000);
+}
+
 // Enable/disable price field based on order type
 function togglePriceField() {
     const orderType = document.getElementById('order-type').value;
@@ -169,4 +232,5 @@ document.addEventListener('DOMContentLoaded', function() {
     // Initialize
     togglePriceField();
     loadOrders();
+    connectOrderSocket();
 });
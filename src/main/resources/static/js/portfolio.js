@@ -1,23 +1,64 @@
 // portfolio.js
-// Fetches and renders portfolio holdings
+// Renders portfolio holdings and positions. P&L is streamed over /ws/portfolio,
+// so the page never re-polls the holdings endpoint.
+window.portfolioRows = {};
+
+function formatNumber(value) {
+    return value != null ? Number(value).toFixed(2) : '-';
+}
+
+function renderPortfolio(update) {
+    window.portfolioRows = {};
+    let html = '<table style="width:100%;margin-top:16px;"><tr><th>Symbol</th><th>Exchange</th><th>Type</th><th>Quantity</th><th>Avg Price</th><th>Last Price</th><th>P&amp;L</th></tr>';
+    update.positions.forEach(p => {
+        window.portfolioRows[p.key] = p;
+        html += `<tr data-key="${p.key}"><td>${p.tradingsymbol}</td><td>${p.exchange}</td><td>${p.source}</td><td>${p.quantity}</td><td>${formatNumber(p.averagePrice)}</td><td class="ltp">${formatNumber(p.lastPrice)}</td><td class="pnl">${formatNumber(p.pnl)}</td></tr>`;
+    });
+    html += '</table>';
+    html += `<p id="portfolio-totals"></p>`;
+    document.getElementById('holdings-table-container').innerHTML = html;
+    renderTotals(update);
+}
+
+function renderTotals(update) {
+    const totals = document.getElementById('portfolio-totals');
+    if (totals) {
+        totals.innerHTML = `Total P&amp;L: <b>${formatNumber(update.totalPnl)}</b> &middot; Day change: <b>${formatNumber(update.totalDayChange)}</b>`;
+    }
+}
+
+function applyPortfolioUpdate(update) {
+    if (update.snapshot) {
+        renderPortfolio(update);
+        return;
+    }
+    update.positions.forEach(p => {
+        window.portfolioRows[p.key] = p;
+        const row = document.querySelector(`tr[data-key="${p.key}"]`);
+        if (row) {
+            row.querySelector('.ltp').textContent = formatNumber(p.lastPrice);
+            row.querySelector('.pnl').textContent = formatNumber(p.pnl);
+        }
+    });
+    renderTotals(update);
+}
+
+function connectPortfolioSocket() {
+    const protocol = location.protocol === 'https:' ? 'wss' : 'ws';
+    const socket = new WebSocket(`${protocol}://${location.host}/ws/portfolio`);
+    socket.onmessage = event => {
+        const msg = JSON.parse(event.data);
+        if (msg.type === 'portfolio') {
+            applyPortfolioUpdate(msg.data);
+        } else if (msg.type === 'error') {
+            console.error('Portfolio stream error', msg.message);
+        }
+    };
+    socket.onclose = () => setTimeout(connectPortfolioSocket, 5000);
+}
+
 document.addEventListener('DOMContentLoaded', function() {
     if (typeof validateSession === 'function') validateSession(); // Defensive: ensure session is valid
-    fetch('/api/portfolio/holdings')
-        .then(response => response.json())
-        .then(data => {
-            if (data.status === 'success') {
-                const holdings = data.data;
-                let html = '<table style="width:100%;margin-top:16px;"><tr><th>Symbol</th><th>Exchange</th><th>Quantity</th><th>Avg Price</th><th>Last Price</th><th>P&amp;L</th></tr>';
-                holdings.forEach(h => {
-                    html += `<tr><td>${h.tradingsymbol}</td><td>${h.exchange}</td><td>${h.quantity}</td><td>${h.average_price}</td><td>${h.last_price}</td><td>${h.pnl}</td></tr>`;
-                });
-                html += '</table>';
-                document.getElementById('holdings-table-container').innerHTML = html;
-            } else {
-                document.getElementById('holdings-table-container').innerHTML = '<p>Failed to load holdings.</p>';
-            }
-        })
-        .catch(() => {
-            document.getElementById('holdings-table-container').innerHTML = '<p>Error loading holdings.</p>';
-        });
+    document.getElementById('holdings-table-container').innerHTML = '<p>Loading portfolio...</p>';
+    connectPortfolioSocket();
 });
@@ -7,6 +7,74 @@ function initializeTicker() {
     console.log('Ticker module initialized with config');
 }
 
+function renderTick(tick) {
+    let html = '<table style="width:100%;margin-top:16px;"><tr><th>Token</th><th>Last Price</th><th>Volume</th><th>Change</th></tr>';
+    html += `<tr><td>${tick.instrumentToken}</td><td>${tick.lastPrice}</td><td>${tick.volumeTraded}</td><td>${tick.netChange}</td></tr>`;
+    html += '</table>';
+    document.getElementById('ticker-table-container').innerHTML = html;
+}
+
+// Binary batches are length-prefixed records: 4-byte big-endian length, then one tick's JSON
+function decodeTickBatch(buffer) {
+    const view = new DataView(buffer);
+    const decoder = new TextDecoder();
+    const ticks = [];
+    let offset = 0;
+    while (offset + 4 <= buffer.byteLength) {
+        const length = view.getUint32(offset);
+        offset += 4;
+        ticks.push(JSON.parse(decoder.decode(new Uint8Array(buffer, offset, length))));
+        offset += length;
+    }
+    return ticks;
+}
+
+// Set by the server's connection message; echoes let the server time ticks up to the screen
+let latencyEcho = false;
+let lastEchoAt = 0;
+const ECHO_INTERVAL_MS = 1000;
+
+function showTick(tick, socket, arrivedAt) {
+    renderTick(tick);
+    const now = performance.now();
+    if (!latencyEcho || !tick.receivedAt || now - lastEchoAt < ECHO_INTERVAL_MS) return;
+    lastEchoAt = now;
+    // Report once the rendered table has been painted
+    requestAnimationFrame(() => {
+        if (socket.readyState !== WebSocket.OPEN) return;
+        socket.send(JSON.stringify({
+            type: 'latency_echo',
+            receivedAt: tick.receivedAt,
+            renderMs: performance.now() - arrivedAt
+        }));
+    });
+}
+
+function handleTickerMessage(event) {
+    const arrivedAt = performance.now();
+    const socket = event.target;
+    if (event.data instanceof ArrayBuffer) {
+        const ticks = decodeTickBatch(event.data);
+        if (ticks.length > 0) showTick(ticks[ticks.length - 1], socket, arrivedAt);
+        return;
+    }
+    let message = JSON.parse(event.data);
+    console.debug('Received message', message);
+
+    if (message.type === 'connection') {
+        console.info('WebSocket connection confirmed:', message.status);
+        latencyEcho = message.latencyEcho === true;
+        return;
+    }
+
+    if (message.type === 'ticker' && message.data) {
+        showTick(message.data, socket, arrivedAt);
+    } else if (message.type === 'ticker_batch' && message.data && message.data.length > 0) {
+        // Batched frames carry ticks in arrival order; the table shows the latest
+        showTick(message.data[message.data.length - 1], socket, arrivedAt);
+    }
+}
+
 function connectWebSocket() {
     const wsUrl = getWebSocketUrl('ticker');
     ws = new WebSocket(wsUrl);
@@ -15,23 +83,8 @@ function connectWebSocket() {
         console.info('WebSocket opened');
         document.getElementById('ticker-table-container').innerHTML = '<p>Connected. Waiting for data...</p>';
     };
-    ws.onmessage = (event) => {
-        let message = JSON.parse(event.data);
-        console.debug('Received message', message);
-        
-        if (message.type === 'connection') {
-            console.info('WebSocket connection confirmed:', message.status);
-            return;
-        }
-        
-        if (message.type === 'ticker' && message.data) {
-            let tick = message.data;
-            let html = '<table style="width:100%;margin-top:16px;"><tr><th>Token</th><th>Last Price</th><th>Volume</th><th>Change</th></tr>';
-            html += `<tr><td>${tick.instrumentToken}</td><td>${tick.lastPrice}</td><td>${tick.volumeTraded}</td><td>${tick.netChange}</td></tr>`;
-            html += '</table>';
-            document.getElementById('ticker-table-container').innerHTML = html;
-        }
-    };
+    ws.binaryType = 'arraybuffer';
+    ws.onmessage = handleTickerMessage;
     ws.onclose = () => {
         console.warn('WebSocket closed');
         document.getElementById('ticker-table-container').innerHTML = '<p>WebSocket disconnected.</p>';
@@ -45,23 +98,8 @@ document.addEventListener('DOMContentLoaded', function() {
         console.info('WebSocket opened');
         document.getElementById('ticker-table-container').innerHTML = '<p>Connected. Waiting for data...</p>';
     };
-    ws.onmessage = (event) => {
-        let message = JSON.parse(event.data);
-        console.debug('Received message', message);
-        
-        if (message.type === 'connection') {
-            console.info('WebSocket connection confirmed:', message.status);
-            return;
-        }
-        
-        if (message.type === 'ticker' && message.data) {
-            let tick = message.data;
-            let html = '<table style="width:100%;margin-top:16px;"><tr><th>Token</th><th>Last Price</th><th>Volume</th><th>Change</th></tr>';
-            html += `<tr><td>${tick.instrumentToken}</td><td>${tick.lastPrice}</td><td>${tick.volumeTraded}</td><td>${tick.netChange}</td></tr>`;
-            html += '</table>';
-            document.getElementById('ticker-table-container').innerHTML = html;
-        }
-    };
+    ws.binaryType = 'arraybuffer';
+    ws.onmessage = handleTickerMessage;
     ws.onclose = () => {
         console.warn('WebSocket closed');
         document.getElementById('ticker-table-container').innerHTML = '<p>WebSocket disconnected.</p>';
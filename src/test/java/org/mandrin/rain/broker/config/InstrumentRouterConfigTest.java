@@ -0,0 +1,129 @@
+package org.mandrin.rain.broker.config;
+
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.handler.InstrumentHandler;
+import org.mandrin.rain.broker.model.OptionChain;
+import org.mandrin.rain.broker.service.InstrumentCacheService;
+import org.mandrin.rain.broker.service.InstrumentCatalogService;
+import org.mandrin.rain.broker.service.InstrumentService;
+import org.mandrin.rain.broker.service.KiteAuthService;
+import org.mandrin.rain.broker.service.ReactiveInstrumentService;
+import org.mandrin.rain.broker.service.SessionValidationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * The v2 instrument routes are WebMvc.fn functions, so the servlet app serves them.
+ */
+@WebMvcTest(InstrumentHandler.class)
+@Import(InstrumentRouterConfig.class)
+class InstrumentRouterConfigTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ReactiveInstrumentService reactiveInstrumentService;
+
+    @MockBean
+    private InstrumentService instrumentService;
+
+    @MockBean
+    private InstrumentCacheService instrumentCacheService;
+
+    @MockBean
+    private InstrumentCatalogService instrumentCatalogService;
+
+    @MockBean
+    private KiteAuthService kiteAuthService;
+
+    @MockBean
+    private SessionValidationService sessionValidationService;
+
+    @Test
+    void optionChain_Unauthenticated_ShouldReturn401() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v2/instruments/option-chain/NIFTY/2024-12-26"))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized());
+    }
+
+    @Test
+    void optionChain_Authenticated_ShouldServeChain() throws Exception {
+        LocalDate expiry = LocalDate.of(2024, 12, 26);
+        when(instrumentCacheService.getOptionChain("NFO", "NIFTY", expiry)).thenReturn(Optional.of(new OptionChain(
+                "NIFTY", expiry, "NFO", 50, 0.05,
+                new double[]{26000.0}, new long[]{101L}, new long[]{102L})));
+        when(instrumentCacheService.getOptionChain("BFO", "NIFTY", expiry)).thenReturn(Optional.of(new OptionChain(
+                "NIFTY", expiry, "BFO", 50, 0.05,
+                new double[]{26000.0}, new long[]{201L}, new long[]{202L})));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v2/instruments/option-chain/NIFTY/2024-12-26")
+                        .session(session()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.underlying").value("NIFTY"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.ceTokens[0]").value(101));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v2/instruments/option-chain/BFO/NIFTY/2024-12-26")
+                        .session(session()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.exchange").value("BFO"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.ceTokens[0]").value(201));
+    }
+
+    @Test
+    void catalog_ShouldServeSnapshotAndHonourEtag() throws Exception {
+        byte[] json = "{\"exchange\":\"NSE\",\"count\":0}".getBytes(StandardCharsets.UTF_8);
+        when(instrumentCatalogService.getSnapshot("NSE")).thenReturn(Optional.of(
+                new InstrumentCatalogService.CatalogSnapshot("NSE", 1L, "\"abc\"", 0, json, new byte[0],
+                        2L, 1_000L, Instant.now())));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v2/instruments/catalog/NSE").session(session()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.exchange").value("NSE"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v2/instruments/catalog/NSE").session(session())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+    }
+
+    @Test
+    void catalog_WithUnknownExchange_ShouldReturn404() throws Exception {
+        when(instrumentCatalogService.getSnapshot("NOPE")).thenReturn(Optional.empty());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v2/instruments/catalog/NOPE").session(session()))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    void metadataExchanges_ShouldCollectFluxIntoJsonArray() throws Exception {
+        when(reactiveInstrumentService.getMetadata("exchanges", "")).thenReturn(Flux.just("NFO", "NSE"));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v2/instruments/metadata/exchanges")
+                        .session(session()))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1]").value("NSE"));
+    }
+
+    private MockHttpSession session() {
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION, "dummy_token");
+        return session;
+    }
+}
@@ -0,0 +1,60 @@
+package org.mandrin.rain.broker.controller;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiagnosticsControllerTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DiagnosticsController controller = new DiagnosticsController(registry);
+
+    @Test
+    void latency_RowsSortedBySlowestTail() {
+        Timer orders = route("/api/orders", "SUCCESS");
+        Timer holdings = route("/api/portfolio/holdings", "SUCCESS");
+        for (int i = 1; i <= 100; i++) {
+            orders.record(Duration.ofMillis(i));
+            holdings.record(Duration.ofMillis(i * 10L));
+        }
+
+        List<DiagnosticsController.TimerSummary> inbound = controller.latency().get("inbound");
+
+        assertEquals(2, inbound.size());
+        assertEquals("/api/portfolio/holdings", inbound.get(0).tags().get("uri"));
+        assertEquals("SUCCESS", inbound.get(0).tags().get("outcome"));
+        assertEquals(100, inbound.get(0).count());
+        assertEquals(List.of("p50", "p95", "p99"), List.copyOf(inbound.get(0).percentilesMs().keySet()));
+        assertTrue(inbound.get(0).percentilesMs().get("p99") > inbound.get(1).percentilesMs().get("p99"));
+    }
+
+    @Test
+    void latency_SkipsTimersWithoutSamples() {
+        route("/api/orders", "SUCCESS");
+
+        Map<String, List<DiagnosticsController.TimerSummary>> summary = controller.latency();
+
+        assertTrue(summary.get("inbound").isEmpty());
+        assertTrue(summary.get("outbound").isEmpty());
+    }
+
+    @Test
+    void percentileKey_DropsTrailingZeros() {
+        assertEquals("p50", DiagnosticsController.percentileKey(0.5));
+        assertEquals("p99", DiagnosticsController.percentileKey(0.99));
+        assertEquals("p99.9", DiagnosticsController.percentileKey(0.999));
+    }
+
+    private Timer route(String uri, String outcome) {
+        return Timer.builder("http.server.requests")
+                .tag("uri", uri)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+}
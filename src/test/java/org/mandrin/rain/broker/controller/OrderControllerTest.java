@@ -1,6 +1,8 @@
 package org.mandrin.rain.broker.controller;
 
 import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.model.BasketOrderResult;
+import org.mandrin.rain.broker.model.OrderHistoryPage;
 import org.mandrin.rain.broker.model.TradeOrder;
 import org.mandrin.rain.broker.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +11,10 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -24,18 +30,112 @@ class OrderControllerTest {
     private OrderService orderService;
 
     @Test
-    void place_ShouldReturnOk() throws Exception {
+    void place_ShouldReturnAccepted() throws Exception {
+        TradeOrder o = new TradeOrder();
+        o.setClientOrderId("c1");
+        o.setStatus("ACCEPTED");
+        when(orderService.submitOrder(any(), any())).thenReturn(o);
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute("kite_access_token", "t");
+        mockMvc.perform(post("/api/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}")
+                .session(session))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.clientOrderId").value("c1"));
+        verify(orderService).submitOrder(any(), any());
+    }
+
+    @Test
+    void place_WhenRejectedByPreTradeCheck_ShouldReturnUnprocessable() throws Exception {
         TradeOrder o = new TradeOrder();
-        o.setOrderId("1");
-        when(orderService.placeOrder(any(), any())).thenReturn(o);
+        o.setStatus("REJECTED");
+        o.setStatusMessage("Quantity is not a multiple of the lot size");
+        when(orderService.submitOrder(any(), any())).thenReturn(o);
         MockHttpSession session = new MockHttpSession();
         session.setAttribute("kite_access_token", "t");
         mockMvc.perform(post("/api/orders")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{}")
                 .session(session))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.statusMessage").value("Quantity is not a multiple of the lot size"));
+    }
+
+    @Test
+    void placeBasket_ShouldReturnAggregatedResults() throws Exception {
+        BasketOrderResult result = new BasketOrderResult(1, 1, 0, 0, 5, List.of(
+                new BasketOrderResult.Leg(0, "ABC", "c1", "1", "PLACED", null, 0.1, 4.0)));
+        when(orderService.placeBasket(any(), any())).thenReturn(Mono.just(result));
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute("kite_access_token", "t");
+        MvcResult async = mockMvc.perform(post("/api/orders/basket")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"tradingsymbol\":\"ABC\",\"quantity\":1}]")
+                .session(session))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.placed").value(1))
+                .andExpect(jsonPath("$.results[0].orderId").value("1"));
+    }
+
+    @Test
+    void placeBasket_ShouldRejectEmptyBasket() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute("kite_access_token", "t");
+        mockMvc.perform(post("/api/orders/basket")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .session(session))
+                .andExpect(status().isBadRequest());
+        verify(orderService, never()).placeBasket(any(), any());
+    }
+
+    @Test
+    void postback_ShouldApplyValidUpdateWithoutSession() throws Exception {
+        when(orderService.handlePostback(any())).thenReturn(true);
+        mockMvc.perform(post("/api/orders/postback")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"order_id\":\"1\",\"status\":\"COMPLETE\",\"checksum\":\"abc\"}"))
                 .andExpect(status().isOk());
-        verify(orderService).placeOrder(any(), any());
+        verify(orderService).handlePostback(any());
+    }
+
+    @Test
+    void postback_WithBadChecksum_ShouldReturnUnauthorized() throws Exception {
+        when(orderService.handlePostback(any())).thenReturn(false);
+        mockMvc.perform(post("/api/orders/postback")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"order_id\":\"1\",\"checksum\":\"bad\"}"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void history_ShouldPassFiltersAndReturnPage() throws Exception {
+        when(orderService.getHistory(any(), any(), any(), any(), any(), any()))
+                .thenReturn(new OrderHistoryPage(List.of(), 20, "next"));
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute("kite_access_token", "t");
+        mockMvc.perform(get("/api/orders/history")
+                .param("symbol", "INFY")
+                .param("from", "2024-12-01")
+                .param("limit", "20")
+                .session(session))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+        verify(orderService).getHistory("INFY", null, java.time.LocalDate.of(2024, 12, 1), null, null, 20);
+    }
+
+    @Test
+    void history_WithBadCursor_ShouldReturnBadRequest() throws Exception {
+        when(orderService.getHistory(any(), any(), any(), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: x"));
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute("kite_access_token", "t");
+        mockMvc.perform(get("/api/orders/history").param("cursor", "x").session(session))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -1,7 +1,10 @@
 package org.mandrin.rain.broker.controller;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mandrin.rain.broker.service.KiteTickerService;
+import org.mandrin.rain.broker.service.TickLatencyTracker;
+import org.mandrin.rain.broker.service.TickPipeline;
 import org.mandrin.rain.broker.websocket.TickerWebSocketHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -37,21 +40,22 @@ class TickerControllerTest {
     static class KiteTickerServiceTestConfig {
         @Bean
         public KiteTickerService tickerService(TickerWebSocketHandler webSocketHandler) {
-            return new TestKiteTickerService(webSocketHandler);
+            return new TestKiteTickerService(new TickPipeline(webSocketHandler,
+                    new TickLatencyTracker(new SimpleMeterRegistry(), true)));
         }
         static class TestKiteTickerService extends KiteTickerService {
             boolean subscribeCalled = false;
             boolean disconnectCalled = false;
             
-            public TestKiteTickerService(TickerWebSocketHandler webSocketHandler) {
-                super(webSocketHandler);
+            public TestKiteTickerService(TickPipeline tickPipeline) {
+                super(tickPipeline);
             }
             @Override
             public void subscribe(jakarta.servlet.http.HttpSession session, java.util.List<Long> tokens) {
                 subscribeCalled = true;
             }
             @Override
-            public void disconnect() {
+            public void disconnect(jakarta.servlet.http.HttpSession session) {
                 disconnectCalled = true;
             }
         }
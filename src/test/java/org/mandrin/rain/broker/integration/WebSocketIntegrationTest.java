@@ -3,6 +3,7 @@ package org.mandrin.rain.broker.integration;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import org.mandrin.rain.broker.model.MarketTick;
 import org.mandrin.rain.broker.websocket.TickerWebSocketHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -87,16 +88,15 @@ public class WebSocketIntegrationTest {
         // Test that the handler can broadcast messages
         int initialSessions = tickerWebSocketHandler.getActiveSessionCount();
         
-        // Create mock ticker data
-        Map<String, Object> mockTick = Map.of(
-            "instrumentToken", 12345L,
-            "lastPrice", 100.50,
-            "volumeTraded", 1000L,
-            "netChange", 2.5
-        );
+        // Create a typed tick
+        MarketTick tick = new MarketTick();
+        tick.setInstrumentToken(12345L);
+        tick.setLastPrice(100.50);
+        tick.setVolumeTraded(1000L);
+        tick.setNetChange(2.5);
 
         // This should not throw an exception even with no active sessions
-        assertDoesNotThrow(() -> tickerWebSocketHandler.broadcastTickerData(mockTick));
+        assertDoesNotThrow(() -> tickerWebSocketHandler.broadcastTick(tick));
         
         assertEquals(initialSessions, tickerWebSocketHandler.getActiveSessionCount());
     }
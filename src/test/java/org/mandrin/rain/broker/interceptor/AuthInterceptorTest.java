@@ -5,10 +5,39 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.Test;
 import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.service.SessionValidationService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.util.Map;
+
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 class AuthInterceptorTest {
+    private void setField(Object target, String fieldName, Object value) {
+        try {
+            java.lang.reflect.Field f = target.getClass().getDeclaredField(fieldName);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Stand-in controller for the route table
+    static class Handlers {
+        public void placeOrder() { }
+        public void listOrders() { }
+    }
+
     @Test
     void preHandle_Unauthenticated_ShouldRedirect() throws Exception {
         AuthInterceptor interceptor = new AuthInterceptor();
@@ -31,4 +60,73 @@ class AuthInterceptorTest {
         when(session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION)).thenReturn("token");
         assertTrue(interceptor.preHandle(request, response, new Object()));
     }
+
+    @Test
+    void preHandle_CriticalRoute_ShouldValidateOncePerWindow() throws Exception {
+        AuthInterceptor interceptor = new AuthInterceptor();
+        SessionValidationService validation = mock(SessionValidationService.class);
+        setField(interceptor, "sessionValidationService", validation);
+        buildRouteTable(interceptor);
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION, "token");
+        when(validation.isAccessTokenValid(session)).thenReturn(true);
+        HandlerMethod placeOrder = new HandlerMethod(new Handlers(), Handlers.class.getMethod("placeOrder"));
+
+        assertTrue(interceptor.preHandle(request("POST", "/api/orders", session), new MockHttpServletResponse(), placeOrder));
+        assertTrue(interceptor.preHandle(request("POST", "/api/orders", session), new MockHttpServletResponse(), placeOrder));
+
+        verify(validation, times(1)).isAccessTokenValid(session);
+        assertNotNull(session.getAttribute(ApiConstants.SESSION_ATTR_TOKEN_VALIDATED_UNTIL));
+    }
+
+    @Test
+    void preHandle_NonCriticalHandler_ShouldSkipValidation() throws Exception {
+        AuthInterceptor interceptor = new AuthInterceptor();
+        SessionValidationService validation = mock(SessionValidationService.class);
+        setField(interceptor, "sessionValidationService", validation);
+        buildRouteTable(interceptor);
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION, "token");
+        HandlerMethod listOrders = new HandlerMethod(new Handlers(), Handlers.class.getMethod("listOrders"));
+
+        assertTrue(interceptor.preHandle(request("GET", "/api/orders", session), new MockHttpServletResponse(), listOrders));
+
+        verifyNoInteractions(validation);
+    }
+
+    @Test
+    void preHandle_InvalidTokenOnCriticalRoute_ShouldReturn401() throws Exception {
+        AuthInterceptor interceptor = new AuthInterceptor();
+        SessionValidationService validation = mock(SessionValidationService.class);
+        setField(interceptor, "sessionValidationService", validation);
+        buildRouteTable(interceptor);
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION, "token");
+        when(validation.isAccessTokenValid(session)).thenReturn(false);
+        HandlerMethod placeOrder = new HandlerMethod(new Handlers(), Handlers.class.getMethod("placeOrder"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(request("POST", "/api/orders", session), response, placeOrder));
+
+        assertEquals(401, response.getStatus());
+        verify(validation).invalidateSession(session);
+    }
+
+    private void buildRouteTable(AuthInterceptor interceptor) throws Exception {
+        RequestMappingHandlerMapping mapping = mock(RequestMappingHandlerMapping.class);
+        when(mapping.getHandlerMethods()).thenReturn(Map.of(
+                RequestMappingInfo.paths("/api/orders").methods(RequestMethod.POST).build(),
+                new HandlerMethod(new Handlers(), Handlers.class.getMethod("placeOrder")),
+                RequestMappingInfo.paths("/api/orders").methods(RequestMethod.GET).build(),
+                new HandlerMethod(new Handlers(), Handlers.class.getMethod("listOrders"))));
+        ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getBeansOfType(RequestMappingHandlerMapping.class)).thenReturn(Map.of("mapping", mapping));
+        interceptor.buildRouteTable(new ContextRefreshedEvent(context));
+    }
+
+    private MockHttpServletRequest request(String method, String uri, MockHttpSession session) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setSession(session);
+        return request;
+    }
 }
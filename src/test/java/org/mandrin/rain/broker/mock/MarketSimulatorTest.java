@@ -0,0 +1,146 @@
+package org.mandrin.rain.broker.mock;
+
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.model.Instrument;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketSimulatorTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-19T04:30:00Z"), ZoneId.of("Asia/Kolkata"));
+    private static final LocalDate EXPIRY = LocalDate.of(2026, 10, 29);
+
+    private static Instrument instrument(long token, String symbol, String name, String type,
+                                         Double lastPrice, Double strike, LocalDate expiry) {
+        Instrument i = new Instrument();
+        i.setInstrumentToken(token);
+        i.setTradingsymbol(symbol);
+        i.setName(name);
+        i.setInstrumentType(type);
+        i.setLastPrice(lastPrice);
+        i.setStrike(strike);
+        i.setExpiry(expiry);
+        i.setTickSize(0.05);
+        i.setExchange("NSE");
+        return i;
+    }
+
+    private static List<Instrument> reliance() {
+        return List.of(
+                instrument(1, "RELIANCE", "RELIANCE INDUSTRIES", "EQ", 2900.0, null, null),
+                instrument(2, "RELIANCE26OCTFUT", "RELIANCE", "FUT", null, null, EXPIRY),
+                instrument(3, "RELIANCE26OCT2900CE", "RELIANCE", "CE", null, 2900.0, EXPIRY),
+                instrument(4, "RELIANCE26OCT2900PE", "RELIANCE", "PE", null, 2900.0, EXPIRY));
+    }
+
+    @Test
+    void derivatives_ShouldBePricedOffTheirUnderlying() {
+        MarketSimulator simulator = new MarketSimulator(reliance(), 42, CLOCK);
+
+        assertEquals(2900.0, simulator.price(1), 1e-9);
+        double years = simulator.yearsToExpiry(EXPIRY);
+        assertEquals(2900.0 * Math.exp(MarketSimulator.RISK_FREE_RATE * years), simulator.price(2), 0.05);
+        // At the money, with a positive carry the call is worth more than the put
+        assertTrue(simulator.price(3) > simulator.price(4));
+        assertTrue(simulator.price(4) > 0);
+        assertTrue(Double.isNaN(simulator.price(99)));
+    }
+
+    @Test
+    void step_ShouldMoveOptionsWithUnderlying() {
+        MarketSimulator simulator = new MarketSimulator(reliance(), 7, CLOCK);
+
+        int checked = 0;
+        for (int n = 0; n < 500; n++) {
+            double spot = simulator.price(1);
+            double call = simulator.price(3);
+            double put = simulator.price(4);
+            boolean stressed = simulator.isStressed("RELIANCE");
+            simulator.step(300);
+            // A regime switch reprices volatility, which moves calls and puts the same way
+            if (simulator.isStressed("RELIANCE") != stressed || simulator.price(1) == spot) {
+                continue;
+            }
+            boolean up = simulator.price(1) > spot;
+            assertEquals(up, simulator.price(3) >= call, "call follows the underlying");
+            assertEquals(up, simulator.price(4) <= put, "put moves against the underlying");
+            checked++;
+        }
+        assertTrue(checked > 100);
+    }
+
+    @Test
+    void step_ShouldCorrelateUnderlyings() {
+        MarketSimulator simulator = new MarketSimulator(List.of(
+                instrument(1, "RELIANCE", "RELIANCE INDUSTRIES", "EQ", 2900.0, null, null),
+                instrument(2, "TCS", "TATA CONSULTANCY SERV", "EQ", 4000.0, null, null)), 11, CLOCK);
+
+        int n = 2_000;
+        double[] a = new double[n];
+        double[] b = new double[n];
+        for (int i = 0; i < n; i++) {
+            double ra = simulator.spot("RELIANCE");
+            double rb = simulator.spot("TCS");
+            simulator.step(60);
+            a[i] = Math.log(simulator.spot("RELIANCE") / ra);
+            b[i] = Math.log(simulator.spot("TCS") / rb);
+        }
+        // Both load on the market factor, so returns correlate at up to MARKET_CORRELATION squared;
+        // independent regime switches pull the sample figure somewhat below that
+        double correlation = correlation(a, b);
+        assertTrue(correlation > 0.2, "correlation " + correlation);
+        assertTrue(correlation < MarketSimulator.MARKET_CORRELATION, "correlation " + correlation);
+    }
+
+    @Test
+    void constructor_ShouldEstimateSpotForUnderlyingsSeenOnlyThroughOptions() {
+        MarketSimulator simulator = new MarketSimulator(List.of(
+                instrument(1, "NIFTY26OCT25000CE", "NIFTY", "CE", null, 25000.0, EXPIRY),
+                instrument(2, "NIFTY26OCT25100CE", "NIFTY", "CE", null, 25100.0, EXPIRY),
+                instrument(3, "NIFTY26OCT25200CE", "NIFTY", "CE", null, 25200.0, EXPIRY)), 3, CLOCK);
+
+        assertEquals(25100.0, simulator.spot("NIFTY"), 1e-9);
+        assertTrue(simulator.price(1) > simulator.price(2));
+        assertTrue(simulator.price(2) > simulator.price(3));
+    }
+
+    @Test
+    void sameSeed_ShouldReproduceThePath() {
+        MarketSimulator first = new MarketSimulator(reliance(), 5, CLOCK);
+        MarketSimulator second = new MarketSimulator(reliance(), 5, CLOCK);
+        for (int i = 0; i < 50; i++) {
+            first.step(60);
+            second.step(60);
+        }
+        assertEquals(first.spot("RELIANCE"), second.spot("RELIANCE"));
+    }
+
+    @Test
+    void normalCdf_ShouldMatchKnownValues() {
+        assertEquals(0.5, MarketSimulator.normalCdf(0), 1e-7);
+        assertEquals(0.841345, MarketSimulator.normalCdf(1), 1e-6);
+        assertEquals(0.022750, MarketSimulator.normalCdf(-2), 1e-6);
+    }
+
+    private static double correlation(double[] x, double[] y) {
+        double mx = 0, my = 0;
+        for (int i = 0; i < x.length; i++) {
+            mx += x[i];
+            my += y[i];
+        }
+        mx /= x.length;
+        my /= y.length;
+        double sxy = 0, sxx = 0, syy = 0;
+        for (int i = 0; i < x.length; i++) {
+            sxy += (x[i] - mx) * (y[i] - my);
+            sxx += (x[i] - mx) * (x[i] - mx);
+            syy += (y[i] - my) * (y[i] - my);
+        }
+        return sxy / Math.sqrt(sxx * syy);
+    }
+}
@@ -0,0 +1,130 @@
+package org.mandrin.rain.broker.mock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.model.MarketTick;
+import org.mandrin.rain.broker.model.Subscription;
+import org.mandrin.rain.broker.repository.InstrumentRepository;
+import org.mandrin.rain.broker.repository.SubscriptionRepository;
+import org.mandrin.rain.broker.service.TickLatencyTracker;
+import org.mandrin.rain.broker.service.TickListener;
+import org.mandrin.rain.broker.service.TickPipeline;
+import org.mandrin.rain.broker.websocket.TickerWebSocketHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SyntheticMarketGeneratorTest {
+    private final InstrumentRepository instruments = mock(InstrumentRepository.class);
+    private final SubscriptionRepository subscriptions = mock(SubscriptionRepository.class);
+    private final TickPipeline pipeline = new TickPipeline(mock(TickerWebSocketHandler.class), new TickLatencyTracker(new SimpleMeterRegistry(), true));
+    private final SyntheticMarketGenerator generator =
+            new SyntheticMarketGenerator(pipeline, instruments, subscriptions, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        generator.stop();
+    }
+
+    private void setField(Object target, String fieldName, Object value) {
+        try {
+            java.lang.reflect.Field f = target.getClass().getDeclaredField(fieldName);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void start_ShouldPublishAtTargetRateWithoutPerTickDatabaseAccess() throws Exception {
+        List<Instrument> all = new ArrayList<>();
+        for (long token = 1; token <= 200; token++) {
+            all.add(instrument(token));
+        }
+        Subscription subscription = new Subscription();
+        subscription.setInstrumentToken(500L);
+        when(subscriptions.findAll()).thenReturn(List.of(subscription));
+        when(instruments.findAllById(anyIterable())).thenReturn(List.of(instrument(500L)));
+        when(instruments.findAll()).thenReturn(all);
+        setField(generator, "maxInstruments", 100);
+
+        LongAdder received = new LongAdder();
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        pipeline.addListener(new TickListener() {
+            @Override
+            public void onTick(MarketTick tick) {
+                received.increment();
+                seen.add(tick.getInstrumentToken());
+            }
+        });
+
+        generator.start(20_000, 2);
+        Thread.sleep(500);
+        generator.stop();
+
+        assertEquals(100, generator.getInstrumentCount());
+        assertEquals(received.sum(), generator.getGeneratedCount());
+        // 10k ticks are due in 500 ms; allow for scheduling noise on a busy machine
+        assertTrue(received.sum() > 5_000 && received.sum() <= 11_000, "received " + received.sum());
+        // The subscribed instrument comes first, the master fills the rest
+        assertTrue(seen.contains(500L));
+        assertTrue(seen.stream().allMatch(token -> token < 100 || token == 500L));
+        verify(subscriptions, times(1)).findAll();
+        verify(instruments, times(1)).findAll();
+        verify(instruments, never()).findById(anyLong());
+    }
+
+    @Test
+    void start_WhenPublishThrows_ShouldKeepGenerating() throws Exception {
+        when(subscriptions.findAll()).thenReturn(List.of());
+        when(instruments.findAllById(anyIterable())).thenReturn(List.of());
+        when(instruments.findAll()).thenReturn(List.of(instrument(1L), instrument(2L)));
+        TickPipeline failing = mock(TickPipeline.class);
+        doThrow(new IllegalStateException("concurrent send")).doNothing().when(failing).publish(any());
+        SyntheticMarketGenerator resilient =
+                new SyntheticMarketGenerator(failing, instruments, subscriptions, new SimpleMeterRegistry());
+        setField(resilient, "maxInstruments", 100);
+
+        try {
+            resilient.start(10_000, 1);
+            Thread.sleep(300);
+
+            assertTrue(resilient.isRunning());
+            verify(failing, atLeast(100)).publish(any());
+            assertTrue(resilient.getGeneratedCount() > 0);
+        } finally {
+            resilient.stop();
+        }
+    }
+
+    @Test
+    void start_WithoutPricedInstruments_ShouldNotRun() {
+        when(subscriptions.findAll()).thenReturn(List.of());
+        when(instruments.findAllById(anyIterable())).thenReturn(List.of());
+        when(instruments.findAll()).thenReturn(List.of());
+
+        generator.start(1_000, 1);
+
+        assertFalse(generator.isRunning());
+    }
+
+    private Instrument instrument(long token) {
+        Instrument i = new Instrument();
+        i.setInstrumentToken(token);
+        i.setTradingsymbol("SYM" + token);
+        i.setExchange("NSE");
+        i.setLastPrice(100.0 + token);
+        i.setTickSize(0.05);
+        return i;
+    }
+}
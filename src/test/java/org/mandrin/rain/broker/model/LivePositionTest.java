@@ -0,0 +1,45 @@
+package org.mandrin.rain.broker.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LivePositionTest {
+
+    @Test
+    void applyPrice_ShouldMovePnlByPriceChange() {
+        LivePosition position = position(100.0, 500.0);
+
+        assertTrue(position.applyPrice(102.0));
+
+        assertEquals(700.0, position.getPnl(), 1e-9);
+        assertEquals(102.0, position.getLastPrice());
+    }
+
+    @Test
+    void applyPrice_WithZeroOrNegativePrice_ShouldBeIgnored() {
+        LivePosition position = position(100.0, 500.0);
+
+        assertFalse(position.applyPrice(0.0));
+        assertFalse(position.applyPrice(-5.0));
+
+        assertEquals(500.0, position.getPnl(), 1e-9);
+        assertEquals(100.0, position.getLastPrice());
+    }
+
+    @Test
+    void applyPrice_WhenSeededWithoutLastPrice_ShouldComputePnlFromAveragePrice() {
+        LivePosition position = position(0.0, 0.0);
+
+        assertTrue(position.applyPrice(101.0));
+
+        assertEquals(600.0, position.getPnl(), 1e-9);
+        assertEquals(600.0, position.getDayChange(), 1e-9);
+    }
+
+    // 100 units bought at 95 that closed yesterday at 95
+    private LivePosition position(double lastPrice, double pnl) {
+        return new LivePosition("positions:1:MIS", LivePosition.SOURCE_POSITIONS, 1L, "INFY", "NSE", "MIS",
+                100, 1.0, 95.0, 95.0, lastPrice, pnl, 0.0);
+    }
+}
@@ -0,0 +1,94 @@
+package org.mandrin.rain.broker.service;
+
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.model.OptionChain;
+import org.mandrin.rain.broker.repository.InstrumentRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InstrumentCacheServiceTest {
+    private static final LocalDate EXPIRY = LocalDate.of(2024, 12, 26);
+
+    @Test
+    void reload_ShouldGroupOptionsIntoStrikeSortedChain() {
+        InstrumentRepository repo = mock(InstrumentRepository.class);
+        when(repo.findAll()).thenReturn(List.of(
+                instrument(3L, "NIFTY 26100 CE DEC 24", "CE", 26100.0),
+                instrument(1L, "NIFTY 26000 CE DEC 24", "CE", 26000.0),
+                instrument(2L, "NIFTY 26000 PE DEC 24", "PE", 26000.0),
+                instrument(4L, "BANKNIFTY 52000 CE DEC 24", "CE", 52000.0),
+                instrument(5L, "NIFTY DEC FUT", "FUT", 0.0)));
+        InstrumentCacheService cache = new InstrumentCacheService(repo);
+
+        cache.reload();
+
+        OptionChain chain = cache.getOptionChain("nfo", "nifty", EXPIRY).orElseThrow();
+        assertArrayEquals(new double[]{26000.0, 26100.0}, chain.getStrikes());
+        assertArrayEquals(new long[]{1L, 3L}, chain.getCeTokens());
+        assertArrayEquals(new long[]{2L, 0L}, chain.getPeTokens());
+        assertEquals(50, chain.getLotSize());
+        assertEquals(List.of(EXPIRY), cache.getOptionExpiries("NFO", "BANKNIFTY"));
+        assertEquals(5, cache.size());
+        assertNotNull(cache.getInstrument(5L));
+    }
+
+    @Test
+    void reload_WhenRepositoryFails_ShouldKeepPreviousSnapshot() {
+        InstrumentRepository repo = mock(InstrumentRepository.class);
+        when(repo.findAll())
+                .thenReturn(List.of(instrument(1L, "NIFTY 26000 CE DEC 24", "CE", 26000.0)))
+                .thenThrow(new RuntimeException("db down"));
+        InstrumentCacheService cache = new InstrumentCacheService(repo);
+
+        cache.reload();
+        cache.reload();
+
+        assertEquals(1, cache.size());
+        assertTrue(cache.getOptionChain("NFO", "NIFTY", EXPIRY).isPresent());
+    }
+
+    @Test
+    void reload_ShouldKeepSameContractOnDifferentExchangesApart() {
+        InstrumentRepository repo = mock(InstrumentRepository.class);
+        Instrument bfoCall = instrument(11L, "RELIANCE 3000 CE DEC 24", "CE", 3000.0);
+        bfoCall.setExchange("BFO");
+        Instrument bfoPut = instrument(12L, "RELIANCE 3000 PE DEC 24", "PE", 3000.0);
+        bfoPut.setExchange("BFO");
+        when(repo.findAll()).thenReturn(List.of(
+                instrument(1L, "RELIANCE 3000 CE DEC 24", "CE", 3000.0),
+                instrument(2L, "RELIANCE 3000 PE DEC 24", "PE", 3000.0),
+                bfoCall, bfoPut));
+        InstrumentCacheService cache = new InstrumentCacheService(repo);
+
+        cache.reload();
+
+        OptionChain nfo = cache.getOptionChain("NFO", "RELIANCE", EXPIRY).orElseThrow();
+        OptionChain bfo = cache.getOptionChain("BFO", "RELIANCE", EXPIRY).orElseThrow();
+        assertArrayEquals(new long[]{1L}, nfo.getCeTokens());
+        assertArrayEquals(new long[]{2L}, nfo.getPeTokens());
+        assertEquals("NFO", nfo.getExchange());
+        assertArrayEquals(new long[]{11L}, bfo.getCeTokens());
+        assertArrayEquals(new long[]{12L}, bfo.getPeTokens());
+        assertEquals("BFO", bfo.getExchange());
+        assertEquals("RELIANCE", bfo.getUnderlying());
+    }
+
+    private Instrument instrument(long token, String name, String type, double strike) {
+        Instrument i = new Instrument();
+        i.setInstrumentToken(token);
+        i.setTradingsymbol(name.replace(" ", ""));
+        i.setName(name);
+        i.setInstrumentType(type);
+        i.setStrike(strike);
+        i.setExpiry(EXPIRY);
+        i.setLotSize(50);
+        i.setTickSize(0.05);
+        i.setExchange("NFO");
+        return i;
+    }
+}
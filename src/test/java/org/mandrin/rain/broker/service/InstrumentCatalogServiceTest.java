@@ -0,0 +1,107 @@
+package org.mandrin.rain.broker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.repository.InstrumentRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InstrumentCatalogServiceTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void getSnapshot_ShouldWriteColumnarGzipPayloadForExchange() throws Exception {
+        InstrumentRepository repo = mock(InstrumentRepository.class);
+        when(repo.findAll()).thenReturn(List.of(
+                instrument(2L, "TCS", "NSE", null),
+                instrument(1L, "INFY", "NSE", null),
+                instrument(3L, "NIFTY24DEC26000CE", "NFO", LocalDate.of(2024, 12, 26))));
+        InstrumentCacheService cache = new InstrumentCacheService(repo);
+        cache.reload();
+        InstrumentCatalogService catalog = new InstrumentCatalogService(cache, objectMapper);
+
+        InstrumentCatalogService.CatalogSnapshot snapshot = catalog.getSnapshot("nse").orElseThrow();
+
+        JsonNode json = objectMapper.readTree(snapshot.uncompressed());
+        assertEquals(2, json.get("count").asInt());
+        assertEquals(InstrumentCatalogService.COLUMNS.size(), json.get("data").size());
+        assertEquals(1L, json.get("data").get(0).get(0).asLong());
+        assertEquals("TCS", json.get("data").get(2).get(1).asText());
+        assertTrue(snapshot.etag().startsWith("\""));
+        assertTrue(snapshot.gzipBytes().length > 0);
+    }
+
+    @Test
+    void getSnapshot_ShouldRebuildOnlyAfterCacheReload() {
+        InstrumentRepository repo = mock(InstrumentRepository.class);
+        when(repo.findAll())
+                .thenReturn(List.of(instrument(1L, "INFY", "NSE", null)))
+                .thenReturn(List.of(instrument(1L, "INFY", "NSE", null), instrument(2L, "TCS", "NSE", null)));
+        InstrumentCacheService cache = new InstrumentCacheService(repo);
+        cache.reload();
+        InstrumentCatalogService catalog = new InstrumentCatalogService(cache, objectMapper);
+
+        InstrumentCatalogService.CatalogSnapshot first = catalog.getSnapshot("NSE").orElseThrow();
+        assertSame(first, catalog.getSnapshot("NSE").orElseThrow());
+
+        cache.reload();
+        InstrumentCatalogService.CatalogSnapshot second = catalog.getSnapshot("NSE").orElseThrow();
+        assertNotSame(first, second);
+        assertNotEquals(first.etag(), second.etag());
+        assertEquals(2, second.count());
+    }
+
+    @Test
+    void getSnapshot_WhenReloadLeavesExchangeUnchanged_ShouldKeepEtag() {
+        InstrumentRepository repo = mock(InstrumentRepository.class);
+        when(repo.findAll())
+                .thenReturn(List.of(instrument(1L, "INFY", "NSE", null), instrument(3L, "SENSEX", "BSE", null)))
+                .thenReturn(List.of(instrument(1L, "INFY", "NSE", null), instrument(4L, "RELIANCE", "BSE", null)));
+        InstrumentCacheService cache = new InstrumentCacheService(repo);
+        cache.reload();
+        InstrumentCatalogService catalog = new InstrumentCatalogService(cache, objectMapper);
+        InstrumentCatalogService.CatalogSnapshot first = catalog.getSnapshot("NSE").orElseThrow();
+
+        cache.reload();
+        InstrumentCatalogService.CatalogSnapshot second = catalog.getSnapshot("NSE").orElseThrow();
+
+        assertNotEquals(first.version(), second.version());
+        assertEquals(first.etag(), second.etag());
+    }
+
+    @Test
+    void getSnapshot_WithUnknownExchange_ShouldBeEmpty() {
+        InstrumentRepository repo = mock(InstrumentRepository.class);
+        when(repo.findAll()).thenReturn(List.of(instrument(1L, "INFY", "NSE", null)));
+        InstrumentCacheService cache = new InstrumentCacheService(repo);
+        cache.reload();
+        InstrumentCatalogService catalog = new InstrumentCatalogService(cache, objectMapper);
+
+        assertTrue(catalog.getSnapshot("NOPE").isEmpty());
+        assertTrue(catalog.getSnapshot(" nse ").isPresent());
+    }
+
+    private Instrument instrument(long token, String symbol, String exchange, LocalDate expiry) {
+        Instrument i = new Instrument();
+        i.setInstrumentToken(token);
+        i.setExchangeToken(token);
+        i.setTradingsymbol(symbol);
+        i.setName(symbol);
+        i.setLastPrice(100.0);
+        i.setExpiry(expiry);
+        i.setStrike(0.0);
+        i.setTickSize(0.05);
+        i.setLotSize(1);
+        i.setInstrumentType("EQ");
+        i.setSegment(exchange);
+        i.setExchange(exchange);
+        return i;
+    }
+}
@@ -3,6 +3,7 @@ package org.mandrin.rain.broker.service;
 import org.junit.jupiter.api.Test;
 import org.mandrin.rain.broker.model.Instrument;
 import org.mandrin.rain.broker.repository.InstrumentRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ClientResponse;
@@ -33,7 +34,7 @@ class InstrumentServiceTest {
         when(repo.findById(anyLong())).thenReturn(Optional.empty());
         when(repo.findByExchange(anyString())).thenReturn(List.of());
         
-        InstrumentService service = new InstrumentService(client, repo);
+        InstrumentService service = new InstrumentService(client, repo, mock(ApplicationEventPublisher.class));
         List<Instrument> list = service.fetchAndSave("nse");
         assertEquals(1, list.size());
         Instrument i = list.get(0);
@@ -47,7 +48,7 @@ class InstrumentServiceTest {
         WebClient client = WebClient.builder().exchangeFunction(fn).build();
         InstrumentRepository repo = mock(InstrumentRepository.class);
         when(repo.findDistinctExchange()).thenReturn(List.of("NSE"));
-        InstrumentService service = new InstrumentService(client, repo);
+        InstrumentService service = new InstrumentService(client, repo, mock(ApplicationEventPublisher.class));
         List<String> result = service.listExchanges();
         assertEquals(1, result.size());
         verify(repo).findDistinctExchange();
@@ -60,7 +61,7 @@ class InstrumentServiceTest {
         InstrumentRepository repo = mock(InstrumentRepository.class);
         InstrumentRepository.NameTokenView view = mock(InstrumentRepository.NameTokenView.class);
         when(repo.findNameTokenAll()).thenReturn(List.of(view));
-        InstrumentService service = new InstrumentService(client, repo);
+        InstrumentService service = new InstrumentService(client, repo, mock(ApplicationEventPublisher.class));
         List<InstrumentRepository.NameTokenView> result = service.listNameTokens();
         assertEquals(1, result.size());
         verify(repo).findNameTokenAll();
@@ -72,7 +73,7 @@ class InstrumentServiceTest {
         WebClient client = WebClient.builder().exchangeFunction(fn).build();
         InstrumentRepository repo = mock(InstrumentRepository.class);
         when(repo.findDistinctInstrumentType("NSE")).thenReturn(List.of("EQ"));
-        InstrumentService service = new InstrumentService(client, repo);
+        InstrumentService service = new InstrumentService(client, repo, mock(ApplicationEventPublisher.class));
         List<String> result = service.listInstrumentTypes("NSE");
         assertEquals(1, result.size());
         verify(repo).findDistinctInstrumentType("NSE");
@@ -85,7 +86,7 @@ class InstrumentServiceTest {
         InstrumentRepository repo = mock(InstrumentRepository.class);
         InstrumentRepository.NameTokenView view = mock(InstrumentRepository.NameTokenView.class);
         when(repo.findNameToken("NSE", "EQ")).thenReturn(List.of(view));
-        InstrumentService service = new InstrumentService(client, repo);
+        InstrumentService service = new InstrumentService(client, repo, mock(ApplicationEventPublisher.class));
         List<InstrumentRepository.NameTokenView> result = service.listNames("NSE", "EQ");
         assertEquals(1, result.size());
         verify(repo).findNameToken("NSE", "EQ");
@@ -1,5 +1,6 @@
 package org.mandrin.rain.broker.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mock.web.MockHttpSession;
@@ -13,7 +14,7 @@ class KiteAuthServiceTest {
 
     public KiteAuthServiceTest() {
         Environment mockEnvironment = Mockito.mock(Environment.class);
-        kiteAuthService = new KiteAuthService(mockEnvironment);
+        kiteAuthService = new KiteAuthService(mockEnvironment, new SimpleMeterRegistry());
         // Use reflection to set private fields for testing
         setField(kiteAuthService, "apiKey", "test_key");
         setField(kiteAuthService, "apiSecret", "test_secret");
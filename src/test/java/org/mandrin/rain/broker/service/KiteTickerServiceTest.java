@@ -1,16 +1,29 @@
 package org.mandrin.rain.broker.service;
 
+import com.zerodhatech.models.Depth;
+import com.zerodhatech.models.Tick;
+import com.zerodhatech.ticker.KiteTicker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.Test;
 import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.MarketTick;
 import org.mandrin.rain.broker.websocket.TickerWebSocketHandler;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 class KiteTickerServiceTest {
+    private final TickLatencyTracker latency = new TickLatencyTracker(new SimpleMeterRegistry(), true);
+
     private void setField(Object target, String fieldName, Object value) {
         try {
             java.lang.reflect.Field f = target.getClass().getDeclaredField(fieldName);
@@ -24,14 +37,14 @@ class KiteTickerServiceTest {
     @Test
     void subscribe_ShouldCallKiteTicker() {
         // Create a simple mock without using Mockito for problematic classes
-        TickerWebSocketHandler handler = new TickerWebSocketHandler() {
+        TickerWebSocketHandler handler = new TickerWebSocketHandler(latency) {
             @Override
             public void broadcast(String message) {
                 // Simple stub implementation
             }
         };
         
-        KiteTickerService service = new KiteTickerService(handler);
+        KiteTickerService service = new KiteTickerService(new TickPipeline(handler, latency));
         setField(service, "apiKey", "key");
         
         // Use a mock session that's safe to mock
@@ -50,16 +63,87 @@ class KiteTickerServiceTest {
     @Test
     void connect_WithoutToken_ShouldThrow() {
         // Create a simple handler without using Mockito
-        TickerWebSocketHandler handler = new TickerWebSocketHandler() {
+        TickerWebSocketHandler handler = new TickerWebSocketHandler(latency) {
             @Override
             public void broadcast(String message) {
                 // Simple stub implementation
             }
         };
         
-        KiteTickerService service = new KiteTickerService(handler);
+        KiteTickerService service = new KiteTickerService(new TickPipeline(handler, latency));
         HttpSession session = mock(HttpSession.class);
         when(session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION)).thenReturn(null);
         assertThrows(IllegalStateException.class, () -> service.connect(session));
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void subscribeAndDisconnect_ShouldOnlyTouchTheAccessTokensOwnTicker() throws Exception {
+        KiteTickerService service = new KiteTickerService(new TickPipeline(mock(TickerWebSocketHandler.class), latency));
+        KiteTicker tickerA = mock(KiteTicker.class);
+        KiteTicker tickerB = mock(KiteTicker.class);
+        when(tickerA.isConnectionOpen()).thenReturn(true);
+        when(tickerB.isConnectionOpen()).thenReturn(true);
+        java.lang.reflect.Field f = KiteTickerService.class.getDeclaredField("tickers");
+        f.setAccessible(true);
+        Map<String, KiteTicker> tickers = (Map<String, KiteTicker>) f.get(service);
+        tickers.put("token-a", tickerA);
+        tickers.put("token-b", tickerB);
+
+        service.subscribe("token-b", List.of(256265L));
+
+        verify(tickerB).subscribe(new ArrayList<>(List.of(256265L)));
+        verify(tickerA, never()).subscribe(any());
+
+        HttpSession sessionA = mock(HttpSession.class);
+        when(sessionA.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION)).thenReturn("token-a");
+        service.disconnect(sessionA);
+
+        verify(tickerA).disconnect();
+        verify(tickerB, never()).disconnect();
+        assertEquals(1, service.getConnectionCount());
+    }
+
+    @Test
+    void toMarketTick_ShouldCopyPricesAndDepthIntoReusedTick() {
+        Tick tick = new Tick();
+        tick.setInstrumentToken(738561L);
+        tick.setMode(KiteTicker.modeFull);
+        tick.setLastTradedPrice(2925.5);
+        tick.setClosePrice(2900.0);
+        tick.setOpenPrice(2910.0);
+        tick.setHighPrice(2950.0);
+        tick.setLowPrice(2890.0);
+        tick.setChange(0.879);
+        tick.setVolumeTradedToday(120000L);
+        tick.setTickTimestamp(new Date(1_760_000_000_000L));
+        Map<String, ArrayList<Depth>> depth = new HashMap<>();
+        depth.put("buy", new ArrayList<>(List.of(depth(2925.45, 100, 3), depth(2925.40, 200, 4))));
+        depth.put("sell", new ArrayList<>(List.of(depth(2925.55, 150, 5))));
+        tick.setMarketDepth(depth);
+
+        MarketTick target = new MarketTick();
+        target.setTradingsymbol("STALE");
+        KiteTickerService.toMarketTick(tick, target);
+
+        assertEquals(738561L, target.getInstrumentToken());
+        assertEquals(2925.5, target.getLastPrice());
+        assertEquals(25.5, target.getNetChange(), 1e-9);
+        assertEquals(0.879, target.getChangePercent());
+        assertEquals(120000L, target.getVolumeTraded());
+        assertEquals(1_760_000_000_000L, target.getTimestamp());
+        assertNull(target.getTradingsymbol());
+        // Only levels present on both sides are kept
+        assertEquals(1, target.getDepthLevels());
+        assertEquals(2925.45, target.getBidPrices()[0]);
+        assertEquals(150, target.getAskQuantities()[0]);
+    }
+
+    private static Depth depth(double price, int quantity, int orders) {
+        Depth depth = new Depth();
+        depth.setPrice(price);
+        depth.setQuantity(quantity);
+        depth.setOrders(orders);
+        return depth;
+    }
 }
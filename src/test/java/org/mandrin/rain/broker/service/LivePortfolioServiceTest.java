@@ -0,0 +1,119 @@
+package org.mandrin.rain.broker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.model.LivePosition;
+import org.mandrin.rain.broker.model.MarketTick;
+import org.mandrin.rain.broker.model.PortfolioUpdate;
+import org.mandrin.rain.broker.websocket.TickerWebSocketHandler;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LivePortfolioServiceTest {
+    private PortfolioService portfolioService;
+    private KiteTickerService tickerService;
+    private TickPipeline pipeline;
+    private LivePortfolioService service;
+
+    @BeforeEach
+    void setUp() {
+        portfolioService = mock(PortfolioService.class);
+        tickerService = mock(KiteTickerService.class);
+        pipeline = new TickPipeline(mock(TickerWebSocketHandler.class), new TickLatencyTracker(new SimpleMeterRegistry(), true));
+        service = new LivePortfolioService(portfolioService, tickerService, pipeline);
+        service.start();
+
+        when(portfolioService.getHoldings("token")).thenReturn(Mono.just(Map.of(
+                "status", "success",
+                "data", List.of(row(408065, "INFY", "CNC", 25, 1520.25, 1535.80, 1528.90, 388.75)))));
+        when(portfolioService.getPositions("token")).thenReturn(Mono.just(Map.of(
+                "status", "success",
+                "data", Map.of("net", List.of(row(256265, "RELIANCE", "MIS", 5, 2470.50, 2475.30, 0, 24.0))))));
+    }
+
+    @Test
+    void attach_ShouldLoadOnceAndSubscribeHeldTokens() {
+        PortfolioUpdate first = service.attach("token").block();
+        PortfolioUpdate second = service.attach("token").block();
+
+        assertTrue(first.isSnapshot());
+        assertEquals(2, first.getPositions().size());
+        assertEquals(412.75, first.getTotalPnl(), 1e-9);
+        assertEquals(2, second.getPositions().size());
+        verify(portfolioService, times(1)).getHoldings("token");
+        verify(tickerService).subscribe(eq("token"), argThat((List<Long> tokens) -> Set.copyOf(tokens).equals(Set.of(408065L, 256265L))));
+        assertEquals(Set.of(408065L, 256265L), pipeline.getListenerTokens());
+    }
+
+    @Test
+    void ticks_ShouldMovePnlIncrementallyAndDrainOnlyChangedPositions() {
+        service.attach("token").block();
+
+        pipeline.publish(tick(408065L, 1540.80));
+        pipeline.publish(tick(408065L, 1540.80));
+        pipeline.publish(tick(999L, 10.0));
+
+        PortfolioUpdate update = service.drainChanges("token");
+        assertFalse(update.isSnapshot());
+        assertEquals(1, update.getPositions().size());
+        LivePosition infy = update.getPositions().get(0);
+        assertEquals(1540.80, infy.getLastPrice());
+        assertEquals(388.75 + 25 * 5.0, infy.getPnl(), 1e-9);
+        assertEquals(25 * (1540.80 - 1528.90), infy.getDayChange(), 1e-9);
+        assertEquals(412.75 + 125.0, update.getTotalPnl(), 1e-9);
+        assertNull(service.drainChanges("token"));
+    }
+
+    @Test
+    void detach_ShouldDropBookAndStopRoutingTicks() {
+        service.attach("token").block();
+        service.detach("token");
+
+        pipeline.publish(tick(408065L, 1600.0));
+
+        assertNull(service.drainChanges("token"));
+        assertEquals(0, service.getBookCount());
+        assertTrue(pipeline.getListenerTokens().isEmpty());
+    }
+
+    @Test
+    void attach_WhenLoadFails_ShouldRetryOnNextAttach() {
+        when(portfolioService.getHoldings("token"))
+                .thenReturn(Mono.error(new IllegalStateException("down")))
+                .thenReturn(Mono.just(Map.of("status", "success", "data", List.of())));
+
+        assertThrows(IllegalStateException.class, () -> service.attach("token").block());
+        assertEquals(1, service.attach("token").block().getPositions().size());
+    }
+
+    private MarketTick tick(long token, double lastPrice) {
+        MarketTick tick = new MarketTick();
+        tick.setInstrumentToken(token);
+        tick.setLastPrice(lastPrice);
+        return tick;
+    }
+
+    private Map<String, Object> row(long token, String symbol, String product, int qty,
+                                    double avg, double ltp, double close, double pnl) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("instrument_token", token);
+        row.put("tradingsymbol", symbol);
+        row.put("exchange", "NSE");
+        row.put("product", product);
+        row.put("quantity", qty);
+        row.put("average_price", avg);
+        row.put("last_price", ltp);
+        row.put("close_price", close);
+        row.put("pnl", pnl);
+        return row;
+    }
+}
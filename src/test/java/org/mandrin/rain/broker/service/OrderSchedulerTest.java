@@ -0,0 +1,135 @@
+package org.mandrin.rain.broker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.util.RateLimitedBrokerStub;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderSchedulerTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private OrderScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    void unthrottledBurst_ShouldBeRejectedByBroker() {
+        RateLimitedBrokerStub broker = new RateLimitedBrokerStub(10);
+        WebClient client = WebClient.builder().exchangeFunction(broker).build();
+
+        Flux.range(0, 25)
+                .flatMap(i -> placeOrder(client, "user-a").onErrorResume(e -> Mono.empty()))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertTrue(broker.getRejected() > 0);
+    }
+
+    @Test
+    void scheduledBasket_ShouldStayWithinBrokerLimitPerUser() {
+        RateLimitedBrokerStub broker = new RateLimitedBrokerStub(10);
+        WebClient client = WebClient.builder().exchangeFunction(broker).build();
+        // A little headroom below the broker limit absorbs dispatch jitter
+        scheduler = new OrderScheduler(registry, 9, 100, 1);
+        scheduler.start();
+
+        List<Mono<String>> orders = IntStream.range(0, 30)
+                .mapToObj(i -> {
+                    String user = i % 2 == 0 ? "user-a" : "user-b";
+                    return scheduler.schedule(user, false, () -> placeOrder(client, user));
+                })
+                .toList();
+        List<String> results = Flux.merge(orders).collectList().block(Duration.ofSeconds(10));
+
+        assertEquals(30, results.size());
+        assertEquals(30, broker.getAccepted());
+        assertEquals(0, broker.getRejected());
+        assertEquals(30, registry.find("orders.scheduler.queue.time").timers().stream()
+                .mapToLong(t -> t.count()).sum());
+    }
+
+    @Test
+    void exitOrders_ShouldBeDispatchedBeforeQueuedEntries() {
+        scheduler = new OrderScheduler(registry, 5, 100, 1);
+        scheduler.start();
+        List<String> dispatched = new CopyOnWriteArrayList<>();
+
+        // The first entry takes the only token; everything after it has to queue
+        List<Mono<String>> orders = List.of(
+                scheduler.schedule("u", false, () -> record(dispatched, "entry-0")),
+                scheduler.schedule("u", false, () -> record(dispatched, "entry-1")),
+                scheduler.schedule("u", false, () -> record(dispatched, "entry-2")),
+                scheduler.schedule("u", true, () -> record(dispatched, "exit")));
+        orders.get(0).block(Duration.ofSeconds(2));
+        Flux.merge(orders.subList(1, 4)).blockLast(Duration.ofSeconds(5));
+
+        assertEquals(List.of("entry-0", "exit", "entry-1", "entry-2"), dispatched);
+    }
+
+    @Test
+    void equalPriorityOrders_ShouldBeDispatchedInArrivalOrder() {
+        scheduler = new OrderScheduler(registry, 20, 100, 1);
+        scheduler.start();
+        List<String> dispatched = new CopyOnWriteArrayList<>();
+
+        scheduler.schedule("u", false, () -> record(dispatched, "entry-0")).block(Duration.ofSeconds(2));
+        List<Mono<String>> orders = List.of(
+                scheduler.schedule("u", false, () -> record(dispatched, "entry-1")),
+                scheduler.schedule("u", true, () -> record(dispatched, "exit-1")),
+                scheduler.schedule("u", false, () -> record(dispatched, "entry-2")),
+                scheduler.schedule("u", true, () -> record(dispatched, "exit-2")),
+                scheduler.schedule("u", false, () -> record(dispatched, "entry-3")),
+                scheduler.schedule("u", true, () -> record(dispatched, "exit-3")),
+                scheduler.schedule("u", false, () -> record(dispatched, "entry-4")));
+        Flux.merge(orders).blockLast(Duration.ofSeconds(5));
+
+        assertEquals(List.of("entry-0", "exit-1", "exit-2", "exit-3",
+                "entry-1", "entry-2", "entry-3", "entry-4"), dispatched);
+    }
+
+    @Test
+    void busyUser_ShouldNotBlockOtherUsers() {
+        scheduler = new OrderScheduler(registry, 1, 100, 1);
+        scheduler.start();
+        List<String> dispatched = new CopyOnWriteArrayList<>();
+
+        Mono<String> first = scheduler.schedule("slow", false, () -> record(dispatched, "slow-0"));
+        first.block(Duration.ofSeconds(2));
+        Mono<String> queued = scheduler.schedule("slow", false, () -> record(dispatched, "slow-1"));
+        queued.subscribe();
+        String other = scheduler.schedule("fast", false, () -> record(dispatched, "fast-0"))
+                .block(Duration.ofMillis(500));
+
+        assertEquals("fast-0", other);
+        assertEquals(List.of("slow-0", "fast-0"), dispatched);
+    }
+
+    private Mono<String> placeOrder(WebClient client, String user) {
+        return client.post()
+                .uri("/orders/regular")
+                .header(HttpHeaders.AUTHORIZATION, user)
+                .retrieve()
+                .bodyToMono(String.class);
+    }
+
+    private Mono<String> record(List<String> dispatched, String label) {
+        return Mono.fromSupplier(() -> {
+            dispatched.add(label);
+            return label;
+        });
+    }
+}
@@ -1,10 +1,15 @@
 package org.mandrin.rain.broker.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.Test;
 import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.BasketOrderResult;
+import org.mandrin.rain.broker.model.OrderHistoryPage;
 import org.mandrin.rain.broker.model.TradeOrder;
 import org.mandrin.rain.broker.repository.TradeOrderRepository;
+import org.mandrin.rain.broker.util.RateLimitedBrokerStub;
+import org.mandrin.rain.broker.websocket.OrderWebSocketHandler;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.ClientRequest;
@@ -13,6 +18,10 @@ import org.springframework.web.reactive.function.client.ExchangeFunction;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,7 +38,9 @@ class OrderServiceTest {
         WebClient client = WebClient.builder().exchangeFunction(fn).build();
         TradeOrderRepository repo = mock(TradeOrderRepository.class);
         when(repo.save(any())).thenAnswer(inv -> inv.getArgument(0));
-        OrderService service = new OrderService(client, repo);
+        OrderService service = new OrderService(client, repo,
+                mock(OrderWriteBehindService.class), mock(OrderWebSocketHandler.class), scheduler(),
+                mock(PreTradeValidator.class), mock(OrderStateStore.class));
         setField(service, "apiKey", "key");
         HttpSession session = mock(HttpSession.class);
         when(session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION)).thenReturn("token");
@@ -44,6 +55,157 @@ class OrderServiceTest {
         verify(fn).exchange(any(ClientRequest.class));
     }
 
+    @Test
+    void submitOrder_ShouldReturnAcceptedAndWriteBehindOnCompletion() {
+        ExchangeFunction fn = mock(ExchangeFunction.class);
+        ClientResponse resp = ClientResponse.create(HttpStatus.OK)
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"data\":{\"order_id\":\"42\"}}")
+                .build();
+        when(fn.exchange(any(ClientRequest.class))).thenReturn(Mono.just(resp));
+        WebClient client = WebClient.builder().exchangeFunction(fn).build();
+        TradeOrderRepository repo = mock(TradeOrderRepository.class);
+        OrderWriteBehindService writer = mock(OrderWriteBehindService.class);
+        OrderWebSocketHandler ws = mock(OrderWebSocketHandler.class);
+        OrderService service = new OrderService(client, repo, writer, ws, scheduler(), mock(PreTradeValidator.class), mock(OrderStateStore.class));
+        setField(service, "apiKey", "key");
+        HttpSession session = mock(HttpSession.class);
+        when(session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION)).thenReturn("token");
+        TradeOrder req = new TradeOrder();
+        req.setTradingsymbol("ABC");
+        req.setExchange("NSE");
+        req.setTransactionType("BUY");
+        req.setQuantity(1);
+
+        TradeOrder accepted = service.submitOrder(session, req);
+
+        assertNotNull(accepted.getClientOrderId());
+        verify(writer, timeout(2000)).enqueue(accepted);
+        assertEquals(ApiConstants.ORDER_STATUS_PLACED, accepted.getStatus());
+        assertEquals("42", accepted.getOrderId());
+        verify(ws, atLeast(2)).broadcastOrderUpdate("token", accepted);
+        verify(repo, never()).save(any());
+    }
+
+    @Test
+    void submitOrder_ShouldMarkFailedWhenBrokerRejects() {
+        ExchangeFunction fn = mock(ExchangeFunction.class);
+        ClientResponse resp = ClientResponse.create(HttpStatus.BAD_REQUEST)
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"status\":\"error\"}")
+                .build();
+        when(fn.exchange(any(ClientRequest.class))).thenReturn(Mono.just(resp));
+        WebClient client = WebClient.builder().exchangeFunction(fn).build();
+        OrderWriteBehindService writer = mock(OrderWriteBehindService.class);
+        OrderService service = new OrderService(client, mock(TradeOrderRepository.class),
+                writer, mock(OrderWebSocketHandler.class), scheduler(), mock(PreTradeValidator.class), mock(OrderStateStore.class));
+        setField(service, "apiKey", "key");
+        HttpSession session = mock(HttpSession.class);
+        when(session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION)).thenReturn("token");
+        TradeOrder req = new TradeOrder();
+        req.setTradingsymbol("ABC");
+        req.setQuantity(1);
+
+        TradeOrder accepted = service.submitOrder(session, req);
+
+        verify(writer, timeout(2000)).enqueue(accepted);
+        assertEquals(ApiConstants.ORDER_STATUS_FAILED, accepted.getStatus());
+        assertNotNull(accepted.getStatusMessage());
+    }
+
+    @Test
+    void placeBasket_ShouldRejectInvalidLegsAndWriteBehindAllLegs() {
+        RateLimitedBrokerStub broker = new RateLimitedBrokerStub(100);
+        WebClient client = WebClient.builder().exchangeFunction(broker).build();
+        TradeOrderRepository repo = mock(TradeOrderRepository.class);
+        PreTradeValidator validator = mock(PreTradeValidator.class);
+        when(validator.validate(any())).thenAnswer(inv -> {
+            TradeOrder o = inv.getArgument(0);
+            return o.getQuantity() % 50 == 0 ? null : PreTradeValidator.RejectReason.LOT_SIZE;
+        });
+        OrderWriteBehindService writer = mock(OrderWriteBehindService.class);
+        OrderService service = new OrderService(client, repo, writer,
+                mock(OrderWebSocketHandler.class), scheduler(), validator, mock(OrderStateStore.class));
+        setField(service, "apiKey", "key");
+        HttpSession session = mock(HttpSession.class);
+        when(session.getAttribute(ApiConstants.KITE_ACCESS_TOKEN_SESSION)).thenReturn("token");
+        List<TradeOrder> legs = List.of(leg("NIFTY24DEC26000CE", 50), leg("NIFTY24DEC26000PE", 30),
+                leg("NIFTY24DEC26100CE", 100));
+
+        BasketOrderResult result = service.placeBasket(session, legs).block(Duration.ofSeconds(5));
+
+        assertEquals(3, result.getLegs());
+        assertEquals(2, result.getPlaced());
+        assertEquals(1, result.getRejected());
+        assertEquals(ApiConstants.ORDER_STATUS_REJECTED, result.getResults().get(1).getStatus());
+        assertNotNull(result.getResults().get(0).getOrderId());
+        assertEquals("NIFTY24DEC26100CE", result.getResults().get(2).getTradingsymbol());
+        assertEquals(2, broker.getAccepted());
+        // Never dispatched, so no timings
+        assertNull(result.getResults().get(1).getQueueMillis());
+        assertNull(result.getResults().get(1).getBrokerMillis());
+        assertNotNull(result.getResults().get(0).getBrokerMillis());
+        legs.forEach(leg -> verify(writer).enqueue(leg));
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void getHistory_ShouldReturnCursorThatResumesAfterLastRow() {
+        TradeOrderRepository repo = mock(TradeOrderRepository.class);
+        LocalDateTime t = LocalDateTime.of(2024, 12, 20, 10, 15);
+        List<TradeOrder> rows = List.of(historic(3L, t), historic(2L, t), historic(1L, t.minusMinutes(1)));
+        when(repo.findHistory(any(), any(), any(), any(), any(), any(), anyInt())).thenReturn(rows);
+        OrderService service = new OrderService(WebClient.create(), repo, mock(OrderWriteBehindService.class),
+                mock(OrderWebSocketHandler.class), mock(OrderScheduler.class), mock(PreTradeValidator.class),
+                mock(OrderStateStore.class));
+
+        OrderHistoryPage page = service.getHistory("INFY", "", LocalDate.of(2024, 12, 1),
+                LocalDate.of(2024, 12, 20), null, 2);
+
+        assertEquals(2, page.getOrders().size());
+        assertNotNull(page.getNextCursor());
+        verify(repo).findHistory("INFY", null, LocalDate.of(2024, 12, 1).atStartOfDay(),
+                LocalDate.of(2024, 12, 21).atStartOfDay(), null, null, 3);
+
+        when(repo.findHistory(any(), any(), any(), any(), any(), any(), anyInt())).thenReturn(List.of(rows.get(2)));
+        OrderHistoryPage next = service.getHistory("INFY", null, null, null, page.getNextCursor(), 2);
+
+        assertNull(next.getNextCursor());
+        verify(repo).findHistory("INFY", null, null, null, t, 2L, 3);
+    }
+
+    @Test
+    void getHistory_WithGarbageCursor_ShouldThrowIllegalArgument() {
+        OrderService service = new OrderService(WebClient.create(), mock(TradeOrderRepository.class),
+                mock(OrderWriteBehindService.class), mock(OrderWebSocketHandler.class), mock(OrderScheduler.class),
+                mock(PreTradeValidator.class), mock(OrderStateStore.class));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getHistory(null, null, null, null, "not-a-cursor", 10));
+    }
+
+    private TradeOrder historic(long id, LocalDateTime placedAt) {
+        TradeOrder o = new TradeOrder();
+        o.setId(id);
+        o.setPlacedAt(placedAt);
+        return o;
+    }
+
+    private TradeOrder leg(String symbol, int quantity) {
+        TradeOrder o = new TradeOrder();
+        o.setTradingsymbol(symbol);
+        o.setExchange("NFO");
+        o.setTransactionType("BUY");
+        o.setQuantity(quantity);
+        return o;
+    }
+
+    private OrderScheduler scheduler() {
+        OrderScheduler scheduler = new OrderScheduler(new SimpleMeterRegistry(), 1000, 1000, 10);
+        scheduler.start();
+        return scheduler;
+    }
+
     private void setField(Object target, String field, Object value) {
         try {
             java.lang.reflect.Field f = target.getClass().getDeclaredField(field);
@@ -0,0 +1,205 @@
+package org.mandrin.rain.broker.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.TradeOrder;
+import org.mandrin.rain.broker.repository.TradeOrderRepository;
+import org.mandrin.rain.broker.websocket.OrderWebSocketHandler;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OrderStateStoreTest {
+    private OrderWriteBehindService writer;
+    private OrderWebSocketHandler ws;
+    private OrderStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        writer = mock(OrderWriteBehindService.class);
+        ws = mock(OrderWebSocketHandler.class);
+        store = new OrderStateStore(mock(TradeOrderRepository.class), writer, ws);
+        setField(store, "apiSecret", "secret");
+    }
+
+    @Test
+    void applyUpdate_ShouldUpdateTrackedOrderPersistAndPush() {
+        TradeOrder order = placed("c1", "100");
+        store.track(order, "token");
+
+        TradeOrder updated = store.applyUpdate(update("100", "COMPLETE", 50, 101.5));
+
+        assertSame(order, updated);
+        assertEquals("COMPLETE", order.getStatus());
+        assertEquals(50, order.getFilledQuantity());
+        assertEquals(101.5, order.getAveragePrice());
+        assertSame(order, store.get("100"));
+        assertTrue(store.getOpenOrderTokens().isEmpty());
+        verify(writer).enqueue(order);
+        verify(ws).broadcastOrderUpdate("token", order);
+    }
+
+    @Test
+    void applyUpdate_ShouldIgnoreOpenStatusAfterTerminal() {
+        TradeOrder order = placed("c1", "100");
+        store.track(order, "token");
+        store.applyUpdate(update("100", "COMPLETE", 50, 101.5));
+
+        assertNull(store.applyUpdate(update("100", "OPEN", 0, null)));
+        assertEquals("COMPLETE", order.getStatus());
+        verify(writer, times(1)).enqueue(order);
+    }
+
+    @Test
+    void applyUpdate_ForUnknownOrder_ShouldTrackIt() {
+        Map<String, Object> update = update("200", "OPEN", 0, null);
+        update.put("tradingsymbol", "INFY");
+
+        store.applyUpdate(update);
+
+        assertEquals("INFY", store.get("200").getTradingsymbol());
+        assertEquals(1, store.list().size());
+        assertNull(store.ownerOf(store.get("200")));
+        verify(ws).broadcastOrderUpdate(null, store.get("200"));
+    }
+
+    @Test
+    void track_WhenPostbackArrivedFirst_ShouldKeepOneOrderWithPostbackStatus() {
+        store.applyUpdate(update("100", "COMPLETE", 50, 99.0));
+        TradeOrder order = placed("c1", "100");
+        order.setStatus(ApiConstants.ORDER_STATUS_PLACED);
+
+        store.track(order, "token");
+
+        assertEquals(1, store.list().size());
+        assertEquals("COMPLETE", store.get("100").getStatus());
+        assertSame(order, store.get("c1"));
+        // Only the tracked order is ever persisted, by its placement path
+        store.persistUnclaimed(System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+        verify(writer, never()).enqueue(any());
+    }
+
+    @Test
+    void persistUnclaimed_ShouldWriteOrdersPlacedElsewhereAfterGracePeriod() {
+        store.applyUpdate(update("300", "OPEN", 0, null));
+        TradeOrder external = store.get("300");
+
+        store.persistUnclaimed(System.nanoTime());
+        verify(writer, never()).enqueue(any());
+
+        store.persistUnclaimed(System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+        verify(writer).enqueue(external);
+
+        store.applyUpdate(update("300", "COMPLETE", 50, 99.0));
+        verify(writer, times(2)).enqueue(external);
+    }
+
+    @Test
+    void applyPostback_ShouldVerifyChecksum() {
+        store.track(placed("c1", "100"), "token");
+        Map<String, Object> payload = update("100", "COMPLETE", 50, 101.5);
+        payload.put("order_timestamp", "2024-12-20 10:15:00");
+        payload.put("checksum", "bad");
+
+        assertFalse(store.applyPostback(payload));
+        assertEquals(ApiConstants.ORDER_STATUS_PLACED, store.get("100").getStatus());
+
+        payload.put("checksum", store.checksum("100", "2024-12-20 10:15:00"));
+        assertTrue(store.applyPostback(payload));
+        assertEquals("COMPLETE", store.get("100").getStatus());
+    }
+
+    @Test
+    void list_ShouldReturnMostRecentFirst() {
+        TradeOrder older = placed("c1", "100");
+        older.setPlacedAt(LocalDateTime.now(TradeOrder.PLACED_AT_ZONE).minusMinutes(5));
+        TradeOrder newer = placed("c2", "101");
+        store.track(older, "token");
+        store.track(newer, "token");
+
+        assertEquals(List.of(newer, older), store.list());
+    }
+
+    @Test
+    void evictPreviousDays_ShouldDropEarlierOrdersWhateverTheirStatus() {
+        TradeOrder finished = placed("c1", "100");
+        finished.setPlacedAt(LocalDateTime.now().minusDays(2));
+        finished.setStatus(ApiConstants.ORDER_STATUS_COMPLETE);
+        TradeOrder stale = placed("c2", "101");
+        stale.setPlacedAt(LocalDateTime.now().minusDays(2));
+        TradeOrder current = placed("c3", "102");
+        current.setPlacedAt(LocalDateTime.now(TradeOrder.PLACED_AT_ZONE));
+        store.track(finished, "token");
+        store.track(stale, "token");
+        store.track(current, "token");
+
+        store.evictPreviousDays();
+
+        assertEquals(List.of(current), store.list());
+        assertNull(store.get("101"));
+        assertNull(store.ownerOf(stale));
+        assertEquals(Map.of("102", "token"), store.getOpenOrderTokens());
+    }
+
+    @Test
+    void tradingDay_OnUtcHost_ShouldStartAtMidnightInIndia() {
+        // 01:30 IST on 27 Dec, still 26 Dec in UTC
+        Clock utc = Clock.fixed(Instant.parse("2024-12-26T20:00:00Z"), ZoneOffset.UTC);
+        TradeOrderRepository repository = mock(TradeOrderRepository.class);
+        when(repository.findByPlacedAtGreaterThanEqual(any())).thenReturn(List.of());
+        OrderStateStore utcStore = new OrderStateStore(repository, writer, ws, utc);
+        setField(utcStore, "apiSecret", "secret");
+        TradeOrder yesterday = placed("c1", "100");
+        yesterday.setPlacedAt(LocalDateTime.of(2024, 12, 26, 15, 0));
+        utcStore.track(yesterday, "token");
+
+        utcStore.loadToday();
+        TradeOrder elsewhere = utcStore.applyUpdate(update("101", "OPEN", 0, null));
+        utcStore.evictPreviousDays();
+
+        verify(repository).findByPlacedAtGreaterThanEqual(LocalDateTime.of(2024, 12, 27, 0, 0));
+        assertEquals(LocalDateTime.of(2024, 12, 27, 1, 30), elsewhere.getPlacedAt());
+        assertEquals(List.of(elsewhere), utcStore.list());
+    }
+
+    private TradeOrder placed(String clientOrderId, String orderId) {
+        TradeOrder order = new TradeOrder();
+        order.setClientOrderId(clientOrderId);
+        order.setOrderId(orderId);
+        order.setTradingsymbol("NIFTY24DEC26000CE");
+        order.setQuantity(50);
+        order.setStatus(ApiConstants.ORDER_STATUS_PLACED);
+        order.setPlacedAt(LocalDateTime.now(TradeOrder.PLACED_AT_ZONE));
+        return order;
+    }
+
+    private Map<String, Object> update(String orderId, String status, int filled, Double averagePrice) {
+        Map<String, Object> update = new HashMap<>();
+        update.put("order_id", orderId);
+        update.put("status", status);
+        update.put("filled_quantity", filled);
+        update.put("average_price", averagePrice);
+        return update;
+    }
+
+    private void setField(Object target, String field, Object value) {
+        try {
+            java.lang.reflect.Field f = target.getClass().getDeclaredField(field);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.mandrin.rain.broker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.model.TradeOrder;
+import org.mandrin.rain.broker.repository.TradeOrderRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderWriteBehindServiceTest {
+    private final TradeOrderRepository repository = mock(TradeOrderRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OrderWriteBehindService service = new OrderWriteBehindService(repository, registry, 500, 3);
+
+    @Test
+    void flush_ShouldWriteEachQueuedOrderOnceWithLatestState() {
+        TradeOrder order = order("c1");
+        service.enqueue(order);
+        service.enqueue(order);
+
+        assertEquals(1, service.flush());
+        verify(repository).saveAll(List.of(order));
+        assertEquals(0, service.getPendingCount());
+    }
+
+    @Test
+    void flush_WhenBatchFails_ShouldWriteGoodRowsAndDeadLetterBadOneAfterMaxAttempts() {
+        TradeOrder good = order("good");
+        TradeOrder bad = order("bad");
+        when(repository.saveAll(anyList())).thenThrow(new RuntimeException("value too long"));
+        when(repository.save(same(bad))).thenThrow(new RuntimeException("value too long"));
+        service.enqueue(good);
+        service.enqueue(bad);
+
+        assertEquals(1, service.flush());
+        verify(repository).save(good);
+        assertEquals(1, service.getPendingCount());
+
+        service.flush();
+        assertEquals(1, service.getPendingCount());
+        service.flush();
+
+        assertEquals(0, service.getPendingCount());
+        verify(repository, times(3)).save(bad);
+        assertEquals(1.0, registry.counter("orders.write-behind.dead-lettered").count());
+        assertEquals(0, service.flush());
+    }
+
+    @Test
+    void setStatusMessage_ShouldTruncateToColumnLength() {
+        TradeOrder order = order("c1");
+
+        order.setStatusMessage("x".repeat(1_000));
+
+        assertEquals(TradeOrder.STATUS_MESSAGE_LENGTH, order.getStatusMessage().length());
+    }
+
+    private TradeOrder order(String clientOrderId) {
+        TradeOrder order = new TradeOrder();
+        order.setClientOrderId(clientOrderId);
+        order.setTradingsymbol("INFY");
+        return order;
+    }
+}
@@ -0,0 +1,107 @@
+package org.mandrin.rain.broker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortfolioServiceTest {
+    private final AtomicInteger upstream = new AtomicInteger();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private void setField(Object target, String fieldName, Object value) {
+        try {
+            java.lang.reflect.Field f = target.getClass().getDeclaredField(fieldName);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private PortfolioService service(long ttlMillis, long staleMillis) {
+        // Each upstream call answers with its own sequence number after a short delay
+        WebClient client = WebClient.builder().exchangeFunction(request -> {
+            int call = upstream.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(50)).map(ignored -> ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body("{\"status\":\"success\",\"data\":[{\"call\":" + call + "}]}")
+                    .build());
+        }).build();
+        PortfolioService service = new PortfolioService(client, registry, ttlMillis, staleMillis);
+        setField(service, "apiKey", "key");
+        return service;
+    }
+
+    @Test
+    void concurrentMisses_ShouldShareOneUpstreamCall() {
+        PortfolioService service = service(2_000, 30_000);
+
+        List<Map<String, Object>> responses = Flux.range(0, 20)
+                .flatMap(i -> service.getHoldings("token"))
+                .collectList()
+                .block();
+
+        assertEquals(20, responses.size());
+        assertEquals(1, upstream.get());
+        assertEquals(1.0, registry.get("portfolio.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(19.0, registry.get("portfolio.cache.requests").tag("result", "coalesced").counter().count());
+        assertEquals(1.0, registry.get("portfolio.cache.upstream.calls").tag("kind", "holdings").counter().count());
+    }
+
+    @Test
+    void freshEntry_ShouldBeServedFromCachePerTokenAndKind() {
+        PortfolioService service = service(2_000, 30_000);
+        service.getHoldings("token").block();
+
+        service.getHoldings("token").block();
+        service.getHoldings("token").block();
+        assertEquals(1, upstream.get());
+
+        service.getHoldings("other").block();
+        service.getPositions("token").block();
+        assertEquals(3, upstream.get());
+        assertEquals(0.4, service.hitRatio(), 1e-9);
+    }
+
+    @Test
+    void staleEntry_ShouldBeServedWhileRefreshingInBackground() throws Exception {
+        PortfolioService service = service(200, 30_000);
+        Map<String, Object> first = service.getHoldings("token").block();
+        Thread.sleep(250);
+
+        Map<String, Object> stale = service.getHoldings("token").block();
+        assertSame(first, stale);
+        Thread.sleep(100);
+
+        Map<String, Object> refreshed = service.getHoldings("token").block();
+        assertNotSame(first, refreshed);
+        assertEquals(2, upstream.get());
+        assertEquals(1.0, registry.get("portfolio.cache.requests").tag("result", "stale").counter().count());
+    }
+
+    @Test
+    void evictExpired_ShouldDropEntriesPastStaleWindow() throws Exception {
+        PortfolioService service = service(10, 10);
+        service.getHoldings("token").block();
+        Thread.sleep(50);
+
+        service.evictExpired();
+        service.getHoldings("token").block();
+
+        assertEquals(2, upstream.get());
+        assertEquals(2.0, registry.get("portfolio.cache.requests").tag("result", "miss").counter().count());
+    }
+}
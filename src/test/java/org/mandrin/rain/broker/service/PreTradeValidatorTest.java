@@ -0,0 +1,111 @@
+package org.mandrin.rain.broker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.model.TradeOrder;
+import org.mandrin.rain.broker.repository.InstrumentRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PreTradeValidatorTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private InstrumentCacheService cache;
+    private PreTradeValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        InstrumentRepository repo = mock(InstrumentRepository.class);
+        when(repo.findAll()).thenReturn(List.of(
+                instrument(1L, "NIFTY24DEC26000CE", "NFO", 50, 0.05, LocalDate.of(2099, 12, 26)),
+                instrument(2L, "INFY", "NSE", 1, 0.05, null),
+                instrument(3L, "NIFTY24JAN26000CE", "NFO", 50, 0.05, LocalDate.of(2024, 1, 25))));
+        cache = new InstrumentCacheService(repo);
+        cache.reload();
+        validator = new PreTradeValidator(cache, registry);
+    }
+
+    @Test
+    void validate_ShouldAcceptWholeLotsOnTick() {
+        assertNull(validator.validate(order(1L, null, null, 150, 125.35)));
+        assertNull(validator.validate(order(null, "NSE", "infy", 7, null)));
+    }
+
+    @Test
+    void validate_ShouldRejectPartialLot() {
+        assertEquals(PreTradeValidator.RejectReason.LOT_SIZE, validator.validate(order(1L, null, null, 75, null)));
+    }
+
+    @Test
+    void validate_ShouldRejectOffTickPrice() {
+        assertEquals(PreTradeValidator.RejectReason.TICK_SIZE, validator.validate(order(2L, null, null, 1, 1500.12)));
+    }
+
+    @Test
+    void validate_ShouldRejectUnknownInstrumentAndBadQuantity() {
+        assertEquals(PreTradeValidator.RejectReason.UNKNOWN_INSTRUMENT,
+                validator.validate(order(99L, "NSE", "UNKNOWN", 1, null)));
+        assertEquals(PreTradeValidator.RejectReason.INVALID_QUANTITY, validator.validate(order(2L, null, null, 0, null)));
+    }
+
+    @Test
+    void validate_ShouldRejectExpiredContractButAllowExpiryDay() {
+        PreTradeValidator expiryDay = new PreTradeValidator(cache, registry,
+                Clock.fixed(Instant.parse("2024-01-25T05:00:00Z"), ZoneId.of("Asia/Kolkata")));
+        assertNull(expiryDay.validate(order(3L, null, null, 50, null)));
+
+        PreTradeValidator dayAfter = new PreTradeValidator(cache, registry,
+                Clock.fixed(Instant.parse("2024-01-26T05:00:00Z"), ZoneId.of("Asia/Kolkata")));
+        assertEquals(PreTradeValidator.RejectReason.EXPIRED, dayAfter.validate(order(3L, null, null, 50, null)));
+    }
+
+    @Test
+    void validate_BeforeInstrumentCacheLoads_ShouldOnlyCheckQuantity() {
+        PreTradeValidator cold = new PreTradeValidator(
+                new InstrumentCacheService(mock(InstrumentRepository.class)), new SimpleMeterRegistry());
+
+        assertNull(cold.validate(order(99L, "NSE", "UNKNOWN", 75, 1500.12)));
+        assertEquals(PreTradeValidator.RejectReason.INVALID_QUANTITY, cold.validate(order(99L, null, null, 0, null)));
+    }
+
+    @Test
+    void validate_ShouldCountRejectsByReason() {
+        validator.validate(order(1L, null, null, 75, null));
+        validator.validate(order(1L, null, null, 25, null));
+        validator.validate(order(1L, null, null, 50, null));
+
+        assertEquals(3.0, registry.get("orders.pretrade.checked").counter().count());
+        assertEquals(2.0, registry.get("orders.pretrade.rejected").tag("reason", "LOT_SIZE").counter().count());
+        assertEquals(0.0, registry.get("orders.pretrade.rejected").tag("reason", "TICK_SIZE").counter().count());
+    }
+
+    private TradeOrder order(Long token, String exchange, String symbol, int quantity, Double price) {
+        TradeOrder o = new TradeOrder();
+        o.setInstrumentToken(token);
+        o.setExchange(exchange);
+        o.setTradingsymbol(symbol);
+        o.setQuantity(quantity);
+        o.setPrice(price);
+        return o;
+    }
+
+    private Instrument instrument(long token, String symbol, String exchange, int lotSize, double tickSize, LocalDate expiry) {
+        Instrument i = new Instrument();
+        i.setInstrumentToken(token);
+        i.setTradingsymbol(symbol);
+        i.setName(symbol);
+        i.setExchange(exchange);
+        i.setLotSize(lotSize);
+        i.setTickSize(tickSize);
+        i.setExpiry(expiry);
+        return i;
+    }
+}
@@ -0,0 +1,115 @@
+package org.mandrin.rain.broker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionValidationServiceTest {
+    private final AtomicInteger profileCalls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService pool = Executors.newFixedThreadPool(16);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // Stands in for KiteConnect.getProfile, blocking until the test releases it
+    private final SessionValidationService service = new SessionValidationService(registry, 3) {
+        @Override
+        TokenValidationResult validateWithKiteAPI(String accessToken) {
+            profileCalls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new TokenValidationResult(true, null);
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        service.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, SessionValidationService.TokenValidationResult> cache() throws Exception {
+        java.lang.reflect.Field f = SessionValidationService.class.getDeclaredField("validationCache");
+        f.setAccessible(true);
+        return ((Cache<String, SessionValidationService.TokenValidationResult>) f.get(service)).asMap();
+    }
+
+    @Test
+    void concurrentMisses_ShouldShareOneValidation() throws Exception {
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            results.add(pool.submit(() -> service.isAccessTokenValid("token")));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, profileCalls.get());
+        assertEquals(1, service.getCacheSize());
+    }
+
+    @Test
+    void entryNearExpiry_ShouldBeServedAndRefreshedInBackground() throws Exception {
+        long fourAndHalfMinutesAgo = System.nanoTime() - TimeUnit.SECONDS.toNanos(270);
+        cache().put("token", new SessionValidationService.TokenValidationResult(true, null, fourAndHalfMinutesAgo));
+        release.countDown();
+
+        assertTrue(service.isAccessTokenValid("token"));
+        assertTrue(service.isAccessTokenValid("token"));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache().get("token").checkedAtNanos == fourAndHalfMinutesAgo && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotEquals(fourAndHalfMinutesAgo, cache().get("token").checkedAtNanos);
+        assertEquals(1, profileCalls.get());
+    }
+
+    @Test
+    void expiredEntries_ShouldBeRevalidatedAndCleared() throws Exception {
+        long sixMinutesAgo = System.nanoTime() - TimeUnit.MINUTES.toNanos(6);
+        cache().put("old", new SessionValidationService.TokenValidationResult(true, null, sixMinutesAgo));
+        cache().put("stale", new SessionValidationService.TokenValidationResult(false, "expired", sixMinutesAgo));
+        release.countDown();
+
+        service.clearExpiredCache();
+        assertEquals(0, service.getCacheSize());
+
+        assertTrue(service.isAccessTokenValid("old"));
+        assertEquals(1, profileCalls.get());
+    }
+
+    @Test
+    void cache_ShouldStayBoundedAndPublishMetrics() {
+        release.countDown();
+        for (int i = 0; i < 50; i++) {
+            service.isAccessTokenValid("token-" + i);
+        }
+        service.isAccessTokenValid("token-49");
+        service.clearExpiredCache();
+
+        assertTrue(service.getCacheSize() <= 3);
+        assertTrue(registry.get("cache.gets").tag("cache", "session.validation").tag("result", "miss")
+                .functionCounter().count() >= 50);
+        assertTrue(registry.get("cache.evictions").tag("cache", "session.validation")
+                .functionCounter().count() > 0);
+    }
+}
@@ -0,0 +1,101 @@
+package org.mandrin.rain.broker.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TradeOrderPartitionServiceTest {
+    @TempDir
+    Path archiveDir;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private TradeOrderPartitionService service;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:partitions;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        jdbc = spy(new JdbcTemplate(dataSource));
+        service = spy(new TradeOrderPartitionService(jdbc, dataSource));
+        setField(service, "monthsAhead", 2);
+        setField(service, "retentionMonths", 12);
+        setField(service, "archiveDir", archiveDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void monthOf_ShouldParseMonthlyPartitionNames() {
+        assertEquals(YearMonth.of(2024, 3), TradeOrderPartitionService.monthOf("trade_orders_p2024_03"));
+        assertNull(TradeOrderPartitionService.monthOf("trade_orders_default"));
+    }
+
+    @Test
+    void ensurePartitions_ShouldCreateCurrentAndUpcomingMonths() {
+        doReturn("p").when(jdbc).queryForObject(eq("SELECT ensure_trade_orders_partition(?)"), eq(String.class), any(LocalDate.class));
+
+        service.ensurePartitions(YearMonth.of(2024, 12));
+
+        verify(jdbc).queryForObject(anyString(), eq(String.class), eq(LocalDate.of(2024, 12, 1)));
+        verify(jdbc).queryForObject(anyString(), eq(String.class), eq(LocalDate.of(2025, 1, 1)));
+        verify(jdbc).queryForObject(anyString(), eq(String.class), eq(LocalDate.of(2025, 2, 1)));
+    }
+
+    @Test
+    void archiveExpired_ShouldExportOldPartitionToGzipCsvAndDropIt() throws Exception {
+        jdbc.execute("CREATE TABLE trade_orders_p2023_01 (id BIGINT, tradingsymbol VARCHAR(50), placed_at TIMESTAMP)");
+        jdbc.execute("CREATE TABLE trade_orders_p2024_06 (id BIGINT, tradingsymbol VARCHAR(50), placed_at TIMESTAMP)");
+        jdbc.update("INSERT INTO trade_orders_p2023_01 VALUES (1, 'INFY', TIMESTAMP '2023-01-05 10:00:00')");
+        jdbc.update("INSERT INTO trade_orders_p2023_01 VALUES (2, 'TCS', TIMESTAMP '2023-01-06 10:00:00')");
+        doReturn(List.of("trade_orders_default", "trade_orders_p2023_01", "trade_orders_p2024_06"))
+                .when(service).listPartitions();
+        // H2 has no declarative partitioning
+        doNothing().when(jdbc).execute(startsWith("ALTER TABLE trade_orders DETACH PARTITION"));
+
+        List<Path> archived = service.archiveExpired(YearMonth.of(2024, 12));
+
+        assertEquals(List.of(archiveDir.resolve("trade_orders_2023_01.csv.gz")), archived);
+        String csv;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archived.get(0)))) {
+            csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> lines = csv.lines().toList();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).equalsIgnoreCase("ID,TRADINGSYMBOL,PLACED_AT"));
+        assertTrue(lines.get(1).startsWith("1,INFY,"));
+        verify(jdbc).execute("ALTER TABLE trade_orders DETACH PARTITION trade_orders_p2023_01");
+        assertEquals(0, jdbc.queryForObject(
+                "SELECT count(*) FROM information_schema.tables WHERE lower(table_name) = 'trade_orders_p2023_01'",
+                Integer.class));
+        assertEquals(0, jdbc.queryForObject("SELECT count(*) FROM trade_orders_p2024_06", Integer.class));
+    }
+
+    private void setField(Object target, String field, Object value) {
+        try {
+            java.lang.reflect.Field f = TradeOrderPartitionService.class.getDeclaredField(field);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.mandrin.rain.broker.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for the Kite order API that enforces a per-user orders-per-second limit.
+ * Requests are counted per Authorization header in fixed one-second windows, and
+ * requests over the limit get the broker's 429 "Too many requests" response.
+ */
+public class RateLimitedBrokerStub implements ExchangeFunction {
+
+    private final int ordersPerSecond;
+    private final Map<String, long[]> windows = new ConcurrentHashMap<>();
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final AtomicLong orderIds = new AtomicLong(1000);
+
+    public RateLimitedBrokerStub(int ordersPerSecond) {
+        this.ordersPerSecond = ordersPerSecond;
+    }
+
+    @Override
+    public Mono<ClientResponse> exchange(ClientRequest request) {
+        String user = String.valueOf(request.headers().getFirst(HttpHeaders.AUTHORIZATION));
+        long second = System.currentTimeMillis() / 1000;
+        boolean allowed;
+        long[] window = windows.computeIfAbsent(user, k -> new long[2]);
+        synchronized (window) {
+            if (window[0] != second) {
+                window[0] = second;
+                window[1] = 0;
+            }
+            allowed = ++window[1] <= ordersPerSecond;
+        }
+
+        if (!allowed) {
+            rejected.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body("{\"status\":\"error\",\"message\":\"Too many requests\",\"error_type\":\"NetworkException\"}")
+                    .build());
+        }
+        accepted.incrementAndGet();
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"status\":\"success\",\"data\":{\"order_id\":\"" + orderIds.incrementAndGet() + "\"}}")
+                .build());
+    }
+
+    public int getAccepted() {
+        return accepted.get();
+    }
+
+    public int getRejected() {
+        return rejected.get();
+    }
+}
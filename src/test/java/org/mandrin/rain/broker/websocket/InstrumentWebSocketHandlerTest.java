@@ -0,0 +1,126 @@
+package org.mandrin.rain.broker.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.event.InstrumentsRefreshedEvent;
+import org.mandrin.rain.broker.model.Instrument;
+import org.mandrin.rain.broker.repository.InstrumentRepository;
+import org.mandrin.rain.broker.service.InstrumentCacheService;
+import org.mandrin.rain.broker.service.ReactiveInstrumentService;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InstrumentWebSocketHandlerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void subscribe_ShouldStreamChunksThenDeltasOnRefresh() throws Exception {
+        InstrumentRepository repo = mock(InstrumentRepository.class);
+        when(repo.findAll())
+                .thenReturn(List.of(instrument(1L, "NSE", 100.0), instrument(2L, "NSE", 200.0), instrument(3L, "NSE", 300.0)))
+                .thenReturn(List.of(instrument(1L, "NSE", 101.0), instrument(3L, "NSE", 300.0), instrument(4L, "NSE", 400.0)));
+        InstrumentCacheService cache = new InstrumentCacheService(repo);
+        cache.reload();
+        InstrumentWebSocketHandler handler = new InstrumentWebSocketHandler(
+                mock(ReactiveInstrumentService.class), cache, objectMapper, 2);
+
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        handler.afterConnectionEstablished(session);
+        handler.handleTextMessage(session, new TextMessage(
+                "{\"action\":\"subscribe\",\"filterType\":\"exchange\",\"filterValue\":\"NSE\"}"));
+
+        cache.reload();
+        handler.onInstrumentsRefreshed(new InstrumentsRefreshedEvent("NSE", 3));
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, atLeastOnce()).sendMessage(captor.capture());
+        List<JsonNode> messages = captor.getAllValues().stream().map(m -> read(m.getPayload())).toList();
+
+        assertEquals("connection", messages.get(0).get("type").asText());
+        assertEquals("instrumentSnapshot", messages.get(1).get("type").asText());
+        assertEquals(2, messages.get(1).get("chunks").asInt());
+        assertEquals(2, messages.get(1).get("data").size());
+        assertEquals(1, messages.get(2).get("data").size());
+        assertEquals(3, messages.get(3).get("count").asInt());
+
+        JsonNode delta = messages.get(4);
+        assertEquals("instrumentDelta", delta.get("type").asText());
+        assertEquals(4L, delta.get("added").get(0).get("instrumentToken").asLong());
+        assertEquals(1L, delta.get("updated").get(0).get("instrumentToken").asLong());
+        assertEquals(2L, delta.get("removed").get(0).asLong());
+    }
+
+    @Test
+    void subscribe_SameFilterFromTwoSessions_ShouldShareOneResultSetUntilBothLeave() throws Exception {
+        InstrumentRepository repo = mock(InstrumentRepository.class);
+        when(repo.findAll())
+                .thenReturn(List.of(instrument(1L, "NSE", 100.0)))
+                .thenReturn(List.of(instrument(1L, "NSE", 100.0), instrument(2L, "NSE", 200.0)));
+        InstrumentCacheService cache = new InstrumentCacheService(repo);
+        cache.reload();
+        InstrumentWebSocketHandler handler = new InstrumentWebSocketHandler(
+                mock(ReactiveInstrumentService.class), cache, objectMapper, 500);
+        WebSocketSession first = session("s1");
+        WebSocketSession second = session("s2");
+        String subscribe = "{\"action\":\"subscribe\",\"filterType\":\"exchange\",\"filterValue\":\"NSE\"}";
+        handler.afterConnectionEstablished(first);
+        handler.afterConnectionEstablished(second);
+        handler.handleTextMessage(first, new TextMessage(subscribe));
+        handler.handleTextMessage(second, new TextMessage(subscribe));
+
+        assertEquals(1, handler.getFilterResultCount());
+
+        cache.reload();
+        handler.onInstrumentsRefreshed(new InstrumentsRefreshedEvent("NSE", 2));
+
+        for (WebSocketSession session : List.of(first, second)) {
+            ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+            verify(session, atLeastOnce()).sendMessage(captor.capture());
+            JsonNode delta = read(captor.getValue().getPayload());
+            assertEquals("instrumentDelta", delta.get("type").asText());
+            assertEquals(2L, delta.get("added").get(0).get("instrumentToken").asLong());
+        }
+
+        handler.handleTextMessage(first, new TextMessage("{\"action\":\"unsubscribe\",\"subscriptionId\":\"exchange:NSE:\"}"));
+        assertEquals(1, handler.getFilterResultCount());
+        handler.afterConnectionClosed(second, CloseStatus.NORMAL);
+        assertEquals(0, handler.getFilterResultCount());
+    }
+
+    private WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    private JsonNode read(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Instrument instrument(long token, String exchange, double lastPrice) {
+        Instrument i = new Instrument();
+        i.setInstrumentToken(token);
+        i.setTradingsymbol("SYM" + token);
+        i.setName("SYM" + token);
+        i.setLastPrice(lastPrice);
+        i.setInstrumentType("EQ");
+        i.setExchange(exchange);
+        return i;
+    }
+}
@@ -0,0 +1,66 @@
+package org.mandrin.rain.broker.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.config.ApiConstants;
+import org.mandrin.rain.broker.model.TradeOrder;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderWebSocketHandlerTest {
+    private final OrderWebSocketHandler handler =
+            new OrderWebSocketHandler(new ObjectMapper().registerModule(new JavaTimeModule()));
+
+    @Test
+    void broadcastOrderUpdate_ShouldReachOnlyTheOwnersSessions() throws Exception {
+        WebSocketSession owner = session("s1", "token-a");
+        WebSocketSession other = session("s2", "token-b");
+        handler.afterConnectionEstablished(owner);
+        handler.afterConnectionEstablished(other);
+        TradeOrder order = new TradeOrder();
+        order.setClientOrderId("c1");
+        order.setTradingsymbol("INFY");
+
+        handler.broadcastOrderUpdate("token-a", order);
+        handler.broadcastOrderUpdate(null, order);
+
+        ArgumentCaptor<TextMessage> ownerMessages = ArgumentCaptor.forClass(TextMessage.class);
+        verify(owner, times(2)).sendMessage(ownerMessages.capture());
+        List<String> payloads = ownerMessages.getAllValues().stream().map(TextMessage::getPayload).toList();
+        assertTrue(payloads.get(1).contains("\"INFY\""));
+        verify(other, times(1)).sendMessage(any());
+    }
+
+    @Test
+    void afterConnectionEstablished_WithoutAccessToken_ShouldClose() throws Exception {
+        WebSocketSession anonymous = session("s1", null);
+
+        handler.afterConnectionEstablished(anonymous);
+
+        verify(anonymous).close(any(CloseStatus.class));
+        verify(anonymous, never()).sendMessage(any());
+        assertEquals(0, handler.getActiveSessionCount());
+    }
+
+    private WebSocketSession session(String id, String accessToken) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        Map<String, Object> attributes = new HashMap<>();
+        if (accessToken != null) {
+            attributes.put(ApiConstants.KITE_ACCESS_TOKEN_SESSION, accessToken);
+        }
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAttributes()).thenReturn(attributes);
+        return session;
+    }
+}
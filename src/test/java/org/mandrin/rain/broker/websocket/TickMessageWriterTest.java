@@ -0,0 +1,130 @@
+package org.mandrin.rain.broker.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.model.MarketTick;
+import org.mandrin.rain.broker.service.TickLatencyTracker;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TickMessageWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TickMessageWriter writer = new TickMessageWriter();
+
+    private static MarketTick tick(long token, double lastPrice) {
+        MarketTick tick = new MarketTick();
+        tick.setInstrumentToken(token);
+        tick.setTradingsymbol("RELIANCE");
+        tick.setExchange("NSE");
+        tick.setMode(MarketTick.MODE_FULL);
+        tick.setLastPrice(lastPrice);
+        tick.setVolumeTraded(12345);
+        tick.setOpen(2900.0);
+        tick.setHigh(2950.5);
+        tick.setLow(2890.0);
+        tick.setClose(2900.0);
+        tick.setNetChange(lastPrice - 2900.0);
+        tick.setTimestamp(1_760_000_000_000L);
+        tick.setDepthLevels(2);
+        tick.setBid(0, lastPrice - 0.05, 100, 3);
+        tick.setBid(1, lastPrice - 0.10, 200, 4);
+        tick.setAsk(0, lastPrice + 0.05, 150, 5);
+        tick.setAsk(1, lastPrice + 0.10, 250, 6);
+        return tick;
+    }
+
+    @Test
+    void write_ShouldProduceTickerMessageWithFieldsTheTickerPageReads() throws Exception {
+        JsonNode message = objectMapper.readTree(writer.write(tick(738561L, 2925.5)));
+
+        assertEquals("ticker", message.get("type").asText());
+        JsonNode data = message.get("data");
+        assertEquals(738561L, data.get("instrumentToken").asLong());
+        assertEquals(2925.5, data.get("lastPrice").asDouble());
+        assertEquals(12345, data.get("volumeTraded").asLong());
+        assertEquals(25.5, data.get("netChange").asDouble());
+        assertEquals(2950.5, data.get("ohlc").get("high").asDouble());
+        assertEquals(2, data.get("depth").get("buy").size());
+        assertEquals(250, data.get("depth").get("sell").get(1).get("quantity").asLong());
+    }
+
+    @Test
+    void write_ShouldReuseBufferWithoutCarryingOverPreviousMessage() throws Exception {
+        MarketTick tick = tick(1L, 2925.5);
+        String first = writer.write(tick);
+
+        tick.reset();
+        tick.setInstrumentToken(2L);
+        tick.setLastPrice(10.0);
+        String second = writer.write(tick);
+
+        JsonNode data = objectMapper.readTree(second).get("data");
+        assertTrue(second.startsWith("{"));
+        assertEquals(2L, data.get("instrumentToken").asLong());
+        assertNull(data.get("tradingsymbol"));
+        assertNull(data.get("depth"));
+        assertTrue(second.length() < first.length());
+        assertEquals(second.getBytes().length, writer.encode(tick));
+    }
+
+    @Test
+    void write_ShouldFormatNumbersThatReadBackExactly() throws Exception {
+        double[] values = {0.05, -0.05, 2925.5, 2900.0, 1e-5, 12345678.9, 1e15, -1234.5678, 0.1 + 0.2, 1.0 / 3};
+        SplittableRandom random = new SplittableRandom(1);
+        MarketTick tick = new MarketTick();
+        for (int i = 0; i < 10_000; i++) {
+            double price = i < values.length ? values[i] : Math.round(random.nextDouble() * 1e7) / 100.0;
+            double change = random.nextGaussian() * 100;
+            tick.setLastPrice(price);
+            tick.setNetChange(change);
+            tick.setVolumeTraded(random.nextLong());
+
+            JsonNode data = objectMapper.readTree(writer.write(tick)).get("data");
+            assertEquals(price, data.get("lastPrice").asDouble());
+            assertEquals(change, data.get("netChange").asDouble());
+            assertEquals(tick.getVolumeTraded(), data.get("volumeTraded").asLong());
+        }
+    }
+
+    @Test
+    void write_ShouldEscapeStrings() throws Exception {
+        MarketTick tick = tick(1L, 10.0);
+        tick.setTradingsymbol("M&M \"Q\" \\ é\n");
+
+        assertEquals("M&M \"Q\" \\ é\n",
+                objectMapper.readTree(writer.write(tick)).get("data").get("tradingsymbol").asText());
+    }
+
+    @Test
+    void broadcastTick_ShouldSendOneEncodedFrameToEverySession() throws Exception {
+        TickerWebSocketHandler handler = new TickerWebSocketHandler(new TickLatencyTracker(new SimpleMeterRegistry(), true));
+        WebSocketSession a = session("a");
+        WebSocketSession b = session("b");
+        handler.afterConnectionEstablished(a);
+        handler.afterConnectionEstablished(b);
+        clearInvocations(a, b);
+
+        handler.broadcastTick(tick(738561L, 2925.5));
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(a).sendMessage(captor.capture());
+        verify(b).sendMessage(captor.capture());
+        assertSame(captor.getAllValues().get(0), captor.getAllValues().get(1));
+        assertEquals(738561L, objectMapper.readTree(captor.getValue().getPayload()).get("data").get("instrumentToken").asLong());
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+}
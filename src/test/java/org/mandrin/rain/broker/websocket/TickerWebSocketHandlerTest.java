@@ -0,0 +1,254 @@
+package org.mandrin.rain.broker.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mandrin.rain.broker.model.MarketTick;
+import org.mandrin.rain.broker.service.TickLatencyTracker;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TickerWebSocketHandlerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TickerWebSocketHandler handler = new TickerWebSocketHandler(new TickLatencyTracker(meterRegistry, true));
+
+    private void setField(Object target, String fieldName, Object value) {
+        try {
+            java.lang.reflect.Field f = target.getClass().getDeclaredField(fieldName);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.shutdown();
+    }
+
+    private void enableBatching(String format, int maxSize) {
+        enableBatching(format, maxSize, 60_000L);
+    }
+
+    private void enableBatching(String format, int maxSize, long flushIntervalMs) {
+        setField(handler, "batchEnabled", true);
+        setField(handler, "flushIntervalMs", flushIntervalMs);
+        setField(handler, "batchFormat", format);
+        setField(handler, "batchMaxSize", maxSize);
+        handler.init();
+    }
+
+    private static MarketTick tick(long token, double lastPrice) {
+        MarketTick tick = new MarketTick();
+        tick.setInstrumentToken(token);
+        tick.setTradingsymbol("SYM" + token);
+        tick.setLastPrice(lastPrice);
+        return tick;
+    }
+
+    private WebSocketSession connect(String id) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        handler.afterConnectionEstablished(session);
+        clearInvocations(session);
+        return session;
+    }
+
+    @Test
+    void flush_ShouldNotWaitForTasksBlockingTheSharedScheduler() throws Exception {
+        ThreadPoolTaskScheduler shared = new ThreadPoolTaskScheduler();
+        shared.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            shared.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            enableBatching("json", 100, 10L);
+            WebSocketSession session = connect("a");
+
+            handler.broadcastTick(tick(1L, 10.0));
+
+            verify(session, timeout(1_000)).sendMessage(any());
+        } finally {
+            release.countDown();
+            shared.shutdown();
+        }
+    }
+
+    @Test
+    void broadcastTick_ShouldHoldTicksUntilFlushWhenBatching() throws Exception {
+        enableBatching("json", 100);
+        WebSocketSession session = connect("a");
+
+        handler.broadcastTick(tick(1L, 10.0));
+        handler.broadcastTick(tick(2L, 20.5));
+        verify(session, never()).sendMessage(any());
+
+        handler.flushBatch();
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session).sendMessage(captor.capture());
+        JsonNode message = objectMapper.readTree(captor.getValue().getPayload());
+        assertEquals("ticker_batch", message.get("type").asText());
+        assertEquals(2, message.get("data").size());
+        assertEquals(1L, message.get("data").get(0).get("instrumentToken").asLong());
+        assertEquals(20.5, message.get("data").get(1).get("lastPrice").asDouble());
+
+        clearInvocations(session);
+        handler.flushBatch();
+        verify(session, never()).sendMessage(any());
+    }
+
+    @Test
+    void broadcastTick_ShouldFlushAsSoonAsBatchIsFull() throws Exception {
+        enableBatching("json", 3);
+        WebSocketSession a = connect("a");
+        WebSocketSession b = connect("b");
+
+        for (long token = 1; token <= 7; token++) {
+            handler.broadcastTick(tick(token, token));
+        }
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(a, times(2)).sendMessage(captor.capture());
+        verify(b, times(2)).sendMessage(any());
+        assertEquals(3, objectMapper.readTree(captor.getAllValues().get(0).getPayload()).get("data").size());
+        assertEquals(4L, objectMapper.readTree(captor.getAllValues().get(1).getPayload())
+                .get("data").get(0).get("instrumentToken").asLong());
+
+        handler.flushBatch();
+        verify(a, times(3)).sendMessage(captor.capture());
+        assertEquals(1, objectMapper.readTree(captor.getValue().getPayload()).get("data").size());
+    }
+
+    @Test
+    void flushBatch_ShouldSendLengthPrefixedTicksInBinaryFormat() throws Exception {
+        enableBatching("binary", 100);
+        WebSocketSession session = connect("a");
+        handler.broadcastTick(tick(1L, 10.0));
+        handler.broadcastTick(tick(2L, 2925.55));
+        handler.broadcastTick(tick(3L, 0.05));
+
+        handler.flushBatch();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<WebSocketMessage<?>> captor = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session).sendMessage(captor.capture());
+        BinaryMessage frame = assertInstanceOf(BinaryMessage.class, captor.getValue());
+        ByteBuffer payload = frame.getPayload();
+        List<JsonNode> ticks = new ArrayList<>();
+        while (payload.hasRemaining()) {
+            byte[] record = new byte[payload.getInt()];
+            payload.get(record);
+            ticks.add(objectMapper.readTree(new String(record, StandardCharsets.UTF_8)));
+        }
+        assertEquals(3, ticks.size());
+        assertEquals(2L, ticks.get(1).get("instrumentToken").asLong());
+        assertEquals(2925.55, ticks.get(1).get("lastPrice").asDouble());
+        assertEquals("SYM3", ticks.get(2).get("tradingsymbol").asText());
+    }
+
+    @Test
+    void broadcastTick_ShouldSendImmediatelyWhenBatchingDisabled() throws Exception {
+        handler.init();
+        WebSocketSession session = connect("a");
+
+        handler.broadcastTick(tick(1L, 10.0));
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session).sendMessage(captor.capture());
+        assertEquals("ticker", objectMapper.readTree(captor.getValue().getPayload()).get("type").asText());
+        handler.flushBatch();
+        verify(session, times(1)).sendMessage(any());
+    }
+
+    @Test
+    void broadcastTick_ShouldRecordSerializeAndWriteLatency() throws Exception {
+        handler.init();
+        connect("a");
+        MarketTick tick = tick(1L, 10.0);
+        tick.markReceived();
+
+        handler.broadcastTick(tick);
+        handler.broadcastTick(tick);
+
+        assertEquals(2, stageCount("serialize"));
+        assertEquals(2, stageCount("socket_write"));
+        assertEquals(2, stageCount("receive_to_write"));
+    }
+
+    @Test
+    void flushBatch_ShouldRecordReceiveToWriteFromOldestTick() throws Exception {
+        enableBatching("json", 100);
+        connect("a");
+        MarketTick first = tick(1L, 10.0);
+        first.setReceivedNanos(System.nanoTime() - 5_000_000_000L);
+        MarketTick second = tick(2L, 10.0);
+        second.markReceived();
+        handler.broadcastTick(first);
+        handler.broadcastTick(second);
+
+        handler.flushBatch();
+
+        assertEquals(2, stageCount("serialize"));
+        assertEquals(1, stageCount("socket_write"));
+        assertTrue(meterRegistry.get("ticker.latency").tag("stage", "receive_to_write").timer()
+                .totalTime(TimeUnit.SECONDS) >= 5);
+    }
+
+    @Test
+    void handleTextMessage_ShouldRecordBrowserEchoWhenEnabled() throws Exception {
+        setField(handler, "latencyEcho", true);
+        WebSocketSession session = connect("a");
+        long receivedAt = System.currentTimeMillis() - 250;
+
+        handler.handleTextMessage(session, new TextMessage(
+                "{\"type\":\"latency_echo\",\"receivedAt\":" + receivedAt + ",\"renderMs\":12.5}"));
+        handler.handleTextMessage(session, new TextMessage("{\"type\":\"latency_echo\",\"receivedAt\":"));
+
+        assertEquals(1, stageCount("receive_to_browser_echo"));
+        assertTrue(meterRegistry.get("ticker.latency").tag("stage", "receive_to_browser_echo").timer()
+                .totalTime(TimeUnit.MILLISECONDS) >= 250);
+        assertEquals(12.5, meterRegistry.get("ticker.latency").tag("stage", "browser_render").timer()
+                .totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+
+    @Test
+    void handleTextMessage_ShouldIgnoreEchoWhenDisabled() throws Exception {
+        WebSocketSession session = connect("a");
+
+        handler.handleTextMessage(session, new TextMessage(
+                "{\"type\":\"latency_echo\",\"receivedAt\":" + System.currentTimeMillis() + ",\"renderMs\":1}"));
+
+        assertEquals(0, stageCount("receive_to_browser_echo"));
+        assertEquals(0, stageCount("browser_render"));
+    }
+
+    private long stageCount(String stage) {
+        return meterRegistry.get("ticker.latency").tag("stage", stage).timer().count();
+    }
+}